@@ -323,7 +323,8 @@ public abstract class ChromeActivity extends BrowserChromeActivity
         enableHardwareAcceleration();
         setLowEndTheme();
 
-        if (WarmupManager.getInstance().hasBuiltViewHierarchy()) {
+        if (WarmupManager.getInstance().hasViewHierarchyWithToolbar(
+                getControlContainerLayoutId())) {
             View placeHolderView = new View(this);
             setContentView(placeHolderView);
             ViewGroup contentParent = (ViewGroup) placeHolderView.getParent();
@@ -52,6 +52,9 @@ public abstract class ChromeSwitches {
     /** Enable debug logs for the video casting feature. */
     public static final String ENABLE_CAST_DEBUG_LOGS = "enable-cast-debug";
 
+    /** Resolve the URLs of castable videos before they are cast, so that casting starts sooner. */
+    public static final String ENABLE_CAST_URL_PRERESOLVE = "enable-cast-url-preresolve";
+
     /** Prevent automatic reconnection to current Cast video when Chrome restarts. */
     public static final String DISABLE_CAST_RECONNECTION = "disable-cast-reconnection";
 
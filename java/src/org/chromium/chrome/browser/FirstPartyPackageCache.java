@@ -0,0 +1,99 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.Uri;
+
+import org.chromium.base.VisibleForTesting;
+import org.chromium.chrome.browser.externalauth.ExternalAuthUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers which packages are signed with Google keys, so that the intents fired by an app
+ * don't each check its signatures with the package manager.  A package is forgotten when it is
+ * installed, updated or removed.
+ *
+ * This class is safe to use on any thread.
+ */
+class FirstPartyPackageCache extends BroadcastReceiver {
+    private static final Object LOCK = new Object();
+
+    private static FirstPartyPackageCache sInstance;
+
+    private final Map<String, Boolean> mIsGoogleSigned = new HashMap<String, Boolean>();
+
+    // Incremented whenever packages are forgotten, so that a signature check that was in
+    // progress meanwhile isn't remembered.
+    private int mGeneration;
+
+    /**
+     * @param context Any context, used to listen to package changes the first time.
+     * @return The cache shared by the process.
+     */
+    static FirstPartyPackageCache getInstance(Context context) {
+        synchronized (LOCK) {
+            if (sInstance == null) {
+                sInstance = new FirstPartyPackageCache();
+                IntentFilter filter = new IntentFilter();
+                filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+                filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+                filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+                filter.addDataScheme("package");
+                context.getApplicationContext().registerReceiver(sInstance, filter);
+            }
+            return sInstance;
+        }
+    }
+
+    @VisibleForTesting
+    FirstPartyPackageCache() {
+    }
+
+    /**
+     * @param context The context to use for accessing the package manager.
+     * @param packageName The package name to inquire about.
+     * @return Whether the package is signed with Google keys.
+     */
+    boolean isGoogleSigned(Context context, String packageName) {
+        int generation;
+        synchronized (mIsGoogleSigned) {
+            Boolean isGoogleSigned = mIsGoogleSigned.get(packageName);
+            if (isGoogleSigned != null) return isGoogleSigned;
+            generation = mGeneration;
+        }
+
+        boolean isGoogleSigned = checkGoogleSigned(context, packageName);
+        synchronized (mIsGoogleSigned) {
+            if (generation == mGeneration) mIsGoogleSigned.put(packageName, isGoogleSigned);
+        }
+        return isGoogleSigned;
+    }
+
+    @VisibleForTesting
+    protected boolean checkGoogleSigned(Context context, String packageName) {
+        return ExternalAuthUtils.getInstance().isGoogleSigned(
+                context.getPackageManager(), packageName);
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Uri data = intent.getData();
+        String packageName = data == null ? null : data.getSchemeSpecificPart();
+        synchronized (mIsGoogleSigned) {
+            mGeneration++;
+            if (packageName == null) {
+                mIsGoogleSigned.clear();
+            } else {
+                mIsGoogleSigned.remove(packageName);
+            }
+        }
+    }
+}
@@ -25,7 +25,6 @@ import org.chromium.base.ApiCompatibilityUtils;
 import org.chromium.base.Log;
 import org.chromium.base.VisibleForTesting;
 import org.chromium.base.metrics.RecordHistogram;
-import org.chromium.chrome.browser.externalauth.ExternalAuthUtils;
 import org.chromium.chrome.browser.externalnav.IntentWithGesturesHandler;
 import org.chromium.chrome.browser.omnibox.AutocompleteController;
 import org.chromium.chrome.browser.search_engines.TemplateUrlService;
@@ -39,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handles all browser-related Intents.
@@ -125,6 +125,11 @@ public class IntentHandler {
      */
     private static ComponentName sFakeComponentName = null;
 
+    /**
+     * The PendingIntent used as TRUSTED_APPLICATION_CODE_EXTRA, created once per process.
+     */
+    private static PendingIntent sAuthenticationToken;
+
     private static final Object LOCK = new Object();
 
     private static Pair<Integer, String> sPendingReferrer;
@@ -242,9 +247,20 @@ public class IntentHandler {
      */
     public static ExternalAppId determineExternalIntentSource(String packageName, Intent intent) {
         String appId = IntentUtils.safeGetStringExtra(intent, Browser.EXTRA_APPLICATION_ID);
+        return determineExternalIntentSource(
+                packageName, appId, appId == null ? getUrlFromIntent(intent) : null);
+    }
+
+    /**
+     * @param packageName Package name of this application.
+     * @param appId The application ID the Intent was fired with, or null.
+     * @param url The URL of the Intent, or null.
+     * @return ExternalAppId representing the app.
+     */
+    private static ExternalAppId determineExternalIntentSource(
+            String packageName, String appId, String url) {
         ExternalAppId externalId = ExternalAppId.OTHER;
         if (appId == null) {
-            String url = getUrlFromIntent(intent);
             if (url != null && url.startsWith(TWITTER_LINK_PREFIX)) {
                 externalId = ExternalAppId.TWITTER;
             } else if (url != null && url.startsWith(FACEBOOK_LINK_PREFIX)) {
@@ -274,8 +290,8 @@ public class IntentHandler {
         return externalId;
     }
 
-    private void recordExternalIntentSourceUMA(Intent intent) {
-        ExternalAppId externalId = determineExternalIntentSource(mPackageName, intent);
+    private void recordExternalIntentSourceUMA(String appId, String url) {
+        ExternalAppId externalId = determineExternalIntentSource(mPackageName, appId, url);
         RecordHistogram.recordEnumeratedHistogram("MobileIntent.PageLoadDueToExternalApp",
                 externalId.ordinal(), ExternalAppId.INDEX_BOUNDARY.ordinal());
     }
@@ -287,8 +303,16 @@ public class IntentHandler {
      * @return Whether the Intent was successfully handled.
      */
     boolean onNewIntent(Context context, Intent intent) {
-        assert intentHasValidUrl(intent);
+        long startTimeMs = SystemClock.elapsedRealtime();
+        boolean handled = handleNewIntent(context, intent);
+        RecordHistogram.recordTimesHistogram("MobileIntent.OnNewIntentTime",
+                SystemClock.elapsedRealtime() - startTimeMs, TimeUnit.MILLISECONDS);
+        return handled;
+    }
+
+    private boolean handleNewIntent(Context context, Intent intent) {
         String url = getUrlFromIntent(intent);
+        assert isValidUrl(url);
         boolean hasUserGesture =
                 IntentWithGesturesHandler.getInstance().getUserGestureAndClear(intent);
         TabOpenType tabOpenType = getTabOpenType(intent);
@@ -301,12 +325,12 @@ public class IntentHandler {
 
         String referrerUrl = getReferrerUrlIncludingExtraHeaders(intent, context);
         String extraHeaders = getExtraHeadersFromIntent(intent);
+        String appId = IntentUtils.safeGetStringExtra(intent, Browser.EXTRA_APPLICATION_ID);
 
         // TODO(joth): Presumably this should check the action too.
-        mDelegate.processUrlViewIntent(url, referrerUrl, extraHeaders, tabOpenType,
-                IntentUtils.safeGetStringExtra(intent, Browser.EXTRA_APPLICATION_ID),
+        mDelegate.processUrlViewIntent(url, referrerUrl, extraHeaders, tabOpenType, appId,
                 tabIdToBringToFront, hasUserGesture, intent);
-        recordExternalIntentSourceUMA(intent);
+        recordExternalIntentSourceUMA(appId, url);
         return true;
     }
 
@@ -460,9 +484,14 @@ public class IntentHandler {
     }
 
     private static PendingIntent getAuthenticationToken(Context appContext) {
-        Intent fakeIntent = new Intent();
-        fakeIntent.setComponent(getFakeComponentName(appContext.getPackageName()));
-        return PendingIntent.getActivity(appContext, 0, fakeIntent, 0);
+        synchronized (LOCK) {
+            if (sAuthenticationToken == null) {
+                Intent fakeIntent = new Intent();
+                fakeIntent.setComponent(getFakeComponentName(appContext.getPackageName()));
+                sAuthenticationToken = PendingIntent.getActivity(appContext, 0, fakeIntent, 0);
+            }
+            return sAuthenticationToken;
+        }
     }
 
     /**
@@ -597,7 +626,8 @@ public class IntentHandler {
         // wild.
         try {
             // Ignore all invalid URLs, regardless of what the intent was.
-            if (!intentHasValidUrl(intent)) {
+            String url = getUrlFromIntent(intent);
+            if (!isValidUrl(url)) {
                 return true;
             }
 
@@ -615,7 +645,6 @@ public class IntentHandler {
             // Now if we have an empty URL and the intent was ACTION_MAIN,
             // we are pretty sure it is the launcher calling us to show up.
             // We can safely ignore the screen state.
-            String url = getUrlFromIntent(intent);
             if (url == null && Intent.ACTION_MAIN.equals(intent.getAction())) {
                 return false;
             }
@@ -627,9 +656,8 @@ public class IntentHandler {
                     && (intent.hasCategory(Intent.CATEGORY_BROWSABLE)
                                || intent.hasCategory(Intent.CATEGORY_DEFAULT)
                                || intent.getCategories() == null)) {
-                String lowerCaseScheme = scheme.toLowerCase(Locale.US);
-                if ("chrome".equals(lowerCaseScheme) || "chrome-native".equals(lowerCaseScheme)
-                        || "about".equals(lowerCaseScheme)) {
+                if ("chrome".equals(scheme) || "chrome-native".equals(scheme)
+                        || "about".equals(scheme)) {
                     // Allow certain "safe" internal URLs to be launched by external
                     // applications.
                     String lowerCaseUrl = url.toLowerCase(Locale.US);
@@ -654,8 +682,10 @@ public class IntentHandler {
 
     @VisibleForTesting
     boolean intentHasValidUrl(Intent intent) {
-        String url = getUrlFromIntent(intent);
+        return isValidUrl(getUrlFromIntent(intent));
+    }
 
+    private boolean isValidUrl(String url) {
         // Always drop insecure urls.
         if (url != null && isJavascriptSchemeOrInvalidUrl(url)) {
             return false;
@@ -712,8 +742,8 @@ public class IntentHandler {
         if (isChromeToken(token, context)) {
             return true;
         }
-        if (ExternalAuthUtils.getInstance().isGoogleSigned(
-                    context.getPackageManager(), ApiCompatibilityUtils.getCreatorPackage(token))) {
+        if (FirstPartyPackageCache.getInstance(context).isGoogleSigned(
+                    context, ApiCompatibilityUtils.getCreatorPackage(token))) {
             return true;
         }
         return false;
@@ -763,21 +793,50 @@ public class IntentHandler {
     }
 
     private boolean isInvalidScheme(String scheme) {
-        return scheme != null && (scheme.toLowerCase(Locale.US).equals("javascript")
-                                         || scheme.toLowerCase(Locale.US).equals("jar"));
+        return "javascript".equals(scheme) || "jar".equals(scheme);
     }
 
     /**
      * Parses the scheme out of the URL if possible, trimming and getting rid of unsafe characters.
      * This is useful for determining if a URL has a sneaky, unsafe scheme, e.g. "java  script" or
      * "j$a$r". See: http://crbug.com/248398
-     * @return The sanitized URL scheme or null if no scheme is specified.
+     * @return The sanitized, lower case URL scheme or null if no scheme is specified.
      */
-    private String getSanitizedUrlScheme(String url) {
+    @VisibleForTesting
+    static String getSanitizedUrlScheme(String url) {
         if (url == null) {
             return null;
         }
 
+        // Lower case the scheme and drop everything but the valid scheme chars, alphanumerics,
+        // dash, plus and period, in a single pass: https://tools.ietf.org/html/rfc3986#section-3.1
+        StringBuilder scheme = null;
+        int length = url.length();
+        for (int i = 0; i < length; i++) {
+            char ch = url.charAt(i);
+            if (ch == ':') {
+                return scheme == null ? url.substring(0, i) : scheme.toString();
+            }
+            if (ch >= 0x80) return getSanitizedNonAsciiUrlScheme(url);
+
+            char lowerCaseCh = ch >= 'A' && ch <= 'Z' ? (char) (ch + ('a' - 'A')) : ch;
+            boolean isValid = (lowerCaseCh >= 'a' && lowerCaseCh <= 'z')
+                    || (ch >= '0' && ch <= '9') || ch == '-' || ch == '+' || ch == '.';
+            if (scheme == null && (!isValid || lowerCaseCh != ch)) {
+                // The scheme isn't a prefix of the URL; copy what was kept of it so far.
+                scheme = new StringBuilder(url.substring(0, i));
+            }
+            if (scheme != null && isValid) scheme.append(lowerCaseCh);
+        }
+        // No scheme specified for the url
+        return null;
+    }
+
+    /**
+     * Does what {@link #getSanitizedUrlScheme} does for URLs with non-ASCII characters in their
+     * scheme, which are lower cased and kept or dropped following Unicode rules.
+     */
+    private static String getSanitizedNonAsciiUrlScheme(String url) {
         int colonIdx = url.indexOf(":");
         if (colonIdx < 0) {
             // No scheme specified for the url
@@ -848,9 +907,10 @@ public class IntentHandler {
      * @return Whether the given URL adheres to the googlechrome:// scheme definition.
      */
     public static boolean isGoogleChromeScheme(String url) {
-        if (url == null) return false;
-        String urlScheme = Uri.parse(url).getScheme();
-        return urlScheme != null && urlScheme.equals(GOOGLECHROME_SCHEME);
+        // Same as checking the scheme of Uri.parse(url), without parsing the rest of the URL.
+        return url != null && url.startsWith(GOOGLECHROME_SCHEME)
+                && url.length() > GOOGLECHROME_SCHEME.length()
+                && url.charAt(GOOGLECHROME_SCHEME.length()) == ':';
     }
 
     /**
@@ -18,6 +18,7 @@ import org.chromium.base.TraceEvent;
 import org.chromium.chrome.browser.net.spdyproxy.DataReductionProxySettings;
 import org.chromium.chrome.browser.prerender.ExternalPrerenderHandler;
 import org.chromium.chrome.browser.profiles.Profile;
+import org.chromium.content_public.browser.LoadUrlParams;
 import org.chromium.content_public.browser.WebContents;
 
 import java.net.InetAddress;
@@ -45,6 +46,11 @@ public final class WarmupManager {
     private WebContents mPrerenderedWebContents;
     private boolean mPrerendered;
     private ViewGroup mMainView;
+    private int mToolbarContainerId;
+    private WebContents mSpareWebContents;
+    // Whether the spare WebContents was created for the next webapp launch, rather than for a
+    // Custom Tab.
+    private boolean mIsSpareWebContentsForWebapp;
     private ExternalPrerenderHandler mExternalPrerenderHandler;
 
     /**
@@ -150,6 +156,7 @@ public final class WarmupManager {
             ContextThemeWrapper context = new ContextThemeWrapper(baseContext, themeId);
             FrameLayout contentHolder = new FrameLayout(context);
             mMainView = (ViewGroup) LayoutInflater.from(context).inflate(layoutId, contentHolder);
+            mToolbarContainerId = toolbarContainerId;
             if (toolbarContainerId != 0) {
                 ViewStub stub = (ViewStub) mMainView.findViewById(toolbarContainerStubId);
                 stub.setLayoutResource(toolbarContainerId);
@@ -206,6 +213,108 @@ public final class WarmupManager {
         return mMainView != null;
     }
 
+    /**
+     * @param toolbarContainerId Id of the toolbar container of the Activity that would use the view
+     *        hierarchy.
+     * @return Whether the view hierarchy has been prebuilt with the given toolbar container.
+     */
+    public boolean hasViewHierarchyWithToolbar(int toolbarContainerId) {
+        ThreadUtils.assertOnUiThread();
+        return mMainView != null && mToolbarContainerId == toolbarContainerId;
+    }
+
+    /**
+     * Creates a spare {@link WebContents}, if none exists.
+     *
+     * Navigating to "about:blank" forces a lot of initialization to take place
+     * here. This improves PLT. This navigation is never registered in the history, as
+     * "about:blank" is filtered by CanAddURLToHistory.
+     *
+     * TODO(lizeb): Replace this with a cleaner method. See crbug.com/521729.
+     */
+    public void createSpareWebContents() {
+        ThreadUtils.assertOnUiThread();
+        // A spare created for a webapp is now relied upon by a Custom Tab as well, so webapps no
+        // longer get to destroy it.
+        mIsSpareWebContentsForWebapp = false;
+        if (mSpareWebContents != null) return;
+        mSpareWebContents = WebContentsFactory.createWebContents(false, false);
+        if (mSpareWebContents != null) {
+            mSpareWebContents.getNavigationController().loadUrl(new LoadUrlParams("about:blank"));
+        }
+    }
+
+    /**
+     * Creates a spare {@link WebContents} for the next webapp launch, if none exists.  Only a
+     * spare created this way is taken or destroyed by the other *ForWebapp methods, so that
+     * webapps never take or destroy the spare of a Custom Tab.
+     */
+    public void createSpareWebContentsForWebapp() {
+        ThreadUtils.assertOnUiThread();
+        if (mSpareWebContents != null) return;
+        createSpareWebContents();
+        mIsSpareWebContentsForWebapp = mSpareWebContents != null;
+    }
+
+    /**
+     * @return Whether a spare {@link WebContents} is available.
+     */
+    public boolean hasSpareWebContents() {
+        ThreadUtils.assertOnUiThread();
+        return mSpareWebContents != null;
+    }
+
+    /**
+     * @return Whether a spare {@link WebContents} created for the next webapp launch is available.
+     */
+    public boolean hasSpareWebContentsForWebapp() {
+        ThreadUtils.assertOnUiThread();
+        return mSpareWebContents != null && mIsSpareWebContentsForWebapp;
+    }
+
+    /**
+     * Destroys the spare {@link WebContents}, if there is one.
+     */
+    public void destroySpareWebContents() {
+        ThreadUtils.assertOnUiThread();
+        mIsSpareWebContentsForWebapp = false;
+        if (mSpareWebContents == null) return;
+        mSpareWebContents.destroy();
+        mSpareWebContents = null;
+    }
+
+    /**
+     * Destroys the spare {@link WebContents}, if it was created for the next webapp launch.
+     */
+    public void destroySpareWebContentsForWebapp() {
+        if (hasSpareWebContentsForWebapp()) destroySpareWebContents();
+    }
+
+    /**
+     * @return a spare WebContents, or null.
+     *
+     * This WebContents has already navigated to "about:blank". You have to call
+     * {@link LoadUrlParams.setShouldReplaceCurrentEntry(true)} for the next
+     * navigation to ensure that a back navigation doesn't lead to about:blank.
+     *
+     * TODO(lizeb): Update this when crbug.com/521729 is fixed.
+     */
+    public WebContents takeSpareWebContents() {
+        ThreadUtils.assertOnUiThread();
+        WebContents result = mSpareWebContents;
+        mSpareWebContents = null;
+        mIsSpareWebContentsForWebapp = false;
+        return result;
+    }
+
+    /**
+     * @return The spare WebContents if it was created for the next webapp launch, or null.  See
+     *         {@link #takeSpareWebContents()}.
+     */
+    public WebContents takeSpareWebContentsForWebapp() {
+        return hasSpareWebContentsForWebapp() ? takeSpareWebContents() : null;
+    }
+
     /**
      * @return The prebuilt view hierarchy and clears the reference WarmupManager owns.
      */
@@ -538,6 +538,7 @@ public class CompositorViewHolder extends FrameLayout
     @Override
     public void onCompositorLayout() {
         TraceEvent.begin("CompositorViewHolder:layout");
+        if (mFullscreenManager != null) mFullscreenManager.onCompositorLayout();
         if (mLayoutManager != null) {
             mLayoutManager.onUpdate();
 
@@ -881,7 +882,7 @@ public class CompositorViewHolder extends FrameLayout
 
         if (mTabVisible != tab) {
             if (mTabVisible != null) mTabVisible.removeObserver(mTabObserver);
-            if (tab != null) tab.addObserver(mTabObserver);
+            if (tab != null) tab.addObserver(mTabObserver, TabObserver.EVENT_NONE);
         }
 
         mTabVisible = tab;
@@ -171,8 +171,11 @@ public class ContextualSearchPanel extends ContextualSearchPanelAnimation
         }
 
         // Negative ty value means an upward movement so subtracting ty means expanding the panel.
+        // Dragging past the smallest or largest height doesn't move the panel, so it doesn't
+        // need a new frame.
+        float previousHeight = getHeight();
         setClampedPanelHeight(mInitialPanelHeight - ty);
-        requestUpdate();
+        if (getHeight() != previousHeight) requestUpdate();
     }
 
     /**
@@ -493,9 +496,9 @@ public class ContextualSearchPanel extends ContextualSearchPanelAnimation
     }
 
     @Override
-    public void onSearchResultsLoaded(boolean wasPrefetch) {
+    public void onSearchResultsLoaded(boolean wasPrefetch, long tapToResultsMs) {
         // NOTE(pedrosimonetti): exposing superclass method to the interface.
-        super.onSearchResultsLoaded(wasPrefetch);
+        super.onSearchResultsLoaded(wasPrefetch, tapToResultsMs);
     }
 
     @Override
@@ -564,6 +564,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return The height of the Contextual Search Bar.
      */
     public float getSearchBarHeight() {
+        updatePanelLayoutIfNeeded();
         return mSearchBarHeight;
     }
 
@@ -571,6 +572,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return The opacity of the Contextual Search Bar text.
      */
     public float getSearchBarTextOpacity() {
+        updatePanelLayoutIfNeeded();
         return mSearchBarTextOpacity;
     }
 
@@ -578,6 +580,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return Whether the Search Bar border is visible.
      */
     public boolean isSearchBarBorderVisible() {
+        updatePanelLayoutIfNeeded();
         return mIsSearchBarBorderVisible;
     }
 
@@ -585,6 +588,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return The Y coordinate of the Search Bar border.
      */
     public float getSearchBarBorderY() {
+        updatePanelLayoutIfNeeded();
         return mSearchBarBorderY;
     }
 
@@ -599,6 +603,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return Whether the Search Bar shadow is visible.
      */
     public boolean getSearchBarShadowVisible() {
+        updatePanelLayoutIfNeeded();
         return mSearchBarShadowVisible;
     }
 
@@ -606,6 +611,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return The opacity of the Search Bar shadow.
      */
     public float getSearchBarShadowOpacity() {
+        updatePanelLayoutIfNeeded();
         return mSearchBarShadowOpacity;
     }
 
@@ -613,6 +619,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return The opacity of the arrow icon.
      */
     public float getArrowIconOpacity() {
+        updatePanelLayoutIfNeeded();
         return mArrowIconOpacity;
     }
 
@@ -620,6 +627,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return The rotation of the arrow icon, in degrees.
      */
     public float getArrowIconRotation() {
+        updatePanelLayoutIfNeeded();
         return mArrowIconRotation;
     }
 
@@ -634,6 +642,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return The opacity of the close icon.
      */
     public float getCloseIconOpacity() {
+        updatePanelLayoutIfNeeded();
         return mCloseIconOpacity;
     }
 
@@ -677,6 +686,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return The vertical offset of the base page.
      */
     public float getBasePageY() {
+        updatePanelLayoutIfNeeded();
         return mBasePageY;
     }
 
@@ -684,6 +694,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return The brightness of the base page.
      */
     public float getBasePageBrightness() {
+        updatePanelLayoutIfNeeded();
         return mBasePageBrightness;
     }
 
@@ -715,6 +726,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return The Y coordinate of the Progress Bar.
      */
     public float getProgressBarY() {
+        updatePanelLayoutIfNeeded();
         return mProgressBarY;
     }
 
@@ -729,6 +741,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return The Progress Bar opacity.
      */
     public float getProgressBarOpacity() {
+        updatePanelLayoutIfNeeded();
         return mProgressBarOpacity;
     }
 
@@ -759,6 +772,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return Whether the promo is visible.
      */
     public boolean getPromoVisible() {
+        updatePanelLayoutIfNeeded();
         return mPromoVisible;
     }
 
@@ -773,6 +787,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return Height of the promo in dps.
      */
     public float getPromoHeight() {
+        updatePanelLayoutIfNeeded();
         return mPromoHeightPx * mPxToDp;
     }
 
@@ -780,6 +795,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return Height of the promo in pixels.
      */
     public float getPromoHeightPx() {
+        updatePanelLayoutIfNeeded();
         return mPromoHeightPx;
     }
 
@@ -787,6 +803,7 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @return The opacity of the promo.
      */
     public float getPromoOpacity() {
+        updatePanelLayoutIfNeeded();
         return mPromoOpacity;
     }
 
@@ -925,7 +942,9 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
     }
 
     /**
-     * Sets the panel height.
+     * Sets the panel height. Only the size and position of the Panel are updated right away, the
+     * rest of the UI state is computed by the next layout pass, see
+     * {@link #updatePanelLayoutIfNeeded}.
      *
      * @param height The height of the panel in dps.
      */
@@ -936,7 +955,8 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
             hidePromoView();
         }
 
-        updatePanelForHeight(height);
+        updatePanelSize(height);
+        mIsLayoutDirty = true;
     }
 
     /**
@@ -951,6 +971,31 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
     // UI Update Handling
     // ============================================================================================
 
+    /**
+     * Whether the UI state derived from the Panel height is out of date.
+     */
+    private boolean mIsLayoutDirty;
+
+    /**
+     * Computes the UI state derived from the Panel height, if the height changed since the last
+     * layout pass. The height can change several times per frame while the Panel is dragged or
+     * animated, so this work is deferred until the state is read, usually once per frame by the
+     * scene layer.
+     */
+    public void updatePanelLayoutIfNeeded() {
+        if (!mIsLayoutDirty) return;
+        mIsLayoutDirty = false;
+        updatePanelForHeight(mHeight);
+    }
+
+    /**
+     * @return Whether the UI state derived from the Panel height is out of date.
+     */
+    @VisibleForTesting
+    public boolean isLayoutDirty() {
+        return mIsLayoutDirty;
+    }
+
     /**
      * Updates the UI state for a given |height|.
      *
@@ -961,8 +1006,6 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
         PanelState startState = getPreviousPanelState(endState);
         float percentage = getStateCompletion(height, startState, endState);
 
-        updatePanelSize(height, endState, percentage);
-
         if (endState == PanelState.CLOSED || endState == PanelState.PEEKED) {
             updatePanelForCloseOrPeek(percentage);
         } else if (endState == PanelState.EXPANDED) {
@@ -976,10 +1019,8 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * Updates the Panel size information.
      *
      * @param height The Contextual Search Panel height.
-     * @param endState The final state of transition being executed.
-     * @param percentage The completion percentage of the transition.
      */
-    private void updatePanelSize(float height, PanelState endState, float percentage) {
+    private void updatePanelSize(float height) {
         mOffsetX = calculateSearchPanelX();
         mOffsetY = calculateSearchPanelY();
         mHeight = height;
@@ -1331,6 +1372,19 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
     private ViewGroup mContainerView;
     private DynamicResourceLoader mResourceLoader;
 
+    /**
+     * @return Whether the Search Bar or the Promo views changed since their bitmaps were last
+     *         captured for the compositor.
+     */
+    public boolean isDynamicResourceDirty() {
+        if (mControl != null && mControl.getResourceAdapter() != null
+                && mControl.getResourceAdapter().isDirty()) {
+            return true;
+        }
+        return mPromoView != null && mPromoView.getResourceAdapter() != null
+                && mPromoView.getResourceAdapter().isDirty();
+    }
+
     /**
      * @param resourceLoader The {@link DynamicResourceLoader} to register and unregister the view.
      */
@@ -1542,6 +1596,8 @@ abstract class ContextualSearchPanelBase extends ContextualSearchPanelStateHandl
      * @param percentage The visibility percentage of the Promo.
      */
     protected void setPromoVisibilityForOptInAnimation(float percentage) {
+        // Apply any pending layout first, so that it doesn't override the animated values.
+        updatePanelLayoutIfNeeded();
         updatePromoVisibility(percentage);
         updateSearchBarShadow();
     }
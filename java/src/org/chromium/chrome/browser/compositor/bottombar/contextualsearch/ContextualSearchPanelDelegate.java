@@ -124,8 +124,10 @@ public interface ContextualSearchPanelDelegate {
      * Called when the SERP finishes loading, this records the duration of loading the SERP from
      * the time the panel was opened until the present.
      * @param wasPrefetch Whether the request was prefetch-enabled.
+     * @param tapToResultsMs The duration from the tap that started the search until the results
+     *        loaded, or 0 if the search was not started by a tap or this was not its first load.
      */
-    void onSearchResultsLoaded(boolean wasPrefetch);
+    void onSearchResultsLoaded(boolean wasPrefetch, long tapToResultsMs);
 
     /**
      * @return ContextualSearchControl The Android View that renders the BottomBar text.
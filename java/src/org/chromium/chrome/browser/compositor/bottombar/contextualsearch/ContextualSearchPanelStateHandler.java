@@ -44,6 +44,7 @@ abstract class ContextualSearchPanelStateHandler {
     private boolean mIsSearchPanelFullyPreloaded;
     private long mSearchStartTimeNs;
     private long mSearchViewStartTimeNs;
+    private long mTapToResultsMs;
 
     // --------------------------------------------------------------------------------------------
     // Contextual Search Panel states
@@ -104,6 +105,7 @@ abstract class ContextualSearchPanelStateHandler {
         if (isStartingSearch) {
             mSearchStartTimeNs = System.nanoTime();
             mSearchViewStartTimeNs = 0;
+            mTapToResultsMs = 0;
             mIsSearchPanelFullyPreloaded = false;
             mWasActivatedByTap = reason == StateChangeReason.TEXT_SELECT_TAP;
         }
@@ -214,8 +216,11 @@ abstract class ContextualSearchPanelStateHandler {
     /**
      * Records timing information when the search results have fully loaded.
      * @param wasPrefetch Whether the request was prefetch-enabled.
+     * @param tapToResultsMs The duration from the tap that started the search until the results
+     *        loaded, or 0 if the search was not started by a tap or this was not its first load.
      */
-    void onSearchResultsLoaded(boolean wasPrefetch) {
+    void onSearchResultsLoaded(boolean wasPrefetch, long tapToResultsMs) {
+        if (tapToResultsMs != 0) mTapToResultsMs = tapToResultsMs;
         if (mHasExpanded || mHasMaximized) {
             // Already opened, log how long it took.
             assert mSearchViewStartTimeNs != 0;
@@ -279,6 +284,8 @@ abstract class ContextualSearchPanelStateHandler {
      * @param durationMs The duration to log.
      */
     private void logSearchPanelLoadDuration(boolean wasPrefetch, long durationMs) {
-        ContextualSearchUma.logSearchPanelLoadDuration(wasPrefetch, durationMs);
+        ContextualSearchUma.logSearchPanelLoadDuration(wasPrefetch, durationMs, mTapToResultsMs);
+        // The tap to results duration is only recorded once per search.
+        mTapToResultsMs = 0;
     }
 }
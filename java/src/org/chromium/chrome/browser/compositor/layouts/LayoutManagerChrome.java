@@ -596,7 +596,8 @@ public class LayoutManagerChrome
     protected Bitmap getFaviconBitmap(Tab tab) {
         TitleBitmapFactory titleBitmapFactory =
                 tab.isIncognito() ? mIncognitoTitleBitmapFactory : mStandardTitleBitmapFactory;
-        return titleBitmapFactory.getFaviconBitmap(mHost.getContext(), tab.getFavicon());
+        return titleBitmapFactory.getFaviconBitmap(
+                mHost.getContext(), tab.getUrl(), tab.getFavicon());
     }
 
     /**
@@ -20,6 +20,7 @@ import android.view.InflateException;
 
 import org.chromium.base.ApiCompatibilityUtils;
 import org.chromium.chrome.R;
+import org.chromium.chrome.browser.favicon.IconCache;
 
 /**
  * A factory that creates text and favicon bitmaps.
@@ -37,6 +38,7 @@ public class TitleBitmapFactory {
 
     private final TextPaint mTextPaint;
     private int mFaviconDimension;
+    private Bitmap mNullFaviconBitmap;
     private final int mViewHeight;
     private final float mTextHeight;
     private final float mTextYOffset;
@@ -90,13 +92,32 @@ public class TitleBitmapFactory {
     }
 
     /**
-     * Generates the favicon bitmap.
+     * Generates the favicon bitmap. Results are kept in the process wide {@link IconCache}, so the
+     * returned bitmap is shared and must not be modified.
      *
      * @param context   Android's UI context.
+     * @param url       The URL of the tab, used as the cache key.
      * @param favicon   The favicon of the tab.
      * @return          The Bitmap with the favicon.
      */
-    public Bitmap getFaviconBitmap(Context context, Bitmap favicon) {
+    public Bitmap getFaviconBitmap(Context context, String url, Bitmap favicon) {
+        if (favicon == null) {
+            if (mNullFaviconBitmap == null) mNullFaviconBitmap = renderFaviconBitmap(context, null);
+            return mNullFaviconBitmap;
+        }
+        IconCache cache = IconCache.getInstance();
+        IconCache.Entry cached =
+                cache.getDerived(url, mFaviconDimension, IconCache.TYPE_TAB_STRIP, favicon);
+        if (cached != null) return cached.icon;
+
+        Bitmap b = renderFaviconBitmap(context, favicon);
+        if (b != null) {
+            cache.putDerived(url, mFaviconDimension, IconCache.TYPE_TAB_STRIP, b, favicon);
+        }
+        return b;
+    }
+
+    private Bitmap renderFaviconBitmap(Context context, Bitmap favicon) {
         try {
             Bitmap b = Bitmap.createBitmap(
                     mFaviconDimension, mFaviconDimension, Bitmap.Config.ARGB_8888);
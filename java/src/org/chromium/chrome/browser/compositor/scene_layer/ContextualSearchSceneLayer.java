@@ -4,12 +4,15 @@
 
 package org.chromium.chrome.browser.compositor.scene_layer;
 
+import org.chromium.base.VisibleForTesting;
 import org.chromium.base.annotations.JNINamespace;
 import org.chromium.chrome.R;
 import org.chromium.chrome.browser.compositor.bottombar.contextualsearch.ContextualSearchPanel;
 import org.chromium.content.browser.ContentViewCore;
 import org.chromium.ui.resources.ResourceManager;
 
+import java.util.Arrays;
+
 import javax.annotation.Nullable;
 
 /**
@@ -17,6 +20,35 @@ import javax.annotation.Nullable;
  */
 @JNINamespace("chrome::android")
 public class ContextualSearchSceneLayer extends SceneLayer {
+    // Indices of the values pushed to the native layer, see {@link #readPanelValues}. Sizes and
+    // positions are stored in pixels, booleans as 0 or 1.
+    private static final int PROMO_VISIBLE = 0;
+    private static final int PROMO_HEIGHT = 1;
+    private static final int PROMO_OPACITY = 2;
+    private static final int PANEL_X = 3;
+    private static final int PANEL_Y = 4;
+    private static final int PANEL_WIDTH = 5;
+    private static final int PANEL_HEIGHT = 6;
+    private static final int BAR_MARGIN_SIDE = 7;
+    private static final int BAR_HEIGHT = 8;
+    private static final int BAR_TEXT_OPACITY = 9;
+    private static final int BAR_BORDER_VISIBLE = 10;
+    private static final int BAR_BORDER_Y = 11;
+    private static final int BAR_BORDER_HEIGHT = 12;
+    private static final int BAR_SHADOW_VISIBLE = 13;
+    private static final int BAR_SHADOW_OPACITY = 14;
+    private static final int ARROW_ICON_OPACITY = 15;
+    private static final int ARROW_ICON_ROTATION = 16;
+    private static final int CLOSE_ICON_VISIBLE = 17;
+    private static final int CLOSE_ICON_OPACITY = 18;
+    private static final int PROGRESS_BAR_VISIBLE = 19;
+    private static final int PROGRESS_BAR_Y = 20;
+    private static final int PROGRESS_BAR_HEIGHT = 21;
+    private static final int PROGRESS_BAR_OPACITY = 22;
+    private static final int PROGRESS_BAR_COMPLETION = 23;
+    @VisibleForTesting
+    public static final int VALUE_COUNT = 24;
+
     // NOTE: If you use SceneLayer's native pointer here, the JNI generator will try to
     // downcast using reinterpret_cast<>. We keep a separate pointer to avoid it.
     private long mNativePtr;
@@ -24,50 +56,40 @@ public class ContextualSearchSceneLayer extends SceneLayer {
     private final float mDpToPx;
     private final ContextualSearchPanel mSearchPanel;
 
+    // The values of the current frame and the ones last pushed to the native layer. Both are
+    // allocated once and swapped after each push.
+    private float[] mValues = new float[VALUE_COUNT];
+    private float[] mPushedValues = new float[VALUE_COUNT];
+    private boolean mHasPushedValues;
+    private ContentViewCore mPushedContentViewCore;
+    private ResourceManager mPushedResourceManager;
+
     public ContextualSearchSceneLayer(float dpToPx, ContextualSearchPanel searchPanel) {
         mDpToPx = dpToPx;
         mSearchPanel = searchPanel;
     }
 
     /**
-     * Update contextual search's layer tree using the parameters.
+     * Update contextual search's layer tree using the parameters. The native layer is only
+     * updated if the Panel, the Search Bar or Promo bitmaps, or the parameters changed since the
+     * last update.
      *
      * @param contentViewCore The CVC, may be null if only updating the bar.
      * @param resourceManager
      */
     public void update(@Nullable ContentViewCore contentViewCore, ResourceManager resourceManager) {
-        boolean searchPromoVisible = mSearchPanel.getPromoVisible();
-        float searchPromoHeightPx = mSearchPanel.getPromoHeightPx();
-        float searchPromoOpacity = mSearchPanel.getPromoOpacity();
-
-        float searchPanelX = mSearchPanel.getOffsetX();
-        float searchPanelY = mSearchPanel.getOffsetY();
-        float searchPanelWidth = mSearchPanel.getWidth();
-        float searchPanelHeight = mSearchPanel.getHeight();
-
-        float searchBarMarginSide = mSearchPanel.getSearchBarMarginSide();
-        float searchBarHeight = mSearchPanel.getSearchBarHeight();
-        float searchBarTextOpacity = mSearchPanel.getSearchBarTextOpacity();
-
-        boolean searchBarBorderVisible = mSearchPanel.isSearchBarBorderVisible();
-        float searchBarBorderY = mSearchPanel.getSearchBarBorderY();
-        float searchBarBorderHeight = mSearchPanel.getSearchBarBorderHeight();
-
-        boolean searchBarShadowVisible = mSearchPanel.getSearchBarShadowVisible();
-        float searchBarShadowOpacity = mSearchPanel.getSearchBarShadowOpacity();
-
-        float arrowIconOpacity = mSearchPanel.getArrowIconOpacity();
-        float arrowIconRotation = mSearchPanel.getArrowIconRotation();
-
-        boolean closeIconVisible = mSearchPanel.isCloseIconVisible();
-        float closeIconOpacity = mSearchPanel.getCloseIconOpacity();
-
-        boolean isProgressBarVisible = mSearchPanel.isProgressBarVisible();
-        float progressBarY = mSearchPanel.getProgressBarY();
-        float progressBarHeight = mSearchPanel.getProgressBarHeight();
-        float progressBarOpacity = mSearchPanel.getProgressBarOpacity();
-        int progressBarCompletion = mSearchPanel.getProgressBarCompletion();
+        // Computes the Panel state once for all the values read below.
+        mSearchPanel.updatePanelLayoutIfNeeded();
+        readPanelValues(mSearchPanel, mDpToPx, mValues);
+
+        if (mHasPushedValues && contentViewCore == mPushedContentViewCore
+                && resourceManager == mPushedResourceManager
+                && !mSearchPanel.isDynamicResourceDirty()
+                && Arrays.equals(mValues, mPushedValues)) {
+            return;
+        }
 
+        float[] values = mValues;
         nativeUpdateContextualSearchLayer(mNativePtr,
                 R.drawable.contextual_search_bar_background,
                 R.id.contextual_search_view,
@@ -79,37 +101,86 @@ public class ContextualSearchSceneLayer extends SceneLayer {
                 R.drawable.progress_bar_foreground,
                 R.id.contextual_search_opt_out_promo,
                 contentViewCore,
-                searchPromoVisible,
-                searchPromoHeightPx,
-                searchPromoOpacity,
-                searchPanelX * mDpToPx,
-                searchPanelY * mDpToPx,
-                searchPanelWidth * mDpToPx,
-                searchPanelHeight * mDpToPx,
-                searchBarMarginSide * mDpToPx,
-                searchBarHeight * mDpToPx,
-                searchBarTextOpacity,
-                searchBarBorderVisible,
-                searchBarBorderY * mDpToPx,
-                searchBarBorderHeight * mDpToPx,
-                searchBarShadowVisible,
-                searchBarShadowOpacity,
-                arrowIconOpacity,
-                arrowIconRotation,
-                closeIconVisible,
-                closeIconOpacity,
-                isProgressBarVisible,
-                progressBarY * mDpToPx,
-                progressBarHeight * mDpToPx,
-                progressBarOpacity,
-                progressBarCompletion,
+                values[PROMO_VISIBLE] != 0.f,
+                values[PROMO_HEIGHT],
+                values[PROMO_OPACITY],
+                values[PANEL_X],
+                values[PANEL_Y],
+                values[PANEL_WIDTH],
+                values[PANEL_HEIGHT],
+                values[BAR_MARGIN_SIDE],
+                values[BAR_HEIGHT],
+                values[BAR_TEXT_OPACITY],
+                values[BAR_BORDER_VISIBLE] != 0.f,
+                values[BAR_BORDER_Y],
+                values[BAR_BORDER_HEIGHT],
+                values[BAR_SHADOW_VISIBLE] != 0.f,
+                values[BAR_SHADOW_OPACITY],
+                values[ARROW_ICON_OPACITY],
+                values[ARROW_ICON_ROTATION],
+                values[CLOSE_ICON_VISIBLE] != 0.f,
+                values[CLOSE_ICON_OPACITY],
+                values[PROGRESS_BAR_VISIBLE] != 0.f,
+                values[PROGRESS_BAR_Y],
+                values[PROGRESS_BAR_HEIGHT],
+                values[PROGRESS_BAR_OPACITY],
+                (int) values[PROGRESS_BAR_COMPLETION],
                 resourceManager);
+
+        mValues = mPushedValues;
+        mPushedValues = values;
+        mHasPushedValues = true;
+        mPushedContentViewCore = contentViewCore;
+        mPushedResourceManager = resourceManager;
+    }
+
+    /**
+     * Reads the values pushed to the native layer from the Panel.
+     *
+     * @param panel The Panel to read the values from.
+     * @param dpToPx The density of the display.
+     * @param values The array of {@link #VALUE_COUNT} elements to store the values in.
+     */
+    @VisibleForTesting
+    public static void readPanelValues(ContextualSearchPanel panel, float dpToPx, float[] values) {
+        values[PROMO_VISIBLE] = panel.getPromoVisible() ? 1.f : 0.f;
+        values[PROMO_HEIGHT] = panel.getPromoHeightPx();
+        values[PROMO_OPACITY] = panel.getPromoOpacity();
+
+        values[PANEL_X] = panel.getOffsetX() * dpToPx;
+        values[PANEL_Y] = panel.getOffsetY() * dpToPx;
+        values[PANEL_WIDTH] = panel.getWidth() * dpToPx;
+        values[PANEL_HEIGHT] = panel.getHeight() * dpToPx;
+
+        values[BAR_MARGIN_SIDE] = panel.getSearchBarMarginSide() * dpToPx;
+        values[BAR_HEIGHT] = panel.getSearchBarHeight() * dpToPx;
+        values[BAR_TEXT_OPACITY] = panel.getSearchBarTextOpacity();
+
+        values[BAR_BORDER_VISIBLE] = panel.isSearchBarBorderVisible() ? 1.f : 0.f;
+        values[BAR_BORDER_Y] = panel.getSearchBarBorderY() * dpToPx;
+        values[BAR_BORDER_HEIGHT] = panel.getSearchBarBorderHeight() * dpToPx;
+
+        values[BAR_SHADOW_VISIBLE] = panel.getSearchBarShadowVisible() ? 1.f : 0.f;
+        values[BAR_SHADOW_OPACITY] = panel.getSearchBarShadowOpacity();
+
+        values[ARROW_ICON_OPACITY] = panel.getArrowIconOpacity();
+        values[ARROW_ICON_ROTATION] = panel.getArrowIconRotation();
+
+        values[CLOSE_ICON_VISIBLE] = panel.isCloseIconVisible() ? 1.f : 0.f;
+        values[CLOSE_ICON_OPACITY] = panel.getCloseIconOpacity();
+
+        values[PROGRESS_BAR_VISIBLE] = panel.isProgressBarVisible() ? 1.f : 0.f;
+        values[PROGRESS_BAR_Y] = panel.getProgressBarY() * dpToPx;
+        values[PROGRESS_BAR_HEIGHT] = panel.getProgressBarHeight() * dpToPx;
+        values[PROGRESS_BAR_OPACITY] = panel.getProgressBarOpacity();
+        values[PROGRESS_BAR_COMPLETION] = panel.getProgressBarCompletion();
     }
 
     @Override
     protected void initializeNative() {
         if (mNativePtr == 0) {
             mNativePtr = nativeInit();
+            mHasPushedValues = false;
         }
         assert mNativePtr != 0;
     }
@@ -121,6 +192,9 @@ public class ContextualSearchSceneLayer extends SceneLayer {
     public void destroy() {
         super.destroy();
         mNativePtr = 0;
+        mHasPushedValues = false;
+        mPushedContentViewCore = null;
+        mPushedResourceManager = null;
     }
 
     private native long nativeInit();
@@ -5,6 +5,8 @@
 package org.chromium.chrome.browser.contextualsearch;
 
 import android.app.Activity;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.view.View;
 import android.view.View.MeasureSpec;
 import android.view.ViewGroup;
@@ -59,6 +61,7 @@ import org.chromium.content_public.common.ConsoleMessageLevel;
 import org.chromium.content_public.common.TopControlsState;
 import org.chromium.ui.base.WindowAndroid;
 
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 
@@ -117,6 +120,24 @@ public class ContextualSearchManager extends ContextualSearchObservable
     private boolean mWasActivatedByTap;
     private boolean mIsInitialized;
 
+    // A search ContentViewCore created ahead of any search, so that creating it is not on the
+    // critical path between a tap and its results. It is not attached to the panel until
+    // createNewSearchContentView() adopts it.
+    private ContentViewCore mWarmSearchContentViewCore;
+    private boolean mIsPrewarmScheduled;
+    // When the tap that started the current search happened, or 0 if it was not started by a tap.
+    private long mTapTimeNs;
+
+    private final ContextualSearchTermCache mTermCache = new ContextualSearchTermCache();
+    // The selection and base page host of the Search Term Resolution in progress, or null if
+    // mTermCache is not used for it, and the hash of its surrounding text once known.
+    private String mResolvingSelection;
+    private String mResolvingHost;
+    private boolean mHasResolvingSurroundingText;
+    private int mResolvingSurroundingTextHash;
+    // Whether the surrounding text is being gathered only to look the selection up in mTermCache.
+    private boolean mIsCheckingTermCache;
+
     private boolean mIsShowingPromo;
     private boolean mDidLogPromoOutcome;
 
@@ -288,6 +309,8 @@ public class ContextualSearchManager extends ContextualSearchObservable
         if (!mIsInitialized) return;
 
         hideContextualSearch(StateChangeReason.UNKNOWN);
+        destroyWarmSearchContentView();
+        mTermCache.clear();
         mParentView.getViewTreeObserver().removeOnGlobalFocusChangeListener(mOnFocusChangeListener);
         nativeDestroy(mNativeContextualSearchManagerPtr);
         stopListeningForHideNotifications();
@@ -298,6 +321,7 @@ public class ContextualSearchManager extends ContextualSearchObservable
             mFindToolbarManager = null;
             mFindToolbarObserver = null;
         }
+        mIsInitialized = false;
     }
 
     @Override
@@ -420,6 +444,11 @@ public class ContextualSearchManager extends ContextualSearchObservable
 
         mNetworkCommunicator.destroySearchContentView();
         mSearchRequest = null;
+        mTapTimeNs = 0;
+        // Don't go on to resolve a term that is not shown anymore.
+        mIsCheckingTermCache = false;
+        // Get ready for the next tap on the same page.
+        prewarmSearchContentView();
 
         if (mIsShowingPromo && !mDidLogPromoOutcome) {
             logPromoOutcome();
@@ -475,6 +504,19 @@ public class ContextualSearchManager extends ContextualSearchObservable
      * @param stateChangeReason The reason explaining the change of state.
      */
     private void showContextualSearch(StateChangeReason stateChangeReason) {
+        // Start resolving a tap before setting up the panel, so that the request overlaps with
+        // the setup and the peek animation.
+        boolean isTap = mSelectionController.getSelectionType() == SelectionType.TAP;
+        boolean didRequestSurroundings = false;
+        if (isTap && mPolicy.shouldPreviousTapResolve(
+                mNetworkCommunicator.getBasePageUrl())) {
+            // Make sure we'll create a new Content View when needed, before the response arrives.
+            mNetworkCommunicator.destroySearchContentView();
+            mNetworkCommunicator.startSearchTermResolutionRequest(
+                    mSelectionController.getSelectedText());
+            didRequestSurroundings = true;
+        }
+
         if (mFindToolbarManager != null) {
             mFindToolbarManager.hideToolbar(false);
         }
@@ -500,26 +542,17 @@ public class ContextualSearchManager extends ContextualSearchObservable
             removeLastSearchVisit();
         }
 
-        // Make sure we'll create a new Content View when needed.
-        mNetworkCommunicator.destroySearchContentView();
+        if (!didRequestSurroundings) {
+            // Make sure we'll create a new Content View when needed.
+            mNetworkCommunicator.destroySearchContentView();
 
-        boolean isTap = mSelectionController.getSelectionType() == SelectionType.TAP;
-        boolean didRequestSurroundings = false;
-        if (isTap && mPolicy.shouldPreviousTapResolve(
-                mNetworkCommunicator.getBasePageUrl())) {
-            mNetworkCommunicator.startSearchTermResolutionRequest(
-                    mSelectionController.getSelectedText());
-            didRequestSurroundings = true;
-        } else {
             boolean shouldPrefetch = mPolicy.shouldPrefetchSearchResult(isTap);
             mSearchRequest = new ContextualSearchRequest(mSelectionController.getSelectedText(),
                     null, shouldPrefetch);
             mDidLoadResolvedSearchRequest = false;
             getContextualSearchControl().setCentralText(mSelectionController.getSelectedText());
             if (shouldPrefetch) loadSearchUrl();
-        }
 
-        if (!didRequestSurroundings) {
             // Gather surrounding text for Icing integration, which will make the selection and
             // a shorter version of the surroundings available for Conversational Search.
             // Although the surroundings are extracted, they will not be sent to the server as
@@ -553,11 +586,56 @@ public class ContextualSearchManager extends ContextualSearchObservable
     @Override
     public void startSearchTermResolutionRequest(String selection) {
         ContentViewCore baseContentView = getBaseContentView();
-        if (baseContentView != null) {
-            nativeStartSearchTermResolutionRequest(mNativeContextualSearchManagerPtr, selection,
-                    ALWAYS_USE_RESOLVED_SEARCH_TERM, getBaseContentView(),
-                    mPolicy.maySendBasePageUrl());
+        if (baseContentView == null) return;
+
+        mResolvingSelection = null;
+        mHasResolvingSurroundingText = false;
+        mIsCheckingTermCache = false;
+        URL basePageUrl = getBasePageUrl();
+        // Incognito terms are never cached, nor served from the cache.
+        if (basePageUrl != null && !baseContentView.getWebContents().isIncognito()) {
+            mResolvingSelection = selection;
+            mResolvingHost = basePageUrl.getHost();
+            if (mTermCache.hasCandidates(selection, mResolvingHost)) {
+                // The term was resolved recently on this site. Gather the surrounding text, which
+                // doesn't involve the server, to find out whether it was in the same context.
+                // See onSurroundingTextAvailable().
+                mIsCheckingTermCache = true;
+                nativeGatherSurroundingText(mNativeContextualSearchManagerPtr, selection,
+                        NEVER_USE_RESOLVED_SEARCH_TERM, baseContentView,
+                        mPolicy.maySendBasePageUrl());
+                return;
+            }
+            ContextualSearchUma.logResolvedTermCacheHit(false);
         }
+        nativeStartSearchTermResolutionRequest(mNativeContextualSearchManagerPtr, selection,
+                ALWAYS_USE_RESOLVED_SEARCH_TERM, baseContentView, mPolicy.maySendBasePageUrl());
+    }
+
+    /**
+     * Completes a Search Term Resolution from mTermCache if the selection was resolved in the
+     * same context, or from the server otherwise.
+     */
+    private void onTermCacheChecked() {
+        mIsCheckingTermCache = false;
+        ContextualSearchTermCache.ResolvedTerm term = mTermCache.get(
+                mResolvingSelection, mResolvingSurroundingTextHash, mResolvingHost);
+        ContextualSearchUma.logResolvedTermCacheHit(term != null);
+        if (term != null) {
+            // Served from the cache, nothing to store.
+            mResolvingSelection = null;
+            mNetworkCommunicator.handleSearchTermResolutionResponse(false,
+                    HttpURLConnection.HTTP_OK, term.mSearchTerm, term.mDisplayText,
+                    term.mAlternateTerm, term.mDoPreventPreload, term.mSelectionStartAdjust,
+                    term.mSelectionEndAdjust);
+            return;
+        }
+
+        ContentViewCore baseContentView = getBaseContentView();
+        if (baseContentView == null) return;
+        nativeStartSearchTermResolutionRequest(mNativeContextualSearchManagerPtr,
+                mResolvingSelection, ALWAYS_USE_RESOLVED_SEARCH_TERM, baseContentView,
+                mPolicy.maySendBasePageUrl());
     }
 
     @Override
@@ -646,6 +724,8 @@ public class ContextualSearchManager extends ContextualSearchObservable
         if (newState == ActivityState.RESUMED || newState == ActivityState.STOPPED
                 || newState == ActivityState.DESTROYED) {
             hideContextualSearch(StateChangeReason.UNKNOWN);
+            // Don't hold on to a WebContents that is unlikely to be used soon.
+            if (newState != ActivityState.RESUMED) destroyWarmSearchContentView();
         } else if (newState == ActivityState.PAUSED) {
             mPolicy.logCurrentState(getBaseContentView());
         }
@@ -681,6 +761,13 @@ public class ContextualSearchManager extends ContextualSearchObservable
             getContextualSearchControl().setSearchContext(
                     mSelectionController.getSelectedText(), beforeText, afterText);
         }
+
+        if (mResolvingSelection != null) {
+            mResolvingSurroundingTextHash =
+                    ContextualSearchTermCache.hashSurroundingText(beforeText, afterText);
+            mHasResolvingSurroundingText = true;
+            if (mIsCheckingTermCache) onTermCacheChecked();
+        }
     }
 
     /**
@@ -723,6 +810,14 @@ public class ContextualSearchManager extends ContextualSearchObservable
     public void handleSearchTermResolutionResponse(boolean isNetworkUnavailable, int responseCode,
             String searchTerm, String displayText, String alternateTerm, boolean doPreventPreload,
             int selectionStartAdjust, int selectionEndAdjust) {
+        if (mResolvingSelection != null && mHasResolvingSurroundingText && !isNetworkUnavailable
+                && !isHttpFailureCode(responseCode) && !searchTerm.isEmpty()) {
+            mTermCache.put(mResolvingSelection, mResolvingSurroundingTextHash, mResolvingHost,
+                    searchTerm, displayText, alternateTerm, doPreventPreload,
+                    selectionStartAdjust, selectionEndAdjust);
+        }
+        mResolvingSelection = null;
+
         if (!mSearchPanelDelegate.isShowing()) return;
 
         // Show an appropriate message for what to search for.
@@ -880,7 +975,70 @@ public class ContextualSearchManager extends ContextualSearchObservable
     private void onSearchResultsLoaded() {
         if (mSearchRequest == null) return;
 
-        mSearchPanelDelegate.onSearchResultsLoaded(mSearchRequest.wasPrefetch());
+        long tapToResultsMs = 0;
+        if (mTapTimeNs != 0) {
+            tapToResultsMs = (System.nanoTime() - mTapTimeNs) / 1000000;
+            // Only the first load of a search is measured.
+            mTapTimeNs = 0;
+        }
+        mSearchPanelDelegate.onSearchResultsLoaded(mSearchRequest.wasPrefetch(), tapToResultsMs);
+    }
+
+    /**
+     * Creates the search {@code ContentViewCore} ahead of time when the main thread is idle, so
+     * that it is ready when a tap is resolved and its results are prefetched. Called when the base
+     * page becomes tappable and after a search ends.
+     */
+    public void prewarmSearchContentView() {
+        if (mIsPrewarmScheduled || !shouldPrewarmSearchContentView()) return;
+
+        mIsPrewarmScheduled = true;
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                mIsPrewarmScheduled = false;
+                if (shouldPrewarmSearchContentView()) {
+                    mWarmSearchContentViewCore = createSearchContentViewCore();
+                }
+                return false;
+            }
+        });
+    }
+
+    /**
+     * @return Whether a search {@code ContentViewCore} should be created ahead of time.
+     */
+    private boolean shouldPrewarmSearchContentView() {
+        // Low end devices can't afford an extra WebContents, and long-press searches are not
+        // prefetched so they don't benefit from it.
+        return mIsInitialized && mWarmSearchContentViewCore == null
+                && mSearchContentViewCore == null && mSearchPanelDelegate != null
+                && mSearchContentViewDelegate != null && !SysUtils.isLowEndDevice()
+                && ApplicationStatus.getStateForActivity(mActivity) == ActivityState.RESUMED
+                && mPolicy.shouldPrefetchSearchResult(true);
+    }
+
+    /**
+     * Destroys the search {@code ContentViewCore} created ahead of time, if any.
+     */
+    private void destroyWarmSearchContentView() {
+        if (mWarmSearchContentViewCore == null) return;
+
+        mWarmSearchContentViewCore.getWebContents().destroy();
+        mWarmSearchContentViewCore.destroy();
+        mWarmSearchContentViewCore = null;
+    }
+
+    /**
+     * @return A new {@code ContentViewCore} with an initially hidden WebContents.
+     */
+    private ContentViewCore createSearchContentViewCore() {
+        ContentViewCore contentViewCore = new ContentViewCore(mActivity);
+        ContentView cv = new ContentView(mActivity, contentViewCore);
+        // Creates an initially hidden WebContents which gets shown when the panel is opened.
+        contentViewCore.initialize(cv, cv,
+                WebContentsFactory.createWebContents(false, true), mWindowAndroid);
+        return contentViewCore;
     }
 
     /**
@@ -908,7 +1066,12 @@ public class ContextualSearchManager extends ContextualSearchObservable
             mNetworkCommunicator.destroySearchContentView();
         }
 
-        mSearchContentViewCore = new ContentViewCore(mActivity);
+        if (mWarmSearchContentViewCore != null) {
+            mSearchContentViewCore = mWarmSearchContentViewCore;
+            mWarmSearchContentViewCore = null;
+        } else {
+            mSearchContentViewCore = createSearchContentViewCore();
+        }
 
         // Adds a ContentViewClient to override the default fullscreen size.
         if (!mSearchPanelDelegate.isFullscreenSizePanel()) {
@@ -929,11 +1092,6 @@ public class ContextualSearchManager extends ContextualSearchObservable
             });
         }
 
-        ContentView cv = new ContentView(mActivity, mSearchContentViewCore);
-        // Creates an initially hidden WebContents which gets shown when the panel is opened.
-        mSearchContentViewCore.initialize(cv, cv,
-                WebContentsFactory.createWebContents(false, true), mWindowAndroid);
-
         // Transfers the ownership of the WebContents to the native ContextualSearchManager.
         nativeSetWebContents(mNativeContextualSearchManagerPtr, mSearchContentViewCore,
                 mWebContentsDelegate);
@@ -1259,6 +1417,8 @@ public class ContextualSearchManager extends ContextualSearchObservable
     @Override
     public void showUnhandledTapUIIfNeeded(final int x, final int y) {
         mDidBasePageLoadJustStart = false;
+        // This is the earliest notification of a tap, measure the latency of its search from here.
+        mTapTimeNs = System.nanoTime();
         mSelectionController.handleShowUnhandledTapUIIfNeeded(x, y);
     }
 
@@ -1282,6 +1442,7 @@ public class ContextualSearchManager extends ContextualSearchObservable
 
     @Override
     public void handleInvalidTap() {
+        mTapTimeNs = 0;
         hideContextualSearch(StateChangeReason.BASE_PAGE_TAP);
     }
 
@@ -1311,6 +1472,7 @@ public class ContextualSearchManager extends ContextualSearchObservable
             // Workaround to disable Contextual Search in HTML fullscreen mode. crbug.com/511977
             boolean isInFullscreenMode =
                     mActivity.getFullscreenManager().getPersistentFullscreenMode();
+            if (type != SelectionType.TAP) mTapTimeNs = 0;
             if (isSelectionValid && !isInFullscreenMode) {
                 mSearchPanelDelegate.updateBasePageSelectionYPx(y);
                 showContextualSearch(stateChangeReason);
@@ -13,6 +13,7 @@ import org.chromium.chrome.browser.search_engines.TemplateUrlService;
 import org.chromium.chrome.browser.search_engines.TemplateUrlService.TemplateUrlServiceObserver;
 import org.chromium.chrome.browser.tab.EmptyTabObserver;
 import org.chromium.chrome.browser.tab.Tab;
+import org.chromium.chrome.browser.tab.TabObserver;
 import org.chromium.content.browser.ContentViewCore;
 import org.chromium.content_public.browser.GestureStateListener;
 
@@ -52,7 +53,7 @@ public class ContextualSearchTabHelper extends EmptyTabObserver {
     }
 
     private ContextualSearchTabHelper(Tab tab) {
-        tab.addObserver(this);
+        tab.addObserver(this, TabObserver.EVENT_NONE);
     }
 
     @Override
@@ -125,6 +126,8 @@ public class ContextualSearchTabHelper extends EmptyTabObserver {
 
         if (isContextualSearchActive(cvc)) {
             addContextualSearchHooks(cvc);
+            // The page can be tapped, get the search panel ready.
+            getContextualSearchManager(cvc).prewarmSearchContentView();
         } else {
             removeContextualSearchHooks(cvc);
         }
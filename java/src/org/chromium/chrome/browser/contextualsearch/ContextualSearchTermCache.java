@@ -0,0 +1,133 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.contextualsearch;
+
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import org.chromium.base.VisibleForTesting;
+
+import java.util.Map;
+
+/**
+ * A bounded cache of Search Term Resolution responses, so that tapping a term that was resolved
+ * recently in the same context opens the panel without a server round trip.
+ *
+ * Entries are keyed by the selection, a hash of the text surrounding it and the host of the base
+ * page, and expire {@link #TIME_TO_LIVE_MS} after they were stored. The cache lives as long as
+ * its {@link ContextualSearchManager} and must not be used for incognito pages.
+ */
+class ContextualSearchTermCache {
+    @VisibleForTesting
+    static final int MAX_ENTRIES = 32;
+    @VisibleForTesting
+    static final long TIME_TO_LIVE_MS = 10 * 60 * 1000;
+
+    // Separates the parts of a key, it can't appear in a host name.
+    private static final char KEY_SEPARATOR = '\n';
+
+    /**
+     * The parts of a Search Term Resolution response needed to show it again.
+     */
+    static class ResolvedTerm {
+        final String mSearchTerm;
+        final String mDisplayText;
+        final String mAlternateTerm;
+        final boolean mDoPreventPreload;
+        final int mSelectionStartAdjust;
+        final int mSelectionEndAdjust;
+        private final long mStoredTimeMs;
+
+        ResolvedTerm(String searchTerm, String displayText, String alternateTerm,
+                boolean doPreventPreload, int selectionStartAdjust, int selectionEndAdjust,
+                long storedTimeMs) {
+            mSearchTerm = searchTerm;
+            mDisplayText = displayText;
+            mAlternateTerm = alternateTerm;
+            mDoPreventPreload = doPreventPreload;
+            mSelectionStartAdjust = selectionStartAdjust;
+            mSelectionEndAdjust = selectionEndAdjust;
+            mStoredTimeMs = storedTimeMs;
+        }
+
+        private boolean isExpired(long nowMs) {
+            return nowMs - mStoredTimeMs > TIME_TO_LIVE_MS;
+        }
+    }
+
+    private final LruCache<String, ResolvedTerm> mEntries =
+            new LruCache<String, ResolvedTerm>(MAX_ENTRIES);
+
+    /**
+     * @return Whether a live entry exists for |selection| on |host|, whatever its surrounding
+     *         text. Used to skip gathering the surrounding text when no entry can match.
+     */
+    boolean hasCandidates(String selection, String host) {
+        String prefix = getKeyPrefix(selection, host);
+        long nowMs = now();
+        for (Map.Entry<String, ResolvedTerm> entry : mEntries.snapshot().entrySet()) {
+            String key = entry.getKey();
+            // A longer selection that starts with |selection| and a separator isn't a candidate.
+            if (key.startsWith(prefix) && key.indexOf(KEY_SEPARATOR, prefix.length()) == -1
+                    && !entry.getValue().isExpired(nowMs)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The live entry for the given key, or {@code null}. Expired entries are removed.
+     */
+    ResolvedTerm get(String selection, int surroundingTextHash, String host) {
+        String key = getKey(selection, surroundingTextHash, host);
+        ResolvedTerm term = mEntries.get(key);
+        if (term == null) return null;
+        if (term.isExpired(now())) {
+            mEntries.remove(key);
+            return null;
+        }
+        return term;
+    }
+
+    /**
+     * Stores a successful Search Term Resolution response.
+     */
+    void put(String selection, int surroundingTextHash, String host, String searchTerm,
+            String displayText, String alternateTerm, boolean doPreventPreload,
+            int selectionStartAdjust, int selectionEndAdjust) {
+        mEntries.put(getKey(selection, surroundingTextHash, host),
+                new ResolvedTerm(searchTerm, displayText, alternateTerm, doPreventPreload,
+                        selectionStartAdjust, selectionEndAdjust, now()));
+    }
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+        mEntries.evictAll();
+    }
+
+    /**
+     * @return The hash of the text around a selection, as identifying its context.
+     */
+    static int hashSurroundingText(String beforeText, String afterText) {
+        int hash = beforeText == null ? 0 : beforeText.hashCode();
+        return hash * 31 + (afterText == null ? 0 : afterText.hashCode());
+    }
+
+    @VisibleForTesting
+    long now() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    private static String getKeyPrefix(String selection, String host) {
+        return host + KEY_SEPARATOR + selection + KEY_SEPARATOR;
+    }
+
+    private static String getKey(String selection, int surroundingTextHash, String host) {
+        return getKeyPrefix(selection, host) + surroundingTextHash;
+    }
+}
@@ -9,6 +9,7 @@ import android.util.Pair;
 import org.chromium.base.metrics.RecordHistogram;
 import org.chromium.chrome.browser.compositor.bottombar.contextualsearch.ContextualSearchPanel.PanelState;
 import org.chromium.chrome.browser.compositor.bottombar.contextualsearch.ContextualSearchPanel.StateChangeReason;
+import org.chromium.chrome.browser.metrics.HistogramAccumulator;
 import org.chromium.chrome.browser.preferences.PrefServiceBridge;
 
 import java.util.Collections;
@@ -40,6 +41,11 @@ public class ContextualSearchUma {
     private static final int SELECTION_INVALID = 1;
     private static final int SELECTION_BOUNDARY = 2;
 
+    // Constants used to log UMA "enum" histograms about whether a resolved term was cached.
+    private static final int RESOLVED_TERM_CACHE_HIT = 0;
+    private static final int RESOLVED_TERM_CACHE_MISS = 1;
+    private static final int RESOLVED_TERM_CACHE_BOUNDARY = 2;
+
     // Constants used to log UMA "enum" histograms about a request's outcome.
     private static final int REQUEST_NOT_FAILED = 0;
     private static final int REQUEST_FAILED = 1;
@@ -426,7 +432,7 @@ public class ContextualSearchUma {
      * (disabled, enabled or uninitialized). Calling more than once is fine.
      */
     public static void logPreferenceState() {
-        RecordHistogram.recordEnumeratedHistogram("Search.ContextualSearchPreferenceState",
+        HistogramAccumulator.recordEnumeratedHistogram("Search.ContextualSearchPreferenceState",
                 getPreferenceValue(), PREFERENCE_HISTOGRAM_BOUNDARY);
     }
 
@@ -500,7 +506,7 @@ public class ContextualSearchUma {
      * @param isSingleWord Whether the resolved search term is a single word or not.
      */
     public static void logSearchTermResolvedWords(boolean isSingleWord) {
-        RecordHistogram.recordEnumeratedHistogram("Search.ContextualSearchResolvedTermWords",
+        HistogramAccumulator.recordEnumeratedHistogram("Search.ContextualSearchResolvedTermWords",
                 isSingleWord ? RESOLVED_SINGLE_WORD : RESOLVED_MULTI_WORD, RESOLVED_BOUNDARY);
     }
 
@@ -510,7 +516,7 @@ public class ContextualSearchUma {
      *        be false for HTTPS or other URIs).
      */
     public static void logBasePageProtocol(boolean isHttpBasePage) {
-        RecordHistogram.recordEnumeratedHistogram("Search.ContextualSearchBasePageProtocol",
+        HistogramAccumulator.recordEnumeratedHistogram("Search.ContextualSearchBasePageProtocol",
                 isHttpBasePage ? PROTOCOL_IS_HTTP : PROTOCOL_NOT_HTTP, PROTOCOL_BOUNDARY);
     }
 
@@ -520,7 +526,8 @@ public class ContextualSearchUma {
      * @param enabled Whether the preference is being enabled or disabled.
      */
     public static void logPreferenceChange(boolean enabled) {
-        RecordHistogram.recordEnumeratedHistogram("Search.ContextualSearchPreferenceStateChange",
+        HistogramAccumulator.recordEnumeratedHistogram(
+                "Search.ContextualSearchPreferenceStateChange",
                 enabled ? PREFERENCE_ENABLED : PREFERENCE_DISABLED, PREFERENCE_HISTOGRAM_BOUNDARY);
     }
 
@@ -531,10 +538,11 @@ public class ContextualSearchUma {
      */
     public static void logPromoOutcome(boolean wasTap) {
         int preferenceCode = getPreferenceValue();
-        RecordHistogram.recordEnumeratedHistogram("Search.ContextualSearchFirstRunFlowOutcome",
+        HistogramAccumulator.recordEnumeratedHistogram("Search.ContextualSearchFirstRunFlowOutcome",
                 preferenceCode, PREFERENCE_HISTOGRAM_BOUNDARY);
         int preferenceByGestureCode = getPromoByGestureStateCode(preferenceCode, wasTap);
-        RecordHistogram.recordEnumeratedHistogram("Search.ContextualSearchPromoOutcomeByGesture",
+        HistogramAccumulator.recordEnumeratedHistogram(
+                "Search.ContextualSearchPromoOutcomeByGesture",
                 preferenceByGestureCode, PROMO_BY_GESTURE_BOUNDARY);
     }
 
@@ -563,8 +571,11 @@ public class ContextualSearchUma {
      * @param durationMs The duration of loading the SERP till completely loaded, in milliseconds.
      *        Note that this value will be 0 when the SERP is prefetched and the user waits a
      *        while before opening the panel.
+     * @param tapToResultsMs The duration from the tap that started the search until the SERP was
+     *        completely loaded, in milliseconds, or 0 if the search was not started by a tap.
      */
-    public static void logSearchPanelLoadDuration(boolean wasPrefetch, long durationMs) {
+    public static void logSearchPanelLoadDuration(
+            boolean wasPrefetch, long durationMs, long tapToResultsMs) {
         if (wasPrefetch) {
             RecordHistogram.recordMediumTimesHistogram("Search.ContextualSearchDurationPrefetched",
                     durationMs, TimeUnit.MILLISECONDS);
@@ -573,11 +584,16 @@ public class ContextualSearchUma {
                     "Search.ContextualSearchDurationNonPrefetched", durationMs,
                     TimeUnit.MILLISECONDS);
         }
+        if (tapToResultsMs != 0) {
+            RecordHistogram.recordMediumTimesHistogram(
+                    "Search.ContextualSearchTapToResultsDuration", tapToResultsMs,
+                    TimeUnit.MILLISECONDS);
+        }
 
        // Also record a summary histogram with counts for each possibility.
         int code = !wasPrefetch ? NOT_PREFETCHED
                 : (durationMs == 0 ? PREFETCHED_FULLY_LOADED : PREFETCHED_PARIALLY_LOADED);
-        RecordHistogram.recordEnumeratedHistogram("Search.ContextualSearchPrefetchSummary",
+        HistogramAccumulator.recordEnumeratedHistogram("Search.ContextualSearchPrefetchSummary",
                 code, PREFETCH_BOUNDARY);
     }
 
@@ -588,7 +604,7 @@ public class ContextualSearchUma {
      * @param wasTap Whether the gesture that originally caused the panel to show was a Tap.
      */
     public static void logPromoSeen(boolean wasPanelSeen, boolean wasTap) {
-        RecordHistogram.recordEnumeratedHistogram("Search.ContextualSearchFirstRunPanelSeen",
+        HistogramAccumulator.recordEnumeratedHistogram("Search.ContextualSearchFirstRunPanelSeen",
                 wasPanelSeen ? RESULTS_SEEN : RESULTS_NOT_SEEN, RESULTS_SEEN_BOUNDARY);
         logHistogramByGesture(wasPanelSeen, wasTap, "Search.ContextualSearchPromoSeenByGesture");
     }
@@ -600,7 +616,7 @@ public class ContextualSearchUma {
      * @param wasTap Whether the gesture that originally caused the panel to show was a Tap.
      */
     public static void logResultsSeen(boolean wasPanelSeen, boolean wasTap) {
-        RecordHistogram.recordEnumeratedHistogram("Search.ContextualSearchResultsSeen",
+        HistogramAccumulator.recordEnumeratedHistogram("Search.ContextualSearchResultsSeen",
                 wasPanelSeen ? RESULTS_SEEN : RESULTS_NOT_SEEN, RESULTS_SEEN_BOUNDARY);
         logHistogramByGesture(wasPanelSeen, wasTap, "Search.ContextualSearchResultsSeenByGesture");
     }
@@ -610,16 +626,27 @@ public class ContextualSearchUma {
      * @param isSelectionValid Whether the selection is valid.
      */
     public static void logSelectionIsValid(boolean isSelectionValid) {
-        RecordHistogram.recordEnumeratedHistogram("Search.ContextualSearchSelectionValid",
+        HistogramAccumulator.recordEnumeratedHistogram("Search.ContextualSearchSelectionValid",
                 isSelectionValid ? SELECTION_VALID : SELECTION_INVALID, SELECTION_BOUNDARY);
     }
 
+    /**
+     * Logs whether a Search Term Resolution was served from the local cache.
+     * @param isHit Whether the resolved term was found in the cache.
+     */
+    public static void logResolvedTermCacheHit(boolean isHit) {
+        HistogramAccumulator.recordEnumeratedHistogram(
+                "Search.ContextualSearchResolvedTermCacheHit",
+                isHit ? RESOLVED_TERM_CACHE_HIT : RESOLVED_TERM_CACHE_MISS,
+                RESOLVED_TERM_CACHE_BOUNDARY);
+    }
+
     /**
      * Logs whether a normal priority search request failed.
      * @param isFailure Whether the request failed.
      */
     public static void logNormalPrioritySearchRequestOutcome(boolean isFailure) {
-        RecordHistogram.recordEnumeratedHistogram(
+        HistogramAccumulator.recordEnumeratedHistogram(
                 "Search.ContextualSearchNormalPrioritySearchRequestStatus",
                 isFailure ? REQUEST_FAILED : REQUEST_NOT_FAILED, REQUEST_BOUNDARY);
     }
@@ -629,7 +656,7 @@ public class ContextualSearchUma {
      * @param isFailure Whether the request failed.
      */
     public static void logLowPrioritySearchRequestOutcome(boolean isFailure) {
-        RecordHistogram.recordEnumeratedHistogram(
+        HistogramAccumulator.recordEnumeratedHistogram(
                 "Search.ContextualSearchLowPrioritySearchRequestStatus",
                 isFailure ? REQUEST_FAILED : REQUEST_NOT_FAILED, REQUEST_BOUNDARY);
     }
@@ -639,7 +666,7 @@ public class ContextualSearchUma {
      * @param isFailure Whether the request failed.
      */
     public static void logFallbackSearchRequestOutcome(boolean isFailure) {
-        RecordHistogram.recordEnumeratedHistogram(
+        HistogramAccumulator.recordEnumeratedHistogram(
                 "Search.ContextualSearchFallbackSearchRequestStatus",
                 isFailure ? REQUEST_FAILED : REQUEST_NOT_FAILED, REQUEST_BOUNDARY);
     }
@@ -649,7 +676,7 @@ public class ContextualSearchUma {
      * @param fullyLoaded Whether the SERP had finished loading before the panel was closed.
      */
     public static void logSerpLoadedOnClose(boolean fullyLoaded) {
-        RecordHistogram.recordEnumeratedHistogram("Search.ContextualSearchSerpLoadedOnClose",
+        HistogramAccumulator.recordEnumeratedHistogram("Search.ContextualSearchSerpLoadedOnClose",
                 fullyLoaded ? FULLY_LOADED : PARTIALLY_LOADED, LOADED_BOUNDARY);
     }
 
@@ -666,28 +693,28 @@ public class ContextualSearchUma {
             case CLOSED:
                 code = getStateChangeCode(fromState, reason,
                         ENTER_CLOSED_STATE_CHANGE_CODES, ENTER_CLOSED_FROM_OTHER);
-                RecordHistogram.recordEnumeratedHistogram(
+                HistogramAccumulator.recordEnumeratedHistogram(
                         "Search.ContextualSearchEnterClosed",
                         code, ENTER_CLOSED_FROM_BOUNDARY);
                 break;
             case PEEKED:
                 code = getStateChangeCode(fromState, reason,
                         ENTER_PEEKED_STATE_CHANGE_CODES, ENTER_PEEKED_FROM_OTHER);
-                RecordHistogram.recordEnumeratedHistogram(
+                HistogramAccumulator.recordEnumeratedHistogram(
                         "Search.ContextualSearchEnterPeeked",
                         code, ENTER_PEEKED_FROM_BOUNDARY);
                 break;
             case EXPANDED:
                 code = getStateChangeCode(fromState, reason,
                         ENTER_EXPANDED_STATE_CHANGE_CODES, ENTER_EXPANDED_FROM_OTHER);
-                RecordHistogram.recordEnumeratedHistogram(
+                HistogramAccumulator.recordEnumeratedHistogram(
                         "Search.ContextualSearchEnterExpanded",
                         code, ENTER_EXPANDED_FROM_BOUNDARY);
                 break;
             case MAXIMIZED:
                 code = getStateChangeCode(fromState, reason,
                         ENTER_MAXIMIZED_STATE_CHANGE_CODES, ENTER_MAXIMIZED_FROM_OTHER);
-                RecordHistogram.recordEnumeratedHistogram(
+                HistogramAccumulator.recordEnumeratedHistogram(
                         "Search.ContextualSearchEnterMaximized",
                         code, ENTER_MAXIMIZED_FROM_BOUNDARY);
                 break;
@@ -710,25 +737,25 @@ public class ContextualSearchUma {
             case CLOSED:
                 code = getStateChangeCode(toState, reason,
                         EXIT_CLOSED_TO_STATE_CHANGE_CODES, EXIT_CLOSED_TO_OTHER);
-                RecordHistogram.recordEnumeratedHistogram(
+                HistogramAccumulator.recordEnumeratedHistogram(
                         "Search.ContextualSearchExitClosed", code, EXIT_CLOSED_TO_BOUNDARY);
                 break;
             case PEEKED:
                 code = getStateChangeCode(toState, reason,
                         EXIT_PEEKED_TO_STATE_CHANGE_CODES, EXIT_PEEKED_TO_OTHER);
-                RecordHistogram.recordEnumeratedHistogram(
+                HistogramAccumulator.recordEnumeratedHistogram(
                         "Search.ContextualSearchExitPeeked", code, EXIT_PEEKED_TO_BOUNDARY);
                 break;
             case EXPANDED:
                 code = getStateChangeCode(toState, reason,
                         EXIT_EXPANDED_TO_STATE_CHANGE_CODES, EXIT_EXPANDED_TO_OTHER);
-                RecordHistogram.recordEnumeratedHistogram(
+                HistogramAccumulator.recordEnumeratedHistogram(
                         "Search.ContextualSearchExitExpanded", code, EXIT_EXPANDED_TO_BOUNDARY);
                 break;
             case MAXIMIZED:
                 code = getStateChangeCode(toState, reason,
                         EXIT_MAXIMIZED_TO_STATE_CHANGE_CODES, EXIT_MAXIMIZED_TO_OTHER);
-                RecordHistogram.recordEnumeratedHistogram(
+                HistogramAccumulator.recordEnumeratedHistogram(
                         "Search.ContextualSearchExitMaximized", code, EXIT_MAXIMIZED_TO_BOUNDARY);
                 break;
             default:
@@ -796,7 +823,7 @@ public class ContextualSearchUma {
      */
     private static void logHistogramByGesture(boolean wasPanelSeen, boolean wasTap,
             String histogramName) {
-        RecordHistogram.recordEnumeratedHistogram(histogramName,
+        HistogramAccumulator.recordEnumeratedHistogram(histogramName,
                 getPanelSeenByGestureStateCode(wasPanelSeen, wasTap),
                 RESULTS_BY_GESTURE_BOUNDARY);
     }
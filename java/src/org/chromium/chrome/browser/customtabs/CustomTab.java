@@ -22,6 +22,7 @@ import org.chromium.base.metrics.RecordHistogram;
 import org.chromium.chrome.R;
 import org.chromium.chrome.browser.ChromeActivity;
 import org.chromium.chrome.browser.UrlUtilities;
+import org.chromium.chrome.browser.WarmupManager;
 import org.chromium.chrome.browser.WebContentsFactory;
 import org.chromium.chrome.browser.banners.AppBannerManager;
 import org.chromium.chrome.browser.contextmenu.ChromeContextMenuPopulator;
@@ -169,7 +170,7 @@ public class CustomTab extends ChromeTab {
                 CustomTabsConnection.getInstance(activity.getApplication());
         WebContents webContents = customTabsConnection.takePrerenderedUrl(session, url, referrer);
         if (webContents == null) {
-            webContents = customTabsConnection.takeSpareWebContents();
+            webContents = WarmupManager.getInstance().takeSpareWebContents();
             // TODO(lizeb): Remove this once crbug.com/521729 is fixed.
             if (webContents != null) mShouldReplaceCurrentEntry = true;
         }
@@ -42,14 +42,12 @@ import org.chromium.chrome.R;
 import org.chromium.chrome.browser.ChromeApplication;
 import org.chromium.chrome.browser.IntentHandler;
 import org.chromium.chrome.browser.WarmupManager;
-import org.chromium.chrome.browser.WebContentsFactory;
 import org.chromium.chrome.browser.device.DeviceClassManager;
 import org.chromium.chrome.browser.init.ChromeBrowserInitializer;
 import org.chromium.chrome.browser.prerender.ExternalPrerenderHandler;
 import org.chromium.chrome.browser.profiles.Profile;
 import org.chromium.chrome.browser.util.IntentUtils;
 import org.chromium.content.browser.ChildProcessLauncher;
-import org.chromium.content_public.browser.LoadUrlParams;
 import org.chromium.content_public.browser.WebContents;
 import org.chromium.content_public.common.Referrer;
 
@@ -143,7 +141,6 @@ public class CustomTabsConnection extends ICustomTabsService.Stub {
     private final AtomicBoolean mWarmupHasBeenCalled = new AtomicBoolean();
     private ExternalPrerenderHandler mExternalPrerenderHandler;
     private PrerenderedUrlParams mPrerender;
-    private WebContents mSpareWebContents;
 
     /** Per-session values. */
     private static class SessionParams {
@@ -297,24 +294,6 @@ public class CustomTabsConnection extends ICustomTabsService.Stub {
         return true;
     }
 
-    /**
-     * Creates a spare {@link WebContents}, if none exists.
-     *
-     * Navigating to "about:blank" forces a lot of initialization to take place
-     * here. This improves PLT. This navigation is never registered in the history, as
-     * "about:blank" is filtered by CanAddURLToHistory.
-     *
-     * TODO(lizeb): Replace this with a cleaner method. See crbug.com/521729.
-     */
-    private void createSpareWebContents() {
-        ThreadUtils.assertOnUiThread();
-        if (mSpareWebContents != null) return;
-        mSpareWebContents = WebContentsFactory.createWebContents(false, false);
-        if (mSpareWebContents != null) {
-            mSpareWebContents.getNavigationController().loadUrl(new LoadUrlParams("about:blank"));
-        }
-    }
-
     @Override
     public boolean mayLaunchUrl(ICustomTabsCallback callback, Uri url, final Bundle extras,
             List<Bundle> otherLikelyBundles) {
@@ -352,7 +331,7 @@ public class CustomTabsConnection extends ICustomTabsService.Stub {
                     // Calling with a null or empty url cancels a current prerender.
                     prerenderUrl(session, urlString, extras);
                 } else {
-                    createSpareWebContents();
+                    WarmupManager.getInstance().createSpareWebContents();
                 }
             }
         });
@@ -364,22 +343,6 @@ public class CustomTabsConnection extends ICustomTabsService.Stub {
         return null;
     }
 
-    /**
-     * @return a spare WebContents, or null.
-     *
-     * This WebContents has already navigated to "about:blank". You have to call
-     * {@link LoadUrlParams.setShouldReplaceCurrentEntry(true)} for the next
-     * navigation to ensure that a back navigation doesn't lead to about:blank.
-     *
-     * TODO(lizeb): Update this when crbug.com/521729 is fixed.
-     */
-    WebContents takeSpareWebContents() {
-        ThreadUtils.assertOnUiThread();
-        WebContents result = mSpareWebContents;
-        mSpareWebContents = null;
-        return result;
-    }
-
     @Override
     public boolean updateVisuals(final ICustomTabsCallback callback, Bundle bundle) {
         final Bundle actionButtonBundle = IntentUtils.safeGetBundle(bundle,
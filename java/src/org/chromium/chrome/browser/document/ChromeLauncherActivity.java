@@ -568,6 +568,7 @@ public class ChromeLauncherActivity extends Activity
         } else {
             context.startActivity(intent, options);
         }
+        ActivityDelegate.invalidateTaskSnapshots();
     }
 
     /**
@@ -725,6 +726,7 @@ public class ChromeLauncherActivity extends Activity
                 taskList.get(i).finishAndRemoveTask();
             }
         }
+        ActivityDelegate.invalidateTaskSnapshots();
     }
 
     /**
@@ -768,6 +770,7 @@ public class ChromeLauncherActivity extends Activity
     private static boolean moveToFront(AppTask task) {
         try {
             task.moveToFront();
+            ActivityDelegate.invalidateTaskSnapshots();
             return true;
         } catch (SecurityException e) {
             sMoveToFrontExceptionHistogram.recordHit();
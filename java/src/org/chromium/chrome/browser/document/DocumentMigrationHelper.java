@@ -259,6 +259,7 @@ public class DocumentMigrationHelper {
             if (id == Tab.INVALID_TAB_ID) continue;
             if (tabIdsToRemove.contains(id)) taskList.get(i).finishAndRemoveTask();
         }
+        ActivityDelegate.invalidateTaskSnapshots();
         incognitoTabModel.updateRecentlyClosed();
 
         File migratedFolder = TabPersistentStore.getStateDirectory(context, 0);
@@ -9,6 +9,7 @@ import android.content.Intent;
 import org.chromium.base.metrics.RecordHistogram;
 import org.chromium.chrome.browser.IntentHandler;
 import org.chromium.chrome.browser.ShortcutHelper;
+import org.chromium.chrome.browser.metrics.HistogramAccumulator;
 import org.chromium.chrome.browser.util.IntentUtils;
 
 /**
@@ -23,7 +24,7 @@ public class DocumentUma {
     }
 
     public static void recordInDocumentMode(boolean isInDocumentMode) {
-        RecordHistogram.recordEnumeratedHistogram(
+        HistogramAccumulator.recordEnumeratedHistogram(
                 "DocumentActivity.RunningMode", isInDocumentMode ? 0 : 1, 2);
     }
 
@@ -89,7 +90,7 @@ public class DocumentUma {
         if (intentSource >= DocumentMetricIds.STARTED_BY_EXTERNAL_APP_GMAIL
                 && intentSource < DocumentMetricIds.STARTED_BY_CONTEXTUAL_SEARCH) {
             // Document activity was started from an external app, record which one.
-            RecordHistogram.recordEnumeratedHistogram("MobileIntent.PageLoadDueToExternalApp",
+            HistogramAccumulator.recordEnumeratedHistogram("MobileIntent.PageLoadDueToExternalApp",
                     appId.ordinal(), IntentHandler.ExternalAppId.INDEX_BOUNDARY.ordinal());
         }
 
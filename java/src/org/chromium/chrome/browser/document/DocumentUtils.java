@@ -126,6 +126,7 @@ public class DocumentUtils {
             removedIntent = getBaseIntentFromTask(task);
             task.finishAndRemoveTask();
         }
+        if (!tasksToFinish.isEmpty()) ActivityDelegate.invalidateTaskSnapshots();
         return removedIntent;
     }
 
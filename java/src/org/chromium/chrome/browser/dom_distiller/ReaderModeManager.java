@@ -25,6 +25,7 @@ import org.chromium.chrome.browser.infobar.InfoBarContainer.InfoBarContainerObse
 import org.chromium.chrome.browser.tab.ChromeTab;
 import org.chromium.chrome.browser.tab.EmptyTabObserver;
 import org.chromium.chrome.browser.tab.Tab;
+import org.chromium.chrome.browser.tab.TabObserver;
 import org.chromium.components.dom_distiller.content.DistillablePageUtils;
 import org.chromium.components.dom_distiller.core.DomDistillerUrlUtils;
 import org.chromium.content_public.browser.WebContents;
@@ -99,7 +100,7 @@ public class ReaderModeManager extends EmptyTabObserver
 
     public ReaderModeManager(Tab tab, Context context) {
         mTab = tab;
-        mTab.addObserver(this);
+        mTab.addObserver(this, TabObserver.EVENT_NONE);
         mObservers = new ObserverList<ReaderModeManagerObserver>();
         mReaderModePanel = isEnabled(context) ? new ReaderModePanel(this) : null;
         mHeaderBackgroundColor = context != null
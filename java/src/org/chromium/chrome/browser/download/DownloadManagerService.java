@@ -10,13 +10,11 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.Environment;
 import android.os.Handler;
-import android.preference.PreferenceManager;
 import android.text.TextUtils;
 import android.util.LongSparseArray;
 
@@ -26,6 +24,7 @@ import org.chromium.base.VisibleForTesting;
 import org.chromium.base.annotations.SuppressFBWarnings;
 import org.chromium.chrome.R;
 import org.chromium.chrome.browser.externalnav.ExternalNavigationDelegateImpl;
+import org.chromium.chrome.browser.preferences.PreferenceStore;
 import org.chromium.content.browser.DownloadController;
 import org.chromium.content.browser.DownloadInfo;
 import org.chromium.ui.widget.Toast;
@@ -66,7 +65,7 @@ public class DownloadManagerService extends BroadcastReceiver implements
 
     private static DownloadManagerService sDownloadManagerService;
 
-    private final SharedPreferences mSharedPrefs;
+    private final PreferenceStore mPreferenceStore;
     private final ConcurrentHashMap<Integer, DownloadProgress> mDownloadProgressMap =
             new ConcurrentHashMap<Integer, DownloadProgress>(4, 0.75f, 2);
 
@@ -179,8 +178,7 @@ public class DownloadManagerService extends BroadcastReceiver implements
             Handler handler,
             long updateDelayInMillis) {
         mContext = context;
-        mSharedPrefs = PreferenceManager.getDefaultSharedPreferences(context
-                .getApplicationContext());
+        mPreferenceStore = PreferenceStore.getDefault(context);
         mDownloadNotifier = downloadNotifier;
         mUpdateDelayInMillis = updateDelayInMillis;
         mHandler = handler;
@@ -209,7 +207,7 @@ public class DownloadManagerService extends BroadcastReceiver implements
      * When Clank is restarted it clears any old notifications for incomplete downloads.
      */
     public void clearPendingDownloadNotifications() {
-        if (mSharedPrefs.contains(DOWNLOAD_NOTIFICATION_IDS)) {
+        if (mPreferenceStore.contains(DOWNLOAD_NOTIFICATION_IDS)) {
             Set<String> downloadIds = getStoredDownloadInfo(DOWNLOAD_NOTIFICATION_IDS);
             for (String id : downloadIds) {
                 int notificationId = parseNotificationId(id);
@@ -218,9 +216,9 @@ public class DownloadManagerService extends BroadcastReceiver implements
                     Log.w(TAG, "Download failed: Cleared download id:" + id);
                 }
             }
-            mSharedPrefs.edit().remove(DOWNLOAD_NOTIFICATION_IDS).apply();
+            mPreferenceStore.remove(DOWNLOAD_NOTIFICATION_IDS);
         }
-        if (mSharedPrefs.contains(PENDING_OMA_DOWNLOADS)) {
+        if (mPreferenceStore.contains(PENDING_OMA_DOWNLOADS)) {
             Set<String> omaDownloads = getStoredDownloadInfo(PENDING_OMA_DOWNLOADS);
             for (String omaDownload : omaDownloads) {
                 OMAEntry entry = OMAEntry.parseOMAEntry(omaDownload);
@@ -334,7 +332,7 @@ public class DownloadManagerService extends BroadcastReceiver implements
      */
     @VisibleForTesting
     protected Set<String> getStoredDownloadInfo(String type) {
-        return new HashSet<String>(mSharedPrefs.getStringSet(
+        return new HashSet<String>(mPreferenceStore.getStringSet(
                 type, new HashSet<String>()));
     }
 
@@ -406,19 +404,18 @@ public class DownloadManagerService extends BroadcastReceiver implements
 
     /**
      * Stores download information to shared preferences. The information can be
-     * either pending download IDs, or pending OMA downloads.
+     * either pending download IDs, or pending OMA downloads. Progress updates for
+     * several downloads are coalesced into a single write by PreferenceStore.
      *
      * @param type Type of the information.
      * @param downloadInfo Information to be saved.
      */
     private void storeDownloadInfo(String type, Set<String> downloadInfo) {
-        SharedPreferences.Editor editor = mSharedPrefs.edit();
         if (downloadInfo.isEmpty()) {
-            editor.remove(type);
+            mPreferenceStore.remove(type);
         } else {
-            editor.putStringSet(type, downloadInfo);
+            mPreferenceStore.putStringSet(type, downloadInfo);
         }
-        editor.apply();
     }
 
     /**
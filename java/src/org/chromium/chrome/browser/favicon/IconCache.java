@@ -0,0 +1,242 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.favicon;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import org.chromium.base.ApplicationStatus;
+import org.chromium.base.VisibleForTesting;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process wide memory cache for favicons, large icons and generated fallback icons.
+ *
+ * Entries are keyed by (page URL or host, size in pixels, type) and evicted by their byte count.
+ * The cache is emptied in response to {@link ComponentCallbacks2#onTrimMemory}. It can be used
+ * from any thread.
+ */
+public class IconCache {
+    /** Icons and fallback colors returned by {@link LargeIconBridge}. */
+    public static final int TYPE_LARGE_ICON = 0;
+    /** Favicons of local history entries. */
+    public static final int TYPE_LOCAL_FAVICON = 1;
+    /** Favicons of foreign session tabs. */
+    public static final int TYPE_SYNCED_FAVICON = 2;
+    /** Fallback icons produced by RoundedIconGenerator, keyed by their text and style. */
+    public static final int TYPE_GENERATED = 3;
+    /** Favicons rendered for the compositor tab strip. */
+    public static final int TYPE_TAB_STRIP = 4;
+
+    private static final int ENTRY_MIN_SIZE_BYTES = 1024;
+    private static final int MAX_CACHE_SIZE_BYTES = 8 * 1024 * 1024;
+
+    private static IconCache sInstance;
+
+    /**
+     * A cached icon.
+     */
+    public static class Entry {
+        /** The icon, or null if none is available and only the fallback color is known. */
+        public final Bitmap icon;
+        /** Color to use when no icon is available. */
+        public final int fallbackColor;
+        /** Bitmap the icon was derived from, used to detect stale derived icons. May be null. */
+        private final Bitmap mSource;
+
+        private Entry(Bitmap icon, int fallbackColor, Bitmap source) {
+            this.icon = icon;
+            this.fallbackColor = fallbackColor;
+            mSource = source;
+        }
+
+        private int getByteCount() {
+            int size = icon == null ? 0 : icon.getByteCount();
+            if (mSource != null && mSource != icon) size += mSource.getByteCount();
+            return Math.max(ENTRY_MIN_SIZE_BYTES, size);
+        }
+    }
+
+    private static final class Key {
+        private final String mUrl;
+        private final int mSizePx;
+        private final int mType;
+
+        Key(String url, int sizePx, int type) {
+            mUrl = url == null ? "" : url;
+            mSizePx = sizePx;
+            mType = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return mSizePx == other.mSizePx && mType == other.mType && mUrl.equals(other.mUrl);
+        }
+
+        @Override
+        public int hashCode() {
+            return (mUrl.hashCode() * 31 + mSizePx) * 31 + mType;
+        }
+    }
+
+    private final LruCache<Key, Entry> mCache;
+    private final AtomicInteger mHitCount = new AtomicInteger();
+    private final AtomicInteger mMissCount = new AtomicInteger();
+
+    /**
+     * @return The process wide instance, creating it on first use.
+     */
+    public static synchronized IconCache getInstance() {
+        if (sInstance == null) {
+            Context context = ApplicationStatus.getApplicationContext();
+            sInstance = new IconCache(computeMaxSizeBytes(context));
+            sInstance.registerForMemoryPressure(context);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    IconCache(int maxSizeBytes) {
+        mCache = new LruCache<Key, Entry>(maxSizeBytes) {
+            @Override
+            protected int sizeOf(Key key, Entry entry) {
+                return entry.getByteCount();
+            }
+        };
+    }
+
+    private static int computeMaxSizeBytes(Context context) {
+        ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        return Math.min(activityManager.getMemoryClass() / 16 * 1024 * 1024,
+                MAX_CACHE_SIZE_BYTES);
+    }
+
+    private void registerForMemoryPressure(Context context) {
+        context.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                IconCache.this.onTrimMemory(level);
+            }
+
+            @Override
+            public void onLowMemory() {
+                clear();
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+        });
+    }
+
+    /**
+     * Returns the cached entry for the given key, or null.
+     * @param url Page URL or host the icon belongs to.
+     * @param sizePx Size of the icon in pixels.
+     * @param type One of the TYPE_* constants.
+     */
+    public Entry get(String url, int sizePx, int type) {
+        return recordLookup(mCache.get(new Key(url, sizePx, type)));
+    }
+
+    /**
+     * Same as {@link #get(String, int, int)}, but only returns the entry if it was derived from
+     * |source| or from a bitmap with the same dimensions and pixels.
+     */
+    public Entry getDerived(String url, int sizePx, int type, Bitmap source) {
+        Entry entry = mCache.get(new Key(url, sizePx, type));
+        if (entry != null && !isSameSource(entry.mSource, source)) entry = null;
+        return recordLookup(entry);
+    }
+
+    /**
+     * @return The cached icon for the given key, or null.
+     */
+    public Bitmap getBitmap(String url, int sizePx, int type) {
+        Entry entry = get(url, sizePx, type);
+        return entry == null ? null : entry.icon;
+    }
+
+    /**
+     * Caches an icon. Cached bitmaps are shared and must not be modified by callers.
+     * @param url Page URL or host the icon belongs to.
+     * @param sizePx Size of the icon in pixels.
+     * @param type One of the TYPE_* constants.
+     * @param icon The icon, may be null if only the fallback color is known.
+     * @param fallbackColor Color to use when no icon is available.
+     */
+    public void put(String url, int sizePx, int type, Bitmap icon, int fallbackColor) {
+        mCache.put(new Key(url, sizePx, type), new Entry(icon, fallbackColor, null));
+    }
+
+    /**
+     * Caches an icon derived from |source|. See {@link #getDerived}.
+     */
+    public void putDerived(String url, int sizePx, int type, Bitmap icon, Bitmap source) {
+        mCache.put(new Key(url, sizePx, type), new Entry(icon, 0, source));
+    }
+
+    /**
+     * Drops cached icons when the process is backgrounded or running low on memory.
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+        }
+    }
+
+    /**
+     * Drops all cached icons.
+     */
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    /**
+     * @return Number of lookups that found an entry.
+     */
+    public int getHitCount() {
+        return mHitCount.get();
+    }
+
+    /**
+     * @return Number of lookups that did not find an entry.
+     */
+    public int getMissCount() {
+        return mMissCount.get();
+    }
+
+    /**
+     * @return Approximate number of bytes held by the cache.
+     */
+    public int getSizeBytes() {
+        return mCache.size();
+    }
+
+    private static boolean isSameSource(Bitmap cached, Bitmap source) {
+        if (cached == source) return true;
+        if (cached == null || source == null) return false;
+        return cached.sameAs(source);
+    }
+
+    private Entry recordLookup(Entry entry) {
+        if (entry == null) {
+            mMissCount.incrementAndGet();
+        } else {
+            mHitCount.incrementAndGet();
+        }
+        return entry;
+    }
+}
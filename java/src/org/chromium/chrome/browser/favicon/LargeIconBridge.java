@@ -5,8 +5,6 @@
 package org.chromium.chrome.browser.favicon;
 
 import android.graphics.Bitmap;
-import android.util.LruCache;
-import android.util.Pair;
 
 import org.chromium.base.annotations.CalledByNative;
 import org.chromium.chrome.browser.profiles.Profile;
@@ -18,10 +16,9 @@ import org.chromium.chrome.browser.profiles.Profile;
  */
 public class LargeIconBridge {
 
-    private static final int CACHE_ENTRY_MIN_SIZE_BYTES = 1024;
     private long mNativeLargeIconBridge;
     private Profile mProfile;
-    private LruCache<String, Pair<Bitmap, Integer>> mFaviconCache;
+    private IconCache mFaviconCache;
 
     /**
      * Callback for use with GetLargeIconForUrl().
@@ -47,21 +44,11 @@ public class LargeIconBridge {
     }
 
     /**
-     * Create an internal cache.
-     * @param cacheSizeBytes The maximum size of the cache in bytes. Must be greater than 0. Note
-     *                       that this will be an approximate as there is no easy way to measure
-     *                       the precise size in Java.
+     * Serve icons from the process wide {@link IconCache}, which is shared with the other icon
+     * consumers such as the NTP, Recent Tabs and the tab strip.
      */
-    public void createCache(int cacheSizeBytes) {
-        assert cacheSizeBytes > 0;
-
-        mFaviconCache = new LruCache<String, Pair<Bitmap, Integer>>(cacheSizeBytes) {
-            @Override
-            protected int sizeOf(String key, Pair<Bitmap, Integer> icon) {
-                int iconBitmapSize = icon.first == null ? 0 : icon.first.getByteCount();
-                return Math.max(CACHE_ENTRY_MIN_SIZE_BYTES, iconBitmapSize);
-            }
-        };
+    public void useSharedCache() {
+        mFaviconCache = IconCache.getInstance();
     }
 
     /**
@@ -86,7 +73,7 @@ public class LargeIconBridge {
      *                 will not be called if this method returns false.
      * @return True if a callback should be expected.
      */
-    public boolean getLargeIconForUrl(final String pageUrl, int desiredSizePx,
+    public boolean getLargeIconForUrl(final String pageUrl, final int desiredSizePx,
             final LargeIconCallback callback) {
         assert mNativeLargeIconBridge != 0;
         assert callback != null;
@@ -95,16 +82,18 @@ public class LargeIconBridge {
             return nativeGetLargeIconForURL(mNativeLargeIconBridge, mProfile, pageUrl,
                     desiredSizePx, callback);
         } else {
-            Pair<Bitmap, Integer> cached = mFaviconCache.get(pageUrl);
+            IconCache.Entry cached =
+                    mFaviconCache.get(pageUrl, desiredSizePx, IconCache.TYPE_LARGE_ICON);
             if (cached != null) {
-                callback.onLargeIconAvailable(cached.first, cached.second);
+                callback.onLargeIconAvailable(cached.icon, cached.fallbackColor);
                 return true;
             }
 
             LargeIconCallback callbackWrapper = new LargeIconCallback() {
                 @Override
                 public void onLargeIconAvailable(Bitmap icon, int fallbackColor) {
-                    mFaviconCache.put(pageUrl, new Pair<Bitmap, Integer>(icon, fallbackColor));
+                    mFaviconCache.put(pageUrl, desiredSizePx, IconCache.TYPE_LARGE_ICON, icon,
+                            fallbackColor);
                     callback.onLargeIconAvailable(icon, fallbackColor);
                 }
             };
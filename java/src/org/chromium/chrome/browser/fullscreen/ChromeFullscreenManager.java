@@ -13,6 +13,7 @@ import android.os.Handler;
 import android.os.Message;
 import android.os.SystemClock;
 import android.util.Property;
+import android.view.Choreographer;
 import android.view.Gravity;
 import android.view.MotionEvent;
 import android.view.View;
@@ -90,6 +91,18 @@ public class ChromeFullscreenManager
 
     private final ArrayList<FullscreenListener> mListeners = new ArrayList<FullscreenListener>();
 
+    // The offsets reported by the renderer are applied, and listeners notified, once a frame.
+    private final TopControlsOffsetPredictor mOffsetPredictor;
+    private boolean mIsFrameCallbackPosted;
+    private final Choreographer.FrameCallback mApplyOffsetsCallback =
+            new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    mIsFrameCallbackPosted = false;
+                    applyRendererOffsets(frameTimeNanos);
+                }
+            };
+
     /**
      * A listener that gets notified of changes to the fullscreen state.
      */
@@ -200,6 +213,7 @@ public class ChromeFullscreenManager
         Resources resources = mWindow.getContext().getResources();
         mControlContainerHeight = resources.getDimensionPixelSize(resControlContainerHeight);
         mRendererContentOffset = mControlContainerHeight;
+        mOffsetPredictor = new TopControlsOffsetPredictor(mControlContainerHeight);
         mSupportsBrowserOverride = supportsBrowserOverride;
         updateControlOffset();
     }
@@ -219,6 +233,10 @@ public class ChromeFullscreenManager
             ApplicationStatus.unregisterActivityStateListener(this);
             ((BaseChromiumApplication) mWindow.getContext().getApplicationContext())
                     .unregisterWindowFocusChangedListener(this);
+            if (mIsFrameCallbackPosted) {
+                Choreographer.getInstance().removeFrameCallback(mApplyOffsetsCallback);
+                mIsFrameCallbackPosted = false;
+            }
         }
     }
 
@@ -624,6 +642,44 @@ public class ChromeFullscreenManager
         float rendererContentOffset = Math.min(
                 Math.round(contentOffset), rendererControlOffset + mControlContainerHeight);
 
+        if (!mOffsetPredictor.addOffsets(
+                System.nanoTime(), rendererControlOffset, rendererContentOffset)) {
+            return;
+        }
+        scheduleRendererOffsetsUpdate();
+    }
+
+    /**
+     * Called by the compositor once a frame, before it lays out its layers, to have them use the
+     * latest offsets reported by the renderer.
+     */
+    public void onCompositorLayout() {
+        if (mOffsetPredictor.hasPendingOffsets()) applyRendererOffsets(System.nanoTime());
+    }
+
+    private void scheduleRendererOffsetsUpdate() {
+        if (mIsFrameCallbackPosted) return;
+        mIsFrameCallbackPosted = true;
+        Choreographer.getInstance().postFrameCallback(mApplyOffsetsCallback);
+    }
+
+    /**
+     * Applies the offsets reported by the renderer since the last frame, predicted to the time
+     * of the frame, and notifies the listeners of the changes once.
+     * @param frameTimeNanos The time of the frame, in the {@link System#nanoTime()} time base.
+     */
+    private void applyRendererOffsets(long frameTimeNanos) {
+        if (mIsFrameCallbackPosted) {
+            Choreographer.getInstance().removeFrameCallback(mApplyOffsetsCallback);
+            mIsFrameCallbackPosted = false;
+        }
+
+        mOffsetPredictor.applyOffsets(frameTimeNanos);
+        // Predicted offsets are corrected in the next frame.
+        if (mOffsetPredictor.hasPendingOffsets()) scheduleRendererOffsetsUpdate();
+
+        float rendererControlOffset = mOffsetPredictor.getControlOffset();
+        float rendererContentOffset = mOffsetPredictor.getContentOffset();
         if (Float.compare(rendererControlOffset, mRendererControlOffset) == 0
                 && Float.compare(rendererContentOffset, mRendererContentOffset) == 0) {
             return;
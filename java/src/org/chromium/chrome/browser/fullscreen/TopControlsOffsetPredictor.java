@@ -0,0 +1,129 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.fullscreen;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the top controls and content offsets reported by the renderer, to apply them once a
+ * frame.
+ *
+ * The renderer reports offsets as it scrolls, so by the time a frame is drawn the page has moved
+ * on.  While the controls move, their offset is extrapolated to the time of the frame from the
+ * velocity of the latest offsets, so that they keep up with the content during flings.  Offsets
+ * are only extrapolated for frames closely following the latest report, so the controls settle
+ * where the renderer left them once it stops reporting new offsets.
+ */
+class TopControlsOffsetPredictor {
+    /** Offsets reported further apart than this don't describe the same motion. */
+    private static final long MAX_SAMPLE_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /** How far ahead of the latest report offsets are extrapolated, at most. */
+    static final long MAX_PREDICTION_NS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final float mControlsHeight;
+
+    private boolean mHasSample;
+    private long mSampleTimeNs;
+    private float mSampleControlOffset;
+    private float mSampleContentOffset;
+
+    // Velocity of the controls, in pixels per nanosecond, or 0 if unknown.
+    private float mVelocity;
+
+    private boolean mHasPendingOffsets;
+    private float mControlOffset = Float.NaN;
+    private float mContentOffset = Float.NaN;
+
+    /**
+     * @param controlsHeight The height of the top controls, in pixels.
+     */
+    TopControlsOffsetPredictor(float controlsHeight) {
+        mControlsHeight = controlsHeight;
+    }
+
+    /**
+     * Records offsets reported by the renderer.
+     * @param timeNs When the offsets were reported, in the {@link System#nanoTime()} time base.
+     * @param controlOffset The offset of the top controls, between -controlsHeight and 0.
+     * @param contentOffset The offset of the content.
+     * @return Whether the offsets differ from the ones reported last, and need to be applied.
+     */
+    boolean addOffsets(long timeNs, float controlOffset, float contentOffset) {
+        if (mHasSample && Float.compare(controlOffset, mSampleControlOffset) == 0
+                && Float.compare(contentOffset, mSampleContentOffset) == 0) {
+            return false;
+        }
+
+        long interval = timeNs - mSampleTimeNs;
+        if (mHasSample && interval > 0 && interval <= MAX_SAMPLE_INTERVAL_NS) {
+            float velocity = (controlOffset - mSampleControlOffset) / interval;
+            if (Math.abs(velocity) * MAX_PREDICTION_NS > mControlsHeight) {
+                // The controls jumped, e.g. when switching tabs, rather than scrolled.
+                mVelocity = 0;
+            } else if (velocity * mVelocity > 0) {
+                // Smooth the velocity over the motion, as offsets are reported unevenly.
+                mVelocity = (mVelocity + velocity) / 2;
+            } else {
+                mVelocity = velocity;
+            }
+        } else {
+            mVelocity = 0;
+        }
+
+        mHasSample = true;
+        mSampleTimeNs = timeNs;
+        mSampleControlOffset = controlOffset;
+        mSampleContentOffset = contentOffset;
+        mHasPendingOffsets = true;
+        return true;
+    }
+
+    /**
+     * @return Whether offsets are waiting to be applied in the next frame.
+     */
+    boolean hasPendingOffsets() {
+        return mHasPendingOffsets;
+    }
+
+    /**
+     * Works out the offsets to draw a frame with.  If they were extrapolated, offsets remain
+     * pending so that the next frame corrects them.
+     * @param frameTimeNs The time of the frame, in the {@link System#nanoTime()} time base.
+     */
+    void applyOffsets(long frameTimeNs) {
+        if (!mHasSample) return;
+
+        float controlOffset = mSampleControlOffset;
+        float contentOffset = mSampleContentOffset;
+        long ahead = frameTimeNs - mSampleTimeNs;
+        if (mVelocity != 0 && ahead > 0 && ahead <= MAX_PREDICTION_NS) {
+            controlOffset = Math.max(-mControlsHeight,
+                    Math.min(0, mSampleControlOffset + mVelocity * ahead));
+            // The content moves along with the controls.
+            contentOffset = Math.max(0, Math.min(mControlsHeight,
+                    mSampleContentOffset + controlOffset - mSampleControlOffset));
+        }
+
+        mControlOffset = controlOffset;
+        mContentOffset = contentOffset;
+        mHasPendingOffsets = Float.compare(controlOffset, mSampleControlOffset) != 0
+                || Float.compare(contentOffset, mSampleContentOffset) != 0;
+    }
+
+    /**
+     * @return The offset of the controls to draw the frame with, or NaN if there is none yet.
+     */
+    float getControlOffset() {
+        return mControlOffset;
+    }
+
+    /**
+     * @return The offset of the content to draw the frame with, or NaN if there is none yet.
+     */
+    float getContentOffset() {
+        return mContentOffset;
+    }
+}
@@ -0,0 +1,93 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.historyreport;
+
+import org.chromium.base.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Streams the delta file to a consumer in batches. While the consumer processes one batch the
+ * next one is already being queried on |executor|, and the delta file is trimmed behind the
+ * consumer while that query is in flight.
+ */
+public class DeltaFileReader {
+    private static final String TAG = "cr.historyreport";
+
+    /**
+     * Receives batches of delta file entries.
+     */
+    public interface Consumer {
+        /**
+         * Called on the thread that called {@link DeltaFileReader#read} for every non empty batch,
+         * in seqNo order.
+         * @return Whether the batch was consumed. Returning false stops reading and leaves the
+         *         batch in the delta file.
+         */
+        boolean onEntries(DeltaFileEntry[] entries);
+    }
+
+    private final SearchJniBridge mBridge;
+    private final Executor mExecutor;
+    private final int mBatchSize;
+
+    /**
+     * @param bridge Bridge used to query and trim the delta file.
+     * @param executor Executor the next batch is prefetched on.
+     * @param batchSize Maximum number of entries per batch.
+     */
+    public DeltaFileReader(SearchJniBridge bridge, Executor executor, int batchSize) {
+        mBridge = bridge;
+        mExecutor = executor;
+        mBatchSize = batchSize;
+    }
+
+    /**
+     * Reads all entries with seqNo greater than |lastSeqNo|, trimming consumed entries.
+     * @return SeqNo of the last consumed entry, or |lastSeqNo| if nothing was consumed.
+     */
+    public long read(long lastSeqNo, Consumer consumer) {
+        DeltaFileEntry[] batch = mBridge.query(lastSeqNo, mBatchSize);
+        while (batch.length > 0) {
+            long batchLastSeqNo = batch[batch.length - 1].seqNo;
+            FutureTask<DeltaFileEntry[]> prefetch = prefetch(batchLastSeqNo);
+            if (!consumer.onEntries(batch)) {
+                prefetch.cancel(false);
+                break;
+            }
+            lastSeqNo = batchLastSeqNo;
+            mBridge.trimDeltaFile(lastSeqNo);
+            batch = await(prefetch);
+        }
+        return lastSeqNo;
+    }
+
+    private FutureTask<DeltaFileEntry[]> prefetch(final long lastSeqNo) {
+        FutureTask<DeltaFileEntry[]> task = new FutureTask<DeltaFileEntry[]>(
+                new Callable<DeltaFileEntry[]>() {
+                    @Override
+                    public DeltaFileEntry[] call() {
+                        return mBridge.query(lastSeqNo, mBatchSize);
+                    }
+                });
+        mExecutor.execute(task);
+        return task;
+    }
+
+    private static DeltaFileEntry[] await(FutureTask<DeltaFileEntry[]> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.w(TAG, "Interrupted while prefetching delta file entries.");
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Prefetching delta file entries failed.", e);
+        }
+        return new DeltaFileEntry[0];
+    }
+}
@@ -4,8 +4,6 @@
 
 package org.chromium.chrome.browser.historyreport;
 
-import android.text.TextUtils;
-
 import org.chromium.base.Log;
 import org.chromium.base.ThreadUtils;
 import org.chromium.base.VisibleForTesting;
@@ -66,7 +64,8 @@ public class HistoryReportJniBridge implements SearchJniBridge {
         }
         Log.d(TAG, "query %d %d", lastSeqNo, limit);
         DeltaFileEntry[] result = nativeQuery(mNativeHistoryReportJniBridge, lastSeqNo, limit);
-        Log.d(TAG, "query result: %s", TextUtils.join("\n", result));
+        // Only the size is logged, the arguments of the log are built even when it's disabled.
+        Log.d(TAG, "query result: %d entries", result.length);
         return result;
     }
 
@@ -100,7 +99,7 @@ public class HistoryReportJniBridge implements SearchJniBridge {
         for (int i = 0; i < reports.length; ++i) {
             reportIds[i] = reports[i].reportId;
         }
-        Log.d(TAG, "removeUsageReports %s", TextUtils.join(",", reportIds));
+        Log.d(TAG, "removeUsageReports %d", reportIds.length);
         nativeRemoveUsageReports(mNativeHistoryReportJniBridge, reportIds);
     }
 
@@ -19,6 +19,8 @@ import android.widget.TextView;
 import org.chromium.chrome.R;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Sets up animations to move InfoBars around inside of the InfoBarContainer.
@@ -46,18 +48,43 @@ public class AnimationHelper implements ViewTreeObserver.OnGlobalLayoutListener
     public static final int ANIMATION_TYPE_HIDE = 2;
     public static final int ANIMATION_TYPE_BOUNDARY = 3;
 
+    /**
+     * The part of an animation that shows, swaps or hides one InfoBar.
+     */
+    static class Transition {
+        // ContentWrapperView that is being resized, shown, or hidden.
+        public final ContentWrapperView target;
+
+        // InfoBar that goes with the ContentWrapperView.
+        public final InfoBar infoBar;
+
+        // If non-null, the View that will replace whatever the ContentWrapperView is showing.
+        public final View toShow;
+
+        // Which type of animation is performed.
+        public final int animationType;
+
+        // The View that was replaced or hidden, once the animation is finished.
+        public View hidden;
+
+        public Transition(ContentWrapperView target, InfoBar infoBar, View toShow,
+                int animationType) {
+            this.target = target;
+            this.infoBar = infoBar;
+            this.toShow = toShow;
+            this.animationType = animationType;
+        }
+    }
+
     private final InfoBarContainer mContainer;
     private final LinearLayout mLinearLayout;
-    private final InfoBar mInfoBar;
-    private final ContentWrapperView mTargetWrapperView;
+    private final List<Transition> mTransitions;
     private final AnimatorSet mAnimatorSet;
-    private final int mAnimationType;
-    private final View mToShow;
 
     private boolean mAnimationStarted;
 
     /**
-     * Creates and starts an animation.
+     * Creates an animation.
      * @param container InfoBarContainer that is having its InfoBars animated.
      * @param target ContentWrapperView that is the focus of the animation and is being resized,
      *               shown, or hidden.
@@ -68,51 +95,49 @@ public class AnimationHelper implements ViewTreeObserver.OnGlobalLayoutListener
      */
     public AnimationHelper(InfoBarContainer container, ContentWrapperView target, InfoBar infoBar,
             View toShow, int animationType) {
+        this(container, Arrays.asList(new Transition(target, infoBar, toShow, animationType)));
+    }
+
+    /**
+     * Creates an animation that runs the transitions of several InfoBars together.
+     * @param container InfoBarContainer that is having its InfoBars animated.
+     * @param transitions The transitions to run, at most one per InfoBar.
+     */
+    AnimationHelper(InfoBarContainer container, List<Transition> transitions) {
         mContainer = container;
         mLinearLayout = container.getLinearLayout();
-        mInfoBar = infoBar;
-        mTargetWrapperView = target;
+        mTransitions = transitions;
         mAnimatorSet = new AnimatorSet();
-        mAnimationType = animationType;
-        mToShow = toShow;
-        assert mLinearLayout.indexOfChild(mTargetWrapperView) != -1;
+        for (Transition transition : mTransitions) {
+            assert mLinearLayout.indexOfChild(transition.target) != -1;
+        }
     }
 
     /**
      * Start the animation.
      */
     public void start() {
-        mTargetWrapperView.prepareTransition(mToShow);
-        mContainer.prepareTransition(mToShow);
+        boolean needsLayout = false;
+        for (Transition transition : mTransitions) {
+            transition.target.prepareTransition(transition.toShow);
+            mContainer.prepareTransition(transition.toShow);
+            needsLayout |= transition.toShow != null;
+        }
 
-        if (mToShow == null) {
+        if (!needsLayout) {
             // We've got a size already; start the animation immediately.
             continueAnimation();
         } else {
-            // Wait for the object to be sized.
-            mTargetWrapperView.getViewTreeObserver().addOnGlobalLayoutListener(this);
+            // Wait for the objects to be sized.  They are all sized by the same layout pass.
+            mLinearLayout.getViewTreeObserver().addOnGlobalLayoutListener(this);
         }
     }
 
     /**
-     * @return the InfoBar being animated.
-     */
-    public InfoBar getInfoBar() {
-        return mInfoBar;
-    }
-
-    /**
-     * @return the ContentWrapperView being animated.
-     */
-    public ContentWrapperView getTarget() {
-        return mTargetWrapperView;
-    }
-
-    /**
-     * @return the type of animation being performed.
+     * @return the transitions being animated, in the order they were requested.
      */
-    public int getAnimationType() {
-        return mAnimationType;
+    List<Transition> getTransitions() {
+        return mTransitions;
     }
 
     /**
@@ -120,22 +145,30 @@ public class AnimationHelper implements ViewTreeObserver.OnGlobalLayoutListener
      */
     @Override
     public void onGlobalLayout() {
-        mTargetWrapperView.getViewTreeObserver().removeOnGlobalLayoutListener(this);
+        mLinearLayout.getViewTreeObserver().removeOnGlobalLayoutListener(this);
         continueAnimation();
     }
 
+    private Transition findTransition(View target) {
+        for (Transition transition : mTransitions) {
+            if (transition.target == target) return transition;
+        }
+        return null;
+    }
+
     private void continueAnimation() {
         if (mAnimationStarted) return;
         mAnimationStarted = true;
 
-        int indexOfWrapperView = mLinearLayout.indexOfChild(mTargetWrapperView);
-        assert indexOfWrapperView != -1;
-
         ArrayList<Animator> animators = new ArrayList<Animator>();
-        mTargetWrapperView.getAnimationsForTransition(animators);
+        int heightDifference = 0;
+        for (Transition transition : mTransitions) {
+            assert mLinearLayout.indexOfChild(transition.target) != -1;
+            transition.target.getAnimationsForTransition(animators);
+            heightDifference += transition.target.getTransitionHeightDifference();
+        }
 
         // Determine where the tops of each InfoBar will need to be.
-        int heightDifference = mTargetWrapperView.getTransitionHeightDifference();
         int cumulativeTopStart = 0;
         int cumulativeTopEnd = 0;
         int cumulativeEndHeight = 0;
@@ -151,11 +184,13 @@ public class AnimationHelper implements ViewTreeObserver.OnGlobalLayoutListener
 
         for (int i = 0; i < mLinearLayout.getChildCount(); ++i) {
             View view = mLinearLayout.getChildAt(i);
+            Transition transition = findTransition(view);
 
-            // At this point, the View being transitioned in shouldn't have been added to the
+            // At this point, the Views being transitioned in shouldn't have been added to the
             // visible container, yet, and shouldn't affect calculations.
             int startHeight = view.getHeight();
-            int endHeight = startHeight + (i == indexOfWrapperView ? heightDifference : 0);
+            int endHeight = startHeight
+                    + (transition != null ? transition.target.getTransitionHeightDifference() : 0);
             int topStart = cumulativeTopStart;
             int topEnd = cumulativeTopEnd;
             int bottomStart = topStart + startHeight;
@@ -169,7 +204,7 @@ public class AnimationHelper implements ViewTreeObserver.OnGlobalLayoutListener
                 view.setTranslationY(0);
             } else {
                 // A translation is required to move the View into place.
-                int translation = heightDifference;
+                int translation = topStart - topEnd;
 
                 boolean translateDownward;
                 if (topStart < topEnd) {
@@ -213,23 +248,20 @@ public class AnimationHelper implements ViewTreeObserver.OnGlobalLayoutListener
         mAnimatorSet.addListener(new AnimatorListenerAdapter() {
             @Override
             public void onAnimationStart(Animator animation) {
-                mTargetWrapperView.startTransition();
+                for (Transition transition : mTransitions) {
+                    transition.target.startTransition();
+                }
             }
 
             @Override
             public void onAnimationEnd(Animator animation) {
-                mTargetWrapperView.finishTransition();
+                for (Transition transition : mTransitions) {
+                    transition.hidden = transition.target.finishTransition();
+                }
                 mContainer.finishTransition();
 
-                if (mToShow != null && (mAnimationType == ANIMATION_TYPE_SHOW
-                        || mAnimationType == ANIMATION_TYPE_SWAP)) {
-                    TextView messageView = (TextView) mToShow.findViewById(R.id.infobar_message);
-                    if (messageView != null) {
-                        Context context = mInfoBar.getContext();
-                        mToShow.announceForAccessibility(messageView.getText()
-                                + context.getString(R.string.infobar_screen_position));
-
-                    }
+                for (Transition transition : mTransitions) {
+                    announceForAccessibility(transition);
                 }
             }
         });
@@ -239,4 +271,19 @@ public class AnimationHelper implements ViewTreeObserver.OnGlobalLayoutListener
         mAnimatorSet.setInterpolator(new AccelerateDecelerateInterpolator());
         mAnimatorSet.start();
     }
+
+    private static void announceForAccessibility(Transition transition) {
+        if (transition.toShow == null) return;
+        if (transition.animationType != ANIMATION_TYPE_SHOW
+                && transition.animationType != ANIMATION_TYPE_SWAP) {
+            return;
+        }
+
+        TextView messageView = (TextView) transition.toShow.findViewById(R.id.infobar_message);
+        if (messageView != null) {
+            Context context = transition.infoBar.getContext();
+            transition.toShow.announceForAccessibility(messageView.getText()
+                    + context.getString(R.string.infobar_screen_position));
+        }
+    }
 }
@@ -145,10 +145,12 @@ public class ContentWrapperView extends FrameLayout {
      * Called when the animation is done.
      * At this point, we can get rid of the View that used to represent the InfoBar and re-enable
      * controls.
+     * @return The View that used to represent the InfoBar, or null if there was none.
      */
-    public void finishTransition() {
-        if (mViewToHide != null) {
-            removeView(mViewToHide);
+    public View finishTransition() {
+        View hiddenView = mViewToHide;
+        if (hiddenView != null) {
+            removeView(hiddenView);
         }
         getLayoutParams().height = ViewGroup.LayoutParams.WRAP_CONTENT;
         requestLayout();
@@ -156,6 +158,7 @@ public class ContentWrapperView extends FrameLayout {
         mViewToHide = null;
         mViewToShow = null;
         mInfoBar.setControlsEnabled(true);
+        return hiddenView;
     }
 
     /**
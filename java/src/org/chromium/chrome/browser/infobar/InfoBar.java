@@ -137,7 +137,7 @@ public abstract class InfoBar implements InfoBarView {
         assert mContext != null;
 
         InfoBarLayout layout =
-                new InfoBarLayout(mContext, this, mIconDrawableId, mIconBitmap, mMessage);
+                mContainer.obtainInfoBarLayout(this, mIconDrawableId, mIconBitmap, mMessage);
         createContent(layout);
         layout.onContentCreated();
         return layout;
@@ -5,8 +5,10 @@
 package org.chromium.chrome.browser.infobar;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Paint;
+import android.view.Choreographer;
 import android.view.Gravity;
 import android.view.MotionEvent;
 import android.view.View;
@@ -27,8 +29,13 @@ import org.chromium.ui.base.DeviceFormFactor;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -41,6 +48,7 @@ public class InfoBarContainer extends SwipableOverlayView {
     private static final String TAG = "InfoBarContainer";
     private static final int TAB_STRIP_AND_TOOLBAR_HEIGHT_PHONE_DP = 56;
     private static final int TAB_STRIP_AND_TOOLBAR_HEIGHT_TABLET_DP = 96;
+    private static final int MAX_RECYCLED_LAYOUTS_PER_TYPE = 2;
 
     /** WHether or not the InfoBarContainer is allowed to hide when the user scrolls. */
     private static boolean sIsAllowedToAutoHide = true;
@@ -106,13 +114,31 @@ public class InfoBarContainer extends SwipableOverlayView {
     // The list of all infobars in this container, regardless of whether they've been shown yet.
     private final ArrayList<InfoBar> mInfoBars = new ArrayList<InfoBar>();
 
-    // We only animate changing infobars one at a time.
+    // Changes to the infobars waiting to be animated. Unless transitions are batched, we only
+    // animate changing infobars one at a time.
     private final ArrayDeque<InfoBarTransitionInfo> mInfoBarTransitions;
 
     // Animation currently moving InfoBars around.
     private AnimationHelper mAnimation;
     private final FrameLayout mAnimationSizer;
 
+    // Whether the changes requested during a frame are animated together, see
+    // setBatchesTransitions().
+    private boolean mBatchesTransitions;
+    private boolean mIsFrameCallbackPosted;
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mIsFrameCallbackPosted = false;
+            processPendingInfoBars();
+        }
+    };
+
+    // Layouts of infobars that went away, by infobar class, to be reused by infobars of the same
+    // class.
+    private final Map<Class<?>, ArrayDeque<InfoBarLayout>> mRecycledLayouts =
+            new HashMap<Class<?>, ArrayDeque<InfoBarLayout>>();
+
     // True when this container has been emptied and its native counterpart has been destroyed.
     private boolean mDestroyed = false;
 
@@ -138,7 +164,7 @@ public class InfoBarContainer extends SwipableOverlayView {
 
     public InfoBarContainer(Context context, int tabId, ViewGroup parentView, Tab tab) {
         super(context, null);
-        tab.addObserver(getTabObserver());
+        tab.addObserver(getTabObserver(), TabObserver.EVENT_NONE);
         setIsSwipable(false);
 
         // Workaround for http://crbug.com/407149. See explanation in onMeasure() below.
@@ -216,6 +242,17 @@ public class InfoBarContainer extends SwipableOverlayView {
         return mLinearLayout;
     }
 
+    /**
+     * Sets whether the changes requested during a frame are animated together, in a single
+     * animation starting on the next frame, instead of one after the other. This lets pages that
+     * show several infobars at once settle much sooner. Changes to the same infobar are still
+     * animated one after the other.
+     * @param batchesTransitions Whether to batch the changes.
+     */
+    public void setBatchesTransitions(boolean batchesTransitions) {
+        mBatchesTransitions = batchesTransitions;
+    }
+
     @VisibleForTesting
     public void setAnimationListener(InfoBarAnimationListener listener) {
         mAnimationListener = listener;
@@ -391,7 +428,13 @@ public class InfoBarContainer extends SwipableOverlayView {
     private void enqueueInfoBarAnimation(InfoBar infoBar, View toShow, int animationType) {
         InfoBarTransitionInfo info = new InfoBarTransitionInfo(infoBar, toShow, animationType);
         mInfoBarTransitions.add(info);
-        processPendingInfoBars();
+        if (!mBatchesTransitions) {
+            processPendingInfoBars();
+        } else if (!mIsFrameCallbackPosted) {
+            // Wait for the other changes requested during this frame.
+            mIsFrameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
     }
 
     @Override
@@ -446,28 +489,76 @@ public class InfoBarContainer extends SwipableOverlayView {
     private void processPendingInfoBars() {
         if (mAnimation != null || mInfoBarTransitions.isEmpty()) return;
 
-        // Start animating what has to be animated.
-        InfoBarTransitionInfo info = mInfoBarTransitions.remove();
-        View toShow = info.toShow;
-        ContentWrapperView targetView;
-
         addToParentView();
 
-        if (info.animationType == AnimationHelper.ANIMATION_TYPE_SHOW) {
-            targetView = info.target.getContentWrapper(true);
-            assert mInfoBars.contains(info.target);
-            toShow = targetView.detachCurrentView();
-            mLinearLayout.addView(targetView, 0,
-                    new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
-        } else {
-            targetView = info.target.getContentWrapper(false);
+        // Start animating what has to be animated. When batching, that's every pending change up
+        // to the first one for an infobar that already changes in this animation.
+        List<AnimationHelper.Transition> transitions = new ArrayList<AnimationHelper.Transition>();
+        Set<InfoBar> animatedInfoBars = new HashSet<InfoBar>();
+        while (!mInfoBarTransitions.isEmpty()
+                && animatedInfoBars.add(mInfoBarTransitions.peek().target)) {
+            InfoBarTransitionInfo info = mInfoBarTransitions.remove();
+            View toShow = info.toShow;
+            ContentWrapperView targetView;
+
+            if (info.animationType == AnimationHelper.ANIMATION_TYPE_SHOW) {
+                targetView = info.target.getContentWrapper(true);
+                assert mInfoBars.contains(info.target);
+                toShow = targetView.detachCurrentView();
+                mLinearLayout.addView(targetView, 0,
+                        new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
+            } else {
+                targetView = info.target.getContentWrapper(false);
+            }
+            transitions.add(new AnimationHelper.Transition(
+                    targetView, info.target, toShow, info.animationType));
+
+            if (!mBatchesTransitions) break;
         }
 
         // Kick off the animation.
-        mAnimation = new AnimationHelper(this, targetView, info.target, toShow, info.animationType);
+        mAnimation = new AnimationHelper(this, transitions);
         mAnimation.start();
     }
 
+    /**
+     * Returns a layout for an infobar, reusing the layout of a former infobar of the same class if
+     * there is one.
+     * @param infoBar The infobar the layout is for.
+     * @param iconDrawableId ID of the resource to use for the icon, or 0.
+     * @param iconBitmap Bitmap to use for the icon, if iconDrawableId is 0.
+     * @param message The message to show in the infobar.
+     * @return The layout, ready for the infobar to add its content to.
+     */
+    InfoBarLayout obtainInfoBarLayout(InfoBar infoBar, int iconDrawableId, Bitmap iconBitmap,
+            CharSequence message) {
+        ArrayDeque<InfoBarLayout> layouts = mRecycledLayouts.get(infoBar.getClass());
+        if (layouts == null || layouts.isEmpty()) {
+            return new InfoBarLayout(mContext, infoBar, iconDrawableId, iconBitmap, message);
+        }
+        InfoBarLayout layout = layouts.remove();
+        layout.bind(infoBar, iconDrawableId, iconBitmap, message);
+        return layout;
+    }
+
+    /**
+     * Keeps a view that an infobar no longer shows, if it's a layout that can be reused.
+     */
+    private void recycleInfoBarLayout(InfoBar infoBar, View view) {
+        if (!(view instanceof InfoBarLayout) || view.getParent() != null) return;
+
+        ArrayDeque<InfoBarLayout> layouts = mRecycledLayouts.get(infoBar.getClass());
+        if (layouts == null) {
+            layouts = new ArrayDeque<InfoBarLayout>(MAX_RECYCLED_LAYOUTS_PER_TYPE);
+            mRecycledLayouts.put(infoBar.getClass(), layouts);
+        }
+        if (layouts.size() >= MAX_RECYCLED_LAYOUTS_PER_TYPE) return;
+
+        InfoBarLayout layout = (InfoBarLayout) view;
+        layout.recycle();
+        layouts.add(layout);
+    }
+
     // Called by the tab when it has started loading a new page.
     public void onPageStarted() {
         LinkedList<InfoBar> barsToRemove = new LinkedList<InfoBar>();
@@ -497,6 +588,11 @@ public class InfoBarContainer extends SwipableOverlayView {
             nativeDestroy(mNativeInfoBarContainer);
         }
         mInfoBarTransitions.clear();
+        mRecycledLayouts.clear();
+        if (mIsFrameCallbackPosted) {
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+            mIsFrameCallbackPosted = false;
+        }
     }
 
     /**
@@ -515,9 +611,11 @@ public class InfoBarContainer extends SwipableOverlayView {
             ViewGroup parent = (ViewGroup) toShow.getParent();
             if (parent != null) parent.removeView(toShow);
 
-            assert mAnimationSizer.getParent() == null;
-            mParentView.addView(mAnimationSizer, new FrameLayout.LayoutParams(
-                    LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+            // Several infobars animated together share the layout.
+            if (mAnimationSizer.getParent() == null) {
+                mParentView.addView(mAnimationSizer, new FrameLayout.LayoutParams(
+                        LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+            }
             mAnimationSizer.addView(toShow, 0,
                     new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
             mAnimationSizer.requestLayout();
@@ -530,9 +628,13 @@ public class InfoBarContainer extends SwipableOverlayView {
     public void finishTransition() {
         assert mAnimation != null;
 
-        // If the InfoBar was hidden, get rid of its View entirely.
-        if (mAnimation.getAnimationType() == AnimationHelper.ANIMATION_TYPE_HIDE) {
-            mLinearLayout.removeView(mAnimation.getTarget());
+        // If an InfoBar was hidden, get rid of its View entirely. Keep the layouts that were
+        // replaced or hidden to reuse them.
+        for (AnimationHelper.Transition transition : mAnimation.getTransitions()) {
+            if (transition.animationType == AnimationHelper.ANIMATION_TYPE_HIDE) {
+                mLinearLayout.removeView(transition.target);
+            }
+            recycleInfoBarLayout(transition.infoBar, transition.hidden);
         }
 
         // Reset all translations and put everything where they need to be.
@@ -554,7 +656,9 @@ public class InfoBarContainer extends SwipableOverlayView {
 
         // Notify interested parties and move on to the next animation.
         if (mAnimationListener != null) {
-            mAnimationListener.notifyAnimationFinished(mAnimation.getAnimationType());
+            for (AnimationHelper.Transition transition : mAnimation.getTransitions()) {
+                mAnimationListener.notifyAnimationFinished(transition.animationType);
+            }
         }
         mAnimation = null;
         processPendingInfoBars();
@@ -122,8 +122,10 @@ public class InfoBarLayout extends ViewGroup implements View.OnClickListener {
     private final int mMinWidth;
     private final int mAccentColor;
 
-    private final InfoBarView mInfoBarView;
     private final ImageButton mCloseButton;
+    private final TextView mDefaultMessageTextView;
+
+    private InfoBarView mInfoBarView;
     private TextView mMessageTextView;
     private View mMessageView;
     private ImageView mIconView;
@@ -166,7 +168,6 @@ public class InfoBarLayout extends ViewGroup implements View.OnClickListener {
     public InfoBarLayout(Context context, InfoBarView infoBarView, int iconResourceId,
             Bitmap iconBitmap, CharSequence message) {
         super(context);
-        mInfoBarView = infoBarView;
 
         // Grab the dimensions.
         Resources res = getResources();
@@ -189,6 +190,29 @@ public class InfoBarLayout extends ViewGroup implements View.OnClickListener {
         mCloseButton.setContentDescription(res.getString(R.string.infobar_close));
         mCloseButton.setLayoutParams(new LayoutParams(0, -mMargin, -mMargin, -mMargin));
 
+        // Set up the message view.
+        mDefaultMessageTextView = (TextView) LayoutInflater.from(context).inflate(
+                R.layout.infobar_text, null);
+        mDefaultMessageTextView.setMovementMethod(LinkMovementMethod.getInstance());
+        mDefaultMessageTextView.setLinkTextColor(mAccentColor);
+
+        bind(infoBarView, iconResourceId, iconBitmap, message);
+    }
+
+    /**
+     * Readies the layout to be filled in for an InfoBar.  Everything but the close button and the
+     * default message view is created anew, as InfoBars may hold on to the views they added.
+     * @param infoBarView InfoBarView that listens to events.
+     * @param iconResourceId ID of the icon to use for the InfoBar.
+     * @param iconBitmap Bitmap for the icon to use, if the resource ID wasn't passed through.
+     * @param message The message to show in the infobar.
+     */
+    void bind(InfoBarView infoBarView, int iconResourceId, Bitmap iconBitmap,
+            CharSequence message) {
+        assert mInfoBarView == null && getChildCount() == 0;
+        mInfoBarView = infoBarView;
+        Context context = getContext();
+
         // Set up the icon.
         if (iconResourceId != 0 || iconBitmap != null) {
             mIconView = new ImageView(context);
@@ -203,15 +227,35 @@ public class InfoBarLayout extends ViewGroup implements View.OnClickListener {
             mIconView.setFocusable(false);
         }
 
-        // Set up the message view.
-        mMessageTextView = (TextView) LayoutInflater.from(context).inflate(R.layout.infobar_text,
-                null);
+        mMessageTextView = mDefaultMessageTextView;
         mMessageTextView.setText(message, TextView.BufferType.SPANNABLE);
-        mMessageTextView.setMovementMethod(LinkMovementMethod.getInstance());
-        mMessageTextView.setLinkTextColor(mAccentColor);
         mMessageView = mMessageTextView;
     }
 
+    /**
+     * Empties the layout once its InfoBar no longer shows it, so that it can be bound to another
+     * InfoBar of the same type.
+     */
+    void recycle() {
+        removeAllViews();
+        mInfoBarView = null;
+        mMessageTextView = null;
+        mMessageView = null;
+        mIconView = null;
+        mPrimaryButton = null;
+        mSecondaryButton = null;
+        mTertiaryButton = null;
+        mCustomButton = null;
+        mMainGroup = null;
+        mCustomGroup = null;
+        mButtonGroup = null;
+
+        // Undo what the transitions and the InfoBar did to the views that are kept.
+        setAlpha(1.0f);
+        setTranslationY(0);
+        mCloseButton.setEnabled(true);
+    }
+
     /**
      * Sets the message to show on the infobar.
      */
@@ -0,0 +1,211 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.media.remote;
+
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import org.chromium.base.ThreadUtils;
+import org.chromium.base.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves media URLs with {@link MediaUrlResolver}, remembering the results for a while so that
+ * casting the same video again doesn't wait for another round trip to its server.
+ *
+ * Results are keyed by the URL, the user agent and the cookies they were fetched with.  Requests
+ * for a URL that is already being resolved wait for that resolution instead of starting another
+ * one, which lets a video be resolved ahead of time, as soon as it is found to be castable.
+ * Failed resolutions aren't remembered.  All methods must be called on the UI thread.
+ */
+class CachedMediaUrlResolver {
+    /**
+     * Receives the result of a resolution.
+     */
+    interface Callback {
+        /**
+         * @param uri The resolved URI, or {@link Uri#EMPTY} if it couldn't be resolved.
+         * @param playable Whether the media at the URI can be cast.
+         */
+        void onResolved(Uri uri, boolean playable);
+    }
+
+    /** How long a resolved URL is remembered for. */
+    static final long RESULT_LIFETIME_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final int MAX_RESULTS = 16;
+
+    private static CachedMediaUrlResolver sInstance;
+
+    private static class CachedResult {
+        final Uri mUri;
+        final boolean mPlayable;
+        final long mExpiryTimeMs;
+
+        CachedResult(Uri uri, boolean playable, long expiryTimeMs) {
+            mUri = uri;
+            mPlayable = playable;
+            mExpiryTimeMs = expiryTimeMs;
+        }
+    }
+
+    private final Map<String, CachedResult> mResults =
+            new LinkedHashMap<String, CachedResult>(MAX_RESULTS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                    return size() > MAX_RESULTS;
+                }
+            };
+
+    /** Resolutions in progress, mapped to the callbacks waiting for them. */
+    private final Map<String, List<Callback>> mPendingCallbacks =
+            new HashMap<String, List<Callback>>();
+
+    /** Callbacks answered from memory, waiting for their turn on the UI thread. */
+    private final List<Callback> mPostedCallbacks = new ArrayList<Callback>();
+
+    /** The user agent of the last resolution, used to resolve URLs ahead of time. */
+    private String mLastUserAgent;
+
+    private int mResolutionCount;
+
+    /**
+     * @return The resolver shared by every MediaRouteController.
+     */
+    static CachedMediaUrlResolver getInstance() {
+        ThreadUtils.assertOnUiThread();
+        if (sInstance == null) sInstance = new CachedMediaUrlResolver();
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    CachedMediaUrlResolver() {
+    }
+
+    /**
+     * Resolves a URL, or waits for it to be resolved if that's already in progress.  The callback
+     * is always called asynchronously, even if the result was remembered.
+     * @param uri The URL to resolve.
+     * @param cookies The cookies to fetch the URL with, or null.
+     * @param userAgent The user agent to fetch the URL with.
+     * @param callback Called with the result, or null if the result only needs to be remembered.
+     */
+    void resolve(final Uri uri, final String cookies, String userAgent, final Callback callback) {
+        mLastUserAgent = userAgent;
+        final String key = getKey(uri, cookies, userAgent);
+
+        final CachedResult result = mResults.get(key);
+        if (result != null && result.mExpiryTimeMs > getTimeMs()) {
+            if (callback == null) return;
+            mPostedCallbacks.add(callback);
+            ThreadUtils.postOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    // Not called if the callback was cancelled in the meantime.
+                    if (!mPostedCallbacks.remove(callback)) return;
+                    callback.onResolved(result.mUri, result.mPlayable);
+                }
+            });
+            return;
+        }
+        if (result != null) mResults.remove(key);
+
+        List<Callback> callbacks = mPendingCallbacks.get(key);
+        if (callbacks == null) {
+            callbacks = new ArrayList<Callback>();
+            mPendingCallbacks.put(key, callbacks);
+            mResolutionCount++;
+            startResolution(new MediaUrlResolver.Delegate() {
+                @Override
+                public Uri getUri() {
+                    return uri;
+                }
+
+                @Override
+                public String getCookies() {
+                    return cookies;
+                }
+
+                @Override
+                public void setUri(Uri resolvedUri, boolean playable) {
+                    onResolved(key, resolvedUri, playable);
+                }
+            }, userAgent);
+        }
+        if (callback != null) callbacks.add(callback);
+    }
+
+    /**
+     * Resolves a URL ahead of time, without cookies, with the user agent of the last resolution.
+     * Does nothing if no URL was resolved yet.
+     * @param uri The URL to resolve.
+     */
+    void preResolve(Uri uri) {
+        if (mLastUserAgent == null) return;
+        resolve(uri, null, mLastUserAgent, null);
+    }
+
+    /**
+     * Stops a callback from being called, including when its result was remembered but not
+     * delivered yet.  The resolution it was waiting for carries on, so that its result is
+     * remembered.
+     * @param callback The callback passed to {@link #resolve}.
+     */
+    void cancel(Callback callback) {
+        mPostedCallbacks.removeAll(Collections.singleton(callback));
+        for (List<Callback> callbacks : mPendingCallbacks.values()) {
+            callbacks.remove(callback);
+        }
+    }
+
+    /**
+     * @return How many resolutions were started, as opposed to answered from memory or joined
+     *         while in progress.
+     */
+    @VisibleForTesting
+    int getResolutionCount() {
+        return mResolutionCount;
+    }
+
+    /**
+     * Starts resolving a URL, reporting the result to the delegate on the UI thread.
+     */
+    @VisibleForTesting
+    protected void startResolution(MediaUrlResolver.Delegate delegate, String userAgent) {
+        new MediaUrlResolver(delegate, userAgent).executeOnExecutor(
+                AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    @VisibleForTesting
+    protected long getTimeMs() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    private void onResolved(String key, Uri uri, boolean playable) {
+        if (!Uri.EMPTY.equals(uri)) {
+            mResults.put(key, new CachedResult(uri, playable, getTimeMs() + RESULT_LIFETIME_MS));
+        }
+        List<Callback> callbacks = mPendingCallbacks.remove(key);
+        if (callbacks == null) return;
+        for (Callback callback : callbacks) {
+            callback.onResolved(uri, playable);
+        }
+    }
+
+    private static String getKey(Uri uri, String cookies, String userAgent) {
+        // Only a hash of the cookies is kept, so that they don't linger in memory.
+        int cookiesHash = TextUtils.isEmpty(cookies) ? 0 : cookies.hashCode();
+        return uri + "\n" + userAgent + "\n" + cookiesHash;
+    }
+}
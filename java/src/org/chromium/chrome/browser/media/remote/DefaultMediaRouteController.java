@@ -114,7 +114,7 @@ public class DefaultMediaRouteController extends AbstractMediaRouteController {
 
     private String mLocalVideoCookies;
 
-    private MediaUrlResolver mMediaUrlResolver;
+    private CachedMediaUrlResolver.Callback mMediaUrlResolverCallback;
 
     private int mSessionState = MediaSessionStatus.SESSION_STATE_INVALIDATED;
 
@@ -133,32 +133,6 @@ public class DefaultMediaRouteController extends AbstractMediaRouteController {
                 }
             };
 
-    private final MediaUrlResolver.Delegate
-            mMediaUrlResolverDelegate = new MediaUrlResolver.Delegate() {
-                @Override
-                public Uri getUri() {
-                    return mLocalVideoUri;
-                }
-
-                @Override
-                public String getCookies() {
-                    return mLocalVideoCookies;
-                }
-
-                @Override
-                public void setUri(Uri uri, boolean playable) {
-                    if (playable) {
-                        mLocalVideoUri = uri;
-                        playMedia();
-                        return;
-                    }
-                    mLocalVideoUri = null;
-                    showMessageToast(
-                            getContext().getString(R.string.cast_permission_error_playing_video));
-                    release();
-                }
-            };
-
     private String mUserAgent;
 
     /**
@@ -771,6 +745,8 @@ public class DefaultMediaRouteController extends AbstractMediaRouteController {
      * Clear the session and the currently playing item (if any).
      */
     protected void clearStreamState() {
+        // The video being resolved isn't going to be cast anymore.
+        cancelMediaUrlResolution();
         mVideoUriToStart = null;
         mLocalVideoUri = null;
         mCurrentSessionId = null;
@@ -1029,15 +1005,37 @@ public class DefaultMediaRouteController extends AbstractMediaRouteController {
 
         RecordCastAction.castPlayRequested();
 
-        // Cancel the previous task for URL resolving so that we don't get an old URI set.
-        if (mMediaUrlResolver != null) mMediaUrlResolver.cancel(true);
+        // Cancel the previous URL resolving so that we don't get an old URI set.
+        cancelMediaUrlResolution();
 
-        // Create a new MediaUrlResolver since the previous one may still be running despite the
-        // cancel() call.
-        mMediaUrlResolver = new MediaUrlResolver(mMediaUrlResolverDelegate, mUserAgent);
+        // Use a new callback, so that it can be told apart from the cancelled one.
+        mMediaUrlResolverCallback = new CachedMediaUrlResolver.Callback() {
+            @Override
+            public void onResolved(Uri uri, boolean playable) {
+                // Ignore the results of superseded and cancelled resolutions.
+                if (this != mMediaUrlResolverCallback) return;
+                mMediaUrlResolverCallback = null;
+                if (playable) {
+                    mLocalVideoUri = uri;
+                    playMedia();
+                    return;
+                }
+                mLocalVideoUri = null;
+                showMessageToast(
+                        getContext().getString(R.string.cast_permission_error_playing_video));
+                release();
+            }
+        };
 
         mStartPositionMillis = startPositionMillis;
-        mMediaUrlResolver.execute();
+        CachedMediaUrlResolver.getInstance().resolve(
+                mLocalVideoUri, mLocalVideoCookies, mUserAgent, mMediaUrlResolverCallback);
+    }
+
+    private void cancelMediaUrlResolution() {
+        if (mMediaUrlResolverCallback == null) return;
+        CachedMediaUrlResolver.getInstance().cancel(mMediaUrlResolverCallback);
+        mMediaUrlResolverCallback = null;
     }
 
     private void playMedia() {
@@ -15,6 +15,7 @@ import android.graphics.Bitmap;
 import android.os.Handler;
 import android.os.IBinder;
 import android.support.v4.app.NotificationCompat;
+import android.text.TextUtils;
 import android.util.DisplayMetrics;
 import android.view.View;
 import android.widget.RemoteViews;
@@ -218,25 +219,55 @@ public class NotificationTransportControl
     }
 
     /**
-     * Scale the specified bitmap to the desired with and height while preserving aspect ratio.
+     * What the notification shows. The notification is only rebuilt when this changes, which
+     * makes updates that don't change what the user sees, like most position changes, free.
      */
-    private static Bitmap scaleBitmap(Bitmap bitmap, int maxWidth, int maxHeight) {
-        if (bitmap == null) {
-            return null;
+    private static class NotificationContent {
+        private final String mTitle;
+        private final String mStatus;
+        private final PlayerState mState;
+        private final Bitmap mIcon;
+        private final int mIconGenerationId;
+        private final int mDurationMillis;
+        // The position, rounded down to what the progress bar can show.
+        private final int mProgressMillis;
+
+        NotificationContent(String title, String status, PlayerState state, Bitmap icon,
+                int durationMillis, int progressMillis) {
+            mTitle = title;
+            mStatus = status;
+            mState = state;
+            mIcon = icon;
+            mIconGenerationId = icon != null ? icon.getGenerationId() : 0;
+            mDurationMillis = durationMillis;
+            mProgressMillis = progressMillis;
         }
 
-        float scaleX = 1.0f;
-        float scaleY = 1.0f;
-        if (bitmap.getWidth() > maxWidth) {
-            scaleX = maxWidth / (float) bitmap.getWidth();
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) return true;
+            if (!(obj instanceof NotificationContent)) return false;
+
+            NotificationContent other = (NotificationContent) obj;
+            return mState == other.mState
+                    && mIcon == other.mIcon
+                    && mIconGenerationId == other.mIconGenerationId
+                    && mDurationMillis == other.mDurationMillis
+                    && mProgressMillis == other.mProgressMillis
+                    && TextUtils.equals(mTitle, other.mTitle)
+                    && TextUtils.equals(mStatus, other.mStatus);
         }
-        if (bitmap.getHeight() > maxHeight) {
-            scaleY = maxHeight / (float) bitmap.getHeight();
+
+        @Override
+        public int hashCode() {
+            int result = mDurationMillis;
+            result = 31 * result + mProgressMillis;
+            result = 31 * result + mIconGenerationId;
+            result = 31 * result + (mState == null ? 0 : mState.hashCode());
+            result = 31 * result + (mTitle == null ? 0 : mTitle.hashCode());
+            result = 31 * result + (mStatus == null ? 0 : mStatus.hashCode());
+            return result;
         }
-        float scale = Math.min(scaleX, scaleY);
-        int width = (int) (bitmap.getWidth() * scale);
-        int height = (int) (bitmap.getHeight() * scale);
-        return Bitmap.createScaledBitmap(bitmap, width, height, false);
     }
 
     private final Context mContext;
@@ -253,10 +284,25 @@ public class NotificationTransportControl
 
     private Bitmap mIcon;
 
+    private final ScaledBitmapCache mScaledIconCache = new ScaledBitmapCache();
+
+    // What the notification currently shows, null if it hasn't been shown yet.
+    private NotificationContent mShownContent;
+
     private Handler mHandler;
 
     private int mProgressUpdateInterval = MINIMUM_PROGRESS_UPDATE_INTERVAL_MS;
 
+    private final Runnable mProgressMonitor = new Runnable() {
+        @Override
+        public void run() {
+            onPositionChanged(mMediaRouteController.getPosition());
+            if (mMediaRouteController.isPlaying()) {
+                mHandler.postDelayed(this, mProgressUpdateInterval);
+            }
+        }
+    };
+
     private NotificationTransportControl(Context context) {
         this.mContext = context;
         mHandler = new Handler(context.getMainLooper()) {
@@ -411,6 +457,9 @@ public class NotificationTransportControl
         Bitmap posterBitmap = getPosterBitmap();
         mIcon = scaleBitmapForIcon(posterBitmap);
         super.onPosterBitmapChanged();
+        if (isShowing()) {
+            updateNotification();
+        }
     }
 
     @Override
@@ -451,6 +500,7 @@ public class NotificationTransportControl
                 .setContentIntent(getService().getPendingIntent(ListenerService.ACTION_ID_SELECT))
                 .setDeleteIntent(getService().getPendingIntent(ListenerService.ACTION_ID_STOP));
         mNotification = notificationBuilder.build();
+        mShownContent = null;
         updateNotification();
     }
 
@@ -459,11 +509,13 @@ public class NotificationTransportControl
 
         // Cancel any pending updates - we're about to tear down the notification.
         mHandler.removeMessages(MSG_UPDATE_NOTIFICATION);
+        mHandler.removeCallbacks(mProgressMonitor);
 
         NotificationManager manager =
                 (NotificationManager) getContext().getSystemService(Context.NOTIFICATION_SERVICE);
         manager.cancel(R.id.remote_notification);
         mNotification = null;
+        mShownContent = null;
     }
 
     private final Context getContext() {
@@ -511,16 +563,10 @@ public class NotificationTransportControl
     }
 
     private void monitorProgress() {
-        mHandler.postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                onPositionChanged(mMediaRouteController.getPosition());
-                if (mMediaRouteController.isPlaying()) {
-                    mHandler.postDelayed(this, mProgressUpdateInterval);
-                }
-            }
-        }, mProgressUpdateInterval);
-
+        // Playing again while the progress is monitored restarts the monitoring instead of
+        // starting a second one.
+        mHandler.removeCallbacks(mProgressMonitor);
+        mHandler.postDelayed(mProgressMonitor, mProgressUpdateInterval);
     }
 
     /**
@@ -531,7 +577,17 @@ public class NotificationTransportControl
         Resources res = getContext().getResources();
         float maxWidth = res.getDimension(R.dimen.remote_notification_logo_max_width);
         float maxHeight = res.getDimension(R.dimen.remote_notification_logo_max_height);
-        return scaleBitmap(bitmap, (int) maxWidth, (int) maxHeight);
+        return mScaledIconCache.getScaledBitmap(bitmap, (int) maxWidth, (int) maxHeight);
+    }
+
+    /**
+     * @return The position rounded down to a multiple of the progress update interval, which is
+     *         as precise as the progress bar can show.
+     */
+    private int getVisibleProgressMillis(RemoteVideoInfo videoInfo) {
+        if (videoInfo.durationMillis <= 0) return 0;
+        int position = Math.min(videoInfo.currentTimeMillis, videoInfo.durationMillis);
+        return position - position % mProgressUpdateInterval;
     }
 
     /**
@@ -554,18 +610,27 @@ public class NotificationTransportControl
     private void updateNotificationInternal() {
         checkState(mNotification != null);
 
-        RemoteViews contentView = createContentView();
-
-        contentView.setTextViewText(R.id.title, getTitle());
-        contentView.setTextViewText(R.id.status, getStatus());
-        if (mIcon != null) {
-            contentView.setImageViewBitmap(R.id.icon, mIcon);
-        } else {
-            contentView.setImageViewResource(R.id.icon, R.drawable.ic_notification_media_route);
-        }
-
         RemoteVideoInfo videoInfo = getVideoInfo();
         if (videoInfo != null) {
+            String title = getTitle();
+            String status = getStatus();
+            int progressMillis = getVisibleProgressMillis(videoInfo);
+            NotificationContent content = new NotificationContent(title, status,
+                    videoInfo.state, mIcon, videoInfo.durationMillis, progressMillis);
+            if (content.equals(mShownContent)) return;
+            mShownContent = content;
+
+            RemoteViews contentView = createContentView();
+
+            contentView.setTextViewText(R.id.title, title);
+            contentView.setTextViewText(R.id.status, status);
+            if (mIcon != null) {
+                contentView.setImageViewBitmap(R.id.icon, mIcon);
+            } else {
+                contentView.setImageViewResource(
+                        R.id.icon, R.drawable.ic_notification_media_route);
+            }
+
             boolean showPlayPause = false;
             boolean showProgress = false;
             switch (videoInfo.state) {
@@ -573,7 +638,7 @@ public class NotificationTransportControl
                     showProgress = true;
                     showPlayPause = true;
                     contentView.setProgressBar(R.id.progress, videoInfo.durationMillis,
-                            videoInfo.currentTimeMillis, false);
+                            progressMillis, false);
                     contentView.setImageViewResource(R.id.playpause,
                             R.drawable.ic_vidcontrol_pause);
                     contentView.setContentDescription(R.id.playpause, mPauseDescription);
@@ -584,7 +649,7 @@ public class NotificationTransportControl
                     showProgress = true;
                     showPlayPause = true;
                     contentView.setProgressBar(R.id.progress, videoInfo.durationMillis,
-                            videoInfo.currentTimeMillis, false);
+                            progressMillis, false);
                     contentView.setImageViewResource(R.id.playpause, R.drawable.ic_vidcontrol_play);
                     contentView.setContentDescription(R.id.playpause, mPlayDescription);
                     contentView.setOnClickPendingIntent(R.id.playpause,
@@ -10,6 +10,7 @@ import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.graphics.Bitmap;
+import android.net.Uri;
 import android.os.Bundle;
 import android.support.v4.app.FragmentActivity;
 import android.support.v4.app.FragmentManager;
@@ -25,8 +26,10 @@ import org.chromium.base.CommandLine;
 import org.chromium.base.ThreadUtils;
 import org.chromium.base.VisibleForTesting;
 import org.chromium.chrome.R;
+import org.chromium.chrome.browser.ChromeActivity;
 import org.chromium.chrome.browser.ChromeSwitches;
 import org.chromium.chrome.browser.media.remote.RemoteVideoInfo.PlayerState;
+import org.chromium.chrome.browser.tab.Tab;
 import org.chromium.ui.widget.Toast;
 
 import java.lang.ref.WeakReference;
@@ -106,12 +109,34 @@ public class RemoteMediaPlayerController implements MediaRouteController.UiListe
     public MediaRouteController getMediaRouteController(String sourceUrl, String frameUrl) {
         for (MediaRouteController controller: mMediaRouteControllers) {
             if (controller.canPlayMedia(sourceUrl, frameUrl)) {
+                // Start resolving the video's URL now, so that it's known by the time the user
+                // casts the video. Only done when there's somewhere to cast it to.
+                if (controller instanceof DefaultMediaRouteController
+                        && canPreResolveMediaUrls()
+                        && controller.isRemotePlaybackAvailable()) {
+                    CachedMediaUrlResolver.getInstance().preResolve(Uri.parse(sourceUrl));
+                }
                 return controller;
             }
         }
         return null;
     }
 
+    /**
+     * @return Whether the URLs of videos can be resolved before the user casts them. That's only
+     *         done when enabled on the command line, and never for videos in incognito tabs, since
+     *         it fetches them from their servers.
+     */
+    private static boolean canPreResolveMediaUrls() {
+        if (!CommandLine.getInstance().hasSwitch(ChromeSwitches.ENABLE_CAST_URL_PRERESOLVE)) {
+            return false;
+        }
+        Activity activity = ApplicationStatus.getLastTrackedFocusedActivity();
+        if (!(activity instanceof ChromeActivity)) return false;
+        Tab tab = ((ChromeActivity) activity).getActivityTab();
+        return tab != null && !tab.isIncognito();
+    }
+
     /**
      * Gets the default MediaRouteController, creating it if necessary.
      * @return the default MediaRouteController.
@@ -0,0 +1,98 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.media.remote;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import org.chromium.base.VisibleForTesting;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Caches bitmaps scaled down to fit in a given size, so that the same poster isn't scaled again
+ * every time the UI showing it is rebuilt.
+ *
+ * Bitmaps are identified by the object itself and its generation ID, so a bitmap that was modified
+ * since it was scaled is scaled again. The cache doesn't keep the original bitmaps alive. All
+ * methods must be called on the UI thread.
+ */
+class ScaledBitmapCache {
+    @VisibleForTesting
+    static final int MAX_ENTRIES = 4;
+
+    private static final class Key {
+        private final WeakReference<Bitmap> mBitmap;
+        private final int mIdentityHashCode;
+        private final int mGenerationId;
+        private final int mMaxWidth;
+        private final int mMaxHeight;
+
+        Key(Bitmap bitmap, int maxWidth, int maxHeight) {
+            mBitmap = new WeakReference<Bitmap>(bitmap);
+            mIdentityHashCode = System.identityHashCode(bitmap);
+            mGenerationId = bitmap.getGenerationId();
+            mMaxWidth = maxWidth;
+            mMaxHeight = maxHeight;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            Bitmap bitmap = mBitmap.get();
+            // Entries of collected bitmaps never match, and are evicted in time.
+            return bitmap != null && bitmap == other.mBitmap.get()
+                    && mGenerationId == other.mGenerationId
+                    && mMaxWidth == other.mMaxWidth && mMaxHeight == other.mMaxHeight;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = mIdentityHashCode * 31 + mGenerationId;
+            hash = hash * 31 + mMaxWidth;
+            return hash * 31 + mMaxHeight;
+        }
+    }
+
+    private final LruCache<Key, Bitmap> mCache = new LruCache<Key, Bitmap>(MAX_ENTRIES);
+
+    /**
+     * @param bitmap The bitmap to scale, or null.
+     * @param maxWidth The largest width the bitmap should have.
+     * @param maxHeight The largest height the bitmap should have.
+     * @return The bitmap scaled to fit in the given size while preserving its aspect ratio, or
+     *         null if the bitmap is null.
+     */
+    Bitmap getScaledBitmap(Bitmap bitmap, int maxWidth, int maxHeight) {
+        if (bitmap == null) return null;
+
+        Key key = new Key(bitmap, maxWidth, maxHeight);
+        Bitmap scaledBitmap = mCache.get(key);
+        if (scaledBitmap == null) {
+            scaledBitmap = scaleBitmap(bitmap, maxWidth, maxHeight);
+            mCache.put(key, scaledBitmap);
+        }
+        return scaledBitmap;
+    }
+
+    /**
+     * Scale the specified bitmap to the desired with and height while preserving aspect ratio.
+     */
+    private static Bitmap scaleBitmap(Bitmap bitmap, int maxWidth, int maxHeight) {
+        float scaleX = 1.0f;
+        float scaleY = 1.0f;
+        if (bitmap.getWidth() > maxWidth) {
+            scaleX = maxWidth / (float) bitmap.getWidth();
+        }
+        if (bitmap.getHeight() > maxHeight) {
+            scaleY = maxHeight / (float) bitmap.getHeight();
+        }
+        float scale = Math.min(scaleX, scaleY);
+        int width = (int) (bitmap.getWidth() * scale);
+        int height = (int) (bitmap.getHeight() * scale);
+        return Bitmap.createScaledBitmap(bitmap, width, height, false);
+    }
+}
@@ -122,7 +122,7 @@ public class MediaSessionTabHelper {
 
     private MediaSessionTabHelper(Tab tab) {
         mTab = tab;
-        mTab.addObserver(mTabObserver);
+        mTab.addObserver(mTabObserver, TabObserver.EVENT_NONE);
         if (mTab.getWebContents() != null) setWebContents(tab.getWebContents());
     }
 
@@ -20,6 +20,7 @@ import android.support.v4.app.NotificationManagerCompat;
 import android.support.v4.media.MediaMetadataCompat;
 import android.support.v4.media.session.MediaSessionCompat;
 import android.support.v4.media.session.PlaybackStateCompat;
+import android.text.TextUtils;
 import android.view.KeyEvent;
 import android.view.View;
 import android.widget.RemoteViews;
@@ -233,12 +234,18 @@ public class NotificationMediaPlaybackControls {
 
     private Bitmap mNotificationIcon;
 
+    // Whether the badged notification icon was looked up. It is null if it isn't a bitmap.
+    private boolean mHasLookedUpNotificationIcon;
+
     private final Bitmap mMediaSessionIcon;
 
     private MediaNotificationInfo mMediaNotificationInfo;
 
     private MediaSessionCompat mMediaSession;
 
+    // The info last pushed to the MediaSession, to only update what changed.
+    private MediaNotificationInfo mMediaSessionInfo;
+
     private final MediaSessionCompat.Callback mMediaSessionCallback =
             new MediaSessionCompat.Callback() {
                 @Override
@@ -296,6 +303,7 @@ public class NotificationMediaPlaybackControls {
             mMediaSession.release();
             mMediaSession = null;
         }
+        mMediaSessionInfo = null;
         mMediaNotificationInfo = null;
         mContext.stopService(new Intent(mContext, ListenerService.class));
     }
@@ -378,10 +386,11 @@ public class NotificationMediaPlaybackControls {
 
         // Android doesn't badge the icons for RemoteViews automatically when
         // running the app under the Work profile.
-        if (mNotificationIcon == null) {
+        if (!mHasLookedUpNotificationIcon) {
             Drawable notificationIconDrawable = ApiCompatibilityUtils.getUserBadgedIcon(
                     mContext, R.drawable.audio_playing);
             mNotificationIcon = drawableToBitmap(notificationIconDrawable);
+            mHasLookedUpNotificationIcon = true;
         }
 
         if (mNotificationBuilder == null) {
@@ -450,18 +459,7 @@ public class NotificationMediaPlaybackControls {
             }
         }
 
-        mMediaSession.setMetadata(createMetadata());
-
-        PlaybackStateCompat.Builder playbackStateBuilder = new PlaybackStateCompat.Builder()
-                .setActions(PlaybackStateCompat.ACTION_PLAY | PlaybackStateCompat.ACTION_PAUSE);
-        if (mMediaNotificationInfo.isPaused) {
-            playbackStateBuilder.setState(PlaybackStateCompat.STATE_PAUSED,
-                    PlaybackStateCompat.PLAYBACK_POSITION_UNKNOWN, 1.0f);
-        } else {
-            playbackStateBuilder.setState(PlaybackStateCompat.STATE_PLAYING,
-                    PlaybackStateCompat.PLAYBACK_POSITION_UNKNOWN, 1.0f);
-        }
-        mMediaSession.setPlaybackState(playbackStateBuilder.build());
+        updateMediaSession();
 
         Notification notification = mNotificationBuilder.build();
 
@@ -479,6 +477,35 @@ public class NotificationMediaPlaybackControls {
         }
     }
 
+    /**
+     * Pushes the title, origin and playback state to the MediaSession, if they changed since they
+     * were last pushed.
+     */
+    private void updateMediaSession() {
+        MediaNotificationInfo previousInfo = mMediaSessionInfo;
+        mMediaSessionInfo = mMediaNotificationInfo;
+
+        if (previousInfo == null
+                || !TextUtils.equals(previousInfo.title, mMediaNotificationInfo.title)
+                || !TextUtils.equals(previousInfo.origin, mMediaNotificationInfo.origin)) {
+            mMediaSession.setMetadata(createMetadata());
+        }
+
+        if (previousInfo != null && previousInfo.isPaused == mMediaNotificationInfo.isPaused) {
+            return;
+        }
+        PlaybackStateCompat.Builder playbackStateBuilder = new PlaybackStateCompat.Builder()
+                .setActions(PlaybackStateCompat.ACTION_PLAY | PlaybackStateCompat.ACTION_PAUSE);
+        if (mMediaNotificationInfo.isPaused) {
+            playbackStateBuilder.setState(PlaybackStateCompat.STATE_PAUSED,
+                    PlaybackStateCompat.PLAYBACK_POSITION_UNKNOWN, 1.0f);
+        } else {
+            playbackStateBuilder.setState(PlaybackStateCompat.STATE_PLAYING,
+                    PlaybackStateCompat.PLAYBACK_POSITION_UNKNOWN, 1.0f);
+        }
+        mMediaSession.setPlaybackState(playbackStateBuilder.build());
+    }
+
     private Bitmap drawableToBitmap(Drawable drawable) {
         if (!(drawable instanceof BitmapDrawable)) return null;
 
@@ -0,0 +1,263 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.metrics;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.chromium.base.ApplicationState;
+import org.chromium.base.ApplicationStatus;
+import org.chromium.base.VisibleForTesting;
+import org.chromium.base.library_loader.LibraryLoader;
+import org.chromium.base.metrics.RecordHistogram;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Accumulates enumerated and boolean histogram samples in Java and reports them later through
+ * {@link RecordHistogram}, instead of crossing JNI on the recording thread for every sample.
+ *
+ * Every thread records into its own preallocated bucket arrays, so recording is lock free and only
+ * touches memory owned by the recording thread. Samples are flushed {@link #FLUSH_INTERVAL_MS}
+ * after the first unflushed sample, when Chrome's activities stop running, when the UMA session
+ * ends, or when {@link #flush()} is called. Samples recorded before the native library is loaded
+ * are kept until a later flush.
+ *
+ * Only use this for histograms whose samples do not need to be visible to native code right away.
+ */
+public class HistogramAccumulator {
+    @VisibleForTesting
+    static final long FLUSH_INTERVAL_MS = 10000;
+
+    @VisibleForTesting
+    static final int TYPE_ENUMERATED = 0;
+    @VisibleForTesting
+    static final int TYPE_BOOLEAN = 1;
+
+    /**
+     * Receives the accumulated samples.
+     */
+    @VisibleForTesting
+    interface Sink {
+        /**
+         * @return Whether samples can be reported now. If not, they are kept for a later flush.
+         */
+        boolean isReady();
+
+        /**
+         * Reports a batch of histograms.
+         * @param names Histogram names.
+         * @param types One of the TYPE_* constants for each histogram.
+         * @param boundaries Exclusive maximum sample of each histogram.
+         * @param counts Bucket counts of all histograms, concatenated. Histogram i contributes
+         *               boundaries[i] + 1 buckets, the last one counting overflowing samples.
+         */
+        void recordHistograms(String[] names, int[] types, int[] boundaries, int[] counts);
+    }
+
+    /**
+     * Replays every accumulated sample through {@link RecordHistogram}.
+     */
+    private static class RecordHistogramSink implements Sink {
+        @Override
+        public boolean isReady() {
+            return LibraryLoader.isInitialized();
+        }
+
+        @Override
+        public void recordHistograms(
+                String[] names, int[] types, int[] boundaries, int[] counts) {
+            int offset = 0;
+            for (int i = 0; i < names.length; i++) {
+                for (int bucket = 0; bucket <= boundaries[i]; bucket++) {
+                    for (int j = 0; j < counts[offset + bucket]; j++) {
+                        recordDirectly(names[i], types[i], bucket, boundaries[i]);
+                    }
+                }
+                offset += boundaries[i] + 1;
+            }
+        }
+    }
+
+    /**
+     * Buckets of one histogram recorded by one thread. Only the recording thread increments the
+     * buckets, while the flushing thread drains them atomically.
+     */
+    private static class Buckets {
+        final String mName;
+        final int mType;
+        final int mBoundary;
+        final AtomicIntegerArray mCounts;
+
+        Buckets(String name, int type, int boundary) {
+            mName = name;
+            mType = type;
+            mBoundary = boundary;
+            mCounts = new AtomicIntegerArray(boundary + 1);
+        }
+    }
+
+    /**
+     * Posts the periodic flush and listens for Chrome going to the background. Initialized on
+     * first use.
+     */
+    private static class FlushScheduler {
+        static final Handler HANDLER = new Handler(Looper.getMainLooper());
+        static final AtomicBoolean SCHEDULED = new AtomicBoolean();
+        static final Runnable FLUSH = new Runnable() {
+            @Override
+            public void run() {
+                SCHEDULED.set(false);
+                flush();
+            }
+        };
+
+        static {
+            HANDLER.post(new Runnable() {
+                @Override
+                public void run() {
+                    ApplicationStatus.registerApplicationStateListener(
+                            new ApplicationStatus.ApplicationStateListener() {
+                                @Override
+                                public void onApplicationStateChange(int newState) {
+                                    if (newState != ApplicationState.HAS_RUNNING_ACTIVITIES) {
+                                        flush();
+                                    }
+                                }
+                            });
+                }
+            });
+        }
+
+        static void schedule() {
+            if (SCHEDULED.compareAndSet(false, true)) {
+                HANDLER.postDelayed(FLUSH, FLUSH_INTERVAL_MS);
+            }
+        }
+    }
+
+    private static final HistogramAccumulator sInstance =
+            new HistogramAccumulator(new RecordHistogramSink());
+
+    private final Sink mSink;
+    private final List<Buckets> mAllBuckets = new CopyOnWriteArrayList<Buckets>();
+    private final ThreadLocal<Map<String, Buckets>> mThreadBuckets =
+            new ThreadLocal<Map<String, Buckets>>() {
+                @Override
+                protected Map<String, Buckets> initialValue() {
+                    return new HashMap<String, Buckets>();
+                }
+            };
+
+    @VisibleForTesting
+    HistogramAccumulator(Sink sink) {
+        mSink = sink;
+    }
+
+    /**
+     * Records a sample in an enumerated histogram, see
+     * {@link RecordHistogram#recordEnumeratedHistogram}.
+     * @param name Name of the histogram.
+     * @param sample Sample to record, at least 0 and lower than |boundary|.
+     * @param boundary Upper bound of the samples. Must be the same for every call with |name|.
+     */
+    public static void recordEnumeratedHistogram(String name, int sample, int boundary) {
+        sInstance.record(name, TYPE_ENUMERATED, sample, boundary);
+        FlushScheduler.schedule();
+    }
+
+    /**
+     * Records a sample in a boolean histogram, see {@link RecordHistogram#recordBooleanHistogram}.
+     */
+    public static void recordBooleanHistogram(String name, boolean sample) {
+        sInstance.record(name, TYPE_BOOLEAN, sample ? 1 : 0, 2);
+        FlushScheduler.schedule();
+    }
+
+    /**
+     * Reports all accumulated samples, if the native library is loaded.
+     * Can be called on any thread.
+     */
+    public static void flush() {
+        sInstance.flushSamples();
+    }
+
+    @VisibleForTesting
+    void record(String name, int type, int sample, int boundary) {
+        Map<String, Buckets> threadBuckets = mThreadBuckets.get();
+        Buckets buckets = threadBuckets.get(name);
+        if (buckets == null) {
+            buckets = new Buckets(name, type, boundary);
+            threadBuckets.put(name, buckets);
+            mAllBuckets.add(buckets);
+        } else if (buckets.mBoundary != boundary || buckets.mType != type) {
+            // Inconsistent calls are left for native to complain about.
+            recordDirectly(name, type, sample, boundary);
+            return;
+        }
+        buckets.mCounts.incrementAndGet(Math.max(0, Math.min(sample, boundary)));
+    }
+
+    /**
+     * @return Whether samples were reported.
+     */
+    @VisibleForTesting
+    boolean flushSamples() {
+        if (!mSink.isReady()) return false;
+
+        // Merge the buckets of all threads by histogram. Buckets recorded concurrently with the
+        // flush are either drained now or left for the next flush, never lost.
+        Map<String, int[]> merged = new HashMap<String, int[]>();
+        List<Buckets> representatives = new ArrayList<Buckets>();
+        for (Buckets buckets : mAllBuckets) {
+            int[] counts = merged.get(buckets.mName);
+            for (int i = 0; i <= buckets.mBoundary; i++) {
+                int count = buckets.mCounts.getAndSet(i, 0);
+                if (count == 0) continue;
+                if (counts == null) {
+                    counts = new int[buckets.mBoundary + 1];
+                    merged.put(buckets.mName, counts);
+                    representatives.add(buckets);
+                }
+                counts[Math.min(i, counts.length - 1)] += count;
+            }
+        }
+        if (representatives.isEmpty()) return true;
+
+        int size = representatives.size();
+        String[] names = new String[size];
+        int[] types = new int[size];
+        int[] boundaries = new int[size];
+        int totalBuckets = 0;
+        for (Buckets buckets : representatives) totalBuckets += buckets.mBoundary + 1;
+        int[] counts = new int[totalBuckets];
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            Buckets buckets = representatives.get(i);
+            names[i] = buckets.mName;
+            types[i] = buckets.mType;
+            boundaries[i] = buckets.mBoundary;
+            int[] histogramCounts = merged.get(buckets.mName);
+            System.arraycopy(histogramCounts, 0, counts, offset, histogramCounts.length);
+            offset += histogramCounts.length;
+        }
+        mSink.recordHistograms(names, types, boundaries, counts);
+        return true;
+    }
+
+    private static void recordDirectly(String name, int type, int sample, int boundary) {
+        if (type == TYPE_BOOLEAN) {
+            RecordHistogram.recordBooleanHistogram(name, sample != 0);
+        } else {
+            RecordHistogram.recordEnumeratedHistogram(name, sample, boundary);
+        }
+    }
+}
@@ -74,13 +74,13 @@ public class MemoryUma {
 
     private static void memoryNotificationForeground(int notification) {
         assert notification >= 0 && notification < FOREGROUND_MAX;
-        RecordHistogram.recordEnumeratedHistogram("MemoryAndroid.NotificationForeground",
+        HistogramAccumulator.recordEnumeratedHistogram("MemoryAndroid.NotificationForeground",
                 notification, FOREGROUND_MAX);
     }
 
     private static void memoryNotificationBackground(int notification) {
         assert notification >= 0 && notification < BACKGROUND_MAX;
-        RecordHistogram.recordEnumeratedHistogram("MemoryAndroid.NotificationBackground",
+        HistogramAccumulator.recordEnumeratedHistogram("MemoryAndroid.NotificationBackground",
                 notification, BACKGROUND_MAX);
     }
 }
@@ -142,6 +142,7 @@ public class UmaSessionStats implements NetworkChangeNotifier.ConnectionTypeObse
             mTabModelSelector = null;
         }
 
+        HistogramAccumulator.flush();
         nativeUmaEndSession(sNativeUmaSessionStats);
         NetworkChangeNotifier.removeConnectionTypeObserver(this);
     }
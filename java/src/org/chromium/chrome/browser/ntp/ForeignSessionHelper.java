@@ -4,6 +4,7 @@
 
 package org.chromium.chrome.browser.ntp;
 
+import org.chromium.base.VisibleForTesting;
 import org.chromium.base.annotations.CalledByNative;
 import org.chromium.chrome.browser.profiles.Profile;
 import org.chromium.chrome.browser.tab.Tab;
@@ -92,8 +93,9 @@ class ForeignSessionHelper {
         }
     }
 
+    @VisibleForTesting
     @CalledByNative
-    private static ForeignSession pushSession(
+    static ForeignSession pushSession(
             List<ForeignSession> sessions, String tag, String name, int deviceType,
             long modifiedTime) {
         ForeignSession session = new ForeignSession(tag, name, deviceType, modifiedTime);
@@ -101,16 +103,18 @@ class ForeignSessionHelper {
         return session;
     }
 
+    @VisibleForTesting
     @CalledByNative
-    private static ForeignSessionWindow pushWindow(
+    static ForeignSessionWindow pushWindow(
             ForeignSession session, long timestamp, int sessionId) {
         ForeignSessionWindow window = new ForeignSessionWindow(timestamp, sessionId);
         session.windows.add(window);
         return window;
     }
 
+    @VisibleForTesting
     @CalledByNative
-    private static void pushTab(
+    static void pushTab(
             ForeignSessionWindow window, String url, String title, long timestamp, int sessionId) {
         ForeignSessionTab tab = new ForeignSessionTab(url, title, timestamp, sessionId);
         window.tabs.add(tab);
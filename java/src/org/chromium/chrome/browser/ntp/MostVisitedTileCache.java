@@ -0,0 +1,382 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.ntp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import org.chromium.base.ThreadUtils;
+import org.chromium.base.VisibleForTesting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Disk backed cache of the most visited tiles shown on the NTP, so that a new NTP can render its
+ * tiles synchronously on cold start instead of waiting for the native icon services.
+ *
+ * Stores the last list of most visited sites and the final, already scaled and rounded tile
+ * bitmaps keyed by (URL, tile size, tile type). The cache is loaded from disk on a background
+ * thread when it is first requested and is refreshed as fresh tiles arrive from native. It is
+ * deleted when the user clears their history and when they sign out. All methods must be called
+ * on the UI thread.
+ */
+public class MostVisitedTileCache {
+    private static final String TAG = "MostVisitedTileCache";
+
+    /** Large icon tile, including its fallback icon. */
+    public static final int TYPE_LARGE_ICON = 0;
+    /** Page thumbnail of the thumbnail design. */
+    public static final int TYPE_THUMBNAIL = 1;
+    /** Small favicon of the thumbnail design. */
+    public static final int TYPE_FAVICON = 2;
+
+    private static final String DIRECTORY_NAME = "ntp_tiles";
+    private static final String INDEX_FILE_NAME = "index";
+    private static final String TILE_FILE_SUFFIX = ".png";
+    private static final int INDEX_VERSION = 1;
+    private static final int MAX_SITES = 16;
+
+    private static MostVisitedTileCache sInstance;
+
+    /**
+     * Notified once the cached most visited sites have been read from disk.
+     */
+    public interface SnapshotCallback {
+        /**
+         * @param titles Titles of the cached most visited sites.
+         * @param urls URLs of the cached most visited sites.
+         */
+        void onSnapshotAvailable(String[] titles, String[] urls);
+    }
+
+    private final File mDirectory;
+    private final Map<String, Bitmap> mTiles = new HashMap<String, Bitmap>();
+    private final List<SnapshotCallback> mPendingCallbacks = new ArrayList<SnapshotCallback>();
+    private String[] mTitles = new String[0];
+    private String[] mUrls = new String[0];
+    private boolean mLoaded;
+    // Incremented when the cache is cleared, so that a load in progress meanwhile is dropped.
+    private int mGeneration;
+
+    /**
+     * @return The cache, starting to load it from disk on first use.
+     */
+    public static MostVisitedTileCache getInstance(Context context) {
+        ThreadUtils.assertOnUiThread();
+        if (sInstance == null) {
+            sInstance = new MostVisitedTileCache(
+                    new File(context.getApplicationContext().getCacheDir(), DIRECTORY_NAME));
+            sInstance.load();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    MostVisitedTileCache(File directory) {
+        mDirectory = directory;
+    }
+
+    /**
+     * Forgets the cached most visited sites and deletes them from disk. Called when the user
+     * clears their history and when they sign out, since the tiles reveal the pages they visit.
+     */
+    public static void clear(Context context) {
+        ThreadUtils.assertOnUiThread();
+        final File directory;
+        if (sInstance != null) {
+            sInstance.clearEntries();
+            directory = sInstance.mDirectory;
+        } else {
+            directory = new File(context.getApplicationContext().getCacheDir(), DIRECTORY_NAME);
+        }
+        // Runs after the writes already queued on the same executor.
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                String[] fileNames = directory.list();
+                if (fileNames == null) return null;
+                for (String fileName : fileNames) {
+                    if (!new File(directory, fileName).delete()) {
+                        Log.w(TAG, "Failed to delete " + fileName);
+                    }
+                }
+                return null;
+            }
+        }.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+    }
+
+    private void clearEntries() {
+        mGeneration++;
+        mTiles.clear();
+        mTitles = new String[0];
+        mUrls = new String[0];
+    }
+
+    /**
+     * Calls |callback| with the cached most visited sites once they are loaded, synchronously if
+     * they already are. The callback is not called if nothing is cached.
+     */
+    public void getSnapshot(SnapshotCallback callback) {
+        if (!mLoaded) {
+            mPendingCallbacks.add(callback);
+            return;
+        }
+        if (mUrls.length > 0) callback.onSnapshotAvailable(mTitles, mUrls);
+    }
+
+    /**
+     * Cancels a callback passed to {@link #getSnapshot} that has not been called yet.
+     */
+    public void cancelSnapshotRequest(SnapshotCallback callback) {
+        mPendingCallbacks.remove(callback);
+    }
+
+    /**
+     * @return The cached tile for the given key, or null.
+     */
+    public Bitmap getTile(String url, int sizePx, int type) {
+        return mTiles.get(getTileFileName(url, sizePx, type));
+    }
+
+    /**
+     * Caches a tile bitmap and writes it to disk in the background, unless the same tile is cached
+     * already. The bitmap must not be modified afterwards.
+     */
+    public void putTile(String url, int sizePx, int type, final Bitmap tile) {
+        if (tile == null) return;
+        final String fileName = getTileFileName(url, sizePx, type);
+        // Tiles are rendered anew every time an NTP is shown, and are mostly the same as the
+        // cached ones. Comparing their pixels is much cheaper than encoding and writing them.
+        Bitmap cachedTile = mTiles.get(fileName);
+        if (cachedTile != null && (cachedTile == tile || cachedTile.sameAs(tile))) return;
+        mTiles.put(fileName, tile);
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                writeTile(fileName, tile);
+                return null;
+            }
+        }.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+    }
+
+    /**
+     * Records the latest most visited sites reported by native, dropping tiles of sites that are
+     * no longer shown.
+     */
+    public void setMostVisitedUrls(String[] titles, String[] urls) {
+        final String[] newTitles = titles.clone();
+        final String[] newUrls = urls.clone();
+        if (Arrays.equals(newTitles, mTitles) && Arrays.equals(newUrls, mUrls)) {
+            return;
+        }
+        mTitles = newTitles;
+        mUrls = newUrls;
+
+        final Set<String> keptPrefixes = getUrlHashes(newUrls);
+        mTiles.keySet().retainAll(filterByPrefix(mTiles.keySet(), keptPrefixes));
+
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                writeIndex(newTitles, newUrls);
+                String[] fileNames = mDirectory.list();
+                if (fileNames == null) return null;
+                for (String fileName : fileNames) {
+                    if (!fileName.endsWith(TILE_FILE_SUFFIX)) continue;
+                    if (keptPrefixes.contains(getPrefix(fileName))) continue;
+                    if (!new File(mDirectory, fileName).delete()) {
+                        Log.w(TAG, "Failed to delete stale tile " + fileName);
+                    }
+                }
+                return null;
+            }
+        }.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+    }
+
+    private void load() {
+        final int generation = mGeneration;
+        new AsyncTask<Void, Void, Map<String, Bitmap>>() {
+            private String[] mLoadedTitles;
+            private String[] mLoadedUrls;
+
+            @Override
+            protected Map<String, Bitmap> doInBackground(Void... params) {
+                Map<String, Bitmap> tiles = new HashMap<String, Bitmap>();
+                if (!readIndex()) return tiles;
+                String[] fileNames = mDirectory.list();
+                if (fileNames == null) return tiles;
+                for (String fileName : fileNames) {
+                    if (!fileName.endsWith(TILE_FILE_SUFFIX)) continue;
+                    Bitmap tile = BitmapFactory.decodeFile(
+                            new File(mDirectory, fileName).getAbsolutePath());
+                    if (tile != null) tiles.put(fileName, tile);
+                }
+                return tiles;
+            }
+
+            private boolean readIndex() {
+                File indexFile = new File(mDirectory, INDEX_FILE_NAME);
+                if (!indexFile.exists()) return false;
+                DataInputStream stream = null;
+                try {
+                    stream = new DataInputStream(
+                            new BufferedInputStream(new FileInputStream(indexFile)));
+                    if (stream.readInt() != INDEX_VERSION) return false;
+                    int count = stream.readInt();
+                    if (count < 0 || count > MAX_SITES) return false;
+                    mLoadedTitles = new String[count];
+                    mLoadedUrls = new String[count];
+                    for (int i = 0; i < count; i++) {
+                        mLoadedTitles[i] = stream.readUTF();
+                        mLoadedUrls[i] = stream.readUTF();
+                    }
+                    return true;
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to read the most visited tiles index", e);
+                    mLoadedTitles = null;
+                    mLoadedUrls = null;
+                    return false;
+                } finally {
+                    closeQuietly(stream);
+                }
+            }
+
+            @Override
+            protected void onPostExecute(Map<String, Bitmap> tiles) {
+                mLoaded = true;
+                // The cache was cleared while loading.
+                if (generation != mGeneration) {
+                    tiles.clear();
+                    mLoadedUrls = null;
+                }
+                // Tiles put while loading are fresher than the ones read from disk.
+                for (Map.Entry<String, Bitmap> entry : tiles.entrySet()) {
+                    if (!mTiles.containsKey(entry.getKey())) {
+                        mTiles.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                if (mUrls.length == 0 && mLoadedUrls != null) {
+                    mTitles = mLoadedTitles;
+                    mUrls = mLoadedUrls;
+                }
+                mTiles.keySet().retainAll(filterByPrefix(mTiles.keySet(), getUrlHashes(mUrls)));
+                List<SnapshotCallback> callbacks =
+                        new ArrayList<SnapshotCallback>(mPendingCallbacks);
+                mPendingCallbacks.clear();
+                for (SnapshotCallback callback : callbacks) getSnapshot(callback);
+            }
+        }.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+    }
+
+    private void writeIndex(String[] titles, String[] urls) {
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            Log.w(TAG, "Failed to create the most visited tiles directory");
+            return;
+        }
+        int count = Math.min(urls.length, MAX_SITES);
+        DataOutputStream stream = null;
+        try {
+            stream = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(new File(mDirectory, INDEX_FILE_NAME))));
+            stream.writeInt(INDEX_VERSION);
+            stream.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                stream.writeUTF(titles[i] == null ? "" : titles[i]);
+                stream.writeUTF(urls[i]);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write the most visited tiles index", e);
+        } finally {
+            closeQuietly(stream);
+        }
+    }
+
+    private void writeTile(String fileName, Bitmap tile) {
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            Log.w(TAG, "Failed to create the most visited tiles directory");
+            return;
+        }
+        FileOutputStream stream = null;
+        try {
+            stream = new FileOutputStream(new File(mDirectory, fileName));
+            tile.compress(Bitmap.CompressFormat.PNG, 100, stream);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write most visited tile " + fileName, e);
+        } finally {
+            closeQuietly(stream);
+        }
+    }
+
+    private static Set<String> filterByPrefix(Set<String> fileNames, Set<String> prefixes) {
+        Set<String> result = new HashSet<String>();
+        for (String fileName : fileNames) {
+            if (prefixes.contains(getPrefix(fileName))) result.add(fileName);
+        }
+        return result;
+    }
+
+    private static Set<String> getUrlHashes(String[] urls) {
+        Set<String> hashes = new HashSet<String>();
+        for (String url : urls) hashes.add(getUrlHash(url));
+        return hashes;
+    }
+
+    private static String getPrefix(String fileName) {
+        int separator = fileName.indexOf('_');
+        return separator < 0 ? fileName : fileName.substring(0, separator);
+    }
+
+    @VisibleForTesting
+    static String getTileFileName(String url, int sizePx, int type) {
+        return getUrlHash(url) + "_" + type + "_" + sizePx + TILE_FILE_SUFFIX;
+    }
+
+    private static String getUrlHash(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(url.getBytes("UTF-8"));
+            StringBuilder builder = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+                builder.append(Character.forDigit(b & 0xf, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(url.hashCode());
+        } catch (UnsupportedEncodingException e) {
+            return Integer.toHexString(url.hashCode());
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close stream", e);
+        }
+    }
+}
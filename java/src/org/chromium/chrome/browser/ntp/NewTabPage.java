@@ -30,6 +30,7 @@ import org.chromium.chrome.browser.favicon.FaviconHelper.FaviconAvailabilityCall
 import org.chromium.chrome.browser.favicon.FaviconHelper.FaviconImageCallback;
 import org.chromium.chrome.browser.favicon.LargeIconBridge;
 import org.chromium.chrome.browser.favicon.LargeIconBridge.LargeIconCallback;
+import org.chromium.chrome.browser.metrics.HistogramAccumulator;
 import org.chromium.chrome.browser.ntp.BookmarksPage.BookmarkSelectedListener;
 import org.chromium.chrome.browser.ntp.LogoBridge.Logo;
 import org.chromium.chrome.browser.ntp.LogoBridge.LogoObserver;
@@ -191,13 +192,13 @@ public class NewTabPage
             NewTabPageUma.recordAction(NewTabPageUma.ACTION_OPENED_MOST_VISITED_ENTRY);
             NewTabPageUma.recordExplicitUserNavigation(
                     item.getUrl(), NewTabPageUma.RAPPOR_ACTION_VISITED_SUGGESTED_TILE);
-            RecordHistogram.recordEnumeratedHistogram("NewTabPage.MostVisited", item.getIndex(),
-                    NewTabPageView.MAX_MOST_VISITED_SITES);
+            HistogramAccumulator.recordEnumeratedHistogram("NewTabPage.MostVisited",
+                    item.getIndex(), NewTabPageView.MAX_MOST_VISITED_SITES);
             mMostVisitedSites.recordOpenedMostVisitedItem(item.getIndex());
         }
 
         private void recordDocumentOptOutPromoClick(int which) {
-            RecordHistogram.recordEnumeratedHistogram("DocumentActivity.OptOutClick", which,
+            HistogramAccumulator.recordEnumeratedHistogram("DocumentActivity.OptOutClick", which,
                     DocumentMetricIds.OPT_OUT_CLICK_COUNT);
         }
 
@@ -333,7 +334,10 @@ public class NewTabPage
         @Override
         public void getLargeIconForUrl(String url, int size, LargeIconCallback callback) {
             if (mIsDestroyed) return;
-            if (mLargeIconBridge == null) mLargeIconBridge = new LargeIconBridge(mProfile);
+            if (mLargeIconBridge == null) {
+                mLargeIconBridge = new LargeIconBridge(mProfile);
+                mLargeIconBridge.useSharedCache();
+            }
             mLargeIconBridge.getLargeIconForUrl(url, size, callback);
         }
 
@@ -541,6 +545,7 @@ public class NewTabPage
             mLogoBridge = null;
         }
         TemplateUrlService.getInstance().removeObserver(this);
+        mNewTabPageView.destroy();
         mIsDestroyed = true;
     }
 
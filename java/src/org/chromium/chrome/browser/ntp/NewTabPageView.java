@@ -120,6 +120,9 @@ public class NewTabPageView extends FrameLayout
     private float mUrlFocusChangePercent;
     private boolean mDisableUrlFocusChangeAnimations;
 
+    private MostVisitedTileCache mTileCache;
+    private MostVisitedTileCache.SnapshotCallback mTileCacheSnapshotCallback;
+
     private boolean mSnapshotMostVisitedChanged;
     private int mSnapshotWidth;
     private int mSnapshotHeight;
@@ -333,6 +336,17 @@ public class NewTabPageView extends FrameLayout
         addOnLayoutChangeListener(this);
         setSearchProviderHasLogo(searchProviderHasLogo);
 
+        // Show the tiles cached on disk until the native most visited sites are available.
+        mTileCache = MostVisitedTileCache.getInstance(getContext());
+        mTileCacheSnapshotCallback = new MostVisitedTileCache.SnapshotCallback() {
+            @Override
+            public void onSnapshotAvailable(String[] titles, String[] urls) {
+                mTileCacheSnapshotCallback = null;
+                if (!mHasReceivedMostVisitedSites) showCachedMostVisitedItems(titles, urls);
+            }
+        };
+        mTileCache.getSnapshot(mTileCacheSnapshotCallback);
+
         mPendingLoadTasks++;
         mManager.setMostVisitedURLsObserver(this,
                 mMostVisitedDesign.getNumberOfTiles(searchProviderHasLogo));
@@ -648,6 +662,16 @@ public class NewTabPageView extends FrameLayout
         setUrlFocusChangeAnimationPercent(0f);
     }
 
+    /**
+     * Stops waiting for the most visited tiles cached on disk. Called when the NTP is destroyed.
+     */
+    void destroy() {
+        if (mTileCacheSnapshotCallback != null) {
+            mTileCache.cancelSnapshotRequest(mTileCacheSnapshotCallback);
+            mTileCacheSnapshotCallback = null;
+        }
+    }
+
     /**
      * Update the visibility of the voice search button based on whether the feature is currently
      * enabled.
@@ -722,10 +746,35 @@ public class NewTabPageView extends FrameLayout
         setUrlFocusChangeAnimationPercent(mUrlFocusChangePercent);
     }
 
+    /**
+     * Shows placeholder tiles for the most visited sites cached on disk. They are replaced once
+     * the native most visited sites are available.
+     */
+    private void showCachedMostVisitedItems(String[] titles, String[] urls) {
+        int maxTiles = mMostVisitedDesign.getNumberOfTiles(mSearchProviderHasLogo);
+        LayoutInflater inflater = LayoutInflater.from(getContext());
+        for (int i = 0; i < titles.length && i < maxTiles; i++) {
+            View view = mMostVisitedDesign.createCachedItemView(
+                    inflater, urls[i], getTitleForDisplay(titles[i], urls[i]));
+            // Only show the cached tiles if all of them are complete.
+            if (view == null) {
+                mMostVisitedLayout.removeAllViews();
+                return;
+            }
+            mMostVisitedLayout.addView(view);
+        }
+        mContentView.setVisibility(View.VISIBLE);
+    }
+
     // MostVisitedURLsObserver implementation
 
     @Override
     public void onMostVisitedURLsAvailable(String[] titles, String[] urls) {
+        if (mTileCacheSnapshotCallback != null) {
+            mTileCache.cancelSnapshotRequest(mTileCacheSnapshotCallback);
+            mTileCacheSnapshotCallback = null;
+        }
+        mTileCache.setMostVisitedUrls(titles, urls);
         mMostVisitedLayout.removeAllViews();
 
         MostVisitedItem[] oldItems = mMostVisitedItems;
@@ -837,6 +886,8 @@ public class NewTabPageView extends FrameLayout
         void setSearchProviderHasLogo(View mostVisitedLayout, boolean hasLogo);
         View createMostVisitedItemView(LayoutInflater inflater, String url, String title,
                 String displayTitle, int index, boolean isInitialLoad);
+        /** @return A non interactive tile built from cached bitmaps, or null if none are cached. */
+        View createCachedItemView(LayoutInflater inflater, String url, String displayTitle);
         void onFaviconUpdated(String url);
         void onLoadingComplete();
     }
@@ -895,10 +946,18 @@ public class NewTabPageView extends FrameLayout
                     R.layout.most_visited_item, mMostVisitedLayout, false);
             view.init(displayTitle);
 
+            Bitmap cachedThumbnail =
+                    mTileCache.getTile(url, 0, MostVisitedTileCache.TYPE_THUMBNAIL);
+            if (cachedThumbnail != null) view.setThumbnail(cachedThumbnail);
+            Bitmap cachedFavicon = mTileCache.getTile(
+                    url, mDesiredFaviconSize, MostVisitedTileCache.TYPE_FAVICON);
+            if (cachedFavicon != null) view.setFavicon(cachedFavicon);
+
             ThumbnailCallback thumbnailCallback = new ThumbnailCallback() {
                 @Override
                 public void onMostVisitedURLsThumbnailAvailable(Bitmap thumbnail) {
                     view.setThumbnail(thumbnail);
+                    mTileCache.putTile(url, 0, MostVisitedTileCache.TYPE_THUMBNAIL, thumbnail);
                     mSnapshotMostVisitedChanged = true;
                     if (isInitialLoad) loadTaskCompleted();
                 }
@@ -913,6 +972,8 @@ public class NewTabPageView extends FrameLayout
                         image = mFaviconGenerator.generateIconForUrl(url);
                     }
                     view.setFavicon(image);
+                    mTileCache.putTile(
+                            url, mDesiredFaviconSize, MostVisitedTileCache.TYPE_FAVICON, image);
                     mSnapshotMostVisitedChanged = true;
                     if (isInitialLoad) loadTaskCompleted();
                 }
@@ -937,6 +998,8 @@ public class NewTabPageView extends FrameLayout
                             image = mFaviconGenerator.generateIconForUrl(url);
                         }
                         view.setFavicon(image);
+                        mTileCache.putTile(
+                                url, mDesiredFaviconSize, MostVisitedTileCache.TYPE_FAVICON, image);
                         mSnapshotMostVisitedChanged = true;
                     }
                 };
@@ -945,6 +1008,22 @@ public class NewTabPageView extends FrameLayout
             }
         }
 
+        @Override
+        public View createCachedItemView(LayoutInflater inflater, String url,
+                String displayTitle) {
+            Bitmap thumbnail = mTileCache.getTile(url, 0, MostVisitedTileCache.TYPE_THUMBNAIL);
+            Bitmap favicon = mTileCache.getTile(
+                    url, mDesiredFaviconSize, MostVisitedTileCache.TYPE_FAVICON);
+            if (thumbnail == null || favicon == null) return null;
+
+            MostVisitedItemView view = (MostVisitedItemView) inflater.inflate(
+                    R.layout.most_visited_item, mMostVisitedLayout, false);
+            view.init(displayTitle);
+            view.setThumbnail(thumbnail);
+            view.setFavicon(favicon);
+            return view;
+        }
+
         @Override
         public void onLoadingComplete() {}
     }
@@ -1035,6 +1114,8 @@ public class NewTabPageView extends FrameLayout
                     mIconGenerator.setBackgroundColor(fallbackColor);
                     icon = mIconGenerator.generateIconForUrl(mUrl);
                     mView.setIcon(new BitmapDrawable(getResources(), icon));
+                    mTileCache.putTile(
+                            mUrl, mDesiredIconSize, MostVisitedTileCache.TYPE_LARGE_ICON, icon);
                     if (mIsInitialLoad) {
                         if (fallbackColor == ICON_BACKGROUND_COLOR) {
                             mNumGrayIcons++;
@@ -1052,6 +1133,8 @@ public class NewTabPageView extends FrameLayout
                     roundedIcon.setAntiAlias(true);
                     roundedIcon.setFilterBitmap(true);
                     mView.setIcon(roundedIcon);
+                    mTileCache.putTile(mUrl, mDesiredIconSize,
+                            MostVisitedTileCache.TYPE_LARGE_ICON, renderTile(icon));
                     if (mIsInitialLoad) mNumRealIcons++;
                 }
                 mSnapshotMostVisitedChanged = true;
@@ -1065,6 +1148,9 @@ public class NewTabPageView extends FrameLayout
             final IconMostVisitedItemView view = (IconMostVisitedItemView) inflater.inflate(
                     R.layout.icon_most_visited_item, mMostVisitedLayout, false);
             view.setTitle(displayTitle);
+            Bitmap cachedIcon = mTileCache.getTile(
+                    url, mDesiredIconSize, MostVisitedTileCache.TYPE_LARGE_ICON);
+            if (cachedIcon != null) view.setIcon(new BitmapDrawable(getResources(), cachedIcon));
 
             LargeIconCallback iconCallback = new LargeIconCallbackImpl(url, view, isInitialLoad);
             if (isInitialLoad) mPendingLoadTasks++;
@@ -1086,6 +1172,38 @@ public class NewTabPageView extends FrameLayout
             }
         }
 
+        @Override
+        public View createCachedItemView(LayoutInflater inflater, String url,
+                String displayTitle) {
+            Bitmap icon = mTileCache.getTile(
+                    url, mDesiredIconSize, MostVisitedTileCache.TYPE_LARGE_ICON);
+            if (icon == null) return null;
+
+            IconMostVisitedItemView view = (IconMostVisitedItemView) inflater.inflate(
+                    R.layout.icon_most_visited_item, mMostVisitedLayout, false);
+            view.setTitle(displayTitle);
+            view.setIcon(new BitmapDrawable(getResources(), icon));
+            return view;
+        }
+
+        /**
+         * Scales |icon| to the tile size and rounds its corners, so the cached tile can be shown
+         * as is.
+         */
+        private Bitmap renderTile(Bitmap icon) {
+            Bitmap tile = Bitmap.createBitmap(
+                    mDesiredIconSize, mDesiredIconSize, Bitmap.Config.ARGB_8888);
+            RoundedBitmapDrawable roundedIcon = RoundedBitmapDrawableFactory.create(
+                    getResources(), icon);
+            roundedIcon.setCornerRadius(
+                    ICON_CORNER_RADIUS_DP * getResources().getDisplayMetrics().density);
+            roundedIcon.setAntiAlias(true);
+            roundedIcon.setFilterBitmap(true);
+            roundedIcon.setBounds(0, 0, mDesiredIconSize, mDesiredIconSize);
+            roundedIcon.draw(new Canvas(tile));
+            return tile;
+        }
+
         @Override
         public void onLoadingComplete() {
             RecordHistogram.recordCount100Histogram("NewTabPage.IconsGray", mNumGrayIcons);
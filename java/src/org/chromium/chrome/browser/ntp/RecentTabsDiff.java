@@ -0,0 +1,141 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.ntp;
+
+import android.text.TextUtils;
+
+import org.chromium.chrome.browser.ntp.ForeignSessionHelper.ForeignSession;
+import org.chromium.chrome.browser.ntp.ForeignSessionHelper.ForeignSessionTab;
+import org.chromium.chrome.browser.ntp.ForeignSessionHelper.ForeignSessionWindow;
+import org.chromium.chrome.browser.ntp.RecentlyClosedBridge.RecentlyClosedTab;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Structural diff between two snapshots of the foreign sessions and recently closed tabs shown by
+ * {@link RecentTabsRowAdapter}.
+ *
+ * A change is structural when groups or children are added, removed or reordered, in which case
+ * the whole list has to be rebuilt. Otherwise only the groups whose contents changed (titles,
+ * URLs, timestamps) need to be rebound. Snapshots are immutable once received from native, so
+ * the diff can be computed on a background thread.
+ */
+class RecentTabsDiff {
+    private final boolean mStructureChanged;
+    private final boolean mRecentlyClosedChanged;
+    private final Set<String> mChangedSessionTags;
+
+    private RecentTabsDiff(boolean structureChanged, boolean recentlyClosedChanged,
+            Set<String> changedSessionTags) {
+        mStructureChanged = structureChanged;
+        mRecentlyClosedChanged = recentlyClosedChanged;
+        mChangedSessionTags = changedSessionTags;
+    }
+
+    /**
+     * @return A diff that requires the whole list to be rebuilt.
+     */
+    static RecentTabsDiff full() {
+        return new RecentTabsDiff(true, true, new HashSet<String>());
+    }
+
+    /**
+     * Compares two snapshots. Any of the lists may be null.
+     */
+    static RecentTabsDiff compute(List<ForeignSession> oldSessions,
+            List<ForeignSession> newSessions, List<RecentlyClosedTab> oldClosedTabs,
+            List<RecentlyClosedTab> newClosedTabs) {
+        if (oldSessions == null || newSessions == null || oldClosedTabs == null
+                || newClosedTabs == null) {
+            return full();
+        }
+        if (oldSessions.size() != newSessions.size()
+                || oldClosedTabs.size() != newClosedTabs.size()) {
+            return full();
+        }
+
+        Set<String> changedSessionTags = new HashSet<String>();
+        for (int i = 0; i < newSessions.size(); i++) {
+            ForeignSession oldSession = oldSessions.get(i);
+            ForeignSession newSession = newSessions.get(i);
+            if (!TextUtils.equals(oldSession.tag, newSession.tag)
+                    || getTabCount(oldSession) != getTabCount(newSession)) {
+                return full();
+            }
+            if (!isSameSession(oldSession, newSession)) changedSessionTags.add(newSession.tag);
+        }
+
+        boolean recentlyClosedChanged = false;
+        for (int i = 0; i < newClosedTabs.size(); i++) {
+            RecentlyClosedTab oldTab = oldClosedTabs.get(i);
+            RecentlyClosedTab newTab = newClosedTabs.get(i);
+            if (oldTab.id != newTab.id || !TextUtils.equals(oldTab.title, newTab.title)
+                    || !TextUtils.equals(oldTab.url, newTab.url)) {
+                recentlyClosedChanged = true;
+                break;
+            }
+        }
+        return new RecentTabsDiff(false, recentlyClosedChanged, changedSessionTags);
+    }
+
+    /**
+     * @return Whether groups or children were added, removed or reordered.
+     */
+    boolean isStructureChanged() {
+        return mStructureChanged;
+    }
+
+    /**
+     * @return Whether nothing needs to be rebound.
+     */
+    boolean isEmpty() {
+        return !mStructureChanged && !mRecentlyClosedChanged && mChangedSessionTags.isEmpty();
+    }
+
+    /**
+     * @return Whether the recently closed tabs group needs to be rebound.
+     */
+    boolean isRecentlyClosedChanged() {
+        return mRecentlyClosedChanged;
+    }
+
+    /**
+     * @return Whether the group of the foreign session with the given tag needs to be rebound.
+     */
+    boolean isSessionChanged(String tag) {
+        return mStructureChanged || mChangedSessionTags.contains(tag);
+    }
+
+    private static int getTabCount(ForeignSession session) {
+        int count = 0;
+        for (ForeignSessionWindow window : session.windows) count += window.tabs.size();
+        return count;
+    }
+
+    private static boolean isSameSession(ForeignSession oldSession, ForeignSession newSession) {
+        if (!TextUtils.equals(oldSession.name, newSession.name)
+                || oldSession.deviceType != newSession.deviceType
+                || oldSession.modifiedTime != newSession.modifiedTime
+                || oldSession.windows.size() != newSession.windows.size()) {
+            return false;
+        }
+        for (int i = 0; i < newSession.windows.size(); i++) {
+            List<ForeignSessionTab> oldTabs = oldSession.windows.get(i).tabs;
+            List<ForeignSessionTab> newTabs = newSession.windows.get(i).tabs;
+            if (oldTabs.size() != newTabs.size()) return false;
+            for (int j = 0; j < newTabs.size(); j++) {
+                ForeignSessionTab oldTab = oldTabs.get(j);
+                ForeignSessionTab newTab = newTabs.get(j);
+                if (oldTab.id != newTab.id || !TextUtils.equals(oldTab.url, newTab.url)
+                        || !TextUtils.equals(oldTab.title, newTab.title)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -95,7 +95,8 @@ public class RecentTabsPage
         ApplicationStatus.registerStateListenerForActivity(this, activity);
         // {@link #mInForeground} will be updated once the view is attached to the window.
 
-        onUpdated();
+        mAdapter.notifyDataSetChanged();
+        syncGroupExpansionState();
     }
 
     private static RecentTabsRowAdapter buildAdapter(Activity activity,
@@ -156,6 +157,7 @@ public class RecentTabsPage
         assert getView().getParent() == null : "Destroy called before removed from window";
         mRecentTabsManager.destroy();
         mRecentTabsManager = null;
+        mAdapter.cancelUpdates();
         mAdapter.notifyDataSetInvalidated();
         mAdapter = null;
         mListView.setAdapter((RecentTabsRowAdapter) null);
@@ -216,7 +218,21 @@ public class RecentTabsPage
     // RecentTabsManager.UpdatedCallback
     @Override
     public void onUpdated() {
-        mAdapter.notifyDataSetChanged();
+        mAdapter.update(new RecentTabsRowAdapter.UpdateCallback() {
+            @Override
+            public void onUpdateApplied(RecentTabsDiff diff) {
+                if (diff.isEmpty()) return;
+                if (diff.isStructureChanged()) {
+                    syncGroupExpansionState();
+                } else {
+                    rebindChangedGroups(diff);
+                }
+                mSnapshotContentChanged = true;
+            }
+        });
+    }
+
+    private void syncGroupExpansionState() {
         for (int i = 0; i < mAdapter.getGroupCount(); i++) {
             if (mAdapter.getGroup(i).isCollapsed()) {
                 mListView.collapseGroup(i);
@@ -227,6 +243,32 @@ public class RecentTabsPage
         mSnapshotContentChanged = true;
     }
 
+    /**
+     * Rebinds the visible rows of the groups changed by |diff| in place, without invalidating the
+     * rest of the list.
+     */
+    private void rebindChangedGroups(RecentTabsDiff diff) {
+        int firstPosition = mListView.getFirstVisiblePosition();
+        for (int i = 0; i < mListView.getChildCount(); i++) {
+            long packedPosition = mListView.getExpandableListPosition(firstPosition + i);
+            int type = ExpandableListView.getPackedPositionType(packedPosition);
+            if (type == ExpandableListView.PACKED_POSITION_TYPE_NULL) continue;
+            int groupPosition = ExpandableListView.getPackedPositionGroup(packedPosition);
+            if (!mAdapter.isGroupChanged(groupPosition, diff)) continue;
+
+            View view = mListView.getChildAt(i);
+            if (type == ExpandableListView.PACKED_POSITION_TYPE_GROUP) {
+                mAdapter.getGroupView(groupPosition, mListView.isGroupExpanded(groupPosition),
+                        view, mListView);
+            } else {
+                int childPosition = ExpandableListView.getPackedPositionChild(packedPosition);
+                boolean isLastChild =
+                        childPosition == mAdapter.getChildrenCount(groupPosition) - 1;
+                mAdapter.getChildView(groupPosition, childPosition, isLastChild, view, mListView);
+            }
+        }
+    }
+
     @Override
     public void onCreateContextMenu(ContextMenu menu, View v, ContextMenuInfo menuInfo) {
         // Would prefer to have this context menu view managed internal to RecentTabsGroupView
@@ -9,8 +9,8 @@ import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.AsyncTask;
 import android.text.TextUtils;
-import android.util.LruCache;
 import android.view.ContextMenu;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
@@ -25,6 +25,7 @@ import org.chromium.base.CommandLine;
 import org.chromium.chrome.R;
 import org.chromium.chrome.browser.ChromeSwitches;
 import org.chromium.chrome.browser.favicon.FaviconHelper.FaviconImageCallback;
+import org.chromium.chrome.browser.favicon.IconCache;
 import org.chromium.chrome.browser.ntp.ForeignSessionHelper.ForeignSession;
 import org.chromium.chrome.browser.ntp.ForeignSessionHelper.ForeignSessionTab;
 import org.chromium.chrome.browser.ntp.ForeignSessionHelper.ForeignSessionWindow;
@@ -41,7 +42,6 @@ import java.util.concurrent.TimeUnit;
  * sign in promo, and currently open tabs (only in document mode) in a grouped list view.
  */
 public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
-    private static final int MAX_NUM_FAVICONS_TO_CACHE = 256;
 
     private enum ChildType {
         NONE, DEFAULT_CONTENT, SYNC_PROMO
@@ -51,6 +51,12 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
         CONTENT, VISIBLE_SEPARATOR, INVISIBLE_SEPARATOR
     }
 
+    // Stable group ids. Foreign sessions use non negative ids derived from their tag.
+    private static final long STABLE_ID_CURRENTLY_OPEN = -1;
+    private static final long STABLE_ID_RECENTLY_CLOSED = -2;
+    private static final long STABLE_ID_SYNC_PROMO = -3;
+    private static final long STABLE_ID_SEPARATOR_BASE = -100;
+
     private final Activity mActivity;
     private final ArrayList<Group> mGroups;
     private final Drawable mDefaultFavicon;
@@ -62,6 +68,26 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
     private final FaviconCache mFaviconCache;
     private final int mFaviconSize;
 
+    // Snapshot of the manager's data currently bound to the list.
+    private List<ForeignSession> mForeignSessions;
+    private List<RecentlyClosedTab> mRecentlyClosedTabs;
+    private boolean mDisplaySyncPromo;
+
+    private AsyncTask<Void, Void, RecentTabsDiff> mDiffTask;
+    private UpdateCallback mPendingUpdateCallback;
+
+    /**
+     * Notified once {@link #update} has applied the latest data.
+     */
+    interface UpdateCallback {
+        /**
+         * @param diff The changes that were applied. If the structure changed, the whole list was
+         *             rebuilt through {@link #notifyDataSetChanged}. Otherwise the caller is
+         *             responsible for rebinding the groups reported by {@link #isGroupChanged}.
+         */
+        void onUpdateApplied(RecentTabsDiff diff);
+    }
+
     /**
      * A generic group of objects to be shown in the RecentTabsRowAdapter, such as the list of
      * recently closed tabs.
@@ -88,6 +114,27 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
          */
         abstract Object getChild(int childPosition);
 
+        /**
+         * @return An id identifying this group across updates.
+         */
+        long getStableId(int groupPosition) {
+            return STABLE_ID_SEPARATOR_BASE - groupPosition;
+        }
+
+        /**
+         * @return An id identifying the child at childPosition across updates.
+         */
+        long getChildStableId(int childPosition) {
+            return childPosition;
+        }
+
+        /**
+         * @return Whether this group needs to be rebound according to |diff|.
+         */
+        boolean isChanged(RecentTabsDiff diff) {
+            return diff.isStructureChanged();
+        }
+
         /**
          * Returns the view corresponding to the child view at a given position.
          *
@@ -231,6 +278,17 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
             return mCurrentlyOpenTabs.get(childPosition);
         }
 
+        @Override
+        long getStableId(int groupPosition) {
+            return STABLE_ID_CURRENTLY_OPEN;
+        }
+
+        @Override
+        long getChildStableId(int childPosition) {
+            if (isMoreButton(childPosition)) return -1;
+            return getChild(childPosition).getTabId();
+        }
+
         @Override
         void configureChildView(int childPosition, ViewHolder viewHolder) {
             if (isMoreButton(childPosition)) {
@@ -293,12 +351,36 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
      * A group containing all the tabs associated with a foreign session from a synced device.
      */
     class ForeignSessionGroup extends Group {
-        private final ForeignSession mForeignSession;
+        private ForeignSession mForeignSession;
 
         ForeignSessionGroup(ForeignSession foreignSession) {
             mForeignSession = foreignSession;
         }
 
+        /**
+         * Replaces the session with a newer snapshot of the same session that has the same
+         * number of tabs.
+         */
+        void setForeignSession(ForeignSession foreignSession) {
+            assert TextUtils.equals(mForeignSession.tag, foreignSession.tag);
+            mForeignSession = foreignSession;
+        }
+
+        @Override
+        long getStableId(int groupPosition) {
+            return mForeignSession.tag.hashCode() & 0x7fffffffL;
+        }
+
+        @Override
+        long getChildStableId(int childPosition) {
+            return getChild(childPosition).id;
+        }
+
+        @Override
+        boolean isChanged(RecentTabsDiff diff) {
+            return diff.isSessionChanged(mForeignSession.tag);
+        }
+
         @Override
         public GroupType getGroupType() {
             return GroupType.CONTENT;
@@ -407,7 +489,7 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
         public int getChildrenCount() {
             // The number of children is the number of recently closed tabs, plus one for the "Show
             // full history" item.
-            return 1 + mRecentTabsManager.getRecentlyClosedTabs().size();
+            return 1 + mRecentlyClosedTabs.size();
         }
 
         @Override
@@ -420,7 +502,7 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
          * @return Whether the item at childPosition is the link to the history page.
          */
         private boolean isHistoryLink(int childPosition) {
-            return childPosition == mRecentTabsManager.getRecentlyClosedTabs().size();
+            return childPosition == mRecentlyClosedTabs.size();
         }
 
         @Override
@@ -428,7 +510,23 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
             if (isHistoryLink(childPosition)) {
                 return null;
             }
-            return mRecentTabsManager.getRecentlyClosedTabs().get(childPosition);
+            return mRecentlyClosedTabs.get(childPosition);
+        }
+
+        @Override
+        long getStableId(int groupPosition) {
+            return STABLE_ID_RECENTLY_CLOSED;
+        }
+
+        @Override
+        long getChildStableId(int childPosition) {
+            if (isHistoryLink(childPosition)) return -1;
+            return getChild(childPosition).id;
+        }
+
+        @Override
+        boolean isChanged(RecentTabsDiff diff) {
+            return diff.isStructureChanged() || diff.isRecentlyClosedChanged();
         }
 
         @Override
@@ -577,6 +675,11 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
             return GroupType.CONTENT;
         }
 
+        @Override
+        long getStableId(int groupPosition) {
+            return STABLE_ID_SYNC_PROMO;
+        }
+
         @Override
         public ChildType getChildType() {
             return ChildType.SYNC_PROMO;
@@ -626,30 +729,32 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
         }
     }
 
-    private static class FaviconCache {
-        private static final String SYNCED_FAVICON_PREFIX = "Synced";
-        private static final String LOCAL_FAVICON_PREFIX = "Local";
-
-        private final LruCache<String, Drawable> mMemoryCache;
-
-        public FaviconCache(int size) {
-            mMemoryCache = new LruCache<String, Drawable>(size);
-        }
+    /**
+     * Row favicons backed by the process wide {@link IconCache}. A cached entry without an icon
+     * means the default favicon is shown for that URL.
+     */
+    private class FaviconCache {
+        private final IconCache mIconCache = IconCache.getInstance();
 
         public Drawable getSyncedFaviconImage(String url) {
-            return mMemoryCache.get(SYNCED_FAVICON_PREFIX + url);
+            return toDrawable(mIconCache.get(url, mFaviconSize, IconCache.TYPE_SYNCED_FAVICON));
         }
 
-        public void putSycnedFaviconImage(String url, Drawable image) {
-            mMemoryCache.put(SYNCED_FAVICON_PREFIX + url, image);
+        public void putSyncedFaviconImage(String url, Bitmap image) {
+            mIconCache.put(url, mFaviconSize, IconCache.TYPE_SYNCED_FAVICON, image, 0);
         }
 
         public Drawable getLocalFaviconImage(String url) {
-            return mMemoryCache.get(LOCAL_FAVICON_PREFIX + url);
+            return toDrawable(mIconCache.get(url, mFaviconSize, IconCache.TYPE_LOCAL_FAVICON));
+        }
+
+        public void putLocalFaviconImage(String url, Bitmap image) {
+            mIconCache.put(url, mFaviconSize, IconCache.TYPE_LOCAL_FAVICON, image, 0);
         }
 
-        public void putLocalFaviconImage(String url, Drawable image) {
-            mMemoryCache.put(LOCAL_FAVICON_PREFIX + url, image);
+        private Drawable toDrawable(IconCache.Entry entry) {
+            if (entry == null) return null;
+            return faviconDrawable(entry.icon);
         }
     }
 
@@ -666,17 +771,13 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
         mGroups = new ArrayList<Group>();
         mInitializationTimestamp =
             TimeUnit.SECONDS.convert(System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-        mFaviconCache = buildFaviconCache(MAX_NUM_FAVICONS_TO_CACHE);
+        mFaviconCache = new FaviconCache();
 
         Resources resources = activity.getResources();
         mDefaultFavicon = ApiCompatibilityUtils.getDrawable(resources, R.drawable.default_favicon);
         mFaviconSize = mDefaultFavicon.getIntrinsicHeight();
     }
 
-    private static FaviconCache buildFaviconCache(int size) {
-        return new FaviconCache(size);
-    }
-
     /**
      * ViewHolder class optimizes looking up table row fields. findViewById is only called once
      * per row view initialization, and the references are cached here. Also stores a reference to
@@ -687,18 +788,22 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
         public FaviconImageCallback imageCallback;
     }
 
-    private Drawable faviconDrawable(Bitmap image) {
+    private Bitmap scaleFavicon(Bitmap image) {
         if (image == null) return null;
-        return new BitmapDrawable(mActivity.getResources(), Bitmap.createScaledBitmap(image,
-                mFaviconSize, mFaviconSize, true));
+        return Bitmap.createScaledBitmap(image, mFaviconSize, mFaviconSize, true);
+    }
+
+    private Drawable faviconDrawable(Bitmap image) {
+        if (image == null) return mDefaultFavicon;
+        return new BitmapDrawable(mActivity.getResources(), image);
     }
 
     private void loadSyncedFavicon(final ViewHolder viewHolder, final String url) {
         Drawable image = mFaviconCache.getSyncedFaviconImage(url);
         if (image == null) {
-            image = faviconDrawable(mRecentTabsManager.getSyncedFaviconImageForURL(url));
-            image = (image == null) ? mDefaultFavicon : image;
-            mFaviconCache.putSycnedFaviconImage(url, image);
+            Bitmap favicon = scaleFavicon(mRecentTabsManager.getSyncedFaviconImageForURL(url));
+            mFaviconCache.putSyncedFaviconImage(url, favicon);
+            image = faviconDrawable(favicon);
         }
         ApiCompatibilityUtils.setCompoundDrawablesRelativeWithIntrinsicBounds(viewHolder.textView,
                 image, null, null, null);
@@ -716,11 +821,10 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
                     @Override
                     public void onFaviconAvailable(Bitmap bitmap, String iconUrl) {
                         if (this != viewHolder.imageCallback) return;
-                        Drawable image = faviconDrawable(bitmap);
-                        image = (image == null) ? mDefaultFavicon : image;
-                        mFaviconCache.putLocalFaviconImage(url, image);
+                        Bitmap favicon = scaleFavicon(bitmap);
+                        mFaviconCache.putLocalFaviconImage(url, favicon);
                         ApiCompatibilityUtils.setCompoundDrawablesRelativeWithIntrinsicBounds(
-                                viewHolder.textView, image, null, null, null);
+                                viewHolder.textView, faviconDrawable(favicon), null, null, null);
                     }
                 };
                 viewHolder.imageCallback = imageCallback;
@@ -747,7 +851,7 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
 
     @Override
     public long getGroupId(int groupPosition) {
-        return groupPosition;
+        return getGroup(groupPosition).getStableId(groupPosition);
     }
 
     @Override
@@ -769,7 +873,7 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
 
     @Override
     public long getChildId(int groupPosition, int childPosition) {
-        return childPosition;
+        return getGroup(groupPosition).getChildStableId(childPosition);
     }
 
     @Override
@@ -785,7 +889,7 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
     // BaseExpandableListAdapter misc. implementation
     @Override
     public boolean hasStableIds() {
-        return false;
+        return true;
     }
 
     @Override
@@ -810,9 +914,91 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
         }
     }
 
+    /**
+     * Brings the list up to date with the manager. If the layout changed the list is rebuilt right
+     * away. Otherwise the new data is diffed against the data currently bound on a background
+     * thread; structural changes rebuild the list, otherwise only the changed groups are swapped
+     * in. Updates requested while a diff is running are coalesced.
+     *
+     * @param callback Notified once the latest data has been applied.
+     */
+    void update(UpdateCallback callback) {
+        mPendingUpdateCallback = callback;
+        if (mDiffTask != null) return;
+        mPendingUpdateCallback = null;
+
+        // The currently open tabs list is updated in place, so it is always rebuilt.
+        boolean layoutChanged = mRecentTabsManager.getCurrentlyOpenTabs() != null
+                || mDisplaySyncPromo != mRecentTabsManager.shouldDisplaySyncPromo();
+        if (layoutChanged) {
+            notifyDataSetChanged();
+            callback.onUpdateApplied(RecentTabsDiff.full());
+            return;
+        }
+
+        final List<ForeignSession> oldSessions = mForeignSessions;
+        final List<RecentlyClosedTab> oldClosedTabs = mRecentlyClosedTabs;
+        final List<ForeignSession> newSessions = mRecentTabsManager.getForeignSessions();
+        final List<RecentlyClosedTab> newClosedTabs = mRecentTabsManager.getRecentlyClosedTabs();
+        final UpdateCallback currentCallback = callback;
+        mDiffTask = new AsyncTask<Void, Void, RecentTabsDiff>() {
+            @Override
+            protected RecentTabsDiff doInBackground(Void... params) {
+                return RecentTabsDiff.compute(
+                        oldSessions, newSessions, oldClosedTabs, newClosedTabs);
+            }
+
+            @Override
+            protected void onPostExecute(RecentTabsDiff diff) {
+                mDiffTask = null;
+                if (diff.isStructureChanged()) {
+                    notifyDataSetChanged();
+                } else {
+                    applySnapshot(newSessions, newClosedTabs);
+                }
+                currentCallback.onUpdateApplied(diff);
+                if (mPendingUpdateCallback != null) update(mPendingUpdateCallback);
+            }
+        };
+        mDiffTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Cancels any update in progress.
+     */
+    void cancelUpdates() {
+        if (mDiffTask != null) mDiffTask.cancel(false);
+        mDiffTask = null;
+        mPendingUpdateCallback = null;
+    }
+
+    /**
+     * @return Whether the group at groupPosition has to be rebound after |diff| was applied.
+     */
+    boolean isGroupChanged(int groupPosition, RecentTabsDiff diff) {
+        return getGroup(groupPosition).isChanged(diff);
+    }
+
+    /**
+     * Swaps in a snapshot that has the same structure as the bound one.
+     */
+    private void applySnapshot(List<ForeignSession> sessions, List<RecentlyClosedTab> closedTabs) {
+        mForeignSessions = sessions;
+        mRecentlyClosedTabs = closedTabs;
+        int sessionIndex = 0;
+        for (Group group : mGroups) {
+            if (!(group instanceof ForeignSessionGroup)) continue;
+            ((ForeignSessionGroup) group).setForeignSession(sessions.get(sessionIndex++));
+        }
+    }
+
     @Override
     public void notifyDataSetChanged() {
         mGroups.clear();
+        mForeignSessions = mRecentTabsManager.getForeignSessions();
+        mRecentlyClosedTabs = mRecentTabsManager.getRecentlyClosedTabs();
+        mDisplaySyncPromo = mRecentTabsManager.shouldDisplaySyncPromo();
+
         List<CurrentlyOpenTab> tabList = mRecentTabsManager.getCurrentlyOpenTabs();
         if (tabList != null && !tabList.isEmpty()) {
             addGroup(new CurrentlyOpenTabsGroup(tabList));
@@ -820,10 +1006,10 @@ public class RecentTabsRowAdapter extends BaseExpandableListAdapter {
         addGroup(mRecentlyClosedTabsGroup);
         if (CommandLine.getInstance().hasSwitch(ChromeSwitches.
                 ENABLE_SUPPRESSED_CHROMIUM_FEATURES)) {
-            for (ForeignSession session : mRecentTabsManager.getForeignSessions()) {
+            for (ForeignSession session : mForeignSessions) {
                 addGroup(new ForeignSessionGroup(session));
             }
-            if (mRecentTabsManager.shouldDisplaySyncPromo()) {
+            if (mDisplaySyncPromo) {
                 addGroup(new SyncPromoGroup());
             }
         }
@@ -4,6 +4,7 @@
 
 package org.chromium.chrome.browser.ntp;
 
+import org.chromium.base.VisibleForTesting;
 import org.chromium.base.annotations.CalledByNative;
 import org.chromium.chrome.browser.profiles.Profile;
 import org.chromium.chrome.browser.tab.Tab;
@@ -46,8 +47,9 @@ class RecentlyClosedBridge {
         }
     }
 
+    @VisibleForTesting
     @CalledByNative
-    private static void pushTab(
+    static void pushTab(
             List<RecentlyClosedTab> tabs, int id, String title, String url) {
         RecentlyClosedTab tab = new RecentlyClosedTab(id, title, url);
         tabs.add(tab);
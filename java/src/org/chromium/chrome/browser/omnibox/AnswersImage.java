@@ -5,14 +5,63 @@
 package org.chromium.chrome.browser.omnibox;
 
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.AsyncTask;
+import android.util.Log;
+import android.util.LruCache;
+import android.util.SparseArray;
 
+import org.chromium.base.ApplicationStatus;
+import org.chromium.base.ThreadUtils;
+import org.chromium.base.VisibleForTesting;
 import org.chromium.base.annotations.CalledByNative;
+import org.chromium.chrome.browser.metrics.HistogramAccumulator;
 import org.chromium.chrome.browser.profiles.Profile;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Provides access to images used by Answers in Suggest.
+ *
+ * Answer images are few and shared by many queries (e.g. weather icons), so decoded images are
+ * kept in a memory LRU cache and in a small disk cache keyed by URL. Images of off the record
+ * profiles are cached apart in memory and never on disk. Requests for an image that is already
+ * being fetched share the fetch. Cancelling a request only detaches its observer: the fetch
+ * completes and fills the cache, so the image is ready when the user types the query again.
+ * Fetches that cannot be started or do not complete within {@link #FETCH_TIMEOUT_MS} notify
+ * their observers with a null image, so later requests start a new fetch.
+ * Both caches are emptied by {@link #clearCache} when browsing data is cleared.
+ * All methods must be called on the UI thread.
  */
 public class AnswersImage {
+    private static final String TAG = "AnswersImage";
+
+    private static final String DIRECTORY_NAME = "answers_images";
+    private static final String FILE_SUFFIX = ".png";
+    private static final String OFF_THE_RECORD_KEY_PREFIX = "otr:";
+    private static final int MAX_MEMORY_CACHE_BYTES = 1024 * 1024;
+    private static final int MAX_DISK_CACHE_FILES = 32;
+    private static final long FETCH_TIMEOUT_MS = 30000;
+
+    // Where an image request was served from.
+    // OmniboxAnswerImageCacheResult defined in tools/metrics/histograms/histograms.xml.
+    private static final int RESULT_MEMORY_HIT = 0;
+    private static final int RESULT_DISK_HIT = 1;
+    private static final int RESULT_JOINED_PENDING_REQUEST = 2;
+    private static final int RESULT_FETCHED = 3;
+    private static final int RESULT_BOUNDARY = 4;
+
     /**
      * Observer for updating an image when it is available.
      */
@@ -27,29 +76,325 @@ public class AnswersImage {
     }
 
     /**
-     * Request image, observer is notified when image is loaded.
+     * An image being loaded from disk or fetched, and the requests waiting for it.
+     */
+    private static class PendingImage {
+        final Profile mProfile;
+        final String mUrl;
+        final String mKey;
+        final List<Integer> mRequestIds = new ArrayList<Integer>();
+        // ID of the native fetch, or 0 while the image is loaded from disk.
+        int mNativeRequestId;
+        // Set when the caches are cleared while the image is loaded.
+        boolean mCancelled;
+        // Gives up on the native fetch, posted while it is in progress.
+        Runnable mTimeout;
+
+        PendingImage(Profile profile, String url, String key) {
+            mProfile = profile;
+            mUrl = url;
+            mKey = key;
+        }
+    }
+
+    private static final LruCache<String, Bitmap> sMemoryCache =
+            new LruCache<String, Bitmap>(MAX_MEMORY_CACHE_BYTES) {
+                @Override
+                protected int sizeOf(String key, Bitmap bitmap) {
+                    return bitmap.getByteCount();
+                }
+            };
+    private static final Map<String, PendingImage> sPendingImages =
+            new HashMap<String, PendingImage>();
+    private static final SparseArray<AnswersImageObserver> sObservers =
+            new SparseArray<AnswersImageObserver>();
+    private static int sNextRequestId;
+    private static final int[] sResultCounts = new int[RESULT_BOUNDARY];
+
+    /**
+     * Request image, observer is notified when image is loaded. If the image is cached in memory
+     * the observer is notified before this returns.
      * @param profile     Profile that the request is for.
      * @param imageUrl    URL for image data.
-     * @param observer    Observer to be notified when image is updated. The C++ side will hold a
-     *                    strong reference to this.
+     * @param observer    Observer to be notified when image is updated.
      * @return            A request_id.
      */
     public static int requestAnswersImage(
             Profile profile, String imageUrl, AnswersImageObserver observer) {
-        return nativeRequestAnswersImage(profile, imageUrl, observer);
+        ThreadUtils.assertOnUiThread();
+        int requestId = ++sNextRequestId;
+        String key = getCacheKey(profile, imageUrl);
+        Bitmap bitmap = sMemoryCache.get(key);
+        if (bitmap != null) {
+            recordResult(RESULT_MEMORY_HIT);
+            observer.onAnswersImageChanged(bitmap);
+            return requestId;
+        }
+
+        sObservers.put(requestId, observer);
+        PendingImage pendingImage = sPendingImages.get(key);
+        if (pendingImage != null) {
+            recordResult(RESULT_JOINED_PENDING_REQUEST);
+            pendingImage.mRequestIds.add(requestId);
+            return requestId;
+        }
+
+        pendingImage = new PendingImage(profile, imageUrl, key);
+        pendingImage.mRequestIds.add(requestId);
+        sPendingImages.put(key, pendingImage);
+        load(pendingImage);
+        return requestId;
     }
 
     /**
-     * Cancel a pending image request.
+     * Starts loading the image at |imageUrl| into the cache, e.g. for the top suggestion before
+     * its row is bound.
+     * @param profile     Profile that the request is for.
+     * @param imageUrl    URL for image data.
+     */
+    public static void prefetchAnswersImage(Profile profile, String imageUrl) {
+        ThreadUtils.assertOnUiThread();
+        String key = getCacheKey(profile, imageUrl);
+        if (sMemoryCache.get(key) != null || sPendingImages.containsKey(key)) return;
+        PendingImage pendingImage = new PendingImage(profile, imageUrl, key);
+        sPendingImages.put(key, pendingImage);
+        load(pendingImage);
+    }
+
+    /**
+     * Cancel a pending image request. The image is still loaded into the cache.
      * @param profile    Profile the request was issued for.
      * @param requestId  The ID of the request to be cancelled.
      */
     public static void cancelAnswersImageRequest(Profile profile, int requestId) {
-        nativeCancelAnswersImageRequest(profile, requestId);
+        ThreadUtils.assertOnUiThread();
+        sObservers.remove(requestId);
+    }
+
+    /**
+     * Empties the memory and disk caches and cancels the images being loaded. Requests waiting
+     * for them are dropped.
+     */
+    public static void clearCache() {
+        ThreadUtils.assertOnUiThread();
+        sMemoryCache.evictAll();
+        for (PendingImage pendingImage : sPendingImages.values()) {
+            pendingImage.mCancelled = true;
+            for (int requestId : pendingImage.mRequestIds) sObservers.remove(requestId);
+            cancelFetch(pendingImage);
+        }
+        sPendingImages.clear();
+
+        // Runs after the writes already scheduled on the same executor.
+        final File directory = getCacheDirectory();
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                File[] files = directory.listFiles();
+                if (files == null) return null;
+                for (File file : files) {
+                    if (!file.delete()) Log.w(TAG, "Failed to delete answer image " + file);
+                }
+                return null;
+            }
+        }.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+    }
+
+    /**
+     * @return How many requests were served from memory, from disk, by joining a pending request
+     *         and by fetching the image, in that order.
+     */
+    @VisibleForTesting
+    public static int[] getCacheResultCounts() {
+        return sResultCounts.clone();
+    }
+
+    private static void recordResult(int result) {
+        sResultCounts[result]++;
+        HistogramAccumulator.recordEnumeratedHistogram(
+                "Omnibox.AnswerImageCacheResult", result, RESULT_BOUNDARY);
+    }
+
+    private static String getCacheKey(Profile profile, String url) {
+        return profile.isOffTheRecord() ? OFF_THE_RECORD_KEY_PREFIX + url : url;
+    }
+
+    private static void load(PendingImage pendingImage) {
+        if (pendingImage.mProfile.isOffTheRecord()) {
+            // Images of off the record profiles are never written to disk.
+            if (!pendingImage.mRequestIds.isEmpty()) recordResult(RESULT_FETCHED);
+            fetch(pendingImage);
+        } else {
+            loadFromDisk(pendingImage);
+        }
+    }
+
+    private static void loadFromDisk(final PendingImage pendingImage) {
+        final File file = getCacheFile(pendingImage.mUrl);
+        new AsyncTask<Void, Void, Bitmap>() {
+            @Override
+            protected Bitmap doInBackground(Void... params) {
+                if (file == null || !file.exists()) return null;
+                Bitmap bitmap = BitmapFactory.decodeFile(file.getAbsolutePath());
+                // Keep recently used files when the disk cache is trimmed.
+                if (bitmap != null) file.setLastModified(System.currentTimeMillis());
+                return bitmap;
+            }
+
+            @Override
+            protected void onPostExecute(Bitmap bitmap) {
+                if (pendingImage.mCancelled) return;
+                if (bitmap != null) {
+                    if (!pendingImage.mRequestIds.isEmpty()) recordResult(RESULT_DISK_HIT);
+                    onImageAvailable(pendingImage, bitmap);
+                    return;
+                }
+                if (!pendingImage.mRequestIds.isEmpty()) recordResult(RESULT_FETCHED);
+                fetch(pendingImage);
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    private static void fetch(final PendingImage pendingImage) {
+        int nativeRequestId = nativeRequestAnswersImage(pendingImage.mProfile,
+                pendingImage.mUrl, new AnswersImageObserver() {
+                    @Override
+                    public void onAnswersImageChanged(Bitmap bitmap) {
+                        if (pendingImage.mCancelled) return;
+                        // Images fetched for incognito profiles are not written to disk.
+                        if (bitmap != null && !pendingImage.mProfile.isOffTheRecord()) {
+                            writeToDisk(pendingImage.mUrl, bitmap);
+                        }
+                        onImageAvailable(pendingImage, bitmap);
+                    }
+                });
+        // The fetch may have completed synchronously.
+        if (sPendingImages.get(pendingImage.mKey) != pendingImage) return;
+        if (nativeRequestId == 0) {
+            // The fetch could not be started and will never call back.
+            onImageAvailable(pendingImage, null);
+            return;
+        }
+        pendingImage.mNativeRequestId = nativeRequestId;
+        pendingImage.mTimeout = new Runnable() {
+            @Override
+            public void run() {
+                pendingImage.mTimeout = null;
+                if (sPendingImages.get(pendingImage.mKey) != pendingImage) return;
+                Log.w(TAG, "Timed out fetching answer image");
+                cancelFetch(pendingImage);
+                onImageAvailable(pendingImage, null);
+            }
+        };
+        ThreadUtils.postOnUiThreadDelayed(pendingImage.mTimeout, FETCH_TIMEOUT_MS);
+    }
+
+    /**
+     * Cancels the native fetch of |pendingImage|, if any. Its observer is not called afterwards.
+     */
+    private static void cancelFetch(PendingImage pendingImage) {
+        pendingImage.mCancelled = true;
+        if (pendingImage.mNativeRequestId != 0) {
+            nativeCancelAnswersImageRequest(pendingImage.mProfile, pendingImage.mNativeRequestId);
+            pendingImage.mNativeRequestId = 0;
+        }
+    }
+
+    private static void onImageAvailable(PendingImage pendingImage, Bitmap bitmap) {
+        if (sPendingImages.get(pendingImage.mKey) == pendingImage) {
+            sPendingImages.remove(pendingImage.mKey);
+        }
+        if (pendingImage.mTimeout != null) {
+            ThreadUtils.getUiThreadHandler().removeCallbacks(pendingImage.mTimeout);
+            pendingImage.mTimeout = null;
+        }
+        if (bitmap != null) sMemoryCache.put(pendingImage.mKey, bitmap);
+        for (int requestId : pendingImage.mRequestIds) {
+            AnswersImageObserver observer = sObservers.get(requestId);
+            if (observer == null) continue;
+            sObservers.remove(requestId);
+            observer.onAnswersImageChanged(bitmap);
+        }
+    }
+
+    private static void writeToDisk(final String url, final Bitmap bitmap) {
+        final File file = getCacheFile(url);
+        if (file == null) return;
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                File directory = file.getParentFile();
+                if (!directory.exists() && !directory.mkdirs()) {
+                    Log.w(TAG, "Failed to create the answer image cache directory");
+                    return null;
+                }
+                FileOutputStream stream = null;
+                try {
+                    stream = new FileOutputStream(file);
+                    bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to write answer image", e);
+                } finally {
+                    if (stream != null) {
+                        try {
+                            stream.close();
+                        } catch (IOException e) {
+                            Log.w(TAG, "Failed to close answer image", e);
+                        }
+                    }
+                }
+                trimDiskCache(directory);
+                return null;
+            }
+        }.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+    }
+
+    private static void trimDiskCache(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null || files.length <= MAX_DISK_CACHE_FILES) return;
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long lhsModified = lhs.lastModified();
+                long rhsModified = rhs.lastModified();
+                return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < files.length - MAX_DISK_CACHE_FILES; i++) {
+            if (!files[i].delete()) Log.w(TAG, "Failed to delete answer image " + files[i]);
+        }
+    }
+
+    private static File getCacheDirectory() {
+        return new File(ApplicationStatus.getApplicationContext().getCacheDir(), DIRECTORY_NAME);
+    }
+
+    private static File getCacheFile(String url) {
+        String hash = getUrlHash(url);
+        if (hash == null) return null;
+        return new File(getCacheDirectory(), hash + FILE_SUFFIX);
+    }
+
+    private static String getUrlHash(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(url.getBytes("UTF-8"));
+            StringBuilder builder = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+                builder.append(Character.forDigit(b & 0xf, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        } catch (UnsupportedEncodingException e) {
+            return null;
+        }
     }
 
     /**
      * Requests an image at |imageUrl| for the given |profile| with |observer| being notified.
+     * The C++ side holds a strong reference to |observer|.
      * @returns an AnswersImageRequest
      */
     private static native int nativeRequestAnswersImage(
@@ -192,11 +192,26 @@ public class AutocompleteController {
         return mCurrentNativeAutocompleteResult;
     }
 
+    /**
+     * Called by the native side with a whole result set packed into one buffer, see
+     * {@link PackedOmniboxSuggestions}. This saves creating a list and building and adding
+     * every suggestion through separate JNI calls, which native code that hasn't switched to the
+     * packed call still does.
+     */
+    @CalledByNative
+    private void onPackedSuggestionsReceived(int[] suggestionFields, String[] suggestionStrings,
+            String inlineAutocompleteText, long currentNativeAutocompleteResult) {
+        onSuggestionsReceived(new PackedOmniboxSuggestions(suggestionFields, suggestionStrings,
+                MAX_DEFAULT_SUGGESTION_COUNT), inlineAutocompleteText,
+                currentNativeAutocompleteResult);
+    }
+
     @CalledByNative
     protected void onSuggestionsReceived(
             List<OmniboxSuggestion> suggestions,
             String inlineAutocompleteText,
             long currentNativeAutocompleteResult) {
+        // Packed suggestions are already limited to MAX_DEFAULT_SUGGESTION_COUNT.
         if (suggestions.size() > MAX_DEFAULT_SUGGESTION_COUNT) {
             // Trim to the default amount of normal suggestions we can have.
             suggestions.subList(MAX_DEFAULT_SUGGESTION_COUNT, suggestions.size()).clear();
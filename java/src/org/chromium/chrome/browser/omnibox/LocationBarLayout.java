@@ -112,6 +112,7 @@ import org.chromium.ui.interpolators.BakedBezierInterpolator;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class represents the location bar where the user types in URLs and
@@ -249,6 +250,18 @@ public class LocationBarLayout extends FrameLayout implements OnClickListener,
 
     private Runnable mShowSuggestions;
 
+    private final ZeroSuggestCache mZeroSuggestCache;
+    // The class of the page zero suggest was requested for, or ZeroSuggestCache.PAGE_CLASS_NONE
+    // once the user edits the omnibox text.
+    private int mZeroSuggestPageClass = ZeroSuggestCache.PAGE_CLASS_NONE;
+    private String mZeroSuggestPageUrl;
+    // The time (using SystemClock.elapsedRealtime()) zero suggest was requested at, or -1 once
+    // the first suggestions were shown.
+    private long mZeroSuggestStartTimeMs = -1;
+    // True while the suggestions shown come from mZeroSuggestCache rather than from the native
+    // AutocompleteController, so they don't match its current results.
+    private boolean mShowingCachedZeroSuggestions;
+
     /**
      * Listener for receiving the messages related with interacting with the omnibox during startup.
      */
@@ -298,6 +311,8 @@ public class LocationBarLayout extends FrameLayout implements OnClickListener,
                 hideSuggestions();
                 startZeroSuggest();
             } else {
+                mZeroSuggestPageClass = ZeroSuggestCache.PAGE_CLASS_NONE;
+                mZeroSuggestStartTimeMs = -1;
                 assert mRequestSuggestions == null : "Multiple omnibox requests in flight.";
                 mRequestSuggestions = new Runnable() {
                     @Override
@@ -703,6 +718,7 @@ public class LocationBarLayout extends FrameLayout implements OnClickListener,
 
         mSuggestionItems = new ArrayList<OmniboxResultItem>();
         mSuggestionListAdapter = new OmniboxResultsAdapter(getContext(), this, mSuggestionItems);
+        mZeroSuggestCache = ZeroSuggestCache.getInstance(context);
 
         mMicButton = (TintedImageButton) findViewById(R.id.mic_button);
     }
@@ -1018,6 +1034,8 @@ public class LocationBarLayout extends FrameLayout implements OnClickListener,
         if (!hasFocus) {
             mHasStartedNewOmniboxEditSession = false;
             mNewOmniboxEditSessionTimestamp = -1;
+            mZeroSuggestPageClass = ZeroSuggestCache.PAGE_CLASS_NONE;
+            mZeroSuggestStartTimeMs = -1;
         }
 
         if (hasFocus && currentTab != null) {
@@ -1032,7 +1050,8 @@ public class LocationBarLayout extends FrameLayout implements OnClickListener,
 
     /**
      * Make a zero suggest request if native is loaded, the URL bar has focus, and the
-     * current tab is not incognito.
+     * current tab is not incognito. The last results for the same kind of page are shown until
+     * the fresh ones arrive.
      */
     private void startZeroSuggest() {
         // Reset "edited" state in the omnibox if zero suggest is triggered -- new edits
@@ -1044,11 +1063,35 @@ public class LocationBarLayout extends FrameLayout implements OnClickListener,
                 && mUrlHasFocus
                 && currentTab != null
                 && !currentTab.isIncognito()) {
+            mZeroSuggestPageClass = ZeroSuggestCache.getPageClass(
+                    mUrlFocusedFromFakebox || NewTabPage.isNTPUrl(currentTab.getUrl()),
+                    mQueryInTheOmnibox);
+            mZeroSuggestPageUrl = currentTab.getUrl();
+            mZeroSuggestStartTimeMs = SystemClock.elapsedRealtime();
+
+            List<OmniboxSuggestion> cachedSuggestions =
+                    mZeroSuggestCache.get(mZeroSuggestPageClass, mZeroSuggestPageUrl);
+            if (cachedSuggestions != null) {
+                mShowingCachedZeroSuggestions = true;
+                updateSuggestions(cachedSuggestions, "");
+            }
+
             mAutocomplete.startZeroSuggest(currentTab.getProfile(), mUrlBar.getQueryText(),
                     currentTab.getUrl(), mQueryInTheOmnibox, mUrlFocusedFromFakebox);
         }
     }
 
+    /**
+     * Records the time it took to show the first suggestions after zero suggest was requested,
+     * whether they came from the cache or from native.
+     */
+    private void recordTimeToFirstZeroSuggestion() {
+        if (mZeroSuggestStartTimeMs < 0) return;
+        RecordHistogram.recordTimesHistogram("Omnibox.ZeroSuggest.TimeToFirstSuggestion",
+                SystemClock.elapsedRealtime() - mZeroSuggestStartTimeMs, TimeUnit.MILLISECONDS);
+        mZeroSuggestStartTimeMs = -1;
+    }
+
     @Override
     public void setDefaultTextEditActionModeCallback(ToolbarActionModeCallback callback) {
         mDefaultActionModeCallbackForTextEdit = callback;
@@ -1436,9 +1479,14 @@ public class LocationBarLayout extends FrameLayout implements OnClickListener,
             @Override
             public void onSelection(OmniboxSuggestion suggestion, int position) {
                 mSuggestionSelectionInProgress = true;
-                String suggestionMatchUrl = updateSuggestionUrlIfNeeded(suggestion, position);
-                loadUrlFromOmniboxMatch(suggestionMatchUrl, suggestion.getTransition(), position,
-                        suggestion.getType());
+                if (mShowingCachedZeroSuggestions) {
+                    // The native AutocompleteController doesn't know about cached suggestions.
+                    loadUrl(suggestion.getUrl(), suggestion.getTransition());
+                } else {
+                    String suggestionMatchUrl = updateSuggestionUrlIfNeeded(suggestion, position);
+                    loadUrlFromOmniboxMatch(suggestionMatchUrl, suggestion.getTransition(),
+                            position, suggestion.getType());
+                }
                 hideSuggestions();
                 UiUtils.hideKeyboard(mUrlBar);
             }
@@ -1461,6 +1509,7 @@ public class LocationBarLayout extends FrameLayout implements OnClickListener,
 
             @Override
             public void onDeleteSuggestion(int position) {
+                if (mShowingCachedZeroSuggestions) return;
                 if (mAutocomplete != null) mAutocomplete.deleteSuggestion(position);
             }
 
@@ -1607,6 +1656,7 @@ public class LocationBarLayout extends FrameLayout implements OnClickListener,
 
         setSuggestionsListVisibility(false);
         clearSuggestions(true);
+        mShowingCachedZeroSuggestions = false;
         updateNavigationButton();
 
         mSuggestionSelectionInProgress = false;
@@ -1774,6 +1824,17 @@ public class LocationBarLayout extends FrameLayout implements OnClickListener,
                         == BaseInputConnection.getComposingSpanStart(text);
     }
 
+    /**
+     * Starts loading the image of the answer of |suggestion|, if any, so that it is usually
+     * cached by the time the row is bound.
+     */
+    private void prefetchAnswerImage(OmniboxSuggestion suggestion) {
+        if (!suggestion.hasAnswer()) return;
+        String imageUrl = suggestion.getAnswer().getSecondLine().getImageUrl();
+        if (imageUrl == null) return;
+        AnswersImage.prefetchAnswersImage(getCurrentTab().getProfile(), imageUrl);
+    }
+
     @Override
     public void onSuggestionsReceived(List<OmniboxSuggestion> newSuggestions,
             String inlineAutocompleteText) {
@@ -1781,6 +1842,20 @@ public class LocationBarLayout extends FrameLayout implements OnClickListener,
         // so can only be called once the native side is set up.
         assert mNativeInitialized : "Suggestions received before native side intialialized";
 
+        if (mZeroSuggestPageClass != ZeroSuggestCache.PAGE_CLASS_NONE) {
+            // Keep showing the cached zero suggestions until fresh ones arrive.
+            if (newSuggestions.isEmpty() && mShowingCachedZeroSuggestions) return;
+            mZeroSuggestCache.put(mZeroSuggestPageClass, mZeroSuggestPageUrl, newSuggestions);
+        }
+        mShowingCachedZeroSuggestions = false;
+        updateSuggestions(newSuggestions, inlineAutocompleteText);
+    }
+
+    /**
+     * Shows |newSuggestions|, only updating the rows that changed.
+     */
+    private void updateSuggestions(List<OmniboxSuggestion> newSuggestions,
+            String inlineAutocompleteText) {
         if (getCurrentTab() == null) {
             // If the current tab is not available, drop the suggestions and hide the autocomplete.
             hideSuggestions();
@@ -1835,9 +1910,13 @@ public class LocationBarLayout extends FrameLayout implements OnClickListener,
         initSuggestionList();  // It may not have been initialized yet.
         mSuggestionList.resetMaxTextWidths();
 
-        if (itemsChanged) mSuggestionListAdapter.notifySuggestionsChanged();
+        if (itemsChanged) {
+            prefetchAnswerImage(mSuggestionItems.get(0).getSuggestion());
+            mSuggestionListAdapter.notifySuggestionsChanged();
+        }
 
         if (mUrlBar.hasFocus()) {
+            recordTimeToFirstZeroSuggestion();
             final boolean updateLayoutParams = itemCountChanged;
             mShowSuggestions = new Runnable() {
                 @Override
@@ -1859,7 +1938,8 @@ public class LocationBarLayout extends FrameLayout implements OnClickListener,
         // Update the navigation button to show the default suggestion's icon.
         updateNavigationButton();
 
-        if (!CommandLine.getInstance().hasSwitch(ChromeSwitches.DISABLE_INSTANT)
+        if (!mShowingCachedZeroSuggestions
+                && !CommandLine.getInstance().hasSwitch(ChromeSwitches.DISABLE_INSTANT)
                 && PrivacyPreferencesManager.getInstance(getContext()).shouldPrerender()) {
             mOmniboxPrerender.prerenderMaybe(
                     userText,
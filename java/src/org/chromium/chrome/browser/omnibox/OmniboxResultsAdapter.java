@@ -22,6 +22,7 @@ public class OmniboxResultsAdapter extends BaseAdapter {
     private final List<OmniboxResultItem> mSuggestionItems;
     private final Context mContext;
     private final LocationBar mLocationBar;
+    private final SuggestionTextCache mTextCache = new SuggestionTextCache();
     private OmniboxSuggestionDelegate mSuggestionDelegate;
     private boolean mUseDarkColors = true;
 
@@ -35,6 +36,9 @@ public class OmniboxResultsAdapter extends BaseAdapter {
     }
 
     public void notifySuggestionsChanged() {
+        // The rows are bound on the next layout pass, which gives the background thread a head
+        // start on their texts.
+        mTextCache.prefetch(mSuggestionItems);
         notifyDataSetChanged();
     }
 
@@ -55,14 +59,21 @@ public class OmniboxResultsAdapter extends BaseAdapter {
 
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
+        OmniboxResultItem item = mSuggestionItems.get(position);
         SuggestionView suggestionView;
         if (convertView instanceof SuggestionView) {
             suggestionView = (SuggestionView) convertView;
+            // Items of unchanged suggestions are kept across result sets, so a row still showing
+            // the same item doesn't need to be bound again. Its widths still count towards the
+            // maximum widths, which are reset for every result set.
+            if (suggestionView.isBoundTo(item, position, mUseDarkColors)) {
+                suggestionView.reportTextWidths();
+                return suggestionView;
+            }
         } else {
-            suggestionView = new SuggestionView(mContext, mLocationBar);
+            suggestionView = new SuggestionView(mContext, mLocationBar, mTextCache);
         }
-        suggestionView.init(
-                mSuggestionItems.get(position), mSuggestionDelegate, position, mUseDarkColors);
+        suggestionView.init(item, mSuggestionDelegate, position, mUseDarkColors);
         return suggestionView;
     }
 
@@ -186,6 +197,7 @@ public class OmniboxResultsAdapter extends BaseAdapter {
 
         @Override
         public boolean equals(Object o) {
+            if (o == this) return true;
             if (!(o instanceof OmniboxResultItem)) {
                 return false;
             }
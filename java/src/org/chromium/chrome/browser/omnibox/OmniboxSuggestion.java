@@ -19,7 +19,8 @@ public class OmniboxSuggestion {
     private final String mDescription;
     private final String mAnswerContents;
     private final String mAnswerType;
-    private final SuggestionAnswer mAnswer;
+    private SuggestionAnswer mAnswer;
+    private boolean mAnswerParsed;
     private final String mFillIntoEdit;
     private final String mUrl;
     private final String mFormattedUrl;
@@ -27,6 +28,8 @@ public class OmniboxSuggestion {
     private final int mTransition;
     private final boolean mIsStarred;
     private final boolean mIsDeletable;
+    private int mHashCode;
+    private boolean mHashCodeComputed;
 
     /**
      * This should be kept in sync with AutocompleteMatch::Type
@@ -104,14 +107,6 @@ public class OmniboxSuggestion {
         mFormattedUrl = formattedUrl;
         mIsStarred = isStarred;
         mIsDeletable = isDeletable;
-
-        if (!TextUtils.isEmpty(mAnswerContents)) {
-            // If any errors are encountered parsing the answer contents, this will return null and
-            // hasAnswer will return false, just as if there were no answer contents at all.
-            mAnswer = SuggestionAnswer.parseAnswerContents(mAnswerContents);
-        } else {
-            mAnswer = null;
-        }
     }
 
     public Type getType() {
@@ -139,11 +134,22 @@ public class OmniboxSuggestion {
     }
 
     public SuggestionAnswer getAnswer() {
+        // Most suggestions are never displayed, so the answer contents are only parsed when
+        // needed.
+        if (!mAnswerParsed) {
+            mAnswerParsed = true;
+            if (!TextUtils.isEmpty(mAnswerContents)) {
+                // If any errors are encountered parsing the answer contents, this will return null
+                // and hasAnswer will return false, just as if there were no answer contents at
+                // all.
+                mAnswer = SuggestionAnswer.parseAnswerContents(mAnswerContents);
+            }
+        }
         return mAnswer;
     }
 
     public boolean hasAnswer() {
-        return mAnswer != null;
+        return getAnswer() != null;
     }
 
     public String getFillIntoEdit() {
@@ -187,21 +193,28 @@ public class OmniboxSuggestion {
 
     @Override
     public int hashCode() {
-        int hash = 37 * mType.mNativeType + mDisplayText.hashCode() + mFillIntoEdit.hashCode()
-                + (mIsStarred ? 1 : 0) + (mIsDeletable ? 1 : 0);
-        if (mAnswerContents != null) {
-            hash = hash + mAnswerContents.hashCode();
+        // Suggestions are compared on every keystroke, so the hash is only computed once.
+        if (!mHashCodeComputed) {
+            int hash = 37 * mType.mNativeType + mDisplayText.hashCode() + mFillIntoEdit.hashCode()
+                    + (mIsStarred ? 1 : 0) + (mIsDeletable ? 1 : 0);
+            if (mAnswerContents != null) {
+                hash = hash + mAnswerContents.hashCode();
+            }
+            mHashCode = hash;
+            mHashCodeComputed = true;
         }
-        return hash;
+        return mHashCode;
     }
 
     @Override
     public boolean equals(Object obj) {
+        if (obj == this) return true;
         if (!(obj instanceof OmniboxSuggestion)) {
             return false;
         }
 
         OmniboxSuggestion suggestion = (OmniboxSuggestion) obj;
+        if (hashCode() != suggestion.hashCode()) return false;
 
         boolean answersAreEqual =
                 (mAnswerContents == null && suggestion.mAnswerContents == null)
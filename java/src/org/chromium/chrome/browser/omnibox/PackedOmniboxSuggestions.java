@@ -0,0 +1,167 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.omnibox;
+
+import org.chromium.base.VisibleForTesting;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A result set of omnibox suggestions as sent by the native AutocompleteController in one call:
+ * an int buffer with {@link #FIELDS_PER_SUGGESTION} fields per suggestion, and a table of the
+ * strings the suggestions refer to by index. Strings shared by several suggestions, like the
+ * fill into edit text that usually equals the display text, are only sent once.
+ *
+ * {@link OmniboxSuggestion}s are only created when they are first accessed, so suggestions that
+ * are trimmed or never looked at don't cost anything.
+ */
+@VisibleForTesting
+public class PackedOmniboxSuggestions extends AbstractList<OmniboxSuggestion>
+        implements RandomAccess {
+    // Layout of the fields of a suggestion in the int buffer.
+    static final int FIELD_TYPE = 0;
+    static final int FIELD_RELEVANCE = 1;
+    static final int FIELD_TRANSITION = 2;
+    static final int FIELD_FLAGS = 3;
+    static final int FIELD_TEXT = 4;
+    static final int FIELD_DESCRIPTION = 5;
+    static final int FIELD_ANSWER_CONTENTS = 6;
+    static final int FIELD_ANSWER_TYPE = 7;
+    static final int FIELD_FILL_INTO_EDIT = 8;
+    static final int FIELD_URL = 9;
+    static final int FIELD_FORMATTED_URL = 10;
+    static final int FIELDS_PER_SUGGESTION = 11;
+
+    // Bits of FIELD_FLAGS.
+    static final int FLAG_STARRED = 1 << 0;
+    static final int FLAG_DELETABLE = 1 << 1;
+
+    // String index of null strings.
+    static final int NO_STRING = -1;
+
+    private final int[] mFields;
+    private final String[] mStrings;
+    private final OmniboxSuggestion[] mSuggestions;
+
+    /**
+     * @param fields The fields of the suggestions, see FIELD_*.
+     * @param strings The strings referred to by |fields|.
+     * @param maxCount The maximum number of suggestions to expose; the others are ignored.
+     */
+    public PackedOmniboxSuggestions(int[] fields, String[] strings, int maxCount) {
+        assert fields.length % FIELDS_PER_SUGGESTION == 0 : "Truncated suggestion buffer";
+        mFields = fields;
+        mStrings = strings;
+        mSuggestions = new OmniboxSuggestion[
+                Math.min(fields.length / FIELDS_PER_SUGGESTION, Math.max(maxCount, 0))];
+    }
+
+    @Override
+    public int size() {
+        return mSuggestions.length;
+    }
+
+    @Override
+    public OmniboxSuggestion get(int index) {
+        if (mSuggestions[index] == null) mSuggestions[index] = unpack(index);
+        return mSuggestions[index];
+    }
+
+    /**
+     * @return Whether the suggestion at |index| has been created.
+     */
+    @VisibleForTesting
+    boolean isUnpacked(int index) {
+        return mSuggestions[index] != null;
+    }
+
+    private OmniboxSuggestion unpack(int index) {
+        int offset = index * FIELDS_PER_SUGGESTION;
+        int flags = mFields[offset + FIELD_FLAGS];
+        return new OmniboxSuggestion(mFields[offset + FIELD_TYPE],
+                mFields[offset + FIELD_RELEVANCE], mFields[offset + FIELD_TRANSITION],
+                getString(offset + FIELD_TEXT), getString(offset + FIELD_DESCRIPTION),
+                getString(offset + FIELD_ANSWER_CONTENTS), getString(offset + FIELD_ANSWER_TYPE),
+                getString(offset + FIELD_FILL_INTO_EDIT), getString(offset + FIELD_URL),
+                getString(offset + FIELD_FORMATTED_URL), (flags & FLAG_STARRED) != 0,
+                (flags & FLAG_DELETABLE) != 0);
+    }
+
+    private String getString(int field) {
+        int stringIndex = mFields[field];
+        return stringIndex == NO_STRING ? null : mStrings[stringIndex];
+    }
+
+    /**
+     * @return The fields of the suggestions, see FIELD_*. Must not be modified.
+     */
+    int[] getFields() {
+        return mFields;
+    }
+
+    /**
+     * @return The strings referred to by the fields. Must not be modified.
+     */
+    String[] getStrings() {
+        return mStrings;
+    }
+
+    /**
+     * Packs |suggestions| the way the native side does. Used to store suggestions compactly and
+     * to feed test suggestions through the same path as native ones.
+     * @param suggestions The suggestions to pack.
+     * @return The packed suggestions.
+     */
+    public static PackedOmniboxSuggestions pack(List<OmniboxSuggestion> suggestions) {
+        int[] fields = new int[suggestions.size() * FIELDS_PER_SUGGESTION];
+        StringTable strings = new StringTable();
+        for (int i = 0; i < suggestions.size(); i++) {
+            OmniboxSuggestion suggestion = suggestions.get(i);
+            int offset = i * FIELDS_PER_SUGGESTION;
+            fields[offset + FIELD_TYPE] = suggestion.getType().nativeType();
+            fields[offset + FIELD_RELEVANCE] = suggestion.getRelevance();
+            fields[offset + FIELD_TRANSITION] = suggestion.getTransition();
+            fields[offset + FIELD_FLAGS] = (suggestion.isStarred() ? FLAG_STARRED : 0)
+                    | (suggestion.isDeletable() ? FLAG_DELETABLE : 0);
+            fields[offset + FIELD_TEXT] = strings.add(suggestion.getDisplayText());
+            fields[offset + FIELD_DESCRIPTION] = strings.add(suggestion.getDescription());
+            fields[offset + FIELD_ANSWER_CONTENTS] = strings.add(suggestion.getAnswerContents());
+            fields[offset + FIELD_ANSWER_TYPE] = strings.add(suggestion.getAnswerType());
+            fields[offset + FIELD_FILL_INTO_EDIT] = strings.add(suggestion.getFillIntoEdit());
+            fields[offset + FIELD_URL] = strings.add(suggestion.getUrl());
+            fields[offset + FIELD_FORMATTED_URL] = strings.add(suggestion.getFormattedUrl());
+        }
+        return new PackedOmniboxSuggestions(fields, strings.toArray(), suggestions.size());
+    }
+
+    /**
+     * Table of distinct strings, in insertion order.
+     */
+    private static class StringTable {
+        private final Map<String, Integer> mIndices = new HashMap<String, Integer>();
+
+        int add(String string) {
+            if (string == null) return NO_STRING;
+            Integer index = mIndices.get(string);
+            if (index == null) {
+                index = mIndices.size();
+                mIndices.put(string, index);
+            }
+            return index;
+        }
+
+        String[] toArray() {
+            String[] strings = new String[mIndices.size()];
+            for (Map.Entry<String, Integer> entry : mIndices.entrySet()) {
+                strings[entry.getValue()] = entry.getKey();
+            }
+            return strings;
+        }
+    }
+}
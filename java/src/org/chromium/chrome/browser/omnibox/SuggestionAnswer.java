@@ -167,6 +167,13 @@ public class SuggestionAnswer {
         public String getImage() {
             return mImage;
         }
+
+        /**
+         * Returns the URL to fetch the image from, or null if the line has no image.
+         */
+        public String getImageUrl() {
+            return mImage == null ? null : "https:" + mImage.replace("\\/", "/");
+        }
     }
 
     /**
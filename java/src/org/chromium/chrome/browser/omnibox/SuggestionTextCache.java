@@ -0,0 +1,277 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.omnibox;
+
+import android.os.AsyncTask;
+import android.text.Spannable;
+import android.text.SpannableString;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.text.style.StyleSpan;
+import android.util.LruCache;
+
+import org.chromium.base.ThreadUtils;
+import org.chromium.base.VisibleForTesting;
+import org.chromium.chrome.browser.omnibox.OmniboxResultsAdapter.OmniboxResultItem;
+import org.chromium.chrome.browser.omnibox.OmniboxSuggestion.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bounded cache of the highlighted text and measured widths shown by {@link SuggestionView} rows.
+ *
+ * Entries are keyed by the texts of the suggestion, the query it matched and the size of the font
+ * it is measured with. The text widths don't depend on the width of the row, the row applies them
+ * at layout time. When a new result set arrives, the entries of its rows are computed on a
+ * background thread with {@link #prefetch}, so that they are usually ready when the rows are bound
+ * on the next frame. Rows whose entry isn't ready compute it on the UI thread.
+ */
+class SuggestionTextCache {
+    @VisibleForTesting
+    static final int MAX_ENTRIES = 64;
+
+    /**
+     * Texts of a suggestion row.
+     */
+    static class SuggestionText {
+        /** First line of the row, with the part matching the query in bold. */
+        final Spannable mLine1;
+        /** URL shown on the second line of URL suggestions, or null. */
+        final Spannable mUrlLine;
+        /** Whether the widths below were measured; only tail suggestions on tablets are. */
+        final boolean mMeasured;
+        final float mRequiredWidth;
+        final float mMatchContentsWidth;
+
+        private SuggestionText(Spannable line1, Spannable urlLine, boolean measured,
+                float requiredWidth, float matchContentsWidth) {
+            mLine1 = line1;
+            mUrlLine = urlLine;
+            mMeasured = measured;
+            mRequiredWidth = requiredWidth;
+            mMatchContentsWidth = matchContentsWidth;
+        }
+    }
+
+    private static final class Key {
+        private final int mType;
+        private final String mMatchedQuery;
+        private final String mDisplayText;
+        private final String mDescription;
+        private final String mUrl;
+        private final String mFormattedUrl;
+        private final String mFillIntoEdit;
+        private final float mTextSize;
+
+        Key(OmniboxResultItem item, float textSize) {
+            OmniboxSuggestion suggestion = item.getSuggestion();
+            mType = suggestion.getType().nativeType();
+            mMatchedQuery = item.getMatchedQuery();
+            mDisplayText = suggestion.getDisplayText();
+            mDescription = suggestion.getDescription();
+            mUrl = suggestion.getUrl();
+            mFormattedUrl = suggestion.getFormattedUrl();
+            mFillIntoEdit = suggestion.getFillIntoEdit();
+            mTextSize = textSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return mType == other.mType && mTextSize == other.mTextSize
+                    && TextUtils.equals(mMatchedQuery, other.mMatchedQuery)
+                    && TextUtils.equals(mDisplayText, other.mDisplayText)
+                    && TextUtils.equals(mDescription, other.mDescription)
+                    && TextUtils.equals(mUrl, other.mUrl)
+                    && TextUtils.equals(mFormattedUrl, other.mFormattedUrl)
+                    && TextUtils.equals(mFillIntoEdit, other.mFillIntoEdit);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = mType * 31 + Float.floatToIntBits(mTextSize);
+            hash = hash * 31 + hashCode(mMatchedQuery);
+            hash = hash * 31 + hashCode(mDisplayText);
+            hash = hash * 31 + hashCode(mDescription);
+            hash = hash * 31 + hashCode(mUrl);
+            hash = hash * 31 + hashCode(mFormattedUrl);
+            return hash * 31 + hashCode(mFillIntoEdit);
+        }
+
+        private static int hashCode(String string) {
+            return string == null ? 0 : string.hashCode();
+        }
+    }
+
+    private final LruCache<Key, SuggestionText> mCache =
+            new LruCache<Key, SuggestionText>(MAX_ENTRIES);
+    // Paint the first line is measured with, only set on tablets. UI thread only.
+    private TextPaint mMeasurePaint;
+
+    /**
+     * Returns the texts of |item|, computing them if they are not cached yet.
+     * Must be called on the UI thread.
+     *
+     * @param item The item shown by the row.
+     * @param measurePaint Paint of the first line if the widths of tail suggestions are needed,
+     *                     or null.
+     * @return The texts of the row.
+     */
+    SuggestionText get(OmniboxResultItem item, TextPaint measurePaint) {
+        ThreadUtils.assertOnUiThread();
+        if (measurePaint != null && (mMeasurePaint == null
+                || mMeasurePaint.getTextSize() != measurePaint.getTextSize())) {
+            mMeasurePaint = new TextPaint(measurePaint);
+        }
+        Key key = new Key(item, measurePaint == null ? 0 : measurePaint.getTextSize());
+        SuggestionText text = mCache.get(key);
+        if (text == null) {
+            text = build(item, measurePaint);
+            mCache.put(key, text);
+        }
+        return text;
+    }
+
+    /**
+     * Computes the texts of |items| on a background thread. Must be called on the UI thread.
+     * @param items The items about to be shown.
+     */
+    void prefetch(List<OmniboxResultItem> items) {
+        ThreadUtils.assertOnUiThread();
+        final List<OmniboxResultItem> pending = new ArrayList<OmniboxResultItem>();
+        final float textSize = mMeasurePaint == null ? 0 : mMeasurePaint.getTextSize();
+        for (OmniboxResultItem item : items) {
+            OmniboxSuggestion suggestion = item.getSuggestion();
+            // Rows with answers show the answer instead.
+            if (!TextUtils.isEmpty(suggestion.getAnswerContents())) continue;
+            if (mCache.get(new Key(item, textSize)) != null) continue;
+            pending.add(item);
+        }
+        if (pending.isEmpty()) return;
+
+        // Paints are not thread safe, so the background thread gets its own copy.
+        final TextPaint paint = mMeasurePaint == null ? null : new TextPaint(mMeasurePaint);
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (OmniboxResultItem item : pending) {
+                    Key key = new Key(item, textSize);
+                    if (mCache.get(key) == null) mCache.put(key, build(item, paint));
+                }
+            }
+        });
+    }
+
+    /**
+     * @return Number of cached entries.
+     */
+    @VisibleForTesting
+    int size() {
+        return mCache.size();
+    }
+
+    /**
+     * @return Whether |type| is shown with its URL on the second line.
+     */
+    static boolean showsUrl(Type type) {
+        return type.isUrl() || type == Type.OPEN_HISTORY_PAGE;
+    }
+
+    /**
+     * Computes the texts of |item|. Doesn't touch any view, so it can run on any thread.
+     */
+    @VisibleForTesting
+    static SuggestionText build(OmniboxResultItem item, TextPaint measurePaint) {
+        OmniboxSuggestion suggestion = item.getSuggestion();
+        Spannable urlLine = null;
+        boolean urlHighlighted = false;
+        boolean isUrlQuery = false;
+        boolean showDescriptionIfPresent = showsUrl(suggestion.getType());
+        if (showDescriptionIfPresent && !TextUtils.isEmpty(suggestion.getUrl())) {
+            isUrlQuery = true;
+            String query = item.getMatchedQuery();
+            String url = suggestion.getFormattedUrl();
+            int index = url.indexOf(query);
+            urlLine = SpannableString.valueOf(url);
+            if (index >= 0) {
+                // Bold the part of the URL that matches the user query.
+                urlLine.setSpan(new StyleSpan(android.graphics.Typeface.BOLD),
+                        index, index + query.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+                urlHighlighted = true;
+            }
+        }
+
+        String userQuery = item.getMatchedQuery();
+        String suggestedQuery = null;
+        if (showDescriptionIfPresent && !TextUtils.isEmpty(suggestion.getUrl())
+                && !TextUtils.isEmpty(suggestion.getDescription())) {
+            suggestedQuery = suggestion.getDescription();
+        } else {
+            suggestedQuery = suggestion.getDisplayText();
+        }
+        if (suggestedQuery == null) {
+            assert false : "Invalid suggestion sent with no displayable text";
+            suggestedQuery = "";
+        } else if (suggestedQuery.equals(suggestion.getUrl())) {
+            // This is a navigation match with the title defaulted to the URL, display formatted URL
+            // so that they continue matching.
+            suggestedQuery = suggestion.getFormattedUrl();
+        }
+
+        boolean measured = false;
+        float requiredWidth = 0;
+        float matchContentsWidth = 0;
+        if (suggestion.getType() == Type.SEARCH_SUGGEST_TAIL) {
+            String fillIntoEdit = suggestion.getFillIntoEdit();
+            // Data sanity checks.
+            if (fillIntoEdit.startsWith(userQuery)
+                    && fillIntoEdit.endsWith(suggestedQuery)
+                    && fillIntoEdit.length() < userQuery.length() + suggestedQuery.length()) {
+                String ignoredPrefix = fillIntoEdit.substring(
+                        0, fillIntoEdit.length() - suggestedQuery.length());
+                final String ellipsisPrefix = "\u2026 ";
+                suggestedQuery = ellipsisPrefix + suggestedQuery;
+                if (userQuery.startsWith(ignoredPrefix)) {
+                    userQuery = ellipsisPrefix + userQuery.substring(ignoredPrefix.length());
+                }
+                if (measurePaint != null) {
+                    measured = true;
+                    requiredWidth =
+                            measurePaint.measureText(fillIntoEdit, 0, fillIntoEdit.length());
+                    matchContentsWidth =
+                            measurePaint.measureText(suggestedQuery, 0, suggestedQuery.length());
+                }
+            }
+        }
+
+        Spannable line1 = SpannableString.valueOf(suggestedQuery);
+        int userQueryIndex = urlHighlighted ? -1
+                : suggestedQuery.toLowerCase(Locale.getDefault()).indexOf(
+                        userQuery.toLowerCase(Locale.getDefault()));
+        if (userQueryIndex != -1) {
+            int spanStart = 0;
+            int spanEnd = 0;
+            if (isUrlQuery) {
+                spanStart = userQueryIndex;
+                spanEnd = userQueryIndex + userQuery.length();
+            } else {
+                spanStart = userQueryIndex + userQuery.length();
+                spanEnd = line1.length();
+            }
+            spanStart = Math.min(spanStart, line1.length());
+            spanEnd = Math.min(spanEnd, line1.length());
+            if (spanStart != spanEnd) {
+                line1.setSpan(
+                        new StyleSpan(android.graphics.Typeface.BOLD),
+                        spanStart, spanEnd,
+                        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+        }
+        return new SuggestionText(line1, urlLine, measured, requiredWidth, matchContentsWidth);
+    }
+}
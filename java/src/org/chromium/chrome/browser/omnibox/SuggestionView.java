@@ -21,7 +21,6 @@ import android.text.Spannable;
 import android.text.SpannableString;
 import android.text.TextPaint;
 import android.text.TextUtils;
-import android.text.style.StyleSpan;
 import android.util.TypedValue;
 import android.view.MotionEvent;
 import android.view.View;
@@ -36,11 +35,11 @@ import org.chromium.chrome.R;
 import org.chromium.chrome.browser.omnibox.OmniboxResultsAdapter.OmniboxResultItem;
 import org.chromium.chrome.browser.omnibox.OmniboxResultsAdapter.OmniboxSuggestionDelegate;
 import org.chromium.chrome.browser.omnibox.OmniboxSuggestion.Type;
+import org.chromium.chrome.browser.omnibox.SuggestionTextCache.SuggestionText;
+import org.chromium.chrome.browser.profiles.Profile;
 import org.chromium.chrome.browser.widget.TintedDrawable;
 import org.chromium.ui.base.DeviceFormFactor;
 
-import java.util.Locale;
-
 /**
  * Container view for omnibox suggestions made very specific for omnibox suggestions to minimize
  * any unnecessary measures and layouts.
@@ -68,6 +67,7 @@ class SuggestionView extends ViewGroup {
     private static final float ANSWER_IMAGE_SCALING_FACTOR = 1.15f;
 
     private LocationBar mLocationBar;
+    private final SuggestionTextCache mTextCache;
     private UrlBar mUrlBar;
     private ImageView mNavigationButton;
 
@@ -82,6 +82,11 @@ class SuggestionView extends ViewGroup {
 
     private SuggestionContentsContainer mContentsView;
 
+    // Pending answer image request of the row, if any.
+    private Profile mAnswerImageProfile;
+    private String mAnswerImageUrl;
+    private int mAnswerImageRequestId;
+
     private int mRefineWidth;
     private View mRefineView;
     private TintedDrawable mRefineIcon;
@@ -101,9 +106,11 @@ class SuggestionView extends ViewGroup {
      * @param context The context used to construct the suggestion view.
      * @param locationBar The location bar showing these suggestions.
      */
-    public SuggestionView(Context context, LocationBar locationBar) {
+    public SuggestionView(
+            Context context, LocationBar locationBar, SuggestionTextCache textCache) {
         super(context);
         mLocationBar = locationBar;
+        mTextCache = textCache;
 
         mSuggestionHeight =
                 context.getResources().getDimensionPixelOffset(R.dimen.omnibox_suggestion_height);
@@ -248,6 +255,27 @@ class SuggestionView extends ViewGroup {
         return super.dispatchTouchEvent(ev);
     }
 
+    /**
+     * @return Whether the view shows exactly |suggestionItem| at |position| with the given colors,
+     *         i.e. calling {@link #init} with them would not change anything.
+     */
+    boolean isBoundTo(OmniboxResultItem suggestionItem, int position, boolean useDarkColors) {
+        return mSuggestionItem == suggestionItem && mPosition == position
+                && mUseDarkColors != null && mUseDarkColors == useDarkColors
+                && ViewCompat.getLayoutDirection(this) == ViewCompat.getLayoutDirection(mUrlBar);
+    }
+
+    /**
+     * Reports the text widths measured when the view was bound again, for rows that are kept as
+     * is while the suggestion list recomputes its maximum widths.
+     */
+    void reportTextWidths() {
+        if (mSuggestionDelegate == null) return;
+        if (mContentsView.mRequiredWidth == 0 && mContentsView.mMatchContentsWidth == 0) return;
+        mSuggestionDelegate.onTextWidthsUpdated(
+                mContentsView.mRequiredWidth, mContentsView.mMatchContentsWidth);
+    }
+
     /**
      * Sets the contents and state of the view for the given suggestion.
      *
@@ -265,7 +293,10 @@ class SuggestionView extends ViewGroup {
         mPosition = position;
         jumpDrawablesToCurrentState();
         boolean colorsChanged = mUseDarkColors == null || mUseDarkColors != useDarkColors;
-        if (suggestionItem.equals(mSuggestionItem) && !colorsChanged) return;
+        if (suggestionItem.equals(mSuggestionItem) && !colorsChanged) {
+            reportTextWidths();
+            return;
+        }
         mUseDarkColors = useDarkColors;
         if (colorsChanged) {
             mContentsView.mTextLine1.setTextColor(getStandardFontColor());
@@ -282,6 +313,7 @@ class SuggestionView extends ViewGroup {
         mContentsView.mAnswerImage.getLayoutParams().width = 0;
         mContentsView.mAnswerImage.setImageDrawable(null);
         mContentsView.mAnswerImageMaxSize = 0;
+        cancelAnswerImageRequest();
         mContentsView.mTextLine1.setTextSize(FIRST_LINE_TEXT_SIZE_SP);
         mContentsView.mTextLine2.setTextSize(SECOND_LINE_TEXT_SIZE_SP);
 
@@ -313,14 +345,13 @@ class SuggestionView extends ViewGroup {
                 } else {
                     mContentsView.setSuggestionIcon(SuggestionIconType.GLOBE, colorsChanged);
                 }
-                boolean urlShown = !TextUtils.isEmpty(mSuggestion.getUrl());
-                boolean urlHighlighted = false;
-                if (urlShown) {
-                    urlHighlighted = setUrlText(suggestionItem);
+                SuggestionText urlText = getSuggestionText(suggestionItem);
+                if (urlText.mUrlLine != null) {
+                    showDescriptionLine(urlText.mUrlLine, URL_COLOR);
                 } else {
                     mContentsView.mTextLine2.setVisibility(INVISIBLE);
                 }
-                setSuggestedQuery(suggestionItem, true, urlShown, urlHighlighted);
+                setSuggestedQuery(urlText);
                 setRefinable(!sameAsTyped);
                 break;
             case SEARCH_WHAT_YOU_TYPED:
@@ -342,7 +373,7 @@ class SuggestionView extends ViewGroup {
                 }
                 mContentsView.setSuggestionIcon(suggestionIcon, colorsChanged);
                 setRefinable(!sameAsTyped);
-                setSuggestedQuery(suggestionItem, false, false, false);
+                setSuggestedQuery(getSuggestionText(suggestionItem));
                 if ((suggestionType == Type.SEARCH_SUGGEST_ENTITY)
                         || (suggestionType == Type.SEARCH_SUGGEST_PROFILE)) {
                     showDescriptionLine(
@@ -406,23 +437,16 @@ class SuggestionView extends ViewGroup {
     }
 
     /**
-     * Sets (and highlights) the URL text of the second line of the omnibox suggestion.
+     * Returns the highlighted texts of the suggestion, usually precomputed on a background thread
+     * when the suggestions were received.
      *
-     * @param suggestion The suggestion containing the URL.
-     * @return Whether the URL was highlighted based on the user query.
+     * @param suggestionItem The item containing the suggestion data.
      */
-    private boolean setUrlText(OmniboxResultItem suggestion) {
-        String query = suggestion.getMatchedQuery();
-        String url = suggestion.getSuggestion().getFormattedUrl();
-        int index = url.indexOf(query);
-        Spannable str = SpannableString.valueOf(url);
-        if (index >= 0) {
-            // Bold the part of the URL that matches the user query.
-            str.setSpan(new StyleSpan(android.graphics.Typeface.BOLD),
-                    index, index + query.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-        }
-        showDescriptionLine(str, URL_COLOR);
-        return index >= 0;
+    private SuggestionText getSuggestionText(OmniboxResultItem suggestionItem) {
+        // Only tablets align tail suggestions, which requires measuring them.
+        TextPaint measurePaint = DeviceFormFactor.isTablet(getContext())
+                ? mContentsView.mTextLine1.getPaint() : null;
+        return mTextCache.get(suggestionItem, measurePaint);
     }
 
     /**
@@ -441,85 +465,19 @@ class SuggestionView extends ViewGroup {
     /**
      * Sets the text of the first line of the omnibox suggestion.
      *
-     * @param suggestionItem The item containing the suggestion data.
-     * @param showDescriptionIfPresent Whether to show the description text of the suggestion if
-     *                                 the item contains valid data.
-     * @param isUrlQuery Whether this suggestion is showing an URL.
-     * @param isUrlHighlighted Whether the URL contains any highlighted matching sections.
+     * @param text The texts of the suggestion.
      */
-    private void setSuggestedQuery(
-            OmniboxResultItem suggestionItem, boolean showDescriptionIfPresent,
-            boolean isUrlQuery, boolean isUrlHighlighted) {
-        String userQuery = suggestionItem.getMatchedQuery();
-        String suggestedQuery = null;
-        OmniboxSuggestion suggestion = suggestionItem.getSuggestion();
-        if (showDescriptionIfPresent && !TextUtils.isEmpty(suggestion.getUrl())
-                && !TextUtils.isEmpty(suggestion.getDescription())) {
-            suggestedQuery = suggestion.getDescription();
-        } else {
-            suggestedQuery = suggestion.getDisplayText();
-        }
-        if (suggestedQuery == null) {
-            assert false : "Invalid suggestion sent with no displayable text";
-            suggestedQuery = "";
-        } else if (suggestedQuery.equals(suggestion.getUrl())) {
-            // This is a navigation match with the title defaulted to the URL, display formatted URL
-            // so that they continue matching.
-            suggestedQuery = suggestion.getFormattedUrl();
-        }
+    private void setSuggestedQuery(SuggestionText text) {
+        if (text.mMeasured) {
+            mContentsView.mRequiredWidth = text.mRequiredWidth;
+            mContentsView.mMatchContentsWidth = text.mMatchContentsWidth;
 
-        if (mSuggestion.getType() == Type.SEARCH_SUGGEST_TAIL) {
-            String fillIntoEdit = mSuggestion.getFillIntoEdit();
-            // Data sanity checks.
-            if (fillIntoEdit.startsWith(userQuery)
-                    && fillIntoEdit.endsWith(suggestedQuery)
-                    && fillIntoEdit.length() < userQuery.length() + suggestedQuery.length()) {
-                String ignoredPrefix = fillIntoEdit.substring(
-                        0, fillIntoEdit.length() - suggestedQuery.length());
-                final String ellipsisPrefix = "\u2026 ";
-                suggestedQuery = ellipsisPrefix + suggestedQuery;
-                if (userQuery.startsWith(ignoredPrefix)) {
-                    userQuery = ellipsisPrefix + userQuery.substring(ignoredPrefix.length());
-                }
-                if (DeviceFormFactor.isTablet(getContext())) {
-                    TextPaint tp = mContentsView.mTextLine1.getPaint();
-                    mContentsView.mRequiredWidth =
-                            tp.measureText(fillIntoEdit, 0, fillIntoEdit.length());
-                    mContentsView.mMatchContentsWidth =
-                            tp.measureText(suggestedQuery, 0, suggestedQuery.length());
-
-                    // Update the max text widths values in SuggestionList. These will be passed to
-                    // the contents view on layout.
-                    mSuggestionDelegate.onTextWidthsUpdated(
-                            mContentsView.mRequiredWidth, mContentsView.mMatchContentsWidth);
-                }
-            }
+            // Update the max text widths values in SuggestionList. These will be passed to
+            // the contents view on layout.
+            mSuggestionDelegate.onTextWidthsUpdated(
+                    mContentsView.mRequiredWidth, mContentsView.mMatchContentsWidth);
         }
-
-        Spannable str = SpannableString.valueOf(suggestedQuery);
-        int userQueryIndex = isUrlHighlighted ? -1
-                : suggestedQuery.toLowerCase(Locale.getDefault()).indexOf(
-                        userQuery.toLowerCase(Locale.getDefault()));
-        if (userQueryIndex != -1) {
-            int spanStart = 0;
-            int spanEnd = 0;
-            if (isUrlQuery) {
-                spanStart = userQueryIndex;
-                spanEnd = userQueryIndex + userQuery.length();
-            } else {
-                spanStart = userQueryIndex + userQuery.length();
-                spanEnd = str.length();
-            }
-            spanStart = Math.min(spanStart, str.length());
-            spanEnd = Math.min(spanEnd, str.length());
-            if (spanStart != spanEnd) {
-                str.setSpan(
-                        new StyleSpan(android.graphics.Typeface.BOLD),
-                        spanStart, spanEnd,
-                        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-            }
-        }
-        mContentsView.mTextLine1.setText(str, BufferType.SPANNABLE);
+        mContentsView.mTextLine1.setText(text.mLine1, BufferType.SPANNABLE);
     }
 
     /**
@@ -551,19 +509,33 @@ class SuggestionView extends ViewGroup {
             mContentsView.mAnswerImage.getLayoutParams().width = imageSize;
             mContentsView.mAnswerImageMaxSize = imageSize;
 
-            String url = "https:" + secondLine.getImage().replace("\\/", "/");
-            AnswersImage.requestAnswersImage(
-                    mLocationBar.getCurrentTab().getProfile(),
+            final String url = secondLine.getImageUrl();
+            mAnswerImageProfile = mLocationBar.getCurrentTab().getProfile();
+            mAnswerImageUrl = url;
+            // Cached images are set before this returns, so repeated queries don't flicker.
+            mAnswerImageRequestId = AnswersImage.requestAnswersImage(
+                    mAnswerImageProfile,
                     url,
                     new AnswersImage.AnswersImageObserver() {
                         @Override
                         public void onAnswersImageChanged(Bitmap bitmap) {
+                            if (!url.equals(mAnswerImageUrl)) return;
                             mContentsView.mAnswerImage.setImageBitmap(bitmap);
                         }
                     });
         }
     }
 
+    /**
+     * Detaches the row from the answer image it requested, if any.
+     */
+    private void cancelAnswerImageRequest() {
+        if (mAnswerImageUrl == null) return;
+        AnswersImage.cancelAnswersImageRequest(mAnswerImageProfile, mAnswerImageRequestId);
+        mAnswerImageProfile = null;
+        mAnswerImageUrl = null;
+    }
+
     /**
      * Handles triggering a selection request for the suggestion rendered by this view.
      */
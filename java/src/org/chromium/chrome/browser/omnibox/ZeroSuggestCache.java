@@ -0,0 +1,300 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.omnibox;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.util.Log;
+import android.util.SparseArray;
+
+import org.chromium.base.ThreadUtils;
+import org.chromium.base.VisibleForTesting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Disk backed cache of the last zero suggest results, so that the omnibox can show suggestions
+ * as soon as it is focused instead of waiting for the native round trip.
+ *
+ * One result set is kept per class of page the omnibox was focused on, see PAGE_CLASS_*. Result
+ * sets of other pages are only shown again on the same URL, since they depend on it. Result sets
+ * are stored in the packed form they are received in, see {@link PackedOmniboxSuggestions}. The
+ * cache is loaded on a background thread when it is first requested and written in the background
+ * as fresh results arrive. Zero suggest isn't used in incognito, so only results of the regular
+ * profile are stored. The results are deleted when history is cleared and when the user signs
+ * out, see {@link #clear}. All methods must be called on the UI thread.
+ */
+public class ZeroSuggestCache {
+    private static final String TAG = "ZeroSuggestCache";
+
+    /** No zero suggest request is in progress. */
+    static final int PAGE_CLASS_NONE = -1;
+    /** The New Tab Page, or the fakebox on it. */
+    static final int PAGE_CLASS_NTP = 0;
+    /** A search results page showing its query in the omnibox. */
+    static final int PAGE_CLASS_SEARCH_RESULTS = 1;
+    /** Any other page. */
+    static final int PAGE_CLASS_OTHER = 2;
+
+    private static final String FILE_NAME = "zero_suggest";
+    private static final int FILE_VERSION = 1;
+    private static final int MAX_SUGGESTIONS = 5;
+    private static final int MAX_FIELDS =
+            MAX_SUGGESTIONS * PackedOmniboxSuggestions.FIELDS_PER_SUGGESTION;
+
+    private static ZeroSuggestCache sInstance;
+
+    /**
+     * A cached result set.
+     */
+    private static class Entry {
+        // URL of the page the results are for, only set for PAGE_CLASS_OTHER.
+        final String mPageUrl;
+        final int[] mFields;
+        final String[] mStrings;
+
+        Entry(String pageUrl, int[] fields, String[] strings) {
+            mPageUrl = pageUrl;
+            mFields = fields;
+            mStrings = strings;
+        }
+
+        boolean hasSameSuggestions(Entry other) {
+            return Arrays.equals(mFields, other.mFields) && Arrays.equals(mStrings, other.mStrings);
+        }
+    }
+
+    private final File mFile;
+    private final SparseArray<Entry> mEntries = new SparseArray<Entry>();
+    private boolean mLoaded;
+    // Incremented when the cache is cleared, so that results being loaded are discarded.
+    private int mGeneration;
+
+    /**
+     * @return The cache, starting to load it from disk on first use.
+     */
+    static ZeroSuggestCache getInstance(Context context) {
+        ThreadUtils.assertOnUiThread();
+        if (sInstance == null) {
+            sInstance = new ZeroSuggestCache(
+                    new File(context.getApplicationContext().getCacheDir(), FILE_NAME));
+            sInstance.load();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Forgets the cached results and deletes the cache file. Called when history is cleared and
+     * when the user signs out, since the results reveal the pages and queries of the user.
+     * @param context Any context, used to find the cache file if the cache isn't loaded.
+     */
+    public static void clear(Context context) {
+        ThreadUtils.assertOnUiThread();
+        final File file;
+        if (sInstance != null) {
+            sInstance.mGeneration++;
+            sInstance.mEntries.clear();
+            file = sInstance.mFile;
+        } else {
+            file = new File(context.getApplicationContext().getCacheDir(), FILE_NAME);
+        }
+        // Runs after the writes already queued on the same executor.
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                if (file.exists() && !file.delete()) Log.w(TAG, "Failed to delete " + file);
+                return null;
+            }
+        }.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+    }
+
+    @VisibleForTesting
+    ZeroSuggestCache(File file) {
+        mFile = file;
+    }
+
+    /**
+     * @param isNewTabPage Whether the omnibox is focused on the New Tab Page or its fakebox.
+     * @param isQueryInOmnibox Whether the omnibox shows the query of a search results page.
+     * @return The class of the page, see PAGE_CLASS_*.
+     */
+    static int getPageClass(boolean isNewTabPage, boolean isQueryInOmnibox) {
+        if (isNewTabPage) return PAGE_CLASS_NTP;
+        if (isQueryInOmnibox) return PAGE_CLASS_SEARCH_RESULTS;
+        return PAGE_CLASS_OTHER;
+    }
+
+    /**
+     * @param pageClass The class of the page the omnibox is focused on.
+     * @param pageUrl The URL of that page.
+     * @return The last zero suggest results for the page, or null if there are none or the cache
+     *         is still loading.
+     */
+    List<OmniboxSuggestion> get(int pageClass, String pageUrl) {
+        Entry entry = mEntries.get(pageClass);
+        if (entry == null) return null;
+        if (pageClass == PAGE_CLASS_OTHER && !entry.mPageUrl.equals(pageUrl)) return null;
+        return new PackedOmniboxSuggestions(entry.mFields, entry.mStrings, MAX_SUGGESTIONS);
+    }
+
+    /**
+     * Stores zero suggest results received from native and writes them to disk in the background
+     * if they changed. Voice suggestions are not stored.
+     *
+     * @param pageClass The class of the page the omnibox is focused on.
+     * @param pageUrl The URL of that page.
+     * @param suggestions The results.
+     */
+    void put(int pageClass, String pageUrl, List<OmniboxSuggestion> suggestions) {
+        if (pageClass == PAGE_CLASS_NONE) return;
+        List<OmniboxSuggestion> stored = new ArrayList<OmniboxSuggestion>(MAX_SUGGESTIONS);
+        for (OmniboxSuggestion suggestion : suggestions) {
+            if (suggestion.getType() == OmniboxSuggestion.Type.VOICE_SUGGEST) continue;
+            stored.add(suggestion);
+            if (stored.size() == MAX_SUGGESTIONS) break;
+        }
+        if (stored.isEmpty()) return;
+
+        PackedOmniboxSuggestions packed = PackedOmniboxSuggestions.pack(stored);
+        Entry entry = new Entry(pageClass == PAGE_CLASS_OTHER ? pageUrl : "",
+                packed.getFields(), packed.getStrings());
+        Entry previous = mEntries.get(pageClass);
+        if (previous != null && previous.mPageUrl.equals(entry.mPageUrl)
+                && previous.hasSameSuggestions(entry)) {
+            return;
+        }
+        mEntries.put(pageClass, entry);
+        write();
+    }
+
+    private void load() {
+        final int generation = mGeneration;
+        new AsyncTask<Void, Void, SparseArray<Entry>>() {
+            @Override
+            protected SparseArray<Entry> doInBackground(Void... params) {
+                return readEntries();
+            }
+
+            @Override
+            protected void onPostExecute(SparseArray<Entry> entries) {
+                mLoaded = true;
+                boolean receivedWhileLoading = mEntries.size() > 0;
+                // Results read before the cache was cleared are dropped.
+                if (entries != null && generation == mGeneration) {
+                    // Results received while loading are fresher than the ones read from disk.
+                    for (int i = 0; i < entries.size(); i++) {
+                        if (mEntries.get(entries.keyAt(i)) == null) {
+                            mEntries.put(entries.keyAt(i), entries.valueAt(i));
+                        }
+                    }
+                }
+                if (receivedWhileLoading) write();
+            }
+        }.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+    }
+
+    private void write() {
+        // Results received before the cache is loaded are written once it is, with the loaded
+        // ones.
+        if (!mLoaded) return;
+        final SparseArray<Entry> entries = mEntries.clone();
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                writeEntries(entries);
+                return null;
+            }
+        }.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+    }
+
+    private SparseArray<Entry> readEntries() {
+        if (!mFile.exists()) return null;
+        DataInputStream stream = null;
+        try {
+            stream = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            if (stream.readInt() != FILE_VERSION) return null;
+            int count = stream.readInt();
+            SparseArray<Entry> entries = new SparseArray<Entry>(count);
+            for (int i = 0; i < count; i++) {
+                int pageClass = stream.readInt();
+                String pageUrl = stream.readUTF();
+                int fieldCount = stream.readInt();
+                if (fieldCount < 0 || fieldCount > MAX_FIELDS) return null;
+                int[] fields = new int[fieldCount];
+                for (int j = 0; j < fieldCount; j++) fields[j] = stream.readInt();
+                int stringCount = stream.readInt();
+                if (stringCount < 0 || stringCount > fieldCount) return null;
+                String[] strings = new String[stringCount];
+                for (int j = 0; j < stringCount; j++) strings[j] = stream.readUTF();
+                if (!hasValidStringIndices(fields, stringCount)) return null;
+                entries.put(pageClass, new Entry(pageUrl, fields, strings));
+            }
+            return entries;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read the zero suggest cache", e);
+            return null;
+        } finally {
+            closeQuietly(stream);
+        }
+    }
+
+    private static boolean hasValidStringIndices(int[] fields, int stringCount) {
+        if (fields.length % PackedOmniboxSuggestions.FIELDS_PER_SUGGESTION != 0) return false;
+        for (int offset = 0; offset < fields.length;
+                offset += PackedOmniboxSuggestions.FIELDS_PER_SUGGESTION) {
+            for (int field = PackedOmniboxSuggestions.FIELD_TEXT;
+                    field <= PackedOmniboxSuggestions.FIELD_FORMATTED_URL; field++) {
+                int index = fields[offset + field];
+                if (index < PackedOmniboxSuggestions.NO_STRING || index >= stringCount) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void writeEntries(SparseArray<Entry> entries) {
+        DataOutputStream stream = null;
+        try {
+            stream = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(mFile)));
+            stream.writeInt(FILE_VERSION);
+            stream.writeInt(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.valueAt(i);
+                stream.writeInt(entries.keyAt(i));
+                stream.writeUTF(entry.mPageUrl);
+                stream.writeInt(entry.mFields.length);
+                for (int field : entry.mFields) stream.writeInt(field);
+                stream.writeInt(entry.mStrings.length);
+                for (String string : entry.mStrings) stream.writeUTF(string);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write the zero suggest cache", e);
+        } finally {
+            closeQuietly(stream);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close stream", e);
+        }
+    }
+}
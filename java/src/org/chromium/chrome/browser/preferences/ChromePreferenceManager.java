@@ -5,8 +5,6 @@
 package org.chromium.chrome.browser.preferences;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import android.preference.PreferenceManager;
 
 import org.chromium.base.annotations.SuppressFBWarnings;
 import org.chromium.chrome.browser.signin.SigninPromoUma;
@@ -40,12 +38,12 @@ public class ChromePreferenceManager {
 
     private static ChromePreferenceManager sPrefs;
 
-    private final SharedPreferences mSharedPreferences;
+    private final PreferenceStore mStore;
     private final Context mContext;
 
     private ChromePreferenceManager(Context context) {
         mContext = context.getApplicationContext();
-        mSharedPreferences = PreferenceManager.getDefaultSharedPreferences(mContext);
+        mStore = PreferenceStore.getDefault(mContext);
     }
 
     /**
@@ -66,13 +64,11 @@ public class ChromePreferenceManager {
      *         a minidump.
      */
     public int getBreakpadUploadSuccessCount() {
-        return mSharedPreferences.getInt(BREAKPAD_UPLOAD_SUCCESS, 0);
+        return mStore.getInt(BREAKPAD_UPLOAD_SUCCESS, 0);
     }
 
     public void setBreakpadUploadSuccessCount(int count) {
-        SharedPreferences.Editor sharedPreferencesEditor = mSharedPreferences.edit();
-        sharedPreferencesEditor.putInt(BREAKPAD_UPLOAD_SUCCESS, count);
-        sharedPreferencesEditor.apply();
+        mStore.putInt(BREAKPAD_UPLOAD_SUCCESS, count);
     }
 
     public void incrementBreakpadUploadSuccessCount() {
@@ -84,13 +80,11 @@ public class ChromePreferenceManager {
      *         minidump after a few tries.
      */
     public int getBreakpadUploadFailCount() {
-        return mSharedPreferences.getInt(BREAKPAD_UPLOAD_FAIL, 0);
+        return mStore.getInt(BREAKPAD_UPLOAD_FAIL, 0);
     }
 
     public void setBreakpadUploadFailCount(int count) {
-        SharedPreferences.Editor sharedPreferencesEditor = mSharedPreferences.edit();
-        sharedPreferencesEditor.putInt(BREAKPAD_UPLOAD_FAIL, count);
-        sharedPreferencesEditor.apply();
+        mStore.putInt(BREAKPAD_UPLOAD_FAIL, count);
     }
 
     public void incrementBreakpadUploadFailCount() {
@@ -101,23 +95,21 @@ public class ChromePreferenceManager {
      * @return Whether we have attempted to migrate tabbed state to document mode after OS upgrade.
      */
     public boolean hasAttemptedMigrationOnUpgrade() {
-        return mSharedPreferences.getBoolean(MIGRATION_ON_UPGRADE_ATTEMPTED, false);
+        return mStore.getBoolean(MIGRATION_ON_UPGRADE_ATTEMPTED, false);
     }
 
     /**
      * Mark that we have made an attempt to migrate tabbed state to document mode after OS upgrade.
      */
     public void setAttemptedMigrationOnUpgrade() {
-        SharedPreferences.Editor sharedPreferencesEditor = mSharedPreferences.edit();
-        sharedPreferencesEditor.putBoolean(MIGRATION_ON_UPGRADE_ATTEMPTED, true);
-        sharedPreferencesEditor.apply();
+        mStore.putBoolean(MIGRATION_ON_UPGRADE_ATTEMPTED, true);
     }
 
     /**
      * @return Whether the promotion for data reduction has been skipped on first invocation.
      */
     public boolean getPromosSkippedOnFirstStart() {
-        return mSharedPreferences.getBoolean(PROMOS_SKIPPED_ON_FIRST_START, false);
+        return mStore.getBoolean(PROMOS_SKIPPED_ON_FIRST_START, false);
     }
 
     /**
@@ -125,9 +117,7 @@ public class ChromePreferenceManager {
      * @param enabled Whether custom tabs should be enabled.
      */
     public void setCustomTabsEnabled(boolean enabled) {
-        SharedPreferences.Editor ed = mSharedPreferences.edit();
-        ed.putBoolean(ENABLE_CUSTOM_TABS, enabled);
-        ed.apply();
+        mStore.putBoolean(ENABLE_CUSTOM_TABS, enabled);
     }
 
     /**
@@ -135,7 +125,7 @@ public class ChromePreferenceManager {
      *         switch for the feature, so it returns true by default if the preference is not set.
      */
     public boolean getCustomTabsEnabled() {
-        return mSharedPreferences.getBoolean(ENABLE_CUSTOM_TABS, true);
+        return mStore.getBoolean(ENABLE_CUSTOM_TABS, true);
     }
 
     /**
@@ -144,9 +134,7 @@ public class ChromePreferenceManager {
      * @param displayed Whether the promotion was shown.
      */
     public void setPromosSkippedOnFirstStart(boolean displayed) {
-        SharedPreferences.Editor ed = mSharedPreferences.edit();
-        ed.putBoolean(PROMOS_SKIPPED_ON_FIRST_START, displayed);
-        ed.apply();
+        mStore.putBoolean(PROMOS_SKIPPED_ON_FIRST_START, displayed);
     }
 
     /**
@@ -154,7 +142,7 @@ public class ChromePreferenceManager {
      * which sites to show in the list).
      */
     public String getWebsiteSettingsFilterPreference() {
-        return mSharedPreferences.getString(
+        return mStore.getString(
                 ChromePreferenceManager.PREF_WEBSITE_SETTINGS_FILTER, "");
     }
 
@@ -163,10 +151,7 @@ public class ChromePreferenceManager {
      * @param prefValue The type to restrict the filter to.
      */
     public void setWebsiteSettingsFilterPreference(String prefValue) {
-        SharedPreferences.Editor sharedPreferencesEditor = mSharedPreferences.edit();
-        sharedPreferencesEditor.putString(
-                ChromePreferenceManager.PREF_WEBSITE_SETTINGS_FILTER, prefValue);
-        sharedPreferencesEditor.apply();
+        mStore.putString(ChromePreferenceManager.PREF_WEBSITE_SETTINGS_FILTER, prefValue);
     }
 
     /**
@@ -176,7 +161,7 @@ public class ChromePreferenceManager {
      * @return Whether low end device UI was allowed.
      */
     public boolean getAllowLowEndDeviceUi() {
-        return mSharedPreferences.getBoolean(ALLOW_LOW_END_DEVICE_UI, true);
+        return mStore.getBoolean(ALLOW_LOW_END_DEVICE_UI, true);
     }
 
     /**
@@ -185,7 +170,7 @@ public class ChromePreferenceManager {
      * @return Whether the signin promo has been shown in the current cycle.
      */
     public boolean getSigninPromoShown() {
-        long signinPromoLastShown = mSharedPreferences.getLong(SIGNIN_PROMO_LAST_SHOWN, 0);
+        long signinPromoLastShown = mStore.getLong(SIGNIN_PROMO_LAST_SHOWN, 0);
         long numDaysElapsed =
                 (System.currentTimeMillis() - signinPromoLastShown) / MILLISECONDS_IN_DAY;
         return numDaysElapsed < SIGNIN_PROMO_CYCLE_IN_DAYS;
@@ -195,16 +180,14 @@ public class ChromePreferenceManager {
      * Sets the preference for tracking when the signin promo was last shown.
      */
     public void setSigninPromoShown() {
-        SharedPreferences.Editor sharedPreferencesEditor = mSharedPreferences.edit();
-        sharedPreferencesEditor.putLong(SIGNIN_PROMO_LAST_SHOWN, System.currentTimeMillis());
-        sharedPreferencesEditor.apply();
+        mStore.putLong(SIGNIN_PROMO_LAST_SHOWN, System.currentTimeMillis());
     }
 
     /**
      * @return Whether the signin promo has been marked to be shown on next startup.
      */
     public boolean getShowSigninPromo() {
-        return mSharedPreferences.getBoolean(SHOW_SIGNIN_PROMO, false);
+        return mStore.getBoolean(SHOW_SIGNIN_PROMO, false);
     }
 
     /**
@@ -212,8 +195,7 @@ public class ChromePreferenceManager {
      * @param shouldShow Whether the signin promo should be shown.
      */
     public void setShowSigninPromo(boolean shouldShow) {
-        SharedPreferences.Editor sharedPreferencesEditor = mSharedPreferences.edit();
-        sharedPreferencesEditor.putBoolean(SHOW_SIGNIN_PROMO, shouldShow).apply();
+        mStore.putBoolean(SHOW_SIGNIN_PROMO, shouldShow);
 
         if (shouldShow) SigninPromoUma.recordAction(SigninPromoUma.SIGNIN_PROMO_ENABLED);
     }
@@ -222,7 +204,7 @@ public class ChromePreferenceManager {
      * @return Number of times the panel was opened with the promo visible.
      */
     public int getContextualSearchPromoOpenCount() {
-        return mSharedPreferences.getInt(CONTEXTUAL_SEARCH_PROMO_OPEN_COUNT, 0);
+        return mStore.getInt(CONTEXTUAL_SEARCH_PROMO_OPEN_COUNT, 0);
     }
 
     /**
@@ -238,7 +220,7 @@ public class ChromePreferenceManager {
      *         if in the disabled state.
      */
     public int getContextualSearchTapTriggeredPromoCount() {
-        return mSharedPreferences.getInt(CONTEXTUAL_SEARCH_TAP_TRIGGERED_PROMO_COUNT, 0);
+        return mStore.getInt(CONTEXTUAL_SEARCH_TAP_TRIGGERED_PROMO_COUNT, 0);
     }
 
     /**
@@ -255,7 +237,7 @@ public class ChromePreferenceManager {
      * @return Number of tap gestures that have been received when not waiting for the promo.
      */
     public int getContextualSearchTapCount() {
-        return mSharedPreferences.getInt(CONTEXTUAL_SEARCH_TAP_COUNT, 0);
+        return mStore.getInt(CONTEXTUAL_SEARCH_TAP_COUNT, 0);
     }
 
     /**
@@ -273,8 +255,6 @@ public class ChromePreferenceManager {
      * @param value The new value for the preference.
      */
     private void writeInt(String key, int value) {
-        SharedPreferences.Editor ed = mSharedPreferences.edit();
-        ed.putInt(key, value);
-        ed.apply();
+        mStore.putInt(key, value);
     }
 }
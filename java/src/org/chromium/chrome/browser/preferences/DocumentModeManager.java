@@ -5,9 +5,7 @@
 package org.chromium.chrome.browser.preferences;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.os.Build;
-import android.preference.PreferenceManager;
 
 import org.chromium.base.ThreadUtils;
 
@@ -149,10 +147,10 @@ public class DocumentModeManager {
 
     private static DocumentModeManager sManager;
 
-    private final SharedPreferences mSharedPreferences;
+    private final PreferenceStore mStore;
 
     private DocumentModeManager(Context context) {
-        mSharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+        mStore = PreferenceStore.getDefault(context);
     }
 
     /**
@@ -187,9 +185,7 @@ public class DocumentModeManager {
      * @param state One of OPTED_OUT_OF_DOCUMENT_MODE or OPT_OUT_PROMO_DISMISSED.
      */
     public void setOptedOutState(int state) {
-        SharedPreferences.Editor sharedPreferencesEditor = mSharedPreferences.edit();
-        sharedPreferencesEditor.putInt(OPT_OUT_STATE, state);
-        sharedPreferencesEditor.apply();
+        mStore.putInt(OPT_OUT_STATE, state);
     }
 
     /**
@@ -197,23 +193,21 @@ public class DocumentModeManager {
      * shown on home screen.
      */
     public void incrementOptOutShownCount() {
-        SharedPreferences.Editor sharedPreferencesEditor = mSharedPreferences.edit();
-        sharedPreferencesEditor.putLong(OPT_OUT_SHOWN_COUNT, getOptOutShownCount() + 1);
-        sharedPreferencesEditor.apply();
+        mStore.putLong(OPT_OUT_SHOWN_COUNT, getOptOutShownCount() + 1);
     }
 
     /**
      * @return The number of times the opt out message has been shown so far.
      */
     public long getOptOutShownCount() {
-        return mSharedPreferences.getLong(OPT_OUT_SHOWN_COUNT, 0);
+        return mStore.getLong(OPT_OUT_SHOWN_COUNT, 0);
     }
 
     /**
      * @return Whether we need to clean up old document activity tasks from Recents.
      */
     public boolean isOptOutCleanUpPending() {
-        return mSharedPreferences.getBoolean(OPT_OUT_CLEAN_UP_PENDING, false);
+        return mStore.getBoolean(OPT_OUT_CLEAN_UP_PENDING, false);
     }
 
     /**
@@ -222,9 +216,7 @@ public class DocumentModeManager {
      * @param pending Whether we need to clean up.
      */
     public void setOptOutCleanUpPending(boolean pending) {
-        SharedPreferences.Editor sharedPreferencesEditor = mSharedPreferences.edit();
-        sharedPreferencesEditor.putBoolean(OPT_OUT_CLEAN_UP_PENDING, pending);
-        sharedPreferencesEditor.apply();
+        mStore.putBoolean(OPT_OUT_CLEAN_UP_PENDING, pending);
     }
 
     private static boolean isDeviceTabbedModeByDefault() {
@@ -236,9 +228,9 @@ public class DocumentModeManager {
     }
 
     private int getOptOutState() {
-        int optOutState = mSharedPreferences.getInt(OPT_OUT_STATE, OPT_OUT_STATE_UNSET);
+        int optOutState = mStore.getInt(OPT_OUT_STATE, OPT_OUT_STATE_UNSET);
         if (optOutState == OPT_OUT_STATE_UNSET) {
-            boolean hasMigrated = mSharedPreferences.getBoolean(
+            boolean hasMigrated = mStore.getBoolean(
                     ChromePreferenceManager.MIGRATION_ON_UPGRADE_ATTEMPTED, false);
             if (isDeviceTabbedModeByDefault() && !hasMigrated) {
                 optOutState = OPTED_OUT_OF_DOCUMENT_MODE;
@@ -0,0 +1,340 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.preferences;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+
+import org.chromium.base.ApplicationState;
+import org.chromium.base.ApplicationStatus;
+import org.chromium.base.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typed access to a SharedPreferences file that coalesces writes.
+ *
+ * Every {@link SharedPreferences.Editor#apply()} re-serializes the whole file. Changes made
+ * through a PreferenceStore are kept in memory instead and written together with a single
+ * apply() {@link #COMMIT_DELAY_MS} after the first pending change, or as soon as Chrome's
+ * activities stop running. Reads made through the store see pending changes immediately, while
+ * code reading the underlying SharedPreferences directly may see them late.
+ *
+ * There is one store per SharedPreferences file. Stores can be used from any thread.
+ */
+public class PreferenceStore {
+    /** Maximum time a change is kept in memory before it is written. */
+    @VisibleForTesting
+    static final long COMMIT_DELAY_MS = 100;
+
+    /** Marks a pending removal. */
+    private static final Object REMOVED = new Object();
+
+    private static final Map<SharedPreferences, PreferenceStore> sStores =
+            new HashMap<SharedPreferences, PreferenceStore>();
+    private static Handler sHandler;
+
+    /**
+     * Batch of changes that is made pending atomically by {@link #apply()}.
+     */
+    public class Editor {
+        private final Map<String, Object> mChanges = new HashMap<String, Object>();
+
+        private Editor() {}
+
+        public Editor putBoolean(String key, boolean value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        public Editor putInt(String key, int value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        public Editor putLong(String key, long value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        /**
+         * A null value removes the preference, like {@link SharedPreferences.Editor#putString}.
+         */
+        public Editor putString(String key, String value) {
+            mChanges.put(key, value == null ? REMOVED : value);
+            return this;
+        }
+
+        /**
+         * The set is copied. A null value removes the preference.
+         */
+        public Editor putStringSet(String key, Set<String> values) {
+            mChanges.put(key, values == null ? REMOVED : new HashSet<String>(values));
+            return this;
+        }
+
+        public Editor remove(String key) {
+            mChanges.put(key, REMOVED);
+            return this;
+        }
+
+        /**
+         * Makes the changes visible to readers of the store and schedules them to be written.
+         */
+        public void apply() {
+            applyChanges(mChanges);
+            mChanges.clear();
+        }
+    }
+
+    private final SharedPreferences mSharedPreferences;
+    private final Object mLock = new Object();
+    private final Map<String, Object> mPending = new HashMap<String, Object>();
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    private boolean mFlushScheduled;
+    private int mRequestedWriteCount;
+    private int mFileWriteCount;
+
+    /**
+     * @return The store for the default preferences of the application.
+     */
+    public static PreferenceStore getDefault(Context context) {
+        return get(PreferenceManager.getDefaultSharedPreferences(
+                context.getApplicationContext()));
+    }
+
+    /**
+     * @return The store for the private preferences file with the given name.
+     */
+    public static PreferenceStore forDomain(Context context, String name) {
+        return get(context.getSharedPreferences(name, Context.MODE_PRIVATE));
+    }
+
+    /**
+     * @return The store that wraps |sharedPreferences|.
+     */
+    public static PreferenceStore get(SharedPreferences sharedPreferences) {
+        synchronized (sStores) {
+            PreferenceStore store = sStores.get(sharedPreferences);
+            if (store == null) {
+                if (sHandler == null) initializeHandler();
+                store = new PreferenceStore(sharedPreferences);
+                sStores.put(sharedPreferences, store);
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Writes the pending changes of all stores.
+     */
+    public static void flushAll() {
+        List<PreferenceStore> stores;
+        synchronized (sStores) {
+            stores = new ArrayList<PreferenceStore>(sStores.values());
+        }
+        for (PreferenceStore store : stores) store.flush();
+    }
+
+    private static void initializeHandler() {
+        sHandler = new Handler(Looper.getMainLooper());
+        sHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                ApplicationStatus.registerApplicationStateListener(
+                        new ApplicationStatus.ApplicationStateListener() {
+                            @Override
+                            public void onApplicationStateChange(int newState) {
+                                if (newState != ApplicationState.HAS_RUNNING_ACTIVITIES) {
+                                    flushAll();
+                                }
+                            }
+                        });
+            }
+        });
+    }
+
+    private PreferenceStore(SharedPreferences sharedPreferences) {
+        mSharedPreferences = sharedPreferences;
+    }
+
+    /**
+     * @return The underlying preferences. Reads from them may not reflect pending changes.
+     */
+    public SharedPreferences getSharedPreferences() {
+        return mSharedPreferences;
+    }
+
+    public boolean contains(String key) {
+        synchronized (mLock) {
+            Object value = mPending.get(key);
+            if (value != null) return value != REMOVED;
+        }
+        return mSharedPreferences.contains(key);
+    }
+
+    public boolean getBoolean(String key, boolean defValue) {
+        synchronized (mLock) {
+            Object value = mPending.get(key);
+            if (value == REMOVED) return defValue;
+            if (value != null) return (Boolean) value;
+        }
+        return mSharedPreferences.getBoolean(key, defValue);
+    }
+
+    public int getInt(String key, int defValue) {
+        synchronized (mLock) {
+            Object value = mPending.get(key);
+            if (value == REMOVED) return defValue;
+            if (value != null) return (Integer) value;
+        }
+        return mSharedPreferences.getInt(key, defValue);
+    }
+
+    public long getLong(String key, long defValue) {
+        synchronized (mLock) {
+            Object value = mPending.get(key);
+            if (value == REMOVED) return defValue;
+            if (value != null) return (Long) value;
+        }
+        return mSharedPreferences.getLong(key, defValue);
+    }
+
+    public String getString(String key, String defValue) {
+        synchronized (mLock) {
+            Object value = mPending.get(key);
+            if (value == REMOVED) return defValue;
+            if (value != null) return (String) value;
+        }
+        return mSharedPreferences.getString(key, defValue);
+    }
+
+    /**
+     * Like {@link SharedPreferences#getStringSet}, the returned set must not be modified.
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> getStringSet(String key, Set<String> defValues) {
+        synchronized (mLock) {
+            Object value = mPending.get(key);
+            if (value == REMOVED) return defValues;
+            if (value != null) return (Set<String>) value;
+        }
+        return mSharedPreferences.getStringSet(key, defValues);
+    }
+
+    /**
+     * @return An editor whose changes are committed together.
+     */
+    public Editor edit() {
+        return new Editor();
+    }
+
+    public void putBoolean(String key, boolean value) {
+        edit().putBoolean(key, value).apply();
+    }
+
+    public void putInt(String key, int value) {
+        edit().putInt(key, value).apply();
+    }
+
+    public void putLong(String key, long value) {
+        edit().putLong(key, value).apply();
+    }
+
+    public void putString(String key, String value) {
+        edit().putString(key, value).apply();
+    }
+
+    public void putStringSet(String key, Set<String> values) {
+        edit().putStringSet(key, values).apply();
+    }
+
+    public void remove(String key) {
+        edit().remove(key).apply();
+    }
+
+    /**
+     * Writes the pending changes now, with a single apply().
+     */
+    public void flush() {
+        synchronized (mLock) {
+            if (mFlushScheduled) {
+                sHandler.removeCallbacks(mFlushRunnable);
+                mFlushScheduled = false;
+            }
+            if (mPending.isEmpty()) return;
+
+            SharedPreferences.Editor editor = mSharedPreferences.edit();
+            for (Map.Entry<String, Object> entry : mPending.entrySet()) {
+                putValue(editor, entry.getKey(), entry.getValue());
+            }
+            // apply() updates the in-memory state of mSharedPreferences synchronously, so readers
+            // never observe the old value once mPending is cleared.
+            editor.apply();
+            mPending.clear();
+            mFileWriteCount++;
+        }
+    }
+
+    /**
+     * @return Number of file writes saved by coalescing changes, for instrumentation.
+     */
+    public int getWritesAvoidedCount() {
+        synchronized (mLock) {
+            return mRequestedWriteCount - mFileWriteCount - (mPending.isEmpty() ? 0 : 1);
+        }
+    }
+
+    /**
+     * @return Number of times the preferences file was written by this store.
+     */
+    public int getFileWriteCount() {
+        synchronized (mLock) {
+            return mFileWriteCount;
+        }
+    }
+
+    private void applyChanges(Map<String, Object> changes) {
+        if (changes.isEmpty()) return;
+        synchronized (mLock) {
+            mPending.putAll(changes);
+            mRequestedWriteCount++;
+            if (!mFlushScheduled) {
+                mFlushScheduled = true;
+                sHandler.postDelayed(mFlushRunnable, COMMIT_DELAY_MS);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putValue(SharedPreferences.Editor editor, String key, Object value) {
+        if (value == REMOVED) {
+            editor.remove(key);
+        } else if (value instanceof Boolean) {
+            editor.putBoolean(key, (Boolean) value);
+        } else if (value instanceof Integer) {
+            editor.putInt(key, (Integer) value);
+        } else if (value instanceof Long) {
+            editor.putLong(key, (Long) value);
+        } else if (value instanceof String) {
+            editor.putString(key, (String) value);
+        } else {
+            editor.putStringSet(key, (Set<String>) value);
+        }
+    }
+}
@@ -7,6 +7,7 @@ package org.chromium.chrome.browser.preferences.privacy;
 import android.app.Dialog;
 import android.app.DialogFragment;
 import android.app.ProgressDialog;
+import android.content.Context;
 import android.content.DialogInterface;
 import android.content.res.Resources;
 import android.os.Bundle;
@@ -24,7 +25,11 @@ import android.widget.Button;
 import android.widget.CheckedTextView;
 import android.widget.TextView;
 
+import org.chromium.base.ApplicationStatus;
 import org.chromium.chrome.R;
+import org.chromium.chrome.browser.ntp.MostVisitedTileCache;
+import org.chromium.chrome.browser.omnibox.AnswersImage;
+import org.chromium.chrome.browser.omnibox.ZeroSuggestCache;
 import org.chromium.chrome.browser.preferences.PrefServiceBridge;
 import org.chromium.chrome.browser.preferences.Preferences;
 import org.chromium.chrome.browser.signin.AccountManagementFragment;
@@ -119,6 +124,16 @@ public class ClearBrowsingDataDialogFragment extends DialogFragment
     private EnumSet<DialogOption> mSelectedOptions;
 
     protected final void clearBrowsingData(EnumSet<DialogOption> selectedOptions) {
+        // The activity is gone by the time ClearSyncDataDialogFragment clears browsing data.
+        Context context = ApplicationStatus.getApplicationContext();
+        if (selectedOptions.contains(DialogOption.CLEAR_HISTORY)) {
+            MostVisitedTileCache.clear(context);
+            ZeroSuggestCache.clear(context);
+        }
+        if (selectedOptions.contains(DialogOption.CLEAR_HISTORY)
+                || selectedOptions.contains(DialogOption.CLEAR_CACHE)) {
+            AnswersImage.clearCache();
+        }
         PrefServiceBridge.getInstance().clearBrowsingData(this,
                 selectedOptions.contains(DialogOption.CLEAR_HISTORY),
                 selectedOptions.contains(DialogOption.CLEAR_CACHE),
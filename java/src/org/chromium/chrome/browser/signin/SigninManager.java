@@ -26,6 +26,8 @@ import org.chromium.base.annotations.CalledByNative;
 import org.chromium.chrome.R;
 import org.chromium.chrome.browser.childaccounts.ChildAccountService;
 import org.chromium.chrome.browser.notifications.GoogleServicesNotificationController;
+import org.chromium.chrome.browser.ntp.MostVisitedTileCache;
+import org.chromium.chrome.browser.omnibox.ZeroSuggestCache;
 import org.chromium.chrome.browser.sync.ProfileSyncService;
 import org.chromium.chrome.browser.sync.SyncController;
 import org.chromium.sync.AndroidSyncSettings;
@@ -445,6 +447,8 @@ public class SigninManager {
         ChromeSigninController.get(mContext).clearSignedInUser();
         ProfileSyncService.get(mContext).signOut();
         nativeSignOut(mNativeSigninManagerAndroid);
+        ZeroSuggestCache.clear(mContext);
+        MostVisitedTileCache.clear(mContext);
 
         if (wipeData) {
             wipeProfileData(activity);
@@ -63,7 +63,7 @@ public class AutoSigninSnackbarController
                 AutoSigninSnackbarController.this.dismissAutoSigninSnackbar();
             }
         };
-        mTab.addObserver(mTabObserver);
+        mTab.addObserver(mTabObserver, TabObserver.EVENT_NONE);
     }
 
     /**
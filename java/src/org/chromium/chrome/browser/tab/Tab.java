@@ -182,6 +182,10 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
     /** A list of Tab observers.  These are used to broadcast Tab events to listeners. */
     private final ObserverList<TabObserver> mObservers = new ObserverList<TabObserver>();
 
+    /** Coalesces and times the high frequency events sent to {@link #mObservers}. */
+    private final TabObserverDispatcher mObserverDispatcher =
+            new TabObserverDispatcher(this, mObservers);
+
     /**
      * A list of {@link ContentViewCore} overlay objects that are managed by external components but
      * need to be sized and rendered along side this {@link Tab}s content.
@@ -408,17 +412,17 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
 
         @Override
         public void onLoadStarted() {
-            for (TabObserver observer : mObservers) observer.onLoadStarted(Tab.this);
+            mObserverDispatcher.onLoadStarted();
         }
 
         @Override
         public void onLoadStopped() {
-            for (TabObserver observer : mObservers) observer.onLoadStopped(Tab.this);
+            mObserverDispatcher.onLoadStopped();
         }
 
         @Override
         public void onUpdateUrl(String url) {
-            for (TabObserver observer : mObservers) observer.onUpdateUrl(Tab.this, url);
+            mObserverDispatcher.onUpdateUrl(url);
         }
 
         @Override
@@ -451,6 +455,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
                 mFullscreenManager.setPersistentFullscreenMode(enableFullscreen);
             }
 
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) {
                 observer.onToggleFullscreenMode(Tab.this, enableFullscreen);
             }
@@ -463,18 +468,19 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
                 updateTitle();
             }
             if ((flags & InvalidateTypes.URL) != 0) {
-                for (TabObserver observer : mObservers) observer.onUrlUpdated(Tab.this);
+                mObserverDispatcher.onUrlUpdated();
             }
         }
 
         @Override
         public void visibleSSLStateChanged() {
-            for (TabObserver observer : mObservers) observer.onSSLStateUpdated(Tab.this);
+            mObserverDispatcher.onSSLStateUpdated();
         }
 
         @Override
         public void webContentsCreated(WebContents sourceWebContents, long openerRenderFrameId,
                 String frameName, String targetUrl, WebContents newWebContents) {
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) {
                 observer.webContentsCreated(Tab.this, sourceWebContents, openerRenderFrameId,
                         frameName, targetUrl, newWebContents);
@@ -524,6 +530,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
 
         @Override
         public void onContextualActionBarShown() {
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) {
                 observer.onContextualActionBarVisibilityChanged(Tab.this, true);
             }
@@ -531,6 +538,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
 
         @Override
         public void onContextualActionBarHidden() {
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) {
                 observer.onContextualActionBarVisibilityChanged(Tab.this, false);
             }
@@ -559,6 +567,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
         @Override
         public void buildContextMenu(ContextMenu menu, Context context, ContextMenuParams params) {
             super.buildContextMenu(menu, context, params);
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) observer.onContextMenuShown(Tab.this, menu);
         }
     }
@@ -634,6 +643,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
         @Override
         public void didFailLoad(boolean isProvisionalLoad, boolean isMainFrame, int errorCode,
                 String description, String failingUrl, boolean wasIgnoredByHandler) {
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) {
                 observer.onDidFailLoad(Tab.this, isProvisionalLoad, isMainFrame, errorCode,
                         description, failingUrl);
@@ -648,6 +658,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
                 boolean isIframeSrcdoc) {
             if (isMainFrame) didStartPageLoad(validatedUrl, isErrorPage);
 
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) {
                 observer.onDidStartProvisionalLoadForFrame(Tab.this, frameId, parentFrameId,
                         isMainFrame, validatedUrl, isErrorPage, isIframeSrcdoc);
@@ -667,6 +678,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
                 updateTitle();
             }
 
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) {
                 observer.onDidCommitProvisionalLoadForFrame(
                         Tab.this, frameId, isMainFrame, url, transitionType);
@@ -683,6 +695,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
                 fullscreenManager.setPersistentFullscreenMode(false);
             }
 
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) {
                 observer.onDidNavigateMainFrame(
                         Tab.this, url, baseUrl, isNavigationToDifferentPage,
@@ -696,6 +709,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
 
         @Override
         public void didFirstVisuallyNonEmptyPaint() {
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) {
                 observer.didFirstVisuallyNonEmptyPaint(Tab.this);
             }
@@ -714,6 +728,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
             color |= 0xFF000000;
             if (mThemeColor == color) return;
             mThemeColor = color;
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) {
                 observer.onDidChangeThemeColor(Tab.this, mThemeColor);
             }
@@ -725,6 +740,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
             showRenderedPage();
             didChangeThemeColor(mDefaultThemeColor);
 
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) {
                 observer.onDidAttachInterstitialPage(Tab.this);
             }
@@ -738,6 +754,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
             getInfoBarContainer().setVisibility(View.VISIBLE);
             didChangeThemeColor(getWebContents().getThemeColor(mDefaultThemeColor));
 
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) {
                 observer.onDidDetachInterstitialPage(Tab.this);
             }
@@ -748,6 +765,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
 
         @Override
         public void didStartNavigationToPendingEntry(String url) {
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) {
                 observer.onDidStartNavigationToPendingEntry(Tab.this, url);
             }
@@ -865,7 +883,19 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
      * @param observer The {@link TabObserver} to add.
      */
     public void addObserver(TabObserver observer) {
+        addObserver(observer, TabObserver.EVENT_ALL);
+    }
+
+    /**
+     * Adds a {@link TabObserver} that is only notified of the high frequency events in
+     * |eventMask|. Observers that don't care about e.g. load progress should use this so they are
+     * not called for every update.
+     * @param observer The {@link TabObserver} to add.
+     * @param eventMask Combination of the TabObserver.EVENT_* masks.
+     */
+    public void addObserver(TabObserver observer, int eventMask) {
         mObservers.addObserver(observer);
+        mObserverDispatcher.setEventMask(observer, eventMask);
     }
 
     /**
@@ -874,6 +904,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
      */
     public void removeObserver(TabObserver observer) {
         mObservers.removeObserver(observer);
+        mObserverDispatcher.removeObserver(observer);
     }
 
     /**
@@ -952,6 +983,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
                     params.getIsRendererInitiated(), params.getShouldReplaceCurrentEntry(),
                     params.getIntentReceivedTimestamp(), params.getHasUserGesture());
 
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) {
                 observer.onLoadUrl(this, params, loadType);
             }
@@ -1260,9 +1292,11 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
      * @return An {@link ObserverList.RewindableIterator} instance that points to all of
      *         the current {@link TabObserver}s on this class.  Note that calling
      *         {@link java.util.Iterator#remove()} will throw an
-     *         {@link UnsupportedOperationException}.
+     *         {@link UnsupportedOperationException}.  Coalesced events that are still pending
+     *         are dispatched first, so observers see them before the event about to be sent.
      */
     protected ObserverList.RewindableIterator<TabObserver> getTabObservers() {
+        mObserverDispatcher.flushPendingEvents();
         return mObservers.rewindableIterator();
     }
 
@@ -1358,6 +1392,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
             // may use it for logging.
             mTimestampMillis = System.currentTimeMillis();
 
+            mObserverDispatcher.flushPendingEvents();
             for (TabObserver observer : mObservers) observer.onShown(this);
         } finally {
             TraceEvent.end("Tab.show");
@@ -1392,6 +1427,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
 
         hideInternal();
 
+        mObserverDispatcher.flushPendingEvents();
         for (TabObserver observer : mObservers) observer.onHidden(this);
     }
 
@@ -1413,6 +1449,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
         // Notifying of theme color change before content change because some of
         // the observers depend on the theme information being correct in
         // onContentChanged().
+        mObserverDispatcher.flushPendingEvents();
         for (TabObserver observer : mObservers) {
             observer.onDidChangeThemeColor(this, mDefaultThemeColor);
         }
@@ -1441,6 +1478,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
         if (mNativePage == null) return;
         NativePage previousNativePage = mNativePage;
         mNativePage = null;
+        mObserverDispatcher.flushPendingEvents();
         for (TabObserver observer : mObservers) observer.onContentChanged(this);
         destroyNativePageInternal(previousNativePage);
     }
@@ -1566,6 +1604,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
         assert !mOverlayContentViewCores.contains(content);
         mOverlayContentViewCores.add(content);
         if (attachLayer) nativeAttachOverlayContentViewCore(mNativeTabAndroid, content, visible);
+        mObserverDispatcher.flushPendingEvents();
         for (TabObserver observer : mObservers) {
             observer.onOverlayContentViewCoreAdded(this, content);
         }
@@ -1588,6 +1627,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
     public void detachOverlayContentViewCore(ContentViewCore content) {
         if (content == null) return;
 
+        mObserverDispatcher.flushPendingEvents();
         for (TabObserver observer : mObservers) {
             observer.onOverlayContentViewCoreRemoved(this, content);
         }
@@ -1612,6 +1652,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
 
         clearHungRendererState();
 
+        mObserverDispatcher.flushPendingEvents();
         for (TabObserver observer : mObservers) observer.onPageLoadStarted(this, validatedUrl);
     }
 
@@ -1631,6 +1672,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
 
         if (mTabUma != null) mTabUma.onLoadFinished();
 
+        mObserverDispatcher.flushPendingEvents();
         for (TabObserver observer : mObservers) observer.onPageLoadFinished(this);
     }
 
@@ -1642,6 +1684,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
         mIsLoading = false;
         mIsBeingRestored = false;
         if (mTabUma != null) mTabUma.onLoadFailed(errorCode);
+        mObserverDispatcher.flushPendingEvents();
         for (TabObserver observer : mObservers) observer.onPageLoadFailed(this, errorCode);
     }
 
@@ -1758,6 +1801,8 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
             // The InfoBarContainer needs to be created after the ContentView has been natively
             // initialized.
             mInfoBarContainer = new InfoBarContainer(mContext, getId(), mContentViewParent, this);
+            // Pages often show several infobars at once, let them settle together.
+            mInfoBarContainer.setBatchesTransitions(true);
         } else {
             mInfoBarContainer.onParentViewChanged(getId(), mContentViewParent);
         }
@@ -1766,6 +1811,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
         mSwipeRefreshHandler = new SwipeRefreshHandler(mContext);
         mSwipeRefreshHandler.setContentViewCore(mContentViewCore);
 
+        mObserverDispatcher.flushPendingEvents();
         for (TabObserver observer : mObservers) observer.onContentChanged(this);
 
         // For browser tabs, we want to set accessibility focus to the page
@@ -1841,8 +1887,10 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
 
         if (mTabUma != null) mTabUma.onDestroy();
 
+        mObserverDispatcher.flushPendingEvents();
         for (TabObserver observer : mObservers) observer.onDestroyed(this);
         mObservers.clear();
+        mObserverDispatcher.destroy();
 
         NativePage currentNativePage = mNativePage;
         mNativePage = null;
@@ -1942,10 +1990,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
     }
 
     protected void notifyPageTitleChanged() {
-        RewindableIterator<TabObserver> observers = getTabObservers();
-        while (observers.hasNext()) {
-            observers.next().onTitleUpdated(this);
-        }
+        mObserverDispatcher.onTitleUpdated();
     }
 
     /**
@@ -1953,21 +1998,15 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
      * @param progress The current percentage of progress.
      */
     protected void notifyLoadProgress(int progress) {
-        for (TabObserver observer : mObservers) observer.onLoadProgressChanged(Tab.this, progress);
+        mObserverDispatcher.onLoadProgressChanged(progress);
     }
 
     protected void notifyFaviconChanged() {
-        RewindableIterator<TabObserver> observers = getTabObservers();
-        while (observers.hasNext()) {
-            observers.next().onFaviconUpdated(this);
-        }
+        mObserverDispatcher.onFaviconUpdated();
     }
 
     private void notifyPageUrlChanged() {
-        RewindableIterator<TabObserver> observers = getTabObservers();
-        while (observers.hasNext()) {
-            observers.next().onUrlUpdated(this);
-        }
+        mObserverDispatcher.onUrlUpdated();
     }
 
     /**
@@ -2124,6 +2163,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
     public void setClosing(boolean closing) {
         mIsClosing = closing;
 
+        mObserverDispatcher.flushPendingEvents();
         for (TabObserver observer : mObservers) observer.onClosingStateChanged(this, closing);
     }
 
@@ -2191,6 +2231,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
      * @param color The current for the background.
      */
     protected void onBackgroundColorChanged(int color) {
+        mObserverDispatcher.flushPendingEvents();
         for (TabObserver observer : mObservers) observer.onBackgroundColorChanged(this, color);
     }
 
@@ -2262,6 +2303,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
      */
     @CalledByNative
     private void onWebContentsInstantSupportDisabled() {
+        mObserverDispatcher.flushPendingEvents();
         for (TabObserver observer : mObservers) observer.onWebContentsInstantSupportDisabled();
     }
 
@@ -2308,7 +2350,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
 
         if (!needUpdate) return;
 
-        for (TabObserver observer : mObservers) observer.onFaviconUpdated(this);
+        notifyFaviconChanged();
     }
     /**
      * Called when the navigation entry containing the history item changed,
@@ -2384,6 +2426,7 @@ public class Tab implements ViewGroup.OnHierarchyChangeListener,
         destroyNativePageInternal(previousNativePage);
         mWebContentsObserver.didChangeThemeColor(
                 getWebContents().getThemeColor(mDefaultThemeColor));
+        mObserverDispatcher.flushPendingEvents();
         for (TabObserver observer : mObservers) {
             observer.onWebContentsSwapped(this, didStartLoad, didFinishLoad);
         }
@@ -15,6 +15,25 @@ import org.chromium.content_public.browser.WebContents;
  * An observer that is notified of changes to a {@link Tab} object.
  */
 public interface TabObserver {
+    // Masks of the high frequency events an observer can opt out of when it is added with
+    // Tab#addObserver(TabObserver, int). Other events are always dispatched.
+
+    /** {@link #onLoadProgressChanged}. */
+    int EVENT_LOAD_PROGRESS = 1 << 0;
+    /** {@link #onTitleUpdated}. */
+    int EVENT_TITLE = 1 << 1;
+    /** {@link #onFaviconUpdated}. */
+    int EVENT_FAVICON = 1 << 2;
+    /** {@link #onUpdateUrl} and {@link #onUrlUpdated}. */
+    int EVENT_URL = 1 << 3;
+    /** {@link #onSSLStateUpdated}. */
+    int EVENT_SSL_STATE = 1 << 4;
+    /** {@link #onLoadStarted} and {@link #onLoadStopped}. */
+    int EVENT_LOAD_STATE = 1 << 5;
+    /** None of the high frequency events. */
+    int EVENT_NONE = 0;
+    /** All events, the default. */
+    int EVENT_ALL = ~0;
 
     /**
      * Called when a {@link Tab} is shown.
@@ -0,0 +1,259 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.tab;
+
+import android.view.Choreographer;
+
+import org.chromium.base.ObserverList;
+import org.chromium.base.TraceEvent;
+import org.chromium.base.VisibleForTesting;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dispatches the high frequency {@link TabObserver} events of a {@link Tab}.
+ *
+ * Load progress, title and favicon updates arrive many times per second while a page loads, so
+ * they are coalesced and dispatched once per frame, with the latest progress. Pending coalesced
+ * events are dispatched before any other event sent through this class so observers see events in
+ * order; {@link Tab} flushes them before every event it dispatches directly too. Observers only
+ * receive the high frequency events included in the mask they were added with, see
+ * {@link TabObserver#EVENT_ALL}.
+ *
+ * The time spent in every observer is accumulated and, when tracing is enabled, every call is
+ * wrapped in a trace event named after the observer class, so slow observers show up in traces.
+ * Must only be used on the UI thread.
+ */
+class TabObserverDispatcher {
+    private static final String TRACE_PREFIX = "TabObserver:";
+
+    // Callbacks dispatched by this class.
+    private static final int CALLBACK_LOAD_PROGRESS_CHANGED = 0;
+    private static final int CALLBACK_TITLE_UPDATED = 1;
+    private static final int CALLBACK_FAVICON_UPDATED = 2;
+    private static final int CALLBACK_UPDATE_URL = 3;
+    private static final int CALLBACK_URL_UPDATED = 4;
+    private static final int CALLBACK_SSL_STATE_UPDATED = 5;
+    private static final int CALLBACK_LOAD_STARTED = 6;
+    private static final int CALLBACK_LOAD_STOPPED = 7;
+
+    /**
+     * Event mask and accumulated dispatch time of one observer.
+     */
+    private static class ObserverInfo {
+        final String mTraceName;
+        int mEventMask = TabObserver.EVENT_ALL;
+        long mDispatchTimeNs;
+        int mDispatchCount;
+
+        ObserverInfo(TabObserver observer) {
+            mTraceName = TRACE_PREFIX + observer.getClass().getName();
+        }
+    }
+
+    private final Tab mTab;
+    private final ObserverList<TabObserver> mObservers;
+    private final Map<TabObserver, ObserverInfo> mObserverInfos =
+            new HashMap<TabObserver, ObserverInfo>();
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mFrameCallbackPosted = false;
+            flushPendingEvents();
+        }
+    };
+
+    private int mPendingEvents;
+    private int mPendingProgress;
+    private boolean mFrameCallbackPosted;
+
+    /**
+     * @param tab The tab whose events are dispatched.
+     * @param observers The observers of |tab|.
+     */
+    TabObserverDispatcher(Tab tab, ObserverList<TabObserver> observers) {
+        mTab = tab;
+        mObservers = observers;
+    }
+
+    /**
+     * Sets the high frequency events |observer| receives.
+     * @param eventMask Combination of the TabObserver.EVENT_* masks.
+     */
+    void setEventMask(TabObserver observer, int eventMask) {
+        getObserverInfo(observer).mEventMask = eventMask;
+    }
+
+    /**
+     * Forgets the state kept for |observer|.
+     */
+    void removeObserver(TabObserver observer) {
+        mObserverInfos.remove(observer);
+    }
+
+    /**
+     * Drops pending events and the state of all observers.
+     */
+    void destroy() {
+        cancelFrameCallback();
+        mPendingEvents = 0;
+        mObserverInfos.clear();
+    }
+
+    void onLoadProgressChanged(int progress) {
+        mPendingProgress = progress;
+        schedule(TabObserver.EVENT_LOAD_PROGRESS);
+    }
+
+    void onTitleUpdated() {
+        schedule(TabObserver.EVENT_TITLE);
+    }
+
+    void onFaviconUpdated() {
+        schedule(TabObserver.EVENT_FAVICON);
+    }
+
+    void onUpdateUrl(String url) {
+        flushPendingEvents();
+        dispatch(TabObserver.EVENT_URL, CALLBACK_UPDATE_URL, url);
+    }
+
+    void onUrlUpdated() {
+        flushPendingEvents();
+        dispatch(TabObserver.EVENT_URL, CALLBACK_URL_UPDATED, null);
+    }
+
+    void onSSLStateUpdated() {
+        flushPendingEvents();
+        dispatch(TabObserver.EVENT_SSL_STATE, CALLBACK_SSL_STATE_UPDATED, null);
+    }
+
+    void onLoadStarted() {
+        flushPendingEvents();
+        dispatch(TabObserver.EVENT_LOAD_STATE, CALLBACK_LOAD_STARTED, null);
+    }
+
+    void onLoadStopped() {
+        flushPendingEvents();
+        dispatch(TabObserver.EVENT_LOAD_STATE, CALLBACK_LOAD_STOPPED, null);
+    }
+
+    /**
+     * Dispatches the coalesced events now. Called before dispatching events that observers may
+     * expect to come after them, like the end of a load.
+     */
+    void flushPendingEvents() {
+        if (mPendingEvents == 0) return;
+        cancelFrameCallback();
+        int events = mPendingEvents;
+        mPendingEvents = 0;
+        if ((events & TabObserver.EVENT_LOAD_PROGRESS) != 0) {
+            dispatch(TabObserver.EVENT_LOAD_PROGRESS, CALLBACK_LOAD_PROGRESS_CHANGED, null);
+        }
+        if ((events & TabObserver.EVENT_TITLE) != 0) {
+            dispatch(TabObserver.EVENT_TITLE, CALLBACK_TITLE_UPDATED, null);
+        }
+        if ((events & TabObserver.EVENT_FAVICON) != 0) {
+            dispatch(TabObserver.EVENT_FAVICON, CALLBACK_FAVICON_UPDATED, null);
+        }
+    }
+
+    /**
+     * @return Total time in nanoseconds spent dispatching events to |observer|.
+     */
+    @VisibleForTesting
+    long getDispatchTimeNs(TabObserver observer) {
+        ObserverInfo info = mObserverInfos.get(observer);
+        return info == null ? 0 : info.mDispatchTimeNs;
+    }
+
+    /**
+     * @return Number of events dispatched to |observer|.
+     */
+    @VisibleForTesting
+    int getDispatchCount(TabObserver observer) {
+        ObserverInfo info = mObserverInfos.get(observer);
+        return info == null ? 0 : info.mDispatchCount;
+    }
+
+    private void schedule(int event) {
+        mPendingEvents |= event;
+        if (mFrameCallbackPosted) return;
+        mFrameCallbackPosted = true;
+        postFrameCallback(mFrameCallback);
+    }
+
+    private void cancelFrameCallback() {
+        if (!mFrameCallbackPosted) return;
+        mFrameCallbackPosted = false;
+        removeFrameCallback(mFrameCallback);
+    }
+
+    @VisibleForTesting
+    protected void postFrameCallback(Choreographer.FrameCallback callback) {
+        Choreographer.getInstance().postFrameCallback(callback);
+    }
+
+    @VisibleForTesting
+    protected void removeFrameCallback(Choreographer.FrameCallback callback) {
+        Choreographer.getInstance().removeFrameCallback(callback);
+    }
+
+    private ObserverInfo getObserverInfo(TabObserver observer) {
+        ObserverInfo info = mObserverInfos.get(observer);
+        if (info == null) {
+            info = new ObserverInfo(observer);
+            mObserverInfos.put(observer, info);
+        }
+        return info;
+    }
+
+    private void dispatch(int event, int callback, String url) {
+        boolean tracing = TraceEvent.enabled();
+        for (TabObserver observer : mObservers) {
+            ObserverInfo info = getObserverInfo(observer);
+            if ((info.mEventMask & event) == 0) continue;
+
+            if (tracing) TraceEvent.begin(info.mTraceName);
+            long startNs = System.nanoTime();
+            invoke(observer, callback, url);
+            info.mDispatchTimeNs += System.nanoTime() - startNs;
+            info.mDispatchCount++;
+            if (tracing) TraceEvent.end(info.mTraceName);
+        }
+    }
+
+    private void invoke(TabObserver observer, int callback, String url) {
+        switch (callback) {
+            case CALLBACK_LOAD_PROGRESS_CHANGED:
+                observer.onLoadProgressChanged(mTab, mPendingProgress);
+                break;
+            case CALLBACK_TITLE_UPDATED:
+                observer.onTitleUpdated(mTab);
+                break;
+            case CALLBACK_FAVICON_UPDATED:
+                observer.onFaviconUpdated(mTab);
+                break;
+            case CALLBACK_UPDATE_URL:
+                observer.onUpdateUrl(mTab, url);
+                break;
+            case CALLBACK_URL_UPDATED:
+                observer.onUrlUpdated(mTab);
+                break;
+            case CALLBACK_SSL_STATE_UPDATED:
+                observer.onSSLStateUpdated(mTab);
+                break;
+            case CALLBACK_LOAD_STARTED:
+                observer.onLoadStarted(mTab);
+                break;
+            case CALLBACK_LOAD_STOPPED:
+                observer.onLoadStopped(mTab);
+                break;
+            default:
+                assert false : "Unknown callback " + callback;
+        }
+    }
+}
@@ -205,7 +205,7 @@ public class ThumbnailTabHelper {
      */
     private ThumbnailTabHelper(Tab tab) {
         mTab = tab;
-        mTab.addObserver(mTabObserver);
+        mTab.addObserver(mTabObserver, TabObserver.EVENT_NONE);
 
         mHandler = new Handler();
 
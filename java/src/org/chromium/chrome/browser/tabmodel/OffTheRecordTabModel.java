@@ -21,7 +21,7 @@ import org.chromium.chrome.browser.tab.Tab;
  * no Tabs remain, the native model will be destroyed and only rebuilt when a new incognito Tab
  * is created.
  */
-public class OffTheRecordTabModel implements TabModel {
+public class OffTheRecordTabModel implements TabModel, TabIdIndex.Owner {
     /** Creates TabModels for use in OffTheRecordModel. */
     public interface OffTheRecordTabModelDelegate {
         /** Creates a fully working TabModel to delegate calls to. */
@@ -149,6 +149,11 @@ public class OffTheRecordTabModel implements TabModel {
         return mDelegateModel.indexOf(tab);
     }
 
+    @Override
+    public int getTabIndexById(int tabId) {
+        return TabModelUtils.getTabIndexById(mDelegateModel, tabId);
+    }
+
     @Override
     public int index() {
         return mDelegateModel.index();
@@ -0,0 +1,156 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.tabmodel;
+
+import org.chromium.base.VisibleForTesting;
+import org.chromium.chrome.browser.tab.Tab;
+
+import java.util.Arrays;
+
+/**
+ * Maps tab ids to their index in a list of tabs in constant time.
+ *
+ * The owner of the list calls {@link #invalidate()} whenever tabs are added, removed or moved, and
+ * the index is rebuilt from the list on the next lookup. Lookups happen far more often than
+ * changes to the list (e.g. every frame from the compositor), so rebuilding lazily keeps lookups
+ * O(1) amortized without having to patch the indices of all following tabs on every change.
+ *
+ * The ids are kept in an open addressing hash table of primitive ints. In debug builds every
+ * lookup is checked against the list.
+ */
+public class TabIdIndex {
+    /**
+     * Provides the ids of the indexed list, in order.
+     */
+    public interface IdSource {
+        /**
+         * @return Number of tabs in the list.
+         */
+        int getCount();
+
+        /**
+         * @return Id of the tab at |index|.
+         */
+        int getIdAt(int index);
+    }
+
+    /**
+     * Implemented by {@link TabList}s that keep a {@link TabIdIndex}, so that
+     * {@link TabModelUtils#getTabIndexById} can use it instead of scanning the list.
+     */
+    public interface Owner {
+        /**
+         * @return Index of the tab with the given id, or {@link TabList#INVALID_TAB_INDEX}.
+         */
+        int getTabIndexById(int tabId);
+    }
+
+    private static final int EMPTY_KEY = Tab.INVALID_TAB_ID;
+    private static final int MIN_CAPACITY = 16;
+
+    private final IdSource mSource;
+    private int[] mKeys = new int[0];
+    private int[] mIndices = new int[0];
+    private boolean mValid;
+
+    /**
+     * @param source List of ids to index.
+     */
+    public TabIdIndex(IdSource source) {
+        mSource = source;
+    }
+
+    /**
+     * Must be called whenever the indexed list changes.
+     */
+    public void invalidate() {
+        mValid = false;
+    }
+
+    /**
+     * @return Index of the first tab with the given id, or {@link TabList#INVALID_TAB_INDEX}.
+     */
+    public int indexOf(int tabId) {
+        if (!mValid) rebuild();
+        int index = lookup(tabId);
+        assert isConsistent(tabId, index) : "Stale index for tab " + tabId;
+        return index;
+    }
+
+    private int lookup(int tabId) {
+        if (tabId == EMPTY_KEY || mKeys.length == 0) return TabList.INVALID_TAB_INDEX;
+        int mask = mKeys.length - 1;
+        for (int slot = hash(tabId) & mask; ; slot = (slot + 1) & mask) {
+            int key = mKeys[slot];
+            if (key == tabId) return mIndices[slot];
+            if (key == EMPTY_KEY) return TabList.INVALID_TAB_INDEX;
+        }
+    }
+
+    private void rebuild() {
+        int count = mSource.getCount();
+        // Keep the load factor at or below 1/2 so probe sequences stay short.
+        int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(count, 1)) << 2);
+        if (mKeys.length != capacity) {
+            mKeys = new int[capacity];
+            mIndices = new int[capacity];
+        }
+        Arrays.fill(mKeys, EMPTY_KEY);
+
+        int mask = capacity - 1;
+        for (int i = 0; i < count; i++) {
+            int tabId = mSource.getIdAt(i);
+            if (tabId == EMPTY_KEY) continue;
+            int slot = hash(tabId) & mask;
+            while (mKeys[slot] != EMPTY_KEY && mKeys[slot] != tabId) slot = (slot + 1) & mask;
+            // Like a linear scan, duplicated ids resolve to their first occurrence.
+            if (mKeys[slot] == tabId) continue;
+            mKeys[slot] = tabId;
+            mIndices[slot] = i;
+        }
+        mValid = true;
+        assert isConsistent();
+    }
+
+    private static int hash(int tabId) {
+        int hash = tabId * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Checks a single lookup against the list. O(1) for hits, O(n) for misses.
+     */
+    private boolean isConsistent(int tabId, int index) {
+        if (index == TabList.INVALID_TAB_INDEX) {
+            return tabId == EMPTY_KEY || scan(tabId) == TabList.INVALID_TAB_INDEX;
+        }
+        return index < mSource.getCount() && mSource.getIdAt(index) == tabId;
+    }
+
+    /**
+     * @return Whether every id of the list maps to the index of its first occurrence.
+     */
+    @VisibleForTesting
+    boolean isConsistent() {
+        if (!mValid) return true;
+        int count = mSource.getCount();
+        for (int i = 0; i < count; i++) {
+            int tabId = mSource.getIdAt(i);
+            if (tabId == EMPTY_KEY) continue;
+            int index = lookup(tabId);
+            if (index == TabList.INVALID_TAB_INDEX || index > i) return false;
+            if (mSource.getIdAt(index) != tabId) return false;
+        }
+        return true;
+    }
+
+    private int scan(int tabId) {
+        int count = mSource.getCount();
+        for (int i = 0; i < count; i++) {
+            if (mSource.getIdAt(i) == tabId) return i;
+        }
+        return TabList.INVALID_TAB_INDEX;
+    }
+}
@@ -16,7 +16,7 @@ import java.util.List;
 /**
  * This is the default implementation of the {@link TabModel} interface.
  */
-public abstract class TabModelBase extends TabModelJniBridge {
+public abstract class TabModelBase extends TabModelJniBridge implements TabIdIndex.Owner {
     private static final String TAG = "TabModelBase";
 
     /**
@@ -27,6 +27,21 @@ public abstract class TabModelBase extends TabModelJniBridge {
      */
     private final List<Tab> mTabs = new ArrayList<Tab>();
 
+    /**
+     * Index of {@link #mTabs} by tab id. Must be invalidated whenever {@link #mTabs} changes.
+     */
+    private final TabIdIndex mTabIdIndex = new TabIdIndex(new TabIdIndex.IdSource() {
+        @Override
+        public int getCount() {
+            return mTabs.size();
+        }
+
+        @Override
+        public int getIdAt(int index) {
+            return mTabs.get(index).getId();
+        }
+    });
+
     private final TabModelOrderController mOrderController;
 
     protected final TabModelDelegate mModelDelegate;
@@ -65,6 +80,7 @@ public abstract class TabModelBase extends TabModelJniBridge {
 
         mRewoundList.destroy();
         mTabs.clear();
+        mTabIdIndex.invalidate();
         mObservers.clear();
 
         super.destroy();
@@ -109,6 +125,7 @@ public abstract class TabModelBase extends TabModelJniBridge {
                     mIndex++;
                 }
             }
+            mTabIdIndex.invalidate();
 
             if (!isCurrentModel()) {
                 // When adding new tabs in the background, make sure we set a valid index when the
@@ -150,6 +167,7 @@ public abstract class TabModelBase extends TabModelJniBridge {
         if (curIndex < newIndex) --newIndex;
 
         mTabs.add(newIndex, tab);
+        mTabIdIndex.invalidate();
 
         if (curIndex == mIndex) {
             mIndex = newIndex;
@@ -250,6 +268,7 @@ public abstract class TabModelBase extends TabModelJniBridge {
         int insertIndex = prevIndex + 1;
         if (mIndex >= insertIndex) mIndex++;
         mTabs.add(insertIndex, tab);
+        mTabIdIndex.invalidate();
 
         boolean activeModel = mModelDelegate.getCurrentModel() == this;
 
@@ -379,9 +398,17 @@ public abstract class TabModelBase extends TabModelJniBridge {
     // Index of the given tab in the order of the tab stack.
     @Override
     public int indexOf(Tab tab) {
+        if (tab == null) return INVALID_TAB_INDEX;
+        int index = mTabIdIndex.indexOf(tab.getId());
+        if (index != INVALID_TAB_INDEX && mTabs.get(index) == tab) return index;
         return mTabs.indexOf(tab);
     }
 
+    @Override
+    public int getTabIndexById(int tabId) {
+        return mTabIdIndex.indexOf(tabId);
+    }
+
     /**
      * @return true if this is the current model according to the model selector
      */
@@ -471,6 +498,7 @@ public abstract class TabModelBase extends TabModelJniBridge {
         }
 
         mTabs.remove(tab);
+        mTabIdIndex.invalidate();
 
         boolean nextIsIncognito = nextTab == null ? false : nextTab.isIncognito();
         int nextTabId = nextTab == null ? Tab.INVALID_TAB_ID : nextTab.getId();
@@ -499,7 +527,7 @@ public abstract class TabModelBase extends TabModelJniBridge {
         tab.destroy();
     }
 
-    private class RewoundList implements TabList {
+    private class RewoundList implements TabList, TabIdIndex.Owner {
         /**
          * A list of {@link Tab}s that represents the completely rewound list (if all
          * rewindable closes were undone). If there are no possible rewindable closes this list
@@ -507,6 +535,18 @@ public abstract class TabModelBase extends TabModelJniBridge {
          */
         private final List<Tab> mRewoundTabs = new ArrayList<Tab>();
 
+        private final TabIdIndex mRewoundTabIdIndex = new TabIdIndex(new TabIdIndex.IdSource() {
+            @Override
+            public int getCount() {
+                return mRewoundTabs.size();
+            }
+
+            @Override
+            public int getIdAt(int index) {
+                return mRewoundTabs.get(index).getId();
+            }
+        });
+
         @Override
         public boolean isIncognito() {
             return TabModelBase.this.isIncognito();
@@ -549,6 +589,11 @@ public abstract class TabModelBase extends TabModelJniBridge {
             return TabModelBase.this.isClosurePending(tabId);
         }
 
+        @Override
+        public int getTabIndexById(int tabId) {
+            return mRewoundTabIdIndex.indexOf(tabId);
+        }
+
         /**
          * Resets this list to match the original {@link TabModel}.  Note that if the
          * {@link TabModel} doesn't support pending closures this model will be empty.  This should
@@ -556,6 +601,7 @@ public abstract class TabModelBase extends TabModelJniBridge {
          */
         public void resetRewoundState() {
             mRewoundTabs.clear();
+            mRewoundTabIdIndex.invalidate();
 
             if (TabModelBase.this.supportsPendingClosures()) {
                 for (int i = 0; i < TabModelBase.this.getCount(); i++) {
@@ -602,6 +648,7 @@ public abstract class TabModelBase extends TabModelJniBridge {
          */
         public void removeTab(Tab tab) {
             mRewoundTabs.remove(tab);
+            mRewoundTabIdIndex.invalidate();
         }
 
         /**
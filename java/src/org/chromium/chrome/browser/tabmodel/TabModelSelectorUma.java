@@ -9,8 +9,8 @@ import android.os.SystemClock;
 
 import org.chromium.base.ActivityState;
 import org.chromium.base.ApplicationStatus;
-import org.chromium.base.metrics.RecordHistogram;
 import org.chromium.base.metrics.RecordUserAction;
+import org.chromium.chrome.browser.metrics.HistogramAccumulator;
 
 /**
  * Centralizes UMA data collection for TabModelSelector. All calls must be made from the UI thread.
@@ -110,7 +110,7 @@ public final class TabModelSelectorUma implements ApplicationStatus.ActivityStat
      */
     private void recordUserActionDuringTabRestore(int action) {
         assert action >= 0 && action < USER_ACTION_DURING_RESTORE_MAX;
-        RecordHistogram.recordEnumeratedHistogram(
+        HistogramAccumulator.recordEnumeratedHistogram(
                 "Tab.RestoreUserPersistence", action, USER_ACTION_DURING_RESTORE_MAX);
     }
 }
@@ -67,6 +67,10 @@ public class TabModelUtils {
      *              {@link Tab} is not found
      */
     public static int getTabIndexById(TabList model, int tabId) {
+        if (model instanceof TabIdIndex.Owner) {
+            return ((TabIdIndex.Owner) model).getTabIndexById(tabId);
+        }
+
         int count = model.getCount();
 
         for (int i = 0; i < count; i++) {
@@ -11,8 +11,12 @@ import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.net.Uri;
 import android.text.TextUtils;
+import android.util.SparseArray;
 
 import org.chromium.base.ApplicationStatus;
+import org.chromium.base.ApplicationStatus.ActivityStateListener;
+import org.chromium.base.ThreadUtils;
+import org.chromium.base.VisibleForTesting;
 import org.chromium.chrome.browser.ChromeActivity;
 import org.chromium.chrome.browser.UrlConstants;
 import org.chromium.chrome.browser.document.DocumentActivity;
@@ -20,16 +24,88 @@ import org.chromium.chrome.browser.tab.Tab;
 import org.chromium.chrome.browser.tabmodel.document.DocumentTabModel.Entry;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Interfaces with the ActivityManager to identify Tabs/Tasks that are being tracked by
  * Android's Recents list.
+ *
+ * Querying Recents is an IPC to the ActivityManager, so subclasses can keep a snapshot of the
+ * tasks between calls: see {@link #queryTasksFromRecents()}. Snapshots are dropped whenever the
+ * state of one of our Activities changes and when Chrome itself launches, moves or finishes a
+ * task; code that changes the tasks in Recents directly must call
+ * {@link #invalidateTaskSnapshots()}.
  */
 public abstract class ActivityDelegate {
+    /**
+     * A Chrome task listed in Android's Recents.
+     */
+    protected static class RecentsTask {
+        /** ID of the Tab, {@link Tab#INVALID_TAB_ID} if the task isn't a document. */
+        public final int tabId;
+        public final boolean isIncognito;
+        public final String initialUrl;
+        /** Subclass specific handle used to act on the task. */
+        public final Object handle;
+
+        public RecentsTask(int tabId, boolean isIncognito, String initialUrl, Object handle) {
+            this.tabId = tabId;
+            this.isIncognito = isIncognito;
+            this.initialUrl = initialUrl;
+            this.handle = handle;
+        }
+    }
+
+    /**
+     * The tasks listed in Recents at some point, indexed by tab ID.
+     */
+    private static class TaskSnapshot {
+        final int mGeneration;
+        final List<RecentsTask> mTasks;
+        final SparseArray<RecentsTask> mRegularTasks = new SparseArray<RecentsTask>();
+        final SparseArray<RecentsTask> mIncognitoTasks = new SparseArray<RecentsTask>();
+        boolean mHasIncognitoTask;
+
+        TaskSnapshot(int generation, List<RecentsTask> tasks) {
+            mGeneration = generation;
+            mTasks = tasks;
+            for (RecentsTask task : tasks) {
+                if (task.isIncognito) mHasIncognitoTask = true;
+                if (task.tabId == Tab.INVALID_TAB_ID) continue;
+                SparseArray<RecentsTask> index = task.isIncognito ? mIncognitoTasks : mRegularTasks;
+                // Keep the most recent task if several have the same tab ID.
+                if (index.get(task.tabId) == null) index.put(task.tabId, task);
+            }
+        }
+    }
+
+    // Incremented whenever the tasks in Recents may have changed, which invalidates every
+    // snapshot taken before.
+    private static final AtomicInteger sTaskGeneration = new AtomicInteger();
+    private static final Object sInvalidatorLock = new Object();
+    private static boolean sIsInvalidatorRegistered;
+
+    // Tasks are created, reordered and removed along with our Activities, and the user can only
+    // change Recents while our Activities are paused. Registered when the first delegate is
+    // created, so that it runs before the listeners of the classes using the delegate.
+    private static final ActivityStateListener sTaskSnapshotInvalidator =
+            new ActivityStateListener() {
+                @Override
+                public void onActivityStateChange(Activity activity, int newState) {
+                    invalidateTaskSnapshots();
+                }
+            };
+
     private final Class<?> mRegularClass;
     private final Class<?> mIncognitoClass;
 
+    private final Object mSnapshotLock = new Object();
+    private TaskSnapshot mTaskSnapshot;
+    private int mTaskQueryCount;
+    private int mTaskQueriesAvoidedCount;
+
     /**
      * Creates a ActivityDelegate.
      * @param regularClass Class of the regular DocumentActivity.
@@ -38,6 +114,7 @@ public abstract class ActivityDelegate {
     public ActivityDelegate(Class<?> regularClass, Class<?> incognitoClass) {
         mRegularClass = regularClass;
         mIncognitoClass = incognitoClass;
+        registerTaskSnapshotInvalidator();
     }
 
     /**
@@ -176,4 +253,100 @@ public abstract class ActivityDelegate {
      * @return Whether or not the given Activity is destroyed.
      */
     protected abstract boolean isActivityDestroyed(Activity activity);
+
+    /**
+     * Queries Android's Recents for the Chrome tasks.
+     * @return The tasks, most recently used first.
+     */
+    protected abstract List<RecentsTask> queryTasksFromRecents();
+
+    /**
+     * Returns the entries of the task snapshot, taking one if needed.
+     * @param isIncognito Whether or not the TabList is managing incognito tabs.
+     * @return New entries for the document tasks, most recently used first.
+     */
+    protected List<Entry> getEntriesFromTaskSnapshot(boolean isIncognito) {
+        List<Entry> entries = new ArrayList<Entry>();
+        for (RecentsTask task : getTaskSnapshot().mTasks) {
+            if (task.isIncognito != isIncognito || task.tabId == Tab.INVALID_TAB_ID) continue;
+            entries.add(new Entry(task.tabId, task.initialUrl));
+        }
+        return entries;
+    }
+
+    /**
+     * @return The task of the given Tab in the task snapshot, or null if there is none.
+     */
+    protected RecentsTask getTaskFromTaskSnapshot(boolean isIncognito, int tabId) {
+        TaskSnapshot snapshot = getTaskSnapshot();
+        return (isIncognito ? snapshot.mIncognitoTasks : snapshot.mRegularTasks).get(tabId);
+    }
+
+    /**
+     * @return Whether the task snapshot contains an incognito task.
+     */
+    protected boolean hasIncognitoTaskInTaskSnapshot() {
+        return getTaskSnapshot().mHasIncognitoTask;
+    }
+
+    /**
+     * Drops the task snapshots of every ActivityDelegate.  Must be called after changing the
+     * tasks in Android's Recents, or their order, outside of this class.
+     */
+    public static void invalidateTaskSnapshots() {
+        sTaskGeneration.incrementAndGet();
+    }
+
+    /**
+     * @return How many times Android's Recents were queried for a task snapshot.
+     */
+    @VisibleForTesting
+    public int getTaskQueryCount() {
+        synchronized (mSnapshotLock) {
+            return mTaskQueryCount;
+        }
+    }
+
+    /**
+     * @return How many calls were answered from a task snapshot instead of querying Recents.
+     */
+    @VisibleForTesting
+    public int getTaskQueriesAvoidedCount() {
+        synchronized (mSnapshotLock) {
+            return mTaskQueriesAvoidedCount;
+        }
+    }
+
+    private TaskSnapshot getTaskSnapshot() {
+        synchronized (mSnapshotLock) {
+            int generation = sTaskGeneration.get();
+            if (mTaskSnapshot != null && mTaskSnapshot.mGeneration == generation) {
+                mTaskQueriesAvoidedCount++;
+                return mTaskSnapshot;
+            }
+            mTaskQueryCount++;
+            mTaskSnapshot = new TaskSnapshot(generation, queryTasksFromRecents());
+            return mTaskSnapshot;
+        }
+    }
+
+    @VisibleForTesting
+    static ActivityStateListener getTaskSnapshotInvalidatorForTesting() {
+        return sTaskSnapshotInvalidator;
+    }
+
+    private static void registerTaskSnapshotInvalidator() {
+        synchronized (sInvalidatorLock) {
+            if (sIsInvalidatorRegistered) return;
+            sIsInvalidatorRegistered = true;
+        }
+        ThreadUtils.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                ApplicationStatus.registerStateListenerForAllActivities(sTaskSnapshotInvalidator);
+                // Recents may have changed before the listener was registered.
+                invalidateTaskSnapshots();
+            }
+        });
+    }
 }
@@ -10,10 +10,10 @@ import android.app.ActivityManager;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
+import android.util.Log;
 
 import org.chromium.base.ApplicationStatus;
 import org.chromium.chrome.browser.document.DocumentUtils;
-import org.chromium.chrome.browser.tab.Tab;
 import org.chromium.chrome.browser.tabmodel.document.DocumentTabModel.Entry;
 
 import java.util.ArrayList;
@@ -26,6 +26,7 @@ import java.util.List;
  */
 @TargetApi(Build.VERSION_CODES.LOLLIPOP)
 public class ActivityDelegateImpl extends ActivityDelegate {
+    private static final String TAG = "ActivityDelegateImpl";
 
     /**
      * Creates a ActivityDelegateImpl.
@@ -38,59 +39,54 @@ public class ActivityDelegateImpl extends ActivityDelegate {
 
     @Override
     public List<Entry> getTasksFromRecents(boolean isIncognito) {
-        Context context = ApplicationStatus.getApplicationContext();
-        ActivityManager activityManager =
-                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
-
-        List<Entry> entries = new ArrayList<Entry>();
-        for (ActivityManager.AppTask task : activityManager.getAppTasks()) {
-            Intent intent = DocumentUtils.getBaseIntentFromTask(task);
-            if (!isValidActivity(isIncognito, intent)) continue;
-
-            int tabId = getTabIdFromIntent(intent);
-            if (tabId == Tab.INVALID_TAB_ID) continue;
-
-            String initialUrl = getInitialUrlForDocument(intent);
-            entries.add(new Entry(tabId, initialUrl));
-        }
-        return entries;
+        return getEntriesFromTaskSnapshot(isIncognito);
     }
 
     @Override
     public void moveTaskToFront(boolean isIncognito, int tabId) {
-        ActivityManager.AppTask task = getTask(isIncognito, tabId);
-        if (task != null) task.moveToFront();
+        RecentsTask task = getTaskFromTaskSnapshot(isIncognito, tabId);
+        if (task == null) return;
+        try {
+            ((ActivityManager.AppTask) task.handle).moveToFront();
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Task of tab " + tabId + " is gone", e);
+        }
+        invalidateTaskSnapshots();
     }
 
     @Override
     public void finishAndRemoveTask(boolean isIncognito, int tabId) {
-        ActivityManager.AppTask task = getTask(isIncognito, tabId);
-        if (task != null) task.finishAndRemoveTask();
-    }
-
-    private ActivityManager.AppTask getTask(boolean isIncognito, int tabId) {
-        Context context = ApplicationStatus.getApplicationContext();
-        ActivityManager activityManager =
-                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
-        for (ActivityManager.AppTask task : activityManager.getAppTasks()) {
-            Intent intent = DocumentUtils.getBaseIntentFromTask(task);
-            int taskId = getTabIdFromIntent(intent);
-            if (taskId == tabId && isValidActivity(isIncognito, intent)) return task;
+        RecentsTask task = getTaskFromTaskSnapshot(isIncognito, tabId);
+        if (task == null) return;
+        try {
+            ((ActivityManager.AppTask) task.handle).finishAndRemoveTask();
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Task of tab " + tabId + " is gone", e);
         }
-        return null;
+        invalidateTaskSnapshots();
     }
 
     @Override
     public boolean isIncognitoDocumentAccessibleToUser() {
+        return hasIncognitoTaskInTaskSnapshot();
+    }
+
+    @Override
+    protected List<RecentsTask> queryTasksFromRecents() {
         Context context = ApplicationStatus.getApplicationContext();
         ActivityManager activityManager =
                 (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
 
+        List<RecentsTask> tasks = new ArrayList<RecentsTask>();
         for (ActivityManager.AppTask task : activityManager.getAppTasks()) {
             Intent intent = DocumentUtils.getBaseIntentFromTask(task);
-            if (isValidActivity(true, intent)) return true;
+            boolean isIncognito = isValidActivity(true, intent);
+            if (!isIncognito && !isValidActivity(false, intent)) continue;
+
+            tasks.add(new RecentsTask(getTabIdFromIntent(intent), isIncognito,
+                    getInitialUrlForDocument(intent), task));
         }
-        return false;
+        return tasks;
     }
 
     @Override
@@ -63,7 +63,9 @@ public class AsyncDocumentLauncher {
 
         @Override
         public void run() {
-            // Check if the Activity was already launched.
+            // Check if the Activity was already launched.  Android doesn't tell us when the task
+            // shows up in Recents, so don't trust a snapshot taken before.
+            ActivityDelegate.invalidateTaskSnapshots();
             for (Entry task : mActivityDelegate.getTasksFromRecents(mIsIncognito)) {
                 if (task.tabId == mLaunchedId) {
                     finishLaunch();
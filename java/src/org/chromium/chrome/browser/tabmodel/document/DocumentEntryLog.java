@@ -0,0 +1,94 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.tabmodel.document;
+
+import android.util.SparseBooleanArray;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Encodes and replays the log that persists the minimal info about the entries of a
+ * {@link DocumentTabModel}: whether each tab can go back.
+ *
+ * The log starts with a version and is followed by records, each of which puts or removes the
+ * entry of one tab.  Changes are appended as records instead of rewriting every entry, and the
+ * log is rewritten with one record per entry once it holds enough stale records.  A record cut
+ * short by a crash while appending is ignored, along with anything following it.
+ */
+class DocumentEntryLog {
+    private static final int VERSION = 1;
+
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_REMOVE = 2;
+
+    /** Size of a record, in bytes. */
+    static final int RECORD_SIZE = 6;
+
+    /**
+     * Encodes records for the given changes.
+     * @param puts Entries that were added or changed, mapped to whether the tab can go back.
+     * @param removedTabIds IDs of the tabs whose entries were removed.
+     * @param isFullLog Whether the records start a new log, and need to be preceded by a header.
+     * @return The encoded records.
+     */
+    static byte[] encode(SparseBooleanArray puts, int[] removedTabIds, boolean isFullLog) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                (puts.size() + removedTabIds.length + 1) * RECORD_SIZE);
+        DataOutputStream stream = new DataOutputStream(bytes);
+        try {
+            if (isFullLog) stream.writeInt(VERSION);
+            for (int i = 0; i < puts.size(); i++) {
+                stream.writeByte(RECORD_PUT);
+                stream.writeInt(puts.keyAt(i));
+                stream.writeBoolean(puts.valueAt(i));
+            }
+            for (int tabId : removedTabIds) {
+                stream.writeByte(RECORD_REMOVE);
+                stream.writeInt(tabId);
+                stream.writeBoolean(false);
+            }
+            stream.flush();
+        } catch (IOException e) {
+            // Writing to a ByteArrayOutputStream doesn't throw.
+            assert false;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Replays a log, record by record, as it is read from the stream.
+     * @param input Stream positioned at the start of the log.  Should be buffered.
+     * @return The entries of the log mapped to whether the tab can go back, or null if the log is
+     *         not of a known version.
+     * @throws IOException If the stream failed.
+     */
+    static SparseBooleanArray read(InputStream input) throws IOException {
+        DataInputStream stream = new DataInputStream(input);
+        SparseBooleanArray entries = new SparseBooleanArray();
+        try {
+            if (stream.readInt() != VERSION) return null;
+            while (true) {
+                byte type = stream.readByte();
+                int tabId = stream.readInt();
+                boolean canGoBack = stream.readBoolean();
+                if (type == RECORD_PUT) {
+                    entries.put(tabId, canGoBack);
+                } else if (type == RECORD_REMOVE) {
+                    entries.delete(tabId);
+                } else {
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            // The end of the log, or a record that wasn't fully written.
+        }
+        return entries;
+    }
+}
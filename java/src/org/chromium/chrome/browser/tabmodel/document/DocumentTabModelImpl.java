@@ -13,8 +13,7 @@ import android.text.TextUtils;
 import android.util.Log;
 import android.util.Pair;
 import android.util.SparseArray;
-
-import com.google.protobuf.nano.MessageNano;
+import android.util.SparseBooleanArray;
 
 import org.chromium.base.ApplicationStatus;
 import org.chromium.base.ObserverList;
@@ -26,13 +25,12 @@ import org.chromium.chrome.browser.document.DocumentMetricIds;
 import org.chromium.chrome.browser.document.IncognitoNotificationManager;
 import org.chromium.chrome.browser.tab.Tab;
 import org.chromium.chrome.browser.tabmodel.TabCreatorManager;
+import org.chromium.chrome.browser.tabmodel.TabIdIndex;
 import org.chromium.chrome.browser.tabmodel.TabList;
 import org.chromium.chrome.browser.tabmodel.TabModel;
 import org.chromium.chrome.browser.tabmodel.TabModelJniBridge;
 import org.chromium.chrome.browser.tabmodel.TabModelObserver;
 import org.chromium.chrome.browser.tabmodel.TabModelUtils;
-import org.chromium.chrome.browser.tabmodel.document.DocumentTabModelInfo.DocumentEntry;
-import org.chromium.chrome.browser.tabmodel.document.DocumentTabModelInfo.DocumentList;
 import org.chromium.chrome.browser.util.MathUtils;
 import org.chromium.content_public.browser.LoadUrlParams;
 import org.chromium.content_public.browser.WebContents;
@@ -47,7 +45,8 @@ import java.util.Set;
 /**
  * Maintains a list of Tabs displayed when Chrome is running in document-mode.
  */
-public class DocumentTabModelImpl extends TabModelJniBridge implements DocumentTabModel {
+public class DocumentTabModelImpl extends TabModelJniBridge
+        implements DocumentTabModel, TabIdIndex.Owner {
     private static final String TAG = "DocumentTabModel";
 
     @VisibleForTesting
@@ -58,6 +57,13 @@ public class DocumentTabModelImpl extends TabModelJniBridge implements DocumentT
 
     public static final String PREF_LAST_SHOWN_TAB_ID_INCOGNITO = "last_shown_tab_id.incognito";
 
+    /**
+     * The {@link DocumentEntryLog} is compacted once it holds this many times more records than
+     * there are entries, and at least {@link #MIN_LOG_RECORDS_TO_COMPACT} records.
+     */
+    private static final int LOG_COMPACTION_RATIO = 4;
+    private static final int MIN_LOG_RECORDS_TO_COMPACT = 32;
+
     /** TabModel is uninitialized. */
     public static final int STATE_UNINITIALIZED = 0;
 
@@ -100,6 +106,9 @@ public class DocumentTabModelImpl extends TabModelJniBridge implements DocumentT
     /** List of known tabs. */
     private final ArrayList<Integer> mTabIdList;
 
+    /** Index of {@link #mTabIdList}. Must be invalidated whenever the list changes. */
+    private final TabIdIndex mTabIdIndex;
+
     /** Stores an entry for each DocumentActivity that is alive.  Keys are document IDs. */
     private final SparseArray<Entry> mEntryMap;
 
@@ -136,6 +145,18 @@ public class DocumentTabModelImpl extends TabModelJniBridge implements DocumentT
     /** ID of the last tab that was shown to the user. */
     private int mLastShownTabId = Tab.INVALID_TAB_ID;
 
+    /** Entries as last written to the {@link DocumentEntryLog}, mapped to canGoBack. */
+    private SparseBooleanArray mLoggedEntries = new SparseBooleanArray();
+
+    /** Number of records in the {@link DocumentEntryLog}, -1 if it must be rewritten. */
+    private int mLogRecordCount = -1;
+
+    /** Whether entries are being written to storage. */
+    private boolean mIsWritingToStorage;
+
+    /** Whether entries changed while they were being written to storage. */
+    private boolean mIsStorageWritePending;
+
     /**
      * Construct a DocumentTabModel.
      * @param activityDelegate Delegate to use for accessing the ActivityManager.
@@ -157,6 +178,17 @@ public class DocumentTabModelImpl extends TabModelJniBridge implements DocumentT
 
         mCurrentState = STATE_UNINITIALIZED;
         mTabIdList = new ArrayList<Integer>();
+        mTabIdIndex = new TabIdIndex(new TabIdIndex.IdSource() {
+            @Override
+            public int getCount() {
+                return mTabIdList.size();
+            }
+
+            @Override
+            public int getIdAt(int index) {
+                return mTabIdList.get(index);
+            }
+        });
         mEntryMap = new SparseArray<Entry>();
         mHistoricalTabs = new ArrayList<Integer>();
         mInitializationObservers = new ObserverList<InitializationObserver>();
@@ -171,6 +203,7 @@ public class DocumentTabModelImpl extends TabModelJniBridge implements DocumentT
         setCurrentState(STATE_READ_RECENT_TASKS_START);
         mStorageDelegate.restoreTabEntries(
                 isIncognito, activityDelegate, mEntryMap, mTabIdList, mHistoricalTabs);
+        mTabIdIndex.invalidate();
         setCurrentState(STATE_READ_RECENT_TASKS_END);
     }
 
@@ -190,7 +223,12 @@ public class DocumentTabModelImpl extends TabModelJniBridge implements DocumentT
      * @return Index of the tab, or -1 if it couldn't be found.
      */
     private int indexOf(int tabId) {
-        return mTabIdList.indexOf(tabId);
+        return mTabIdIndex.indexOf(tabId);
+    }
+
+    @Override
+    public int getTabIndexById(int tabId) {
+        return indexOf(tabId);
     }
 
     @Override
@@ -320,7 +358,9 @@ public class DocumentTabModelImpl extends TabModelJniBridge implements DocumentT
 
         mActivityDelegate.finishAndRemoveTask(isIncognito(), tabId);
         mTabIdList.remove(index);
+        mTabIdIndex.invalidate();
         mEntryMap.remove(tabId);
+        if (mLoggedEntries.indexOfKey(tabId) >= 0) writeToStorageAsync();
 
         for (TabModelObserver obs : mObservers) obs.didCloseTab(tab);
         return true;
@@ -368,8 +408,9 @@ public class DocumentTabModelImpl extends TabModelJniBridge implements DocumentT
      */
     private void addTabId(int index, int tabId) {
         assert tabId != Tab.INVALID_TAB_ID;
-        if (mTabIdList.contains(tabId)) return;
+        if (indexOf(tabId) != TabList.INVALID_TAB_INDEX) return;
         mTabIdList.add(index, tabId);
+        mTabIdIndex.invalidate();
     }
 
     @Override
@@ -471,8 +512,7 @@ public class DocumentTabModelImpl extends TabModelJniBridge implements DocumentT
             currentEntry.placeholderTab = null;
         }
 
-        writeGeneralDataToStorageAsync();
-        writeTabStatesToStorageAsync();
+        writeToStorageAsync();
     }
 
     @Override
@@ -694,45 +734,20 @@ public class DocumentTabModelImpl extends TabModelJniBridge implements DocumentT
     }
 
     /**
-     * Save out a tiny file with minimal information required for retargeting.
+     * Writes out the changes to the entries, and the dirty TabStates.  Only one write is in
+     * flight at a time; changes made meanwhile are written by a single write once it finishes.
      */
-    private void writeGeneralDataToStorageAsync() {
-        if (isIncognito()) return;
-
-        new AsyncTask<Void, Void, Void>() {
-            private DocumentList mList;
-
-            @Override
-            protected void onPreExecute() {
-                List<DocumentEntry> entriesList = new ArrayList<DocumentEntry>();
-                for (int i = 0; i < getCount(); i++) {
-                    Entry entry = mEntryMap.get(getTabAt(i).getId());
-                    if (entry == null) continue;
-
-                    DocumentEntry docEntry = new DocumentEntry();
-                    docEntry.tabId = entry.tabId;
-                    docEntry.canGoBack = entry.canGoBack;
-
-                    entriesList.add(docEntry);
-                }
-                mList = new DocumentList();
-                mList.entries = entriesList.toArray(new DocumentEntry[entriesList.size()]);
-            }
-
-            @Override
-            protected Void doInBackground(Void... params) {
-                mStorageDelegate.writeTaskFileBytes(isIncognito(), MessageNano.toByteArray(mList));
-                return null;
-            }
-        }.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
-    }
+    private void writeToStorageAsync() {
+        if (mIsWritingToStorage) {
+            mIsStorageWritePending = true;
+            return;
+        }
+        mIsWritingToStorage = true;
 
-    /**
-     * Write out all of the TabStates.
-     */
-    private void writeTabStatesToStorageAsync() {
         new AsyncTask<Void, Void, Void>() {
             private final SparseArray<TabState> mStatesToWrite = new SparseArray<TabState>();
+            private byte[] mLogBytes;
+            private boolean mIsFullLog;
 
             @Override
             protected void onPreExecute() {
@@ -741,10 +756,57 @@ public class DocumentTabModelImpl extends TabModelJniBridge implements DocumentT
                     if (!entry.isDirty || entry.getTabState() == null) continue;
                     mStatesToWrite.put(entry.tabId, entry.getTabState());
                 }
+                if (!isIncognito()) collectLogChanges();
+            }
+
+            /**
+             * Encodes the minimal information required for retargeting that changed since the
+             * last write, or all of it if the log needs to be rewritten.
+             */
+            private void collectLogChanges() {
+                SparseBooleanArray entries = new SparseBooleanArray(mTabIdList.size());
+                for (int i = 0; i < mTabIdList.size(); i++) {
+                    Entry entry = mEntryMap.get(mTabIdList.get(i));
+                    if (entry != null) entries.put(entry.tabId, entry.canGoBack);
+                }
+
+                SparseBooleanArray puts = new SparseBooleanArray();
+                for (int i = 0; i < entries.size(); i++) {
+                    int index = mLoggedEntries.indexOfKey(entries.keyAt(i));
+                    if (index < 0 || mLoggedEntries.valueAt(index) != entries.valueAt(i)) {
+                        puts.put(entries.keyAt(i), entries.valueAt(i));
+                    }
+                }
+                List<Integer> removedTabIds = new ArrayList<Integer>();
+                for (int i = 0; i < mLoggedEntries.size(); i++) {
+                    if (entries.indexOfKey(mLoggedEntries.keyAt(i)) < 0) {
+                        removedTabIds.add(mLoggedEntries.keyAt(i));
+                    }
+                }
+                int changeCount = puts.size() + removedTabIds.size();
+
+                mIsFullLog = mLogRecordCount < 0 || mLogRecordCount + changeCount
+                        > Math.max(MIN_LOG_RECORDS_TO_COMPACT,
+                                entries.size() * LOG_COMPACTION_RATIO);
+                if (mIsFullLog) {
+                    mLogBytes = DocumentEntryLog.encode(entries, new int[0], true);
+                    mLogRecordCount = entries.size();
+                } else if (changeCount > 0) {
+                    int[] removed = new int[removedTabIds.size()];
+                    for (int i = 0; i < removed.length; i++) removed[i] = removedTabIds.get(i);
+                    mLogBytes = DocumentEntryLog.encode(puts, removed, false);
+                    mLogRecordCount += changeCount;
+                }
+                mLoggedEntries = entries;
             }
 
             @Override
-            protected Void doInBackground(Void... voids) {
+            protected Void doInBackground(Void... params) {
+                if (mIsFullLog) {
+                    mStorageDelegate.writeMetadataLog(isIncognito(), mLogBytes);
+                } else if (mLogBytes != null) {
+                    mStorageDelegate.appendMetadataRecords(isIncognito(), mLogBytes);
+                }
                 for (int i = 0; i < mStatesToWrite.size(); i++) {
                     int tabId = mStatesToWrite.keyAt(i);
                     mStorageDelegate.saveTabState(tabId, isIncognito(), mStatesToWrite.valueAt(i));
@@ -757,9 +819,18 @@ public class DocumentTabModelImpl extends TabModelJniBridge implements DocumentT
                 for (int i = 0; i < mStatesToWrite.size(); i++) {
                     int tabId = mStatesToWrite.keyAt(i);
                     Entry entry = mEntryMap.get(tabId);
-                    if (entry == null) continue;
+                    // The TabState may have been replaced while it was being written.
+                    if (entry == null || entry.getTabState() != mStatesToWrite.valueAt(i)) {
+                        continue;
+                    }
                     entry.isDirty = false;
                 }
+
+                mIsWritingToStorage = false;
+                if (mIsStorageWritePending) {
+                    mIsStorageWritePending = false;
+                    writeToStorageAsync();
+                }
             }
         }.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
     }
@@ -806,6 +877,7 @@ public class DocumentTabModelImpl extends TabModelJniBridge implements DocumentT
         }
 
         mTabIdList.remove(curIndex);
+        mTabIdIndex.invalidate();
         addTabId(newIndex, id);
 
         Tab tab = getTabAt(curIndex);
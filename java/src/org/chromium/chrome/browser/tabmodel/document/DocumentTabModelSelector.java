@@ -170,6 +170,8 @@ public class DocumentTabModelSelector extends TabModelSelectorBase
 
         // Tabs swiped away when their Activity is dead don't trigger destruction notifications.
         if (newState == ActivityState.STARTED || newState == ActivityState.DESTROYED) {
+            // Don't rely on the task snapshots having been dropped by an earlier listener.
+            ActivityDelegate.invalidateTaskSnapshots();
             mRegularTabModel.updateRecentlyClosed();
             mIncognitoTabModel.updateRecentlyClosed();
             if (getModel(true).getCount() == 0) {
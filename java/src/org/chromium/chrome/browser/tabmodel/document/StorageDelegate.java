@@ -7,6 +7,7 @@ package org.chromium.chrome.browser.tabmodel.document;
 import android.content.Context;
 import android.os.StrictMode;
 import android.util.SparseArray;
+import android.util.SparseBooleanArray;
 
 import com.google.protobuf.nano.MessageNano;
 
@@ -20,6 +21,7 @@ import org.chromium.chrome.browser.tabmodel.document.DocumentTabModel.Entry;
 import org.chromium.chrome.browser.tabmodel.document.DocumentTabModelInfo.DocumentEntry;
 import org.chromium.chrome.browser.tabmodel.document.DocumentTabModelInfo.DocumentList;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -34,9 +36,15 @@ import java.util.List;
 public class StorageDelegate extends TabPersister {
     private static final String TAG = "cr.StorageDelegate";
 
-    /** Filename to use for the DocumentTabModel that stores regular tabs. */
+    /**
+     * Filename of the protobuf DocumentTabModel file that stored regular tabs before
+     * {@link DocumentEntryLog}.  Only read when there is no log yet.
+     */
     private static final String REGULAR_FILE_NAME = "chrome_document_activity.store";
 
+    /** Filename of the {@link DocumentEntryLog} of regular tabs, in the state directory. */
+    private static final String REGULAR_LOG_FILE_NAME = "document_entries_log";
+
     /** Directory to store TabState files in. */
     private static final String STATE_DIRECTORY = "ChromeDocumentActivity";
 
@@ -44,8 +52,8 @@ public class StorageDelegate extends TabPersister {
     private static final int BUF_SIZE = 0x1000;
 
     /**
-     * Reads the file containing the minimum info required to restore the state of the
-     * {@link DocumentTabModel}.
+     * Reads the protobuf file containing the minimum info required to restore the state of the
+     * {@link DocumentTabModel}, as written before the {@link DocumentEntryLog} replaced it.
      * @param encrypted Whether or not the file corresponds to an OffTheRecord TabModel.
      * @return Byte buffer containing the task file's data, or null if it wasn't read.
      */
@@ -80,8 +88,9 @@ public class StorageDelegate extends TabPersister {
     }
 
     /**
-     * Writes the file containing the minimum info required to restore the state of the
-     * {@link DocumentTabModel}.
+     * Writes the protobuf file containing the minimum info required to restore the state of the
+     * {@link DocumentTabModel}.  The DocumentTabModel now writes a {@link DocumentEntryLog}
+     * instead, and this file is only read when there is no log.
      * @param encrypted Whether the TabModel is incognito.
      * @param bytes Byte buffer containing the tab's data.
      */
@@ -103,6 +112,86 @@ public class StorageDelegate extends TabPersister {
         }
     }
 
+    /**
+     * Reads the {@link DocumentEntryLog} of the {@link DocumentTabModel}, record by record.
+     * @param encrypted Whether or not the log corresponds to an OffTheRecord TabModel.
+     * @return The logged entries mapped to whether the tab can go back, or null if there is no
+     *         readable log.
+     */
+    protected SparseBooleanArray readMetadataLog(boolean encrypted) {
+        // Incognito mode doesn't save its state out.
+        if (encrypted) return null;
+
+        File file = getMetadataLogFile();
+        if (!file.exists()) return null;
+        BufferedInputStream stream = null;
+        try {
+            stream = new BufferedInputStream(new FileInputStream(file), BUF_SIZE);
+            return DocumentEntryLog.read(stream);
+        } catch (IOException e) {
+            Log.e(TAG, "I/O exception", e);
+            return null;
+        } finally {
+            StreamUtil.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Appends records to the {@link DocumentEntryLog} of the {@link DocumentTabModel}.
+     * @param encrypted Whether the TabModel is incognito.
+     * @param records Records encoded by {@link DocumentEntryLog#encode}.
+     */
+    public void appendMetadataRecords(boolean encrypted, byte[] records) {
+        // Incognito mode doesn't save its state out.
+        if (encrypted) return;
+
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(getMetadataLogFile(), true);
+            outputStream.write(records);
+        } catch (IOException e) {
+            Log.e(TAG, "I/O exception", e);
+        } finally {
+            StreamUtil.closeQuietly(outputStream);
+        }
+    }
+
+    /**
+     * Replaces the {@link DocumentEntryLog} of the {@link DocumentTabModel}, which compacts it.
+     * The new log is written to a temporary file first so that a crash can't lose the entries.
+     * @param encrypted Whether the TabModel is incognito.
+     * @param log Full log encoded by {@link DocumentEntryLog#encode}.
+     */
+    public void writeMetadataLog(boolean encrypted, byte[] log) {
+        // Incognito mode doesn't save its state out.
+        if (encrypted) return;
+
+        File file = getMetadataLogFile();
+        File tempFile = new File(file.getPath() + ".tmp");
+        FileOutputStream outputStream = null;
+        boolean written = false;
+        try {
+            outputStream = new FileOutputStream(tempFile);
+            outputStream.write(log);
+            written = true;
+        } catch (IOException e) {
+            Log.e(TAG, "I/O exception", e);
+        } finally {
+            StreamUtil.closeQuietly(outputStream);
+        }
+        if (!written || !tempFile.renameTo(file)) {
+            Log.e(TAG, "Failed to replace the DocumentTabModel log");
+            return;
+        }
+
+        // The protobuf file has been superseded.
+        ApplicationStatus.getApplicationContext().deleteFile(REGULAR_FILE_NAME);
+    }
+
+    private File getMetadataLogFile() {
+        return new File(getStateDirectory(), REGULAR_LOG_FILE_NAME);
+    }
+
     /** @return The directory that stores the TabState files. */
     @Override
     public File getStateDirectory() {
@@ -158,17 +247,24 @@ public class StorageDelegate extends TabPersister {
             entry.canGoBack = true;
         }
 
-        // Read the metadata file, which saved out the list of Tabs from when Chrome was last alive.
+        // Read the metadata, which saved out the list of Tabs from when Chrome was last alive.
         // Temporarily allowing disk access. TODO: Fix. See http://crbug.com/496348
+        SparseBooleanArray loggedEntries = null;
         byte[] metadataBytes = null;
         StrictMode.ThreadPolicy oldPolicy = StrictMode.allowThreadDiskReads();
         try {
-            metadataBytes = readMetadataFileBytes(isIncognito);
+            loggedEntries = readMetadataLog(isIncognito);
+            if (loggedEntries == null) metadataBytes = readMetadataFileBytes(isIncognito);
         } finally {
             StrictMode.setThreadPolicy(oldPolicy);
         }
 
-        if (metadataBytes != null) {
+        if (loggedEntries != null) {
+            for (int i = 0; i < loggedEntries.size(); i++) {
+                restoreSavedEntry(loggedEntries.keyAt(i), loggedEntries.valueAt(i), entryMap,
+                        recentlyClosedTabIdList);
+            }
+        } else if (metadataBytes != null) {
             DocumentList list = null;
             try {
                 list = MessageNano.mergeFrom(new DocumentList(), metadataBytes);
@@ -179,17 +275,21 @@ public class StorageDelegate extends TabPersister {
 
             for (int i = 0; i < list.entries.length; i++) {
                 DocumentEntry savedEntry = list.entries[i];
-                int tabId = savedEntry.tabId;
-
-                // If the tab ID isn't in the list, it must have been closed after Chrome died.
-                if (entryMap.indexOfKey(tabId) < 0) {
-                    recentlyClosedTabIdList.add(tabId);
-                    continue;
-                }
-
-                // Restore information about the Tab.
-                entryMap.get(tabId).canGoBack = savedEntry.canGoBack;
+                restoreSavedEntry(savedEntry.tabId, savedEntry.canGoBack, entryMap,
+                        recentlyClosedTabIdList);
             }
         }
     }
+
+    private static void restoreSavedEntry(int tabId, boolean canGoBack,
+            SparseArray<Entry> entryMap, List<Integer> recentlyClosedTabIdList) {
+        // If the tab ID isn't in the list, it must have been closed after Chrome died.
+        if (entryMap.indexOfKey(tabId) < 0) {
+            recentlyClosedTabIdList.add(tabId);
+            return;
+        }
+
+        // Restore information about the Tab.
+        entryMap.get(tabId).canGoBack = canGoBack;
+    }
 }
\ No newline at end of file
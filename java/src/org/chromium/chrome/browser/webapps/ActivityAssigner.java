@@ -177,6 +177,18 @@ public class ActivityAssigner {
         return -1;
     }
 
+    /**
+     * Returns the IDs of the webapps assigned to a WebappActivity, whose tasks may still be in
+     * Recents.
+     */
+    Set<String> getAssignedWebappIds() {
+        Set<String> webappIds = new HashSet<String>();
+        for (ActivityEntry entry : mActivityList) {
+            if (entry.mWebappId != null) webappIds.add(entry.mWebappId);
+        }
+        return webappIds;
+    }
+
     /**
      * Returns the current mapping between Activities and webapps.
      */
@@ -22,6 +22,7 @@ import org.chromium.chrome.browser.IntentHandler;
 import org.chromium.chrome.browser.ShortcutHelper;
 import org.chromium.chrome.browser.TabState;
 import org.chromium.chrome.browser.UrlUtilities;
+import org.chromium.chrome.browser.WarmupManager;
 import org.chromium.chrome.browser.compositor.layouts.content.TabContentManager;
 import org.chromium.chrome.browser.contextmenu.ContextMenuHelper;
 import org.chromium.chrome.browser.contextmenu.ContextMenuParams;
@@ -71,12 +72,17 @@ public class FullScreenActivityTab extends ChromeTab {
     private WebContentsObserver mObserver;
     private TopControlsVisibilityDelegate mTopControlsVisibilityDelegate;
 
+    /** Whether the tab uses a spare WebContents that hasn't navigated past about:blank yet. */
+    private boolean mIsSpareWebContentsBlank;
+
     private FullScreenActivityTab(ChromeActivity activity, WindowAndroid window,
             TopControlsVisibilityDelegate topControlsVisibilityDelegate) {
         super(INVALID_TAB_ID, activity, false, window, TabLaunchType.FROM_MENU_OR_OVERVIEW,
                 INVALID_TAB_ID, null, null);
-        initializeFullScreenActivityTab(
-                activity.getTabContentManager(), false, topControlsVisibilityDelegate);
+        WebContents webContents = WarmupManager.getInstance().takeSpareWebContentsForWebapp();
+        mIsSpareWebContentsBlank = webContents != null;
+        initializeFullScreenActivityTab(webContents, activity.getTabContentManager(), false,
+                topControlsVisibilityDelegate);
     }
 
     private FullScreenActivityTab(int id, ChromeActivity activity, WindowAndroid window,
@@ -84,12 +90,13 @@ public class FullScreenActivityTab extends ChromeTab {
         super(id, activity, false, window, TabLaunchType.FROM_RESTORE, Tab.INVALID_TAB_ID,
                 TabCreationState.FROZEN_ON_RESTORE, state);
         initializeFullScreenActivityTab(
-                activity.getTabContentManager(), true, topControlsVisibilityDelegate);
+                null, activity.getTabContentManager(), true, topControlsVisibilityDelegate);
     }
 
-    private void initializeFullScreenActivityTab(TabContentManager tabContentManager,
-            boolean unfreeze, TopControlsVisibilityDelegate topControlsVisibilityDelegate) {
-        initialize(null, tabContentManager, false);
+    private void initializeFullScreenActivityTab(WebContents webContents,
+            TabContentManager tabContentManager, boolean unfreeze,
+            TopControlsVisibilityDelegate topControlsVisibilityDelegate) {
+        initialize(webContents, tabContentManager, false);
         if (unfreeze) unfreezeContents();
         mObserver = createWebContentsObserver();
         mTopControlsVisibilityDelegate = topControlsVisibilityDelegate;
@@ -135,6 +142,22 @@ public class FullScreenActivityTab extends ChromeTab {
         loadUrl(new LoadUrlParams(url, PageTransition.AUTO_TOPLEVEL));
     }
 
+    @Override
+    public int loadUrl(LoadUrlParams params) {
+        // TODO(lizeb): Remove this once crbug.com/521729 is fixed.
+        if (mIsSpareWebContentsBlank) params.setShouldReplaceCurrentEntry(true);
+        mIsSpareWebContentsBlank = false;
+        return super.loadUrl(params);
+    }
+
+    /**
+     * @return Whether the tab hasn't loaded a page yet.  A tab created with a spare WebContents
+     *         shows about:blank until then.
+     */
+    public boolean isBlank() {
+        return mIsSpareWebContentsBlank || TextUtils.isEmpty(getUrl());
+    }
+
     /**
      * Saves the tab data out to a file.
      */
@@ -4,12 +4,17 @@
 
 package org.chromium.chrome.browser.webapps;
 
+import android.content.ComponentCallbacks2;
 import android.content.Intent;
 import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -18,11 +23,16 @@ import android.view.ViewGroup;
 
 import org.chromium.base.ActivityState;
 import org.chromium.base.ApplicationStatus;
+import org.chromium.base.SysUtils;
+import org.chromium.base.ThreadUtils;
 import org.chromium.base.VisibleForTesting;
+import org.chromium.base.metrics.RecordHistogram;
 import org.chromium.blink_public.platform.WebDisplayMode;
 import org.chromium.chrome.R;
+import org.chromium.chrome.browser.IntentHandler;
 import org.chromium.chrome.browser.ShortcutHelper;
 import org.chromium.chrome.browser.UrlUtilities;
+import org.chromium.chrome.browser.WarmupManager;
 import org.chromium.chrome.browser.document.DocumentUtils;
 import org.chromium.chrome.browser.fullscreen.ChromeFullscreenManager;
 import org.chromium.chrome.browser.ssl.ConnectionSecurityLevel;
@@ -37,6 +47,7 @@ import org.chromium.net.NetworkChangeNotifier;
 import org.chromium.ui.base.PageTransition;
 
 import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Displays a webapp in a nearly UI-less Chrome (InfoBars still appear).
@@ -47,9 +58,22 @@ public class WebappActivity extends FullScreenActivity {
     private static final String TAG = "WebappActivity";
     private static final long MS_BEFORE_NAVIGATING_BACK_FROM_INTERSTITIAL = 1000;
 
+    /** How long the spare renderer created for the next launch is kept if no webapp takes it. */
+    private static final long SPARE_WEB_CONTENTS_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Runnable sDestroySpareWebContentsTask = new Runnable() {
+        @Override
+        public void run() {
+            WarmupManager.getInstance().destroySpareWebContentsForWebapp();
+        }
+    };
+
     private final WebappInfo mWebappInfo;
     private AsyncTask<Void, Void, Void> mCleanupTask;
 
+    /** Registry entry of the webapp, which holds its decoded icon once it is loaded. */
+    private WebappRegistry.Entry mRegistryEntry;
+
     private WebContentsObserver mWebContentsObserver;
 
     private ViewGroup mSplashScreen;
@@ -58,6 +82,15 @@ public class WebappActivity extends FullScreenActivity {
     private boolean mIsInitialized;
     private Integer mBrandColor;
 
+    /** When the launch of the webapp was requested, or -1 once its first paint was recorded. */
+    private long mLaunchTimestampMs = -1;
+    /** Whether the webapp was launched with a prebuilt view hierarchy. */
+    private boolean mIsPrewarmedLaunch;
+    /** Whether the user chose to leave the webapp, most likely to go to the home screen. */
+    private boolean mIsLeavingByUserChoice;
+    /** Histogram the launch was recorded in, once it was. */
+    private String mLaunchHistogramName;
+
     /**
      * Construct all the variables that shouldn't change.  We do it here both to clarify when the
      * objects are created and to ensure that they exist throughout the parallelized initialization
@@ -78,6 +111,7 @@ public class WebappActivity extends FullScreenActivity {
             finish();
         } else if (!TextUtils.equals(mWebappInfo.id(), newWebappInfo.id())) {
             mWebappInfo.copy(newWebappInfo);
+            loadRegistryEntry();
             resetSavedInstanceState();
             if (mIsInitialized) initializeUI(null);
         }
@@ -86,7 +120,7 @@ public class WebappActivity extends FullScreenActivity {
     private void initializeUI(Bundle savedInstanceState) {
         // We do not load URL when restoring from saved instance states.
         if (savedInstanceState == null && mWebappInfo.isInitialized()) {
-            if (TextUtils.isEmpty(getActivityTab().getUrl())) {
+            if (getActivityTab().isBlank()) {
                 getActivityTab().loadUrl(new LoadUrlParams(
                         mWebappInfo.uri().toString(), PageTransition.AUTO_TOPLEVEL));
             }
@@ -104,6 +138,15 @@ public class WebappActivity extends FullScreenActivity {
     public void preInflationStartup() {
         WebappInfo info = WebappInfo.create(getIntent());
         if (info != null) mWebappInfo.copy(info);
+        loadRegistryEntry();
+
+        if (getSavedInstanceState() == null) {
+            mLaunchTimestampMs = IntentHandler.getTimestampFromIntent(getIntent());
+        }
+        mIsPrewarmedLaunch = WarmupManager.getInstance().hasViewHierarchyWithToolbar(
+                getControlContainerLayoutId());
+        // This launch takes the spare renderer, and one created later isn't ours to time out.
+        ThreadUtils.getUiThreadHandler().removeCallbacks(sDestroySpareWebContentsTask);
 
         mCleanupTask = new WebappDirectoryManager(getActivityDirectory(),
                 WEBAPP_SCHEME, FeatureUtilities.isDocumentModeEligible(this));
@@ -132,9 +175,19 @@ public class WebappActivity extends FullScreenActivity {
         if (mCleanupTask.getStatus() == AsyncTask.Status.PENDING) mCleanupTask.execute();
     }
 
+    @Override
+    protected void onUserLeaveHint() {
+        super.onUserLeaveHint();
+        mIsLeavingByUserChoice = true;
+    }
+
     @Override
     public void onStopWithNative() {
         super.onStopWithNative();
+        if (mIsLeavingByUserChoice) {
+            mIsLeavingByUserChoice = false;
+            prepareForNextLaunch();
+        }
         mCleanupTask.cancel(true);
         if (getActivityTab() != null) getActivityTab().saveState(getActivityDirectory());
         if (getFullscreenManager() != null) {
@@ -142,8 +195,19 @@ public class WebappActivity extends FullScreenActivity {
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            WarmupManager.getInstance().destroySpareWebContentsForWebapp();
+        }
+    }
+
     @Override
     public void onResume() {
+        mIsLeavingByUserChoice = false;
         if (!isFinishing()) {
             if (getIntent() != null) {
                 // Avoid situations where Android starts two Activities with the same data.
@@ -178,6 +242,77 @@ public class WebappActivity extends FullScreenActivity {
         mUrlBar = (WebappUrlBar) controlContainer.findViewById(R.id.webapp_url_bar);
     }
 
+    /**
+     * Loads the registry entry of the webapp in the background, so that its icon isn't decoded
+     * from the Intent on the UI thread, and updates the task description with it.
+     */
+    private void loadRegistryEntry() {
+        mRegistryEntry = null;
+        WebappRegistry.launch(mWebappInfo, new WebappRegistry.EntryCallback() {
+            @Override
+            public void onEntryLoaded(WebappRegistry.Entry entry) {
+                if (entry == null || isFinishing()
+                        || !TextUtils.equals(entry.id, mWebappInfo.id())) {
+                    return;
+                }
+                mRegistryEntry = entry;
+                updateTaskDescription();
+            }
+        });
+    }
+
+    /**
+     * Prepares for the next webapp to be launched once the UI thread is idle, since the user is
+     * likely to launch one from the home screen they went to.  The next WebappActivity takes the
+     * view hierarchy, with its control container, and a spare renderer instead of creating them.
+     * Low-end devices can't spare the memory.  The spare renderer is destroyed if no webapp takes
+     * it within {@link #SPARE_WEB_CONTENTS_TIMEOUT_MS}, or when memory runs low.  A spare renderer
+     * warmed up for a Custom Tab is left alone.
+     */
+    @VisibleForTesting
+    void prepareForNextLaunch() {
+        if (SysUtils.isLowEndDevice()) return;
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                WarmupManager warmupManager = WarmupManager.getInstance();
+                if (!warmupManager.hasBuiltViewHierarchy()) {
+                    warmupManager.initializeViewHierarchy(getApplicationContext(),
+                            R.style.WebappTheme, R.layout.main, R.id.control_container_stub,
+                            getControlContainerLayoutId());
+                }
+                warmupManager.createSpareWebContentsForWebapp();
+                Handler handler = ThreadUtils.getUiThreadHandler();
+                handler.removeCallbacks(sDestroySpareWebContentsTask);
+                handler.postDelayed(sDestroySpareWebContentsTask, SPARE_WEB_CONTENTS_TIMEOUT_MS);
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Records the time from the launch of the webapp to its first paint, split by whether the
+     * launch was prepared by {@link #prepareForNextLaunch()}.
+     */
+    private void recordLaunchToFirstPaint() {
+        if (mLaunchTimestampMs < 0) return;
+        long launchToFirstPaintMs = SystemClock.elapsedRealtime() - mLaunchTimestampMs;
+        mLaunchTimestampMs = -1;
+        mLaunchHistogramName = mIsPrewarmedLaunch
+                ? "Webapp.LaunchToFirstPaint.Prewarmed" : "Webapp.LaunchToFirstPaint.Default";
+        RecordHistogram.recordCustomTimesHistogram(mLaunchHistogramName, launchToFirstPaintMs, 1,
+                TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS, 50);
+    }
+
+    /**
+     * @return The histogram the time to the first paint of the launch was recorded in, or null if
+     *         it wasn't recorded.
+     */
+    @VisibleForTesting
+    String getLaunchHistogramName() {
+        return mLaunchHistogramName;
+    }
+
     /**
      * @return Structure containing data about the webapp currently displayed.
      */
@@ -235,6 +370,7 @@ public class WebappActivity extends FullScreenActivity {
 
             @Override
             public void didFirstVisuallyNonEmptyPaint() {
+                recordLaunchToFirstPaint();
                 if (mSplashScreen == null) return;
 
                 mSplashScreen.animate()
@@ -300,9 +436,10 @@ public class WebappActivity extends FullScreenActivity {
             title = getActivityTab().getTitle();
         }
 
+        // The favicon is shown until the webapp's icon is loaded from the registry.
         Bitmap icon = null;
-        if (mWebappInfo.icon() != null) {
-            icon = mWebappInfo.icon();
+        if (mRegistryEntry != null && mRegistryEntry.icon != null) {
+            icon = mRegistryEntry.icon;
         } else if (getActivityTab() != null) {
             icon = getActivityTab().getFavicon();
         }
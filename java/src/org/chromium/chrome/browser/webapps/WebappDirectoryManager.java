@@ -31,11 +31,17 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * which each WebappActivity using a directory named either for its Webapp's ID in Document mode,
  * or the index of the WebappActivity if it is a subclass of the WebappManagedActivity class (which
  * are used in pre-L devices to allow multiple WebappActivities launching).
+ *
+ * The registry/ subdirectory holds the {@link WebappRegistry}, which isn't tied to a task, and is
+ * trimmed once per process instead of being deleted.
  */
 public class WebappDirectoryManager extends AsyncTask<Void, Void, Void> {
     private static final String TAG = "WebappDirectoryCleaner";
     private static final String WEBAPP_DIRECTORY_NAME = "WebappActivity";
 
+    /** Can't clash with webapp IDs, which are either UUIDs or indices. */
+    private static final String REGISTRY_DIRECTORY_NAME = "registry";
+
     /** Whether or not the class has already started trying to clean up obsolete directories. */
     private static final AtomicBoolean sMustCleanUpOldDirectories = new AtomicBoolean(true);
 
@@ -45,6 +51,15 @@ public class WebappDirectoryManager extends AsyncTask<Void, Void, Void> {
     /** Directories that will be deleted. */
     private final HashSet<File> mDirectoriesToDelete;
 
+    /** Whether the registry is trimmed by this task, which happens once per process. */
+    private boolean mMustTrimRegistry;
+
+    /**
+     * IDs of the webapps listed in Android's recents, and names of the directories of the
+     * WebappManagedActivities listed there.
+     */
+    private final HashSet<String> mLiveWebapps = new HashSet<String>();
+
     /**
      * Constructs a WebappDirectoryManager, which will manage the deletion of directories
      * corresponding to webapps that no longer need their data.
@@ -63,11 +78,18 @@ public class WebappDirectoryManager extends AsyncTask<Void, Void, Void> {
         mDirectoriesToDelete = new HashSet<File>();
         mDirectoriesToDelete.add(directory);
 
-        if (deleteOldDirectories && sMustCleanUpOldDirectories.getAndSet(false)) {
-            assert Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+        if (sMustCleanUpOldDirectories.getAndSet(false)) {
             Context context = ApplicationStatus.getApplicationContext();
-            cleanUpOldWebappDirectories(
-                    mDirectoriesToDelete, context.getApplicationInfo().dataDir);
+            if (deleteOldDirectories) {
+                assert Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+                cleanUpOldWebappDirectories(
+                        mDirectoriesToDelete, context.getApplicationInfo().dataDir);
+            } else {
+                // Recents can't be listed, and WebappManagedActivities are named for their index
+                // rather than their webapp.  Keep the webapps assigned to one of them.
+                mLiveWebapps.addAll(ActivityAssigner.instance(context).getAssignedWebappIds());
+            }
+            mMustTrimRegistry = true;
         }
     }
 
@@ -89,6 +111,11 @@ public class WebappDirectoryManager extends AsyncTask<Void, Void, Void> {
                 Log.e(TAG, "Failed to delete directory: " + directory.getPath());
             }
         }
+
+        if (mMustTrimRegistry && !isCancelled()) {
+            WebappRegistry.trimEntries(WebappRegistry.getRegistryDirectory(), mLiveWebapps,
+                    System.currentTimeMillis());
+        }
         return null;
     }
 
@@ -96,6 +123,7 @@ public class WebappDirectoryManager extends AsyncTask<Void, Void, Void> {
      * Removes all directories using the old pre-K directory structure, which used directories named
      * app_WebappActivity*.  Also deletes directories corresponding to WebappActivities that are no
      * longer listed in Android's recents, since these will be unable to restore their data, anyway.
+     * The registry directory is kept, and its least recently used entries are removed later on.
      * @param directoriesToDelete Set to append directory names to.
      * @param baseDirectory Base directory of all of Chrome's persisted files.
      */
@@ -114,7 +142,6 @@ public class WebappDirectoryManager extends AsyncTask<Void, Void, Void> {
         }
 
         // Figure out what WebappActivities are still listed in Android's recents menu.
-        HashSet<String> liveWebapps = new HashSet<String>();
         ActivityManager manager =
                 (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
         for (AppTask task : manager.getAppTasks()) {
@@ -123,7 +150,7 @@ public class WebappDirectoryManager extends AsyncTask<Void, Void, Void> {
 
             Uri data = intent.getData();
             if (data != null && TextUtils.equals(mWebappScheme, data.getScheme())) {
-                liveWebapps.add(data.getHost());
+                mLiveWebapps.add(data.getHost());
             }
 
             // WebappManagedActivities have titles from "WebappActivity0" through "WebappActivity9".
@@ -136,7 +163,7 @@ public class WebappDirectoryManager extends AsyncTask<Void, Void, Void> {
                     if (className.startsWith(WEBAPP_DIRECTORY_NAME)
                             && className.length() > WEBAPP_DIRECTORY_NAME.length()) {
                         String activityIndex = className.substring(WEBAPP_DIRECTORY_NAME.length());
-                        liveWebapps.add(activityIndex);
+                        mLiveWebapps.add(activityIndex);
                     }
                 }
             }
@@ -161,7 +188,9 @@ public class WebappDirectoryManager extends AsyncTask<Void, Void, Void> {
                 files = webappBaseDirectory.listFiles();
                 if (files != null) {
                     for (File file : files) {
-                        if (!liveWebapps.contains(file.getName())) directoriesToDelete.add(file);
+                        String filename = file.getName();
+                        if (REGISTRY_DIRECTORY_NAME.equals(filename)) continue;
+                        if (!mLiveWebapps.contains(filename)) directoriesToDelete.add(file);
                     }
                 }
             }
@@ -188,4 +217,12 @@ public class WebappDirectoryManager extends AsyncTask<Void, Void, Void> {
             StrictMode.setThreadPolicy(oldPolicy);
         }
     }
+
+    /**
+     * Returns the directory of the {@link WebappRegistry}, which is shared by all webapps.
+     * @return File for storing the registry entries.
+     */
+    static File getWebappRegistryDirectory() {
+        return getWebappDirectory(REGISTRY_DIRECTORY_NAME);
+    }
 }
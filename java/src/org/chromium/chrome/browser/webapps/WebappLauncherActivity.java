@@ -13,6 +13,7 @@ import android.util.Base64;
 import org.chromium.base.ApiCompatibilityUtils;
 import org.chromium.base.ApplicationStatus;
 import org.chromium.base.Log;
+import org.chromium.chrome.browser.IntentHandler;
 import org.chromium.chrome.browser.ShortcutHelper;
 import org.chromium.chrome.browser.WebappAuthenticator;
 import org.chromium.chrome.browser.document.ChromeLauncherActivity;
@@ -68,6 +69,7 @@ public class WebappLauncherActivity extends Activity {
                 launchIntent = new Intent();
                 launchIntent.setClassName(this, activityName);
                 webappInfo.setWebappIntentExtras(launchIntent);
+                IntentHandler.addTimestampToIntent(launchIntent);
 
                 // On L+, firing intents with the exact same data should relaunch a particular
                 // Activity.
@@ -0,0 +1,339 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.webapps;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.AsyncTask;
+import android.text.TextUtils;
+import android.util.Base64;
+import android.util.Log;
+
+import org.chromium.base.ApplicationStatus;
+import org.chromium.base.StreamUtil;
+import org.chromium.base.ThreadUtils;
+import org.chromium.base.VisibleForTesting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores the icon of each webapp, so that launching it doesn't require decoding the base64 encoded
+ * PNG icon carried by its Intent.  The colors of the webapp are cheap to read from the Intent, and
+ * aren't stored.
+ *
+ * Each webapp has two files in the registry directory, named for the webapp's ID:
+ * - ID.meta holds the last time the webapp was launched, and a hash of the encoded icon the entry
+ *   was created from.  It is rewritten on every launch.
+ * - ID.icon holds the pixels of the icon, scaled down to the size of a launcher icon.  It is only
+ *   written when the webapp is first launched, or when its Intent carries a different icon.
+ *
+ * Entries are read and written on a background thread.  Entries that haven't been used in a long
+ * time, or that exceed {@link #MAX_ENTRIES}, are removed by the {@link WebappDirectoryManager}
+ * once per process.  Entries whose files can't be read are recreated on launch and are the first
+ * to be removed.
+ */
+class WebappRegistry {
+    private static final String TAG = "WebappRegistry";
+
+    private static final int FILE_VERSION = 2;
+    @VisibleForTesting
+    static final String META_FILE_SUFFIX = ".meta";
+    @VisibleForTesting
+    static final String ICON_FILE_SUFFIX = ".icon";
+
+    /** Number of entries kept, most recently launched first. */
+    static final int MAX_ENTRIES = 20;
+
+    /** Entries that weren't launched for this long are removed. */
+    @VisibleForTesting
+    static final long MAX_UNUSED_AGE_MS = TimeUnit.DAYS.toMillis(90);
+
+    /** Size of the largest icon that is stored, so that no icon takes more than a few 100KB. */
+    private static final int MAX_ICON_SIZE_PX = 512;
+
+    /**
+     * Receives the entry of a webapp once it is loaded.
+     */
+    interface EntryCallback {
+        /**
+         * Called on the UI thread.
+         * @param entry The entry, or null if the webapp has no ID.
+         */
+        void onEntryLoaded(Entry entry);
+    }
+
+    /**
+     * What is stored about a webapp.
+     */
+    static class Entry {
+        public final String id;
+        public final long lastUsedMs;
+        /** Icon of the webapp, or null if it has none. */
+        public final Bitmap icon;
+
+        Entry(String id, long lastUsedMs, Bitmap icon) {
+            this.id = id;
+            this.lastUsedMs = lastUsedMs;
+            this.icon = icon;
+        }
+    }
+
+    private WebappRegistry() {}
+
+    /**
+     * Loads the entry of a webapp that is being launched and marks it as used.  If there is no
+     * entry yet, or the webapp's icon changed, the entry is created from the WebappInfo, which
+     * decodes the icon once, on the background thread.
+     * @param info Info of the webapp, parsed from its Intent.  It is copied.
+     * @param callback Called with the entry.
+     */
+    static void launch(WebappInfo info, final EntryCallback callback) {
+        ThreadUtils.assertOnUiThread();
+        final WebappInfo launchedInfo = WebappInfo.createEmpty();
+        launchedInfo.copy(info);
+        if (TextUtils.isEmpty(launchedInfo.id())) {
+            callback.onEntryLoaded(null);
+            return;
+        }
+
+        new AsyncTask<Void, Void, Entry>() {
+            @Override
+            protected Entry doInBackground(Void... params) {
+                return loadOrCreateEntry(getRegistryDirectory(), launchedInfo,
+                        System.currentTimeMillis());
+            }
+
+            @Override
+            protected void onPostExecute(Entry entry) {
+                callback.onEntryLoaded(entry);
+            }
+        }.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+    }
+
+    /**
+     * Must be called on a background thread.
+     * @return The directory holding the registry files.
+     */
+    static File getRegistryDirectory() {
+        return WebappDirectoryManager.getWebappRegistryDirectory();
+    }
+
+    @VisibleForTesting
+    static Entry loadOrCreateEntry(File directory, WebappInfo info, long nowMs) {
+        String id = info.id();
+        int iconHash = getIconHash(info.encodedIcon());
+        Bitmap icon = null;
+
+        DataInputStream metaStream = null;
+        try {
+            File metaFile = new File(directory, id + META_FILE_SUFFIX);
+            if (metaFile.exists()) {
+                metaStream = new DataInputStream(
+                        new BufferedInputStream(new FileInputStream(metaFile)));
+                if (metaStream.readInt() == FILE_VERSION && metaStream.readInt() == iconHash) {
+                    icon = readIcon(new File(directory, id + ICON_FILE_SUFFIX));
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read the registry entry of webapp " + id, e);
+        } finally {
+            StreamUtil.closeQuietly(metaStream);
+        }
+
+        boolean hasIcon = !TextUtils.isEmpty(info.encodedIcon());
+        if (icon == null && hasIcon) {
+            icon = decodeIcon(info.encodedIcon());
+            if (icon != null) writeIcon(new File(directory, id + ICON_FILE_SUFFIX), icon);
+        }
+
+        writeMeta(new File(directory, id + META_FILE_SUFFIX), id, iconHash, nowMs);
+        return new Entry(id, nowMs, icon);
+    }
+
+    /**
+     * Removes the entries that weren't launched in a long time, and the least recently launched
+     * ones beyond {@link #MAX_ENTRIES}.  Entries of webapps that are still in Recents are kept.
+     * Must be called on a background thread.
+     * @param directory The registry directory.
+     * @param liveWebapps IDs of the webapps that may be in Recents.
+     * @param nowMs Current time.
+     */
+    static void trimEntries(File directory, Set<String> liveWebapps, long nowMs) {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+
+        List<String> ids = new ArrayList<String>();
+        final List<Long> lastUsed = new ArrayList<Long>();
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(META_FILE_SUFFIX)) continue;
+            ids.add(name.substring(0, name.length() - META_FILE_SUFFIX.length()));
+            lastUsed.add(readLastUsedMs(file));
+        }
+
+        List<Integer> order = new ArrayList<Integer>(ids.size());
+        for (int i = 0; i < ids.size(); i++) order.add(i);
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                long lhsMs = lastUsed.get(lhs);
+                long rhsMs = lastUsed.get(rhs);
+                return lhsMs > rhsMs ? -1 : (lhsMs == rhsMs ? 0 : 1);
+            }
+        });
+
+        for (int rank = 0; rank < order.size(); rank++) {
+            int index = order.get(rank);
+            String id = ids.get(index);
+            if (liveWebapps.contains(id)) continue;
+            if (rank < MAX_ENTRIES && nowMs - lastUsed.get(index) < MAX_UNUSED_AGE_MS) continue;
+            deleteEntry(directory, id);
+        }
+
+        // Icons written by a launch that was interrupted before its meta file.
+        Set<String> idSet = new HashSet<String>(ids);
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(ICON_FILE_SUFFIX)) continue;
+            String id = name.substring(0, name.length() - ICON_FILE_SUFFIX.length());
+            if (!idSet.contains(id) && !file.delete()) {
+                Log.e(TAG, "Failed to delete file: " + file.getPath());
+            }
+        }
+    }
+
+    private static void deleteEntry(File directory, String id) {
+        File[] files = {new File(directory, id + META_FILE_SUFFIX),
+                new File(directory, id + ICON_FILE_SUFFIX)};
+        for (File file : files) {
+            if (file.exists() && !file.delete()) {
+                Log.e(TAG, "Failed to delete file: " + file.getPath());
+            }
+        }
+    }
+
+    private static int getIconHash(String encodedIcon) {
+        return encodedIcon == null ? 0 : encodedIcon.hashCode();
+    }
+
+    /**
+     * @return The last time the entry was launched, or 0 if it can't be read, making the entry the
+     *         first to be removed.
+     */
+    private static long readLastUsedMs(File metaFile) {
+        DataInputStream stream = null;
+        try {
+            stream = new DataInputStream(new BufferedInputStream(new FileInputStream(metaFile)));
+            if (stream.readInt() != FILE_VERSION) return 0;
+            stream.readInt();
+            return stream.readLong();
+        } catch (IOException e) {
+            return 0;
+        } finally {
+            StreamUtil.closeQuietly(stream);
+        }
+    }
+
+    @VisibleForTesting
+    static void writeMeta(File metaFile, String id, int iconHash, long lastUsedMs) {
+        DataOutputStream stream = null;
+        try {
+            stream = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(metaFile)));
+            stream.writeInt(FILE_VERSION);
+            stream.writeInt(iconHash);
+            stream.writeLong(lastUsedMs);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write the registry entry of webapp " + id, e);
+        } finally {
+            StreamUtil.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Reads the pixels of an icon, which are stored as is so that they can be copied straight
+     * into a Bitmap.
+     */
+    private static Bitmap readIcon(File iconFile) throws IOException {
+        if (!iconFile.exists()) return null;
+        DataInputStream stream = null;
+        try {
+            stream = new DataInputStream(new BufferedInputStream(new FileInputStream(iconFile)));
+            int width = stream.readInt();
+            int height = stream.readInt();
+            if (width <= 0 || height <= 0 || width > MAX_ICON_SIZE_PX
+                    || height > MAX_ICON_SIZE_PX) {
+                return null;
+            }
+            byte[] pixels = new byte[width * height * 4];
+            stream.readFully(pixels);
+            Bitmap icon = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            icon.copyPixelsFromBuffer(ByteBuffer.wrap(pixels));
+            return icon;
+        } finally {
+            StreamUtil.closeQuietly(stream);
+        }
+    }
+
+    private static void writeIcon(File iconFile, Bitmap icon) {
+        ByteBuffer pixels = ByteBuffer.allocate(icon.getWidth() * icon.getHeight() * 4);
+        icon.copyPixelsToBuffer(pixels);
+        DataOutputStream stream = null;
+        try {
+            stream = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(iconFile)));
+            stream.writeInt(icon.getWidth());
+            stream.writeInt(icon.getHeight());
+            stream.write(pixels.array());
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write icon: " + iconFile.getPath(), e);
+            if (!iconFile.delete()) Log.e(TAG, "Failed to delete file: " + iconFile.getPath());
+        } finally {
+            StreamUtil.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Decodes an icon carried by an Intent, scaling it down to the size of a launcher icon, which
+     * is the largest size it is shown at.
+     * @return The icon in ARGB_8888, or null if it can't be decoded.
+     */
+    private static Bitmap decodeIcon(String encodedIcon) {
+        byte[] decoded = Base64.decode(encodedIcon, Base64.DEFAULT);
+        Bitmap icon = BitmapFactory.decodeByteArray(decoded, 0, decoded.length);
+        if (icon == null) return null;
+
+        Context context = ApplicationStatus.getApplicationContext();
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int maxSize = Math.min(am.getLauncherLargeIconSize(), MAX_ICON_SIZE_PX);
+        int largestSide = Math.max(icon.getWidth(), icon.getHeight());
+        if (largestSide > maxSize) {
+            icon = Bitmap.createScaledBitmap(icon,
+                    Math.max(1, icon.getWidth() * maxSize / largestSide),
+                    Math.max(1, icon.getHeight() * maxSize / largestSide), true);
+        }
+        if (icon.getConfig() != Bitmap.Config.ARGB_8888) {
+            icon = icon.copy(Bitmap.Config.ARGB_8888, false);
+        }
+        return icon;
+    }
+}
@@ -18,6 +18,7 @@ import android.util.Log;
 import org.chromium.base.VisibleForTesting;
 import org.chromium.chrome.browser.UrlConstants;
 import org.chromium.chrome.browser.UrlUtilities;
+import org.chromium.chrome.browser.favicon.IconCache;
 
 import java.net.URI;
 import java.util.Locale;
@@ -42,6 +43,7 @@ public class RoundedIconGenerator {
 
     private final float mTextHeight;
     private final float mTextYOffset;
+    private final String mStyleKey;
 
     /**
      * Constructs the generator and initializes the common members based on the display density.
@@ -90,6 +92,8 @@ public class RoundedIconGenerator {
         FontMetrics textFontMetrics = mTextPaint.getFontMetrics();
         mTextHeight = (float) Math.ceil(textFontMetrics.bottom - textFontMetrics.top);
         mTextYOffset = -textFontMetrics.top;
+
+        mStyleKey = "|" + mIconHeightPx + "|" + mCornerRadiusPx + "|" + textSizePx;
     }
 
     /**
@@ -100,18 +104,24 @@ public class RoundedIconGenerator {
     }
 
     /**
-     * Generates an icon based on |text|.
+     * Generates an icon based on |text|. Generated icons are kept in the process wide
+     * {@link IconCache}, so the returned bitmap is shared and must not be modified.
      *
      * @param text The text to render the first character of on the icon.
      * @return The generated icon.
      */
     public Bitmap generateIconForText(String text) {
-        Bitmap icon = Bitmap.createBitmap(mIconWidthPx, mIconHeightPx, Bitmap.Config.ARGB_8888);
+        String displayText = text.substring(0, 1).toUpperCase(Locale.getDefault());
+        String cacheKey = displayText + "|" + mBackgroundPaint.getColor() + mStyleKey;
+        IconCache cache = IconCache.getInstance();
+        Bitmap icon = cache.getBitmap(cacheKey, mIconWidthPx, IconCache.TYPE_GENERATED);
+        if (icon != null) return icon;
+
+        icon = Bitmap.createBitmap(mIconWidthPx, mIconHeightPx, Bitmap.Config.ARGB_8888);
         Canvas canvas = new Canvas(icon);
 
         canvas.drawRoundRect(mBackgroundRect, mCornerRadiusPx, mCornerRadiusPx, mBackgroundPaint);
 
-        String displayText = text.substring(0, 1).toUpperCase(Locale.getDefault());
         float textWidth = mTextPaint.measureText(displayText);
 
         canvas.drawText(
@@ -121,6 +131,7 @@ public class RoundedIconGenerator {
                         / 2.0f + mTextYOffset),
                 mTextPaint);
 
+        cache.put(cacheKey, mIconWidthPx, IconCache.TYPE_GENERATED, icon, 0);
         return icon;
     }
 
@@ -42,6 +42,10 @@ public class AccessibilityTabModelListItem extends FrameLayout implements OnClic
     private static final int VELOCITY_SCALING_FACTOR = 150;
     private static final int CLOSE_TIMEOUT_MS = 2000;
 
+    // The list item only shows the title, url and favicon of its tab.
+    private static final int ACCESSIBILITY_TAB_EVENTS =
+            TabObserver.EVENT_TITLE | TabObserver.EVENT_FAVICON | TabObserver.EVENT_URL;
+
     private int mCloseAnimationDurationMs;
     private int mDefaultAnimationDurationMs;
     private int mCloseTimeoutMs;
@@ -232,7 +236,7 @@ public class AccessibilityTabModelListItem extends FrameLayout implements OnClic
     public void setTab(Tab tab, boolean canUndo) {
         if (mTab != null) mTab.removeObserver(mTabObserver);
         mTab = tab;
-        tab.addObserver(mTabObserver);
+        tab.addObserver(mTabObserver, ACCESSIBILITY_TAB_EVENTS);
         mCanUndo = canUndo;
         updateTabTitle();
         updateFavicon();
@@ -327,7 +331,7 @@ public class AccessibilityTabModelListItem extends FrameLayout implements OnClic
         if (mTab != null) {
             updateFavicon();
             updateTabTitle();
-            mTab.addObserver(mTabObserver);
+            mTab.addObserver(mTabObserver, ACCESSIBILITY_TAB_EVENTS);
         }
     }
 
@@ -483,7 +483,7 @@ public class FindToolbar extends LinearLayout
             model.addObserver(mTabModelObserver);
         }
         mCurrentTab = mTabModelSelector.getCurrentTab();
-        mCurrentTab.addObserver(mTabObserver);
+        mCurrentTab.addObserver(mTabObserver, TabObserver.EVENT_NONE);
         mFindInPageBridge = new FindInPageBridge(mCurrentTab.getWebContents());
         mCurrentTab.getChromeWebContentsDelegateAndroid().setFindResultListener(this);
         mCurrentTab.getChromeWebContentsDelegateAndroid().setFindMatchRectsListener(this);
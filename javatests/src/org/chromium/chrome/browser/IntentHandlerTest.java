@@ -155,6 +155,22 @@ public class IntentHandlerTest extends NativeLibraryTestBase {
                 "Intent with null data should be valid", mIntentHandler.intentHasValidUrl(mIntent));
     }
 
+    @SmallTest
+    @Feature({"Android-AppBase"})
+    public void testSanitizedUrlScheme() {
+        assertNull(IntentHandler.getSanitizedUrlScheme(null));
+        assertNull(IntentHandler.getSanitizedUrlScheme("www.google.com"));
+        assertEquals("", IntentHandler.getSanitizedUrlScheme("://www.google.com/"));
+        assertEquals("http", IntentHandler.getSanitizedUrlScheme("http://www.google.com"));
+        assertEquals("https", IntentHandler.getSanitizedUrlScheme("HTTPS://www.google.com"));
+        assertEquals("iris.beep", IntentHandler.getSanitizedUrlScheme("iris.beep:app"));
+        assertEquals("javascript",
+                IntentHandler.getSanitizedUrlScheme("  \tJava\nscript\n:alert(1)  "));
+        assertEquals("jar", IntentHandler.getSanitizedUrlScheme("j$a$r:f:oobarz"));
+        assertEquals("cole", IntentHandler.getSanitizedUrlScheme("\u00C9 cole:foo"));
+        assertEquals("\u00E9cole", IntentHandler.getSanitizedUrlScheme("\u00C9cole:foo"));
+    }
+
     @UiThreadTest
     @MediumTest
     @Feature({"Android-AppBase"})
@@ -0,0 +1,257 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.contextualsearch;
+
+import android.content.Context;
+import android.test.InstrumentationTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.chrome.R;
+import org.chromium.chrome.browser.compositor.bottombar.contextualsearch.ContextualSearchPanel;
+import org.chromium.chrome.browser.compositor.bottombar.contextualsearch.ContextualSearchPanel.StateChangeReason;
+import org.chromium.chrome.browser.compositor.bottombar.contextualsearch.ContextualSearchPanelDelegate;
+import org.chromium.chrome.browser.compositor.scene_layer.ContextualSearchSceneLayer;
+import org.chromium.content.browser.ContentViewCore;
+
+import java.util.Arrays;
+
+/**
+ * Tests the layout pass of the Contextual Search Panel.
+ */
+public class ContextualSearchPanelLayoutTest extends InstrumentationTestCase {
+    private static final float LAYOUT_WIDTH_DP = 600.f;
+    private static final float LAYOUT_HEIGHT_DP = 800.f;
+
+    private static final int DRAG_FRAMES = 300;
+    // Touch events are usually delivered faster than frames are drawn.
+    private static final int MOVES_PER_FRAME = 3;
+    // Number of frames it takes to drag the Panel from peeked to maximized, and back.
+    private static final int FRAMES_PER_DRAG = 120;
+
+    private float mDpToPx;
+
+    // --------------------------------------------------------------------------------------------
+    // ContextualSearchManagementDelegateStub
+    // --------------------------------------------------------------------------------------------
+
+    /**
+     * Management delegate providing what the Panel needs to lay itself out.
+     */
+    private static class ContextualSearchManagementDelegateStub
+            implements ContextualSearchManagementDelegate {
+        @Override
+        public boolean isShowingSearchPanel() {
+            return true;
+        }
+
+        @Override
+        public void setPreferenceState(boolean enabled) {}
+
+        @Override
+        public boolean isPromoAvailable() {
+            return false;
+        }
+
+        @Override
+        public void logPromoOutcome() {}
+
+        @Override
+        public void updateTopControlsState(int current, boolean animate) {}
+
+        @Override
+        public void promoteToTab() {}
+
+        @Override
+        public void resetSearchContentViewScroll() {}
+
+        @Override
+        public float getSearchContentViewVerticalScroll() {
+            return 0.f;
+        }
+
+        @Override
+        public void setSearchContentViewVisibility(boolean isVisible) {}
+
+        @Override
+        public void setContextualSearchPanelDelegate(ContextualSearchPanelDelegate delegate) {}
+
+        @Override
+        public boolean isRunningInCompatibilityMode() {
+            return false;
+        }
+
+        @Override
+        public void openResolvedSearchUrlInNewTab() {}
+
+        @Override
+        public void preserveBasePageSelectionOnNextLossOfFocus() {}
+
+        @Override
+        public void dismissContextualSearchBar() {}
+
+        @Override
+        public void onCloseContextualSearch(StateChangeReason reason) {}
+
+        @Override
+        public ContentViewCore getSearchContentViewCore() {
+            return null;
+        }
+
+        @Override
+        public int getControlContainerHeightResource() {
+            return R.dimen.control_container_height;
+        }
+
+        @Override
+        public boolean isCustomTab() {
+            return false;
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Test Suite
+    // --------------------------------------------------------------------------------------------
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDpToPx = getInstrumentation().getTargetContext().getResources().getDisplayMetrics()
+                .density;
+    }
+
+    /**
+     * Tests that the state read after dragging the Panel is the one of its final height, even
+     * though it is computed after the drag.
+     */
+    @SmallTest
+    @Feature({"ContextualSearch"})
+    public void testLayoutIsComputedWhenRead() {
+        ContextualSearchPanel panel = createPanel();
+        float[] peekedValues = new float[ContextualSearchSceneLayer.VALUE_COUNT];
+        panel.handleSwipeStart();
+        panel.handleSwipeMove(0.f);
+        ContextualSearchSceneLayer.readPanelValues(panel, mDpToPx, peekedValues);
+        float peekedSearchBarHeight = panel.getSearchBarHeight();
+
+        // Drag to maximized through many intermediate heights.
+        float[] draggedValues = new float[ContextualSearchSceneLayer.VALUE_COUNT];
+        for (int i = 1; i <= 10; i++) {
+            panel.handleSwipeMove(-LAYOUT_HEIGHT_DP * i / 10);
+        }
+        assertTrue(panel.isMaximized());
+        assertTrue(panel.getSearchBarHeight() > peekedSearchBarHeight);
+        ContextualSearchSceneLayer.readPanelValues(panel, mDpToPx, draggedValues);
+        assertFalse(Arrays.equals(peekedValues, draggedValues));
+
+        // A Panel dragged straight to the same height has the same state.
+        ContextualSearchPanel otherPanel = createPanel();
+        float[] otherValues = new float[ContextualSearchSceneLayer.VALUE_COUNT];
+        otherPanel.handleSwipeStart();
+        otherPanel.handleSwipeMove(-LAYOUT_HEIGHT_DP);
+        ContextualSearchSceneLayer.readPanelValues(otherPanel, mDpToPx, otherValues);
+        assertTrue(Arrays.equals(draggedValues, otherValues));
+    }
+
+    /**
+     * Tests that moving the Panel only marks its layout dirty, and that the layout is computed
+     * once when the state is read.
+     */
+    @SmallTest
+    @Feature({"ContextualSearch"})
+    public void testLayoutIsDeferredUntilRead() {
+        ContextualSearchPanel panel = createPanel();
+        panel.handleSwipeStart();
+        for (int move = 1; move <= MOVES_PER_FRAME; move++) {
+            panel.handleSwipeMove(-LAYOUT_HEIGHT_DP * move / 10);
+            assertTrue(panel.isLayoutDirty());
+        }
+
+        panel.getSearchBarHeight();
+        assertFalse(panel.isLayoutDirty());
+
+        panel.handleSwipeMove(-LAYOUT_HEIGHT_DP / 2);
+        assertTrue(panel.isLayoutDirty());
+        panel.updatePanelLayoutIfNeeded();
+        assertFalse(panel.isLayoutDirty());
+    }
+
+    /**
+     * Drags the Panel up and down through {@link #DRAG_FRAMES} frames with several touch moves
+     * per frame. Computing the Panel state once per frame must give the same frames as computing
+     * it on every touch move, as the Panel used to. Frames in which the Panel is held past its
+     * smallest or largest height have the same values as the previous frame, so the scene layer
+     * doesn't push them to the native layer.
+     */
+    @SmallTest
+    @Feature({"ContextualSearch"})
+    public void testLayoutOncePerFrameMatchesEagerLayout() {
+        float[] eagerValues = new float[ContextualSearchSceneLayer.VALUE_COUNT];
+        float[] values = new float[ContextualSearchSceneLayer.VALUE_COUNT];
+        float[] previousValues = new float[ContextualSearchSceneLayer.VALUE_COUNT];
+
+        ContextualSearchPanel eagerPanel = createPanel();
+        eagerPanel.handleSwipeStart();
+        ContextualSearchPanel panel = createPanel();
+        panel.handleSwipeStart();
+        int pushedFrames = 0;
+        for (int frame = 0; frame < DRAG_FRAMES; frame++) {
+            for (int move = 0; move < MOVES_PER_FRAME; move++) {
+                eagerPanel.handleSwipeMove(getDragOffset(frame, move));
+                eagerPanel.updatePanelLayoutIfNeeded();
+                panel.handleSwipeMove(getDragOffset(frame, move));
+            }
+            ContextualSearchSceneLayer.readPanelValues(eagerPanel, mDpToPx, eagerValues);
+            ContextualSearchSceneLayer.readPanelValues(panel, mDpToPx, values);
+            assertTrue("Frame " + frame, Arrays.equals(eagerValues, values));
+
+            if (frame == 0 || !Arrays.equals(values, previousValues)) {
+                pushedFrames++;
+                float[] swap = previousValues;
+                previousValues = values;
+                values = swap;
+            }
+        }
+        assertTrue(pushedFrames > 0);
+        assertTrue(pushedFrames < DRAG_FRAMES);
+    }
+
+    /**
+     * Tests that dragging the Panel past its largest height doesn't change its state.
+     */
+    @SmallTest
+    @Feature({"ContextualSearch"})
+    public void testDragPastLargestHeightKeepsValues() {
+        ContextualSearchPanel panel = createPanel();
+        panel.handleSwipeStart();
+        panel.handleSwipeMove(-LAYOUT_HEIGHT_DP * 2);
+        assertTrue(panel.isMaximized());
+        float[] values = new float[ContextualSearchSceneLayer.VALUE_COUNT];
+        ContextualSearchSceneLayer.readPanelValues(panel, mDpToPx, values);
+
+        float[] draggedValues = new float[ContextualSearchSceneLayer.VALUE_COUNT];
+        panel.handleSwipeMove(-LAYOUT_HEIGHT_DP * 3);
+        ContextualSearchSceneLayer.readPanelValues(panel, mDpToPx, draggedValues);
+        assertTrue(Arrays.equals(values, draggedValues));
+    }
+
+    /**
+     * @return The drag offset of a touch move, which moves the Panel past its smallest and
+     *         largest heights for part of each drag.
+     */
+    private static float getDragOffset(int frame, int move) {
+        float time = (frame * MOVES_PER_FRAME + move) / (float) (FRAMES_PER_DRAG * MOVES_PER_FRAME);
+        return (float) (-LAYOUT_HEIGHT_DP * 0.6f * (1 - Math.cos(2 * Math.PI * time)));
+    }
+
+    private ContextualSearchPanel createPanel() {
+        Context context = getInstrumentation().getTargetContext();
+        ContextualSearchPanel panel = new ContextualSearchPanel(context, null);
+        panel.setManagementDelegate(new ContextualSearchManagementDelegateStub());
+        panel.setIsFullscreenSizePanelForTesting(true);
+        panel.onSizeChanged(LAYOUT_WIDTH_DP, LAYOUT_HEIGHT_DP, false);
+        return panel;
+    }
+}
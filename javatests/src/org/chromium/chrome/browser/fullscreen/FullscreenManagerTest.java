@@ -369,6 +369,66 @@ public class FullscreenManagerTest extends ChromeTabbedActivityTestBase {
         scrollTopControls(true);
     }
 
+    /**
+     * Counts how many times the fullscreen listeners are notified of offset changes.
+     */
+    private static class OffsetChangeCounter
+            implements ChromeFullscreenManager.FullscreenListener {
+        final AtomicInteger mContentOffsetChangeCount = new AtomicInteger();
+        final AtomicInteger mVisibleContentOffsetChangeCount = new AtomicInteger();
+
+        @Override
+        public void onContentOffsetChanged(float offset) {
+            mContentOffsetChangeCount.incrementAndGet();
+        }
+
+        @Override
+        public void onVisibleContentOffsetChanged(float offset) {
+            mVisibleContentOffsetChangeCount.incrementAndGet();
+        }
+
+        @Override
+        public void onToggleOverlayVideoMode(boolean enabled) {}
+    }
+
+    @LargeTest
+    @Feature({"Fullscreen"})
+    public void testRendererOffsetsAreAppliedOncePerFrame()
+            throws InterruptedException, ExecutionException {
+        startMainActivityWithURL(LONG_HTML_TEST_PAGE);
+
+        final ChromeFullscreenManager fullscreenManager = getActivity().getFullscreenManager();
+        fullscreenManager.disableBrowserOverrideForTest();
+        final int topControlsHeight = fullscreenManager.getTopControlsHeight();
+        final OffsetChangeCounter counter = new OffsetChangeCounter();
+
+        // The renderer reports several offsets within one frame.
+        int changeCountBeforeFrame = ThreadUtils.runOnUiThread(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                fullscreenManager.addListener(counter);
+                for (int offset = 10; offset <= 30; offset += 10) {
+                    fullscreenManager.setPositionsForTab(-offset, topControlsHeight - offset);
+                }
+                return counter.mContentOffsetChangeCount.get()
+                        + counter.mVisibleContentOffsetChangeCount.get();
+            }
+        }).get();
+        assertEquals(0, changeCountBeforeFrame);
+
+        // Only the last one is applied, and the listeners are notified of it once.
+        assertEquals(-30f, waitForTopControlsPosition(-30f), 0f);
+        assertEquals(1, counter.mContentOffsetChangeCount.get());
+        assertEquals(1, counter.mVisibleContentOffsetChangeCount.get());
+        assertEquals(topControlsHeight - 30f, ThreadUtils.runOnUiThread(new Callable<Float>() {
+            @Override
+            public Float call() {
+                fullscreenManager.removeListener(counter);
+                return fullscreenManager.getContentOffset();
+            }
+        }).get(), 0f);
+    }
+
     private void scrollTopControls(boolean show) throws InterruptedException, ExecutionException {
         ChromeFullscreenManager fullscreenManager = getActivity().getFullscreenManager();
         int topControlsHeight = fullscreenManager.getTopControlsHeight();
@@ -443,6 +443,110 @@ public class InfoBarTest2 extends ChromeActivityTestCaseBase<ChromeActivity> {
         // - Observe that Clank's overlay size changes (or disappears if URLbar is also gone).
     }
 
+    /**
+     * Counts the infobar animations of a type that finished, and how many animations ran them:
+     * transitions animated together finish in the same UI thread task.
+     */
+    private static class AnimationCounter implements InfoBarContainer.InfoBarAnimationListener {
+        private final int mAnimationType;
+        private final AtomicInteger mFinishedCount = new AtomicInteger();
+        private final AtomicInteger mAnimationCount = new AtomicInteger();
+        private boolean mIsAnimationFinishing;
+
+        AnimationCounter(int animationType) {
+            mAnimationType = animationType;
+        }
+
+        @Override
+        public void notifyAnimationFinished(int animationType) {
+            if (animationType != mAnimationType) return;
+            mFinishedCount.incrementAndGet();
+            if (mIsAnimationFinishing) return;
+
+            mIsAnimationFinishing = true;
+            mAnimationCount.incrementAndGet();
+            ThreadUtils.postOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    mIsAnimationFinishing = false;
+                }
+            });
+        }
+
+        boolean waitForFinishedCount(final int count) throws InterruptedException {
+            return CriteriaHelper.pollForCriteria(new Criteria() {
+                @Override
+                public boolean isSatisfied() {
+                    return mFinishedCount.get() == count;
+                }
+            });
+        }
+    }
+
+    /**
+     * Shows five infobars at once, then dismisses them all at once.
+     * @return How many animations it took to show the infobars.
+     */
+    private int showAndDismissFiveInfoBars() throws InterruptedException {
+        final InfoBarContainer container = getActivity().getActivityTab().getInfoBarContainer();
+        final ArrayList<InfoBar> infoBars = new ArrayList<InfoBar>();
+        for (int i = 0; i < 5; i++) {
+            infoBars.add(new MessageInfoBar("InfoBar " + i));
+        }
+
+        final AnimationCounter showCounter =
+                new AnimationCounter(AnimationHelper.ANIMATION_TYPE_SHOW);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                container.setAnimationListener(showCounter);
+                for (InfoBar infoBar : infoBars) container.addInfoBar(infoBar);
+            }
+        });
+        assertTrue("InfoBars not added.", showCounter.waitForFinishedCount(infoBars.size()));
+        assertEquals(infoBars.size(), getInfoBarIdsForCurrentTab().size());
+        assertEquals(infoBars.size(), ThreadUtils.runOnUiThreadBlockingNoException(
+                new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return container.getLinearLayout().getChildCount();
+                    }
+                }).intValue());
+
+        final AnimationCounter hideCounter =
+                new AnimationCounter(AnimationHelper.ANIMATION_TYPE_HIDE);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                container.setAnimationListener(hideCounter);
+                for (InfoBar infoBar : infoBars) infoBar.dismissJavaOnlyInfoBar();
+            }
+        });
+        assertTrue("InfoBars not removed.", hideCounter.waitForFinishedCount(infoBars.size()));
+        assertTrue(getInfoBarIdsForCurrentTab().isEmpty());
+        assertEquals(showCounter.mAnimationCount.get(), hideCounter.mAnimationCount.get());
+
+        return showCounter.mAnimationCount.get();
+    }
+
+    /**
+     * Checks that infobars shown and dismissed at once are animated together by the container of
+     * a tab, and one after the other once batching is turned off.
+     */
+    @MediumTest
+    @Feature({"Browser"})
+    public void testInfoBarsChangedAtOnceAreBatched() throws InterruptedException {
+        assertEquals(1, showAndDismissFiveInfoBars());
+
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                getActivity().getActivityTab().getInfoBarContainer().setBatchesTransitions(false);
+            }
+        });
+        assertEquals(5, showAndDismissFiveInfoBars());
+    }
+
     @Override
     public void startMainActivity() throws InterruptedException {
         startMainActivityOnBlankPage();
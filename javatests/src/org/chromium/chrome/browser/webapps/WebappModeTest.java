@@ -5,6 +5,7 @@
 package org.chromium.chrome.browser.webapps;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
@@ -14,6 +15,7 @@ import android.test.suitebuilder.annotation.MediumTest;
 import android.view.View;
 
 import org.chromium.base.ApplicationStatus;
+import org.chromium.base.SysUtils;
 import org.chromium.base.ThreadUtils;
 import org.chromium.base.test.util.CommandLineFlags;
 import org.chromium.base.test.util.UrlUtils;
@@ -22,6 +24,7 @@ import org.chromium.chrome.browser.ChromeSwitches;
 import org.chromium.chrome.browser.ChromeTabbedActivity;
 import org.chromium.chrome.browser.ShortcutHelper;
 import org.chromium.chrome.browser.ShortcutSource;
+import org.chromium.chrome.browser.WarmupManager;
 import org.chromium.chrome.browser.document.DocumentActivity;
 import org.chromium.chrome.browser.tab.Tab;
 import org.chromium.chrome.browser.tab.TabIdManager;
@@ -38,6 +41,7 @@ import org.chromium.content_public.common.ScreenOrientationValues;
 
 import java.lang.ref.WeakReference;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Tests that WebappActivities are launched correctly.
@@ -156,6 +160,164 @@ public class WebappModeTest extends MultiActivityTestBase {
         assertEquals("Wrong Tab ID was used", 11684, webappActivity.getActivityTab().getId());
     }
 
+    /**
+     * Tests that the time from the launch to the first paint is recorded in the histogram of
+     * launches without a prebuilt view hierarchy.
+     */
+    @MediumTest
+    public void testLaunchToFirstPaintIsRecorded() throws Exception {
+        WebappActivity webappActivity =
+                startWebappActivity(WEBAPP_1_ID, WEBAPP_1_URL, WEBAPP_1_TITLE, WEBAPP_ICON);
+        assertEquals("Webapp.LaunchToFirstPaint.Default",
+                waitForLaunchHistogramName(webappActivity));
+    }
+
+    /**
+     * Tests that a webapp launched after another one prepared for it takes the prebuilt view
+     * hierarchy and the spare renderer, and loads its URL over the blank page of the renderer.
+     */
+    @MediumTest
+    public void testLaunchAfterPrepareForNextLaunch() throws Exception {
+        WebappActivity firstActivity =
+                startWebappActivity(WEBAPP_1_ID, WEBAPP_1_URL, WEBAPP_1_TITLE, WEBAPP_ICON);
+        prepareForNextLaunch(firstActivity);
+        if (SysUtils.isLowEndDevice()) {
+            assertFalse(hasSpareWebContents());
+            return;
+        }
+
+        final WebappActivity secondActivity =
+                startWebappActivity(WEBAPP_2_ID, WEBAPP_2_URL, WEBAPP_2_TITLE, WEBAPP_ICON);
+        assertTrue(secondActivity != firstActivity);
+        assertEquals("Webapp.LaunchToFirstPaint.Prewarmed",
+                waitForLaunchHistogramName(secondActivity));
+        assertFalse(hasSpareWebContents());
+        assertTrue(CriteriaHelper.pollForUIThreadCriteria(new Criteria() {
+            @Override
+            public boolean isSatisfied() {
+                return WEBAPP_2_URL.equals(secondActivity.getActivityTab().getUrl());
+            }
+        }));
+        assertTrue(ThreadUtils.runOnUiThreadBlockingNoException(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                FullScreenActivityTab tab = secondActivity.getActivityTab();
+                // The blank page of the spare renderer was replaced by the webapp.
+                return !tab.isBlank() && !tab.canGoBack();
+            }
+        }));
+    }
+
+    /**
+     * Tests that the spare renderer created for the next launch is destroyed when memory runs
+     * low.
+     */
+    @MediumTest
+    public void testSpareRendererIsDestroyedWhenMemoryIsLow() throws Exception {
+        if (SysUtils.isLowEndDevice()) return;
+        final WebappActivity webappActivity =
+                startWebappActivity(WEBAPP_1_ID, WEBAPP_1_URL, WEBAPP_1_TITLE, WEBAPP_ICON);
+        prepareForNextLaunch(webappActivity);
+
+        ThreadUtils.runOnUiThreadBlocking(new Runnable() {
+            @Override
+            public void run() {
+                webappActivity.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+            }
+        });
+        assertFalse(hasSpareWebContents());
+    }
+
+    /**
+     * Tests that webapps neither destroy nor take the spare renderer warmed up for a Custom Tab,
+     * which is pending while the user leaves a webapp.
+     */
+    @MediumTest
+    public void testCustomTabSpareRendererIsKept() throws Exception {
+        if (SysUtils.isLowEndDevice()) return;
+        final WebappActivity firstActivity =
+                startWebappActivity(WEBAPP_1_ID, WEBAPP_1_URL, WEBAPP_1_TITLE, WEBAPP_ICON);
+        // As done by CustomTabsConnection#mayLaunchUrl().
+        ThreadUtils.runOnUiThreadBlocking(new Runnable() {
+            @Override
+            public void run() {
+                WarmupManager.getInstance().createSpareWebContents();
+            }
+        });
+        prepareForNextLaunch(firstActivity);
+        ThreadUtils.runOnUiThreadBlocking(new Runnable() {
+            @Override
+            public void run() {
+                assertFalse(WarmupManager.getInstance().hasSpareWebContentsForWebapp());
+                firstActivity.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+            }
+        });
+        assertTrue(hasSpareWebContents());
+
+        WebappActivity secondActivity =
+                startWebappActivity(WEBAPP_2_ID, WEBAPP_2_URL, WEBAPP_2_TITLE, WEBAPP_ICON);
+        assertTrue(secondActivity != firstActivity);
+        assertTrue(hasSpareWebContents());
+
+        ThreadUtils.runOnUiThreadBlocking(new Runnable() {
+            @Override
+            public void run() {
+                WarmupManager.getInstance().destroySpareWebContents();
+            }
+        });
+    }
+
+    /**
+     * Has the WebappActivity prepare for the next launch as if the user left it, and waits until
+     * the spare renderer exists.  Low-end devices don't prepare, so only the UI thread is waited
+     * for on them.
+     */
+    private void prepareForNextLaunch(final WebappActivity webappActivity) throws Exception {
+        ThreadUtils.runOnUiThreadBlocking(new Runnable() {
+            @Override
+            public void run() {
+                webappActivity.prepareForNextLaunch();
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        if (SysUtils.isLowEndDevice()) return;
+        assertTrue(CriteriaHelper.pollForUIThreadCriteria(new Criteria() {
+            @Override
+            public boolean isSatisfied() {
+                return WarmupManager.getInstance().hasSpareWebContents();
+            }
+        }));
+    }
+
+    private boolean hasSpareWebContents() {
+        return ThreadUtils.runOnUiThreadBlockingNoException(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return WarmupManager.getInstance().hasSpareWebContents();
+            }
+        });
+    }
+
+    /**
+     * Waits until the WebappActivity recorded the time to its first paint.
+     * @return The histogram it was recorded in.
+     */
+    private String waitForLaunchHistogramName(final WebappActivity webappActivity)
+            throws Exception {
+        assertTrue(CriteriaHelper.pollForUIThreadCriteria(new Criteria() {
+            @Override
+            public boolean isSatisfied() {
+                return webappActivity.getLaunchHistogramName() != null;
+            }
+        }));
+        return ThreadUtils.runOnUiThreadBlockingNoException(new Callable<String>() {
+            @Override
+            public String call() {
+                return webappActivity.getLaunchHistogramName();
+            }
+        });
+    }
+
     /**
      * Tests that a WebappActivity can be brought forward by calling
      * WebContentsDelegateAndroid.activateContents().
@@ -0,0 +1,83 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests (run on host) for {@link FirstPartyPackageCache}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class FirstPartyPackageCacheTest {
+    private static final String FIRST_PARTY_PACKAGE = "com.google.android.gm";
+    private static final String OTHER_PACKAGE = "com.example.chat";
+
+    /**
+     * Considers FIRST_PARTY_PACKAGE as Google-signed, and records the packages it checks.
+     */
+    private static class TestCache extends FirstPartyPackageCache {
+        final List<String> mCheckedPackages = new ArrayList<String>();
+        boolean mIsFirstPartyGoogleSigned = true;
+
+        @Override
+        protected boolean checkGoogleSigned(Context context, String packageName) {
+            mCheckedPackages.add(packageName);
+            return mIsFirstPartyGoogleSigned && FIRST_PARTY_PACKAGE.equals(packageName);
+        }
+    }
+
+    private TestCache mCache;
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mCache = new TestCache();
+        mContext = Robolectric.application;
+    }
+
+    @Test
+    @Feature({"Android-AppBase"})
+    public void testPackagesAreCheckedOnce() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(mCache.isGoogleSigned(mContext, FIRST_PARTY_PACKAGE));
+            assertFalse(mCache.isGoogleSigned(mContext, OTHER_PACKAGE));
+        }
+        assertEquals(2, mCache.mCheckedPackages.size());
+    }
+
+    @Test
+    @Feature({"Android-AppBase"})
+    public void testUpdatedPackageIsCheckedAgain() {
+        assertTrue(mCache.isGoogleSigned(mContext, FIRST_PARTY_PACKAGE));
+        assertFalse(mCache.isGoogleSigned(mContext, OTHER_PACKAGE));
+
+        // The first-party package is replaced by one with different signatures.
+        mCache.mIsFirstPartyGoogleSigned = false;
+        mCache.onReceive(mContext, new Intent(
+                Intent.ACTION_PACKAGE_REPLACED, Uri.parse("package:" + FIRST_PARTY_PACKAGE)));
+        assertFalse(mCache.isGoogleSigned(mContext, FIRST_PARTY_PACKAGE));
+        assertFalse(mCache.isGoogleSigned(mContext, OTHER_PACKAGE));
+        assertEquals(3, mCache.mCheckedPackages.size());
+        assertEquals(FIRST_PARTY_PACKAGE, mCache.mCheckedPackages.get(2));
+    }
+}
@@ -0,0 +1,127 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.contextualsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.chrome.browser.contextualsearch.ContextualSearchTermCache.ResolvedTerm;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+/**
+ * Unit tests (run on host) for {@link ContextualSearchTermCache}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ContextualSearchTermCacheTest {
+    private static final String HOST = "www.example.com";
+
+    /**
+     * Cache whose clock is set by the test.
+     */
+    private static class TestCache extends ContextualSearchTermCache {
+        long mNowMs = 1000;
+
+        @Override
+        long now() {
+            return mNowMs;
+        }
+    }
+
+    private TestCache mCache;
+    private int mContext;
+
+    @Before
+    public void setUp() {
+        mCache = new TestCache();
+        mContext = ContextualSearchTermCache.hashSurroundingText("The ", " jumps over");
+    }
+
+    private void put(String selection, int surroundingTextHash, String host, String searchTerm) {
+        mCache.put(selection, surroundingTextHash, host, searchTerm, searchTerm, null, false, 0,
+                0);
+    }
+
+    @Test
+    @Feature({"ContextualSearch"})
+    public void testStoredTermIsFound() {
+        assertFalse(mCache.hasCandidates("fox", HOST));
+        put("fox", mContext, HOST, "Red fox");
+
+        assertTrue(mCache.hasCandidates("fox", HOST));
+        ResolvedTerm term = mCache.get("fox", mContext, HOST);
+        assertNotNull(term);
+        assertEquals("Red fox", term.mSearchTerm);
+
+        // The same word in another context or on another site is resolved again.
+        int otherContext = ContextualSearchTermCache.hashSurroundingText("A ", " runs");
+        assertNull(mCache.get("fox", otherContext, HOST));
+        assertNull(mCache.get("fox", mContext, "news.example.com"));
+        assertFalse(mCache.hasCandidates("fox", "news.example.com"));
+    }
+
+    @Test
+    @Feature({"ContextualSearch"})
+    public void testEntriesExpire() {
+        put("fox", mContext, HOST, "Red fox");
+        mCache.mNowMs += ContextualSearchTermCache.TIME_TO_LIVE_MS;
+        assertTrue(mCache.hasCandidates("fox", HOST));
+        assertNotNull(mCache.get("fox", mContext, HOST));
+
+        mCache.mNowMs++;
+        assertFalse(mCache.hasCandidates("fox", HOST));
+        assertNull(mCache.get("fox", mContext, HOST));
+
+        // Storing the term again makes it live again.
+        put("fox", mContext, HOST, "Arctic fox");
+        assertEquals("Arctic fox", mCache.get("fox", mContext, HOST).mSearchTerm);
+    }
+
+    @Test
+    @Feature({"ContextualSearch"})
+    public void testKeysDoNotCollide() {
+        // Selections and hosts that would give the same key if they were simply concatenated.
+        put("fox", 12, HOST, "fox 12");
+        put("fox\n1", 2, HOST, "fox 1 2");
+        put("b", 1, "a", "a b");
+        put("\nb", 1, "a", "a newline b");
+
+        assertEquals("fox 12", mCache.get("fox", 12, HOST).mSearchTerm);
+        assertEquals("fox 1 2", mCache.get("fox\n1", 2, HOST).mSearchTerm);
+        assertEquals("a b", mCache.get("b", 1, "a").mSearchTerm);
+        assertEquals("a newline b", mCache.get("\nb", 1, "a").mSearchTerm);
+        assertNull(mCache.get("fox\n1", 12, HOST));
+    }
+
+    @Test
+    @Feature({"ContextualSearch"})
+    public void testLongerSelectionIsNotACandidate() {
+        put("fox\njumps", mContext, HOST, "Fox jumps");
+        assertFalse(mCache.hasCandidates("fox", HOST));
+        assertTrue(mCache.hasCandidates("fox\njumps", HOST));
+    }
+
+    @Test
+    @Feature({"ContextualSearch"})
+    public void testOldestEntriesAreEvicted() {
+        for (int i = 0; i <= ContextualSearchTermCache.MAX_ENTRIES; i++) {
+            put("word" + i, mContext, HOST, "term" + i);
+        }
+        assertNull(mCache.get("word0", mContext, HOST));
+        assertNotNull(mCache.get("word1", mContext, HOST));
+        assertNotNull(mCache.get("word" + ContextualSearchTermCache.MAX_ENTRIES, mContext, HOST));
+
+        mCache.clear();
+        assertFalse(mCache.hasCandidates("word1", HOST));
+    }
+}
@@ -0,0 +1,190 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.fullscreen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link TopControlsOffsetPredictor}.
+ *
+ * Scroll traces are replayed through the predictor: the renderer draws frames of the page at its
+ * own pace and reports the offsets it drew each of them with, which reach the browser a little
+ * later.  The browser draws the toolbar at every vsync, over the latest frame of the renderer.
+ * The skew between the toolbar and the content is the distance between the bottom of the toolbar
+ * and the content offset the renderer reported for the frame of the page shown under it.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class TopControlsOffsetPredictorTest {
+    private static final float CONTROLS_HEIGHT = 168;
+    private static final long VSYNC_NS = 16666667;
+    private static final long REPORT_LATENCY_NS = VSYNC_NS / 4;
+    private static final long SETTLE_NS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    /**
+     * The position of the controls over time, as the page scrolls.
+     */
+    private interface ScrollTrace {
+        /**
+         * @param timeMs Time since the start of the scroll.
+         * @return The offset of the controls at that time.
+         */
+        float getControlOffset(double timeMs);
+    }
+
+    /** A fling hiding the controls, decelerating like Android's scrollers do. */
+    private static final ScrollTrace FLING = new ScrollTrace() {
+        @Override
+        public float getControlOffset(double timeMs) {
+            double scrolled = 2.0 * 325 * (1 - Math.exp(-timeMs / 325));
+            return (float) -Math.min(CONTROLS_HEIGHT, scrolled);
+        }
+    };
+
+    /** A finger slowly scrolling the controls out, then back in. */
+    private static final ScrollTrace DRAG_AND_REVERSE = new ScrollTrace() {
+        @Override
+        public float getControlOffset(double timeMs) {
+            double scrolled = timeMs < 200 ? 0.6 * timeMs : Math.max(0, 120 - 0.4 * (timeMs - 200));
+            return (float) -Math.min(CONTROLS_HEIGHT, scrolled);
+        }
+    };
+
+    private static class ReplayResult {
+        double mMeanSkewWithoutPrediction;
+        double mMeanSkewWithPrediction;
+        int mReportCount;
+        int mAppliedFrameCount;
+    }
+
+    /**
+     * Replays a trace.
+     * @param trace The trace to replay.
+     * @param durationNs How long the renderer draws frames for.
+     * @param rendererFrameIntervalNs How often the renderer draws a frame and reports its offsets.
+     * @return The skews measured with and without prediction.
+     */
+    private static ReplayResult replay(ScrollTrace trace, long durationNs,
+            long rendererFrameIntervalNs) {
+        // The offsets the renderer drew its frames with, and reported.
+        int rendererFrameCount = (int) (durationNs / rendererFrameIntervalNs) + 1;
+        float[] reportedControlOffsets = new float[rendererFrameCount];
+        float[] reportedContentOffsets = new float[rendererFrameCount];
+        for (int i = 0; i < rendererFrameCount; i++) {
+            reportedControlOffsets[i] = trace.getControlOffset(toMs(i * rendererFrameIntervalNs));
+            reportedContentOffsets[i] = reportedControlOffsets[i] + CONTROLS_HEIGHT;
+        }
+
+        TopControlsOffsetPredictor predictor = new TopControlsOffsetPredictor(CONTROLS_HEIGHT);
+        ReplayResult result = new ReplayResult();
+        double skewWithoutPrediction = 0;
+        double skewWithPrediction = 0;
+        int frameCount = 0;
+
+        int receivedCount = 0;
+        for (long frameNs = VSYNC_NS; frameNs < durationNs + SETTLE_NS; frameNs += VSYNC_NS) {
+            // Deliver the reports received since the last frame.
+            while (receivedCount < rendererFrameCount && receivedCount * rendererFrameIntervalNs
+                    + REPORT_LATENCY_NS <= frameNs) {
+                predictor.addOffsets(receivedCount * rendererFrameIntervalNs + REPORT_LATENCY_NS,
+                        reportedControlOffsets[receivedCount],
+                        reportedContentOffsets[receivedCount]);
+                receivedCount++;
+                result.mReportCount++;
+            }
+            if (receivedCount == 0) continue;
+
+            if (predictor.hasPendingOffsets()) {
+                predictor.applyOffsets(frameNs);
+                result.mAppliedFrameCount++;
+            }
+
+            // The content shown is the latest frame of the renderer, whose report may not have
+            // been received yet.
+            int shownFrame = (int) Math.min(
+                    frameNs / rendererFrameIntervalNs, rendererFrameCount - 1);
+            float contentOffset = reportedContentOffsets[shownFrame];
+            float lastReceivedControlOffset = reportedControlOffsets[receivedCount - 1];
+            skewWithoutPrediction +=
+                    Math.abs(lastReceivedControlOffset + CONTROLS_HEIGHT - contentOffset);
+            skewWithPrediction +=
+                    Math.abs(predictor.getControlOffset() + CONTROLS_HEIGHT - contentOffset);
+            frameCount++;
+        }
+
+        // Once the renderer stops reporting offsets, the controls settle where it left them.
+        assertEquals(rendererFrameCount, receivedCount);
+        assertFalse(predictor.hasPendingOffsets());
+        assertEquals(reportedControlOffsets[rendererFrameCount - 1],
+                predictor.getControlOffset(), 0);
+        assertEquals(reportedContentOffsets[rendererFrameCount - 1],
+                predictor.getContentOffset(), 0);
+
+        result.mMeanSkewWithoutPrediction = skewWithoutPrediction / frameCount;
+        result.mMeanSkewWithPrediction = skewWithPrediction / frameCount;
+        return result;
+    }
+
+    private static double toMs(long timeNs) {
+        return timeNs / 1e6;
+    }
+
+    @Test
+    @Feature({"Fullscreen"})
+    public void testFlingSkew() {
+        ReplayResult result = replay(FLING, TimeUnit.MILLISECONDS.toNanos(150), VSYNC_NS);
+        assertTrue(result.mMeanSkewWithoutPrediction > 1);
+        assertTrue(result.mMeanSkewWithPrediction < result.mMeanSkewWithoutPrediction / 2);
+    }
+
+    @Test
+    @Feature({"Fullscreen"})
+    public void testDragAndReverseSkew() {
+        ReplayResult result = replay(DRAG_AND_REVERSE, TimeUnit.MILLISECONDS.toNanos(500),
+                VSYNC_NS);
+        assertTrue(result.mMeanSkewWithoutPrediction > 1);
+        assertTrue(result.mMeanSkewWithPrediction < result.mMeanSkewWithoutPrediction);
+    }
+
+    @Test
+    @Feature({"Fullscreen"})
+    public void testReportsAreCoalescedPerFrame() {
+        // The renderer reports twice a frame, but offsets are applied at most once a frame.
+        ReplayResult result = replay(FLING, TimeUnit.MILLISECONDS.toNanos(150), VSYNC_NS / 2);
+        assertTrue(result.mAppliedFrameCount < result.mReportCount);
+        assertTrue(result.mMeanSkewWithPrediction < result.mMeanSkewWithoutPrediction);
+    }
+
+    @Test
+    @Feature({"Fullscreen"})
+    public void testJumpIsNotExtrapolated() {
+        TopControlsOffsetPredictor predictor = new TopControlsOffsetPredictor(CONTROLS_HEIGHT);
+        predictor.addOffsets(0, 0, CONTROLS_HEIGHT);
+        predictor.applyOffsets(VSYNC_NS / 2);
+        assertEquals(0, predictor.getControlOffset(), 0);
+        assertFalse(predictor.hasPendingOffsets());
+
+        // Switching to a tab that had its controls hidden.
+        assertTrue(predictor.addOffsets(VSYNC_NS, -CONTROLS_HEIGHT, 0));
+        predictor.applyOffsets(VSYNC_NS * 3 / 2);
+        assertEquals(-CONTROLS_HEIGHT, predictor.getControlOffset(), 0);
+        assertEquals(0, predictor.getContentOffset(), 0);
+        assertFalse(predictor.hasPendingOffsets());
+
+        // Reporting the same offsets again has nothing to apply.
+        assertFalse(predictor.addOffsets(VSYNC_NS * 2, -CONTROLS_HEIGHT, 0));
+        assertFalse(predictor.hasPendingOffsets());
+    }
+}
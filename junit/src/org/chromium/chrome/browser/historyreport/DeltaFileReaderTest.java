@@ -0,0 +1,161 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.historyreport;
+
+import static org.junit.Assert.assertEquals;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Unit tests (run on host) for {@link DeltaFileReader}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class DeltaFileReaderTest {
+    private static final int BATCH_SIZE = 3;
+
+    /**
+     * Delta file holding the entries with the given seqNos, logging the calls it receives.
+     */
+    private static class FakeBridge implements SearchJniBridge {
+        final List<Long> mSeqNos = new ArrayList<Long>();
+        final List<String> mCalls = new ArrayList<String>();
+
+        FakeBridge(long... seqNos) {
+            for (long seqNo : seqNos) mSeqNos.add(seqNo);
+        }
+
+        @Override
+        public DeltaFileEntry[] query(long lastSeqNo, int limit) {
+            mCalls.add("query " + lastSeqNo);
+            List<DeltaFileEntry> entries = new ArrayList<DeltaFileEntry>();
+            for (long seqNo : mSeqNos) {
+                if (seqNo <= lastSeqNo) continue;
+                entries.add(new DeltaFileEntry(seqNo, "add", "id", "url", 1, "title", "url"));
+                if (entries.size() == limit) break;
+            }
+            return entries.toArray(new DeltaFileEntry[entries.size()]);
+        }
+
+        @Override
+        public long trimDeltaFile(long seqNoLowerBound) {
+            mCalls.add("trim " + seqNoLowerBound);
+            while (!mSeqNos.isEmpty() && mSeqNos.get(0) <= seqNoLowerBound) mSeqNos.remove(0);
+            return mSeqNos.isEmpty() ? seqNoLowerBound : mSeqNos.get(mSeqNos.size() - 1);
+        }
+
+        @Override
+        public boolean init(DataChangeObserver observer) {
+            return true;
+        }
+
+        @Override
+        public UsageReport[] getUsageReportsBatch(int batchSize) {
+            return new UsageReport[0];
+        }
+
+        @Override
+        public void removeUsageReports(UsageReport[] reports) {}
+
+        @Override
+        public boolean addHistoricVisitsToUsageReportsBuffer() {
+            return true;
+        }
+
+        @Override
+        public boolean isStartedForTest() {
+            return true;
+        }
+
+        @Override
+        public void dump(PrintWriter writer) {}
+    }
+
+    /**
+     * Runs prefetches as soon as they are requested.
+     */
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Records the seqNos of the batches it receives, accepting a limited number of them.
+     */
+    private static class TestConsumer implements DeltaFileReader.Consumer {
+        final List<List<Long>> mBatches = new ArrayList<List<Long>>();
+        int mAcceptedBatchCount;
+
+        TestConsumer(int acceptedBatchCount) {
+            mAcceptedBatchCount = acceptedBatchCount;
+        }
+
+        @Override
+        public boolean onEntries(DeltaFileEntry[] entries) {
+            List<Long> seqNos = new ArrayList<Long>();
+            for (DeltaFileEntry entry : entries) seqNos.add(entry.seqNo);
+            mBatches.add(seqNos);
+            return mBatches.size() <= mAcceptedBatchCount;
+        }
+    }
+
+    @Test
+    @Feature({"HistoryReport"})
+    public void testReadsAndTrimsInBatches() {
+        FakeBridge bridge = new FakeBridge(2, 4, 5, 7, 8, 9, 12);
+        DeltaFileReader reader = new DeltaFileReader(bridge, DIRECT_EXECUTOR, BATCH_SIZE);
+        TestConsumer consumer = new TestConsumer(Integer.MAX_VALUE);
+
+        assertEquals(12, reader.read(1, consumer));
+        assertEquals(Arrays.asList(Arrays.asList(2L, 4L, 5L), Arrays.asList(7L, 8L, 9L),
+                Arrays.asList(12L)), consumer.mBatches);
+        assertEquals(0, bridge.mSeqNos.size());
+
+        // The next batch is queried before the consumed one is trimmed.
+        assertEquals(Arrays.asList("query 1", "query 5", "trim 5", "query 9", "trim 9",
+                "query 12", "trim 12"), bridge.mCalls);
+    }
+
+    @Test
+    @Feature({"HistoryReport"})
+    public void testRefusedBatchIsKept() {
+        FakeBridge bridge = new FakeBridge(2, 4, 5, 7, 8);
+        DeltaFileReader reader = new DeltaFileReader(bridge, DIRECT_EXECUTOR, BATCH_SIZE);
+        TestConsumer consumer = new TestConsumer(1);
+
+        assertEquals(5, reader.read(0, consumer));
+        assertEquals(2, consumer.mBatches.size());
+        assertEquals(Arrays.asList(7L, 8L), bridge.mSeqNos);
+
+        // Reading again resumes with the refused batch.
+        consumer = new TestConsumer(Integer.MAX_VALUE);
+        assertEquals(8, reader.read(5, consumer));
+        assertEquals(Arrays.asList(Arrays.asList(7L, 8L)), consumer.mBatches);
+    }
+
+    @Test
+    @Feature({"HistoryReport"})
+    public void testEmptyDeltaFile() {
+        FakeBridge bridge = new FakeBridge();
+        DeltaFileReader reader = new DeltaFileReader(bridge, DIRECT_EXECUTOR, BATCH_SIZE);
+        TestConsumer consumer = new TestConsumer(Integer.MAX_VALUE);
+
+        assertEquals(3, reader.read(3, consumer));
+        assertEquals(0, consumer.mBatches.size());
+        assertEquals(Arrays.asList("query 3"), bridge.mCalls);
+    }
+}
@@ -0,0 +1,218 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.media.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.net.Uri;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests (run on host) for {@link CachedMediaUrlResolver}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class CachedMediaUrlResolverTest {
+    private static final Uri VIDEO_URI = Uri.parse("http://example.com/video.mp4");
+    private static final Uri REDIRECTED_URI = Uri.parse("http://cdn.example.com/video.mp4");
+    private static final String USER_AGENT = "User agent";
+
+    /**
+     * Stands in for the video's server: holds the requests it receives until the test answers
+     * them, redirecting every one of them to {@link #REDIRECTED_URI}.
+     */
+    private static class TestResolver extends CachedMediaUrlResolver {
+        final List<MediaUrlResolver.Delegate> mRequests =
+                new ArrayList<MediaUrlResolver.Delegate>();
+        final List<String> mUserAgents = new ArrayList<String>();
+        long mTimeMs;
+
+        @Override
+        protected void startResolution(MediaUrlResolver.Delegate delegate, String userAgent) {
+            mRequests.add(delegate);
+            mUserAgents.add(userAgent);
+        }
+
+        @Override
+        protected long getTimeMs() {
+            return mTimeMs;
+        }
+
+        void answerRequests(boolean reachable) {
+            List<MediaUrlResolver.Delegate> requests =
+                    new ArrayList<MediaUrlResolver.Delegate>(mRequests);
+            mRequests.clear();
+            for (MediaUrlResolver.Delegate request : requests) {
+                request.setUri(reachable ? REDIRECTED_URI : Uri.EMPTY, reachable);
+            }
+        }
+    }
+
+    private static class TestCallback implements CachedMediaUrlResolver.Callback {
+        Uri mUri;
+        boolean mPlayable;
+        int mCallCount;
+
+        @Override
+        public void onResolved(Uri uri, boolean playable) {
+            mUri = uri;
+            mPlayable = playable;
+            mCallCount++;
+        }
+    }
+
+    private TestResolver mResolver;
+
+    @Before
+    public void setUp() {
+        mResolver = new TestResolver();
+    }
+
+    @Test
+    @Feature({"MediaRemote"})
+    public void testResultIsRemembered() {
+        TestCallback first = new TestCallback();
+        mResolver.resolve(VIDEO_URI, "cookies", USER_AGENT, first);
+        assertEquals(1, mResolver.mRequests.size());
+        assertEquals(VIDEO_URI, mResolver.mRequests.get(0).getUri());
+        assertEquals("cookies", mResolver.mRequests.get(0).getCookies());
+        assertEquals(USER_AGENT, mResolver.mUserAgents.get(0));
+
+        mResolver.answerRequests(true);
+        assertEquals(1, first.mCallCount);
+        assertEquals(REDIRECTED_URI, first.mUri);
+        assertTrue(first.mPlayable);
+
+        // Resolving the URL again is answered from memory.
+        TestCallback second = new TestCallback();
+        mResolver.resolve(VIDEO_URI, "cookies", USER_AGENT, second);
+        Robolectric.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(1, second.mCallCount);
+        assertEquals(REDIRECTED_URI, second.mUri);
+        assertTrue(second.mPlayable);
+        assertEquals(0, mResolver.mRequests.size());
+        assertEquals(1, mResolver.getResolutionCount());
+    }
+
+    @Test
+    @Feature({"MediaRemote"})
+    public void testResultIsKeyedByCookiesAndUserAgent() {
+        mResolver.resolve(VIDEO_URI, "cookies", USER_AGENT, new TestCallback());
+        mResolver.answerRequests(true);
+
+        mResolver.resolve(VIDEO_URI, "other cookies", USER_AGENT, new TestCallback());
+        mResolver.resolve(VIDEO_URI, "cookies", "Other user agent", new TestCallback());
+        mResolver.resolve(VIDEO_URI, null, USER_AGENT, new TestCallback());
+        assertEquals(3, mResolver.mRequests.size());
+        assertEquals(4, mResolver.getResolutionCount());
+    }
+
+    @Test
+    @Feature({"MediaRemote"})
+    public void testResultExpires() {
+        mResolver.resolve(VIDEO_URI, null, USER_AGENT, new TestCallback());
+        mResolver.answerRequests(true);
+
+        mResolver.mTimeMs = CachedMediaUrlResolver.RESULT_LIFETIME_MS - 1;
+        mResolver.resolve(VIDEO_URI, null, USER_AGENT, new TestCallback());
+        assertEquals(0, mResolver.mRequests.size());
+
+        mResolver.mTimeMs = CachedMediaUrlResolver.RESULT_LIFETIME_MS;
+        mResolver.resolve(VIDEO_URI, null, USER_AGENT, new TestCallback());
+        assertEquals(1, mResolver.mRequests.size());
+        assertEquals(2, mResolver.getResolutionCount());
+    }
+
+    @Test
+    @Feature({"MediaRemote"})
+    public void testFailureIsNotRemembered() {
+        TestCallback callback = new TestCallback();
+        mResolver.resolve(VIDEO_URI, null, USER_AGENT, callback);
+        mResolver.answerRequests(false);
+        assertEquals(Uri.EMPTY, callback.mUri);
+        assertFalse(callback.mPlayable);
+
+        mResolver.resolve(VIDEO_URI, null, USER_AGENT, new TestCallback());
+        assertEquals(1, mResolver.mRequests.size());
+        assertEquals(2, mResolver.getResolutionCount());
+    }
+
+    @Test
+    @Feature({"MediaRemote"})
+    public void testRequestsInProgressAreShared() {
+        TestCallback first = new TestCallback();
+        TestCallback second = new TestCallback();
+        TestCallback cancelled = new TestCallback();
+        mResolver.resolve(VIDEO_URI, null, USER_AGENT, first);
+        mResolver.resolve(VIDEO_URI, null, USER_AGENT, cancelled);
+        mResolver.resolve(VIDEO_URI, null, USER_AGENT, second);
+        mResolver.cancel(cancelled);
+        assertEquals(1, mResolver.mRequests.size());
+
+        mResolver.answerRequests(true);
+        assertEquals(1, first.mCallCount);
+        assertEquals(1, second.mCallCount);
+        assertEquals(REDIRECTED_URI, second.mUri);
+        assertEquals(0, cancelled.mCallCount);
+        assertEquals(1, mResolver.getResolutionCount());
+    }
+
+    @Test
+    @Feature({"MediaRemote"})
+    public void testRememberedResultCanBeCancelled() {
+        mResolver.resolve(VIDEO_URI, null, USER_AGENT, new TestCallback());
+        mResolver.answerRequests(true);
+
+        // The answer from memory is delivered later, and not at all once cancelled.
+        TestCallback cancelled = new TestCallback();
+        TestCallback callback = new TestCallback();
+        mResolver.resolve(VIDEO_URI, null, USER_AGENT, cancelled);
+        mResolver.resolve(VIDEO_URI, null, USER_AGENT, callback);
+        mResolver.cancel(cancelled);
+        Robolectric.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(0, cancelled.mCallCount);
+        assertEquals(1, callback.mCallCount);
+        assertEquals(REDIRECTED_URI, callback.mUri);
+    }
+
+    @Test
+    @Feature({"MediaRemote"})
+    public void testPreResolve() {
+        // Nothing is resolved ahead of time until the user agent is known.
+        mResolver.preResolve(VIDEO_URI);
+        assertEquals(0, mResolver.getResolutionCount());
+
+        Uri otherUri = Uri.parse("http://example.com/other.mp4");
+        mResolver.resolve(otherUri, null, USER_AGENT, new TestCallback());
+        mResolver.answerRequests(true);
+
+        // The user casts the video while it is being resolved ahead of time, then once it was.
+        mResolver.preResolve(VIDEO_URI);
+        assertEquals(USER_AGENT, mResolver.mUserAgents.get(1));
+        TestCallback callback = new TestCallback();
+        mResolver.resolve(VIDEO_URI, null, USER_AGENT, callback);
+        mResolver.answerRequests(true);
+        assertEquals(1, callback.mCallCount);
+        assertEquals(REDIRECTED_URI, callback.mUri);
+
+        mResolver.resolve(VIDEO_URI, null, USER_AGENT, callback);
+        Robolectric.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(2, callback.mCallCount);
+        assertEquals(2, mResolver.getResolutionCount());
+        assertEquals(0, mResolver.mRequests.size());
+    }
+}
@@ -0,0 +1,143 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.media.remote;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.util.DisplayMetrics;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.chrome.R;
+import org.chromium.chrome.browser.media.remote.RemoteVideoInfo.PlayerState;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+import org.robolectric.internal.ReflectionHelpers;
+
+/**
+ * Unit tests (run on host) for {@link NotificationTransportControl}: the notification is only
+ * posted again when what it shows changes.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class NotificationTransportControlTest {
+    private static final int DURATION_MS = 60000;
+
+    private NotificationManager mNotificationManager;
+    private NotificationTransportControl mControl;
+
+    @Before
+    public void setUp() {
+        ReflectionHelpers.setStaticField(NotificationTransportControl.class, "sInstance", null);
+
+        // A thousand pixel wide screen, so the progress bar shows one step per second of a minute
+        // long video.
+        DisplayMetrics metrics = new DisplayMetrics();
+        metrics.density = 1;
+        metrics.widthPixels = 1000;
+        metrics.heightPixels = 500;
+        final Resources resources = mock(Resources.class);
+        when(resources.getDisplayMetrics()).thenReturn(metrics);
+        when(resources.getDimension(anyInt())).thenReturn(64f);
+        when(resources.getString(anyInt())).thenReturn("");
+
+        mNotificationManager = mock(NotificationManager.class);
+        Context context = new ContextWrapper(Robolectric.application) {
+            @Override
+            public Resources getResources() {
+                return resources;
+            }
+
+            @Override
+            public Object getSystemService(String name) {
+                if (Context.NOTIFICATION_SERVICE.equals(name)) return mNotificationManager;
+                return super.getSystemService(name);
+            }
+        };
+
+        mControl = NotificationTransportControl.getOrCreate(
+                context, mock(MediaRouteController.class));
+        // Starting the service shows the notification.
+        Robolectric.buildService(NotificationTransportControl.ListenerService.class).create();
+        assertNotified(1);
+    }
+
+    /**
+     * Runs the pending notification updates and checks how many times the notification was
+     * posted so far.
+     */
+    private void assertNotified(int count) {
+        Robolectric.runUiThreadTasks();
+        verify(mNotificationManager, times(count)).notify(
+                eq(R.id.remote_notification), any(Notification.class));
+    }
+
+    @Test
+    @Feature({"MediaRemote"})
+    public void testIdenticalUpdatesDoNotNotify() {
+        mControl.onDurationUpdated(DURATION_MS);
+        assertNotified(2);
+
+        // Positions within the same step of the progress bar look the same.
+        for (int position = 100; position < 1000; position += 100) {
+            mControl.onPositionChanged(position);
+            assertNotified(2);
+        }
+        mControl.setScreenName(mControl.getScreenName());
+        mControl.onErrorChanged();
+        assertNotified(2);
+
+        mControl.onPositionChanged(1500);
+        assertNotified(3);
+        mControl.onPositionChanged(1900);
+        assertNotified(3);
+    }
+
+    @Test
+    @Feature({"MediaRemote"})
+    public void testVisibleChangesNotify() {
+        mControl.setScreenName("Living room");
+        assertNotified(2);
+
+        mControl.setError("Error");
+        assertNotified(3);
+
+        mControl.onPlaybackStateChanged(PlayerState.STOPPED, PlayerState.PAUSED);
+        assertNotified(4);
+    }
+
+    @Test
+    @Feature({"MediaRemote"})
+    public void testPosterChangesNotify() {
+        Bitmap poster = Bitmap.createBitmap(400, 200, Bitmap.Config.ARGB_8888);
+        mControl.setPosterBitmap(poster);
+        assertNotified(2);
+        // Scaling the same poster again gives the same icon.
+        mControl.onPosterBitmapChanged();
+        assertNotified(2);
+
+        // A new poster is shown even if it looks like the previous one.
+        mControl.setPosterBitmap(Bitmap.createBitmap(400, 200, Bitmap.Config.ARGB_8888));
+        assertNotified(3);
+
+        mControl.setPosterBitmap(null);
+        assertNotified(4);
+    }
+}
@@ -0,0 +1,86 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.media.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests (run on host) for {@link ScaledBitmapCache}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ScaledBitmapCacheTest {
+    private static final int MAX_SIZE = 100;
+
+    private final ScaledBitmapCache mCache = new ScaledBitmapCache();
+
+    private static Bitmap createBitmap() {
+        return Bitmap.createBitmap(400, 200, Bitmap.Config.ARGB_8888);
+    }
+
+    @Test
+    @Feature({"MediaRemote"})
+    public void testBitmapIsScaledOnce() {
+        assertNull(mCache.getScaledBitmap(null, MAX_SIZE, MAX_SIZE));
+
+        Bitmap bitmap = createBitmap();
+        Bitmap scaled = mCache.getScaledBitmap(bitmap, MAX_SIZE, MAX_SIZE);
+        assertEquals(MAX_SIZE, scaled.getWidth());
+        assertEquals(MAX_SIZE / 2, scaled.getHeight());
+        assertTrue(scaled == mCache.getScaledBitmap(bitmap, MAX_SIZE, MAX_SIZE));
+
+        // Another size is another entry.
+        Bitmap smaller = mCache.getScaledBitmap(bitmap, MAX_SIZE / 2, MAX_SIZE);
+        assertEquals(MAX_SIZE / 2, smaller.getWidth());
+        assertTrue(scaled == mCache.getScaledBitmap(bitmap, MAX_SIZE, MAX_SIZE));
+    }
+
+    @Test
+    @Feature({"MediaRemote"})
+    public void testBitmapsAreKeyedOnTheObject() {
+        // Bitmaps alike in every way but their identity each get their own entry.
+        Bitmap first = createBitmap();
+        Bitmap second = createBitmap();
+        Bitmap scaledFirst = mCache.getScaledBitmap(first, MAX_SIZE, MAX_SIZE);
+        Bitmap scaledSecond = mCache.getScaledBitmap(second, MAX_SIZE, MAX_SIZE);
+        assertFalse(scaledFirst == scaledSecond);
+        assertTrue(scaledFirst == mCache.getScaledBitmap(first, MAX_SIZE, MAX_SIZE));
+        assertTrue(scaledSecond == mCache.getScaledBitmap(second, MAX_SIZE, MAX_SIZE));
+    }
+
+    @Test
+    @Feature({"MediaRemote"})
+    public void testLeastRecentlyUsedBitmapIsEvicted() {
+        List<Bitmap> bitmaps = new ArrayList<Bitmap>();
+        List<Bitmap> scaledBitmaps = new ArrayList<Bitmap>();
+        for (int i = 0; i <= ScaledBitmapCache.MAX_ENTRIES; i++) {
+            Bitmap bitmap = createBitmap();
+            bitmaps.add(bitmap);
+            scaledBitmaps.add(mCache.getScaledBitmap(bitmap, MAX_SIZE, MAX_SIZE));
+        }
+
+        // The first bitmap was evicted by the last one, the others are still cached.
+        for (int i = 1; i <= ScaledBitmapCache.MAX_ENTRIES; i++) {
+            assertTrue(scaledBitmaps.get(i)
+                    == mCache.getScaledBitmap(bitmaps.get(i), MAX_SIZE, MAX_SIZE));
+        }
+        assertFalse(scaledBitmaps.get(0)
+                == mCache.getScaledBitmap(bitmaps.get(0), MAX_SIZE, MAX_SIZE));
+    }
+}
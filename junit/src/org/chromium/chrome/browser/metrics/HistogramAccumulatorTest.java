@@ -0,0 +1,165 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link HistogramAccumulator}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class HistogramAccumulatorTest {
+    private static final String HISTOGRAM = "Test.Enumerated";
+    private static final String OTHER_HISTOGRAM = "Test.Boolean";
+    private static final int BOUNDARY = 4;
+    private static final int SAMPLE_COUNT = 1000;
+
+    private static class Batch {
+        final String[] mNames;
+        final int[] mTypes;
+        final int[] mBoundaries;
+        final int[] mCounts;
+
+        Batch(String[] names, int[] types, int[] boundaries, int[] counts) {
+            mNames = names;
+            mTypes = types;
+            mBoundaries = boundaries;
+            mCounts = counts;
+        }
+
+        int[] getCounts(String name) {
+            int offset = 0;
+            for (int i = 0; i < mNames.length; i++) {
+                int length = mBoundaries[i] + 1;
+                if (mNames[i].equals(name)) {
+                    int[] counts = new int[length];
+                    System.arraycopy(mCounts, offset, counts, 0, length);
+                    return counts;
+                }
+                offset += length;
+            }
+            return null;
+        }
+    }
+
+    private static class FakeSink implements HistogramAccumulator.Sink {
+        final List<Batch> mBatches = new ArrayList<Batch>();
+        boolean mReady = true;
+        long mTotalSamples;
+
+        @Override
+        public boolean isReady() {
+            return mReady;
+        }
+
+        @Override
+        public void recordHistograms(String[] names, int[] types, int[] boundaries, int[] counts) {
+            mBatches.add(new Batch(names, types, boundaries, counts));
+            for (int count : counts) mTotalSamples += count;
+        }
+    }
+
+    private FakeSink mSink;
+    private HistogramAccumulator mAccumulator;
+
+    @Before
+    public void setUp() {
+        mSink = new FakeSink();
+        mAccumulator = new HistogramAccumulator(mSink);
+    }
+
+    @Test
+    @Feature({"Metrics"})
+    public void testSamplesOfAllThreadsAreFlushedInOneBatch() throws Exception {
+        record(HISTOGRAM, 1);
+        record(HISTOGRAM, 1);
+        record(HISTOGRAM, 3);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                record(HISTOGRAM, 3);
+                mAccumulator.record(OTHER_HISTOGRAM, HistogramAccumulator.TYPE_BOOLEAN, 1, 2);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertTrue(mAccumulator.flushSamples());
+        assertEquals(1, mSink.mBatches.size());
+        Batch batch = mSink.mBatches.get(0);
+        assertEquals(2, batch.mNames.length);
+        assertArrayEquals(new int[] {0, 2, 0, 2, 0}, batch.getCounts(HISTOGRAM));
+        assertArrayEquals(new int[] {0, 1, 0}, batch.getCounts(OTHER_HISTOGRAM));
+
+        // Flushed samples are not reported again.
+        assertTrue(mAccumulator.flushSamples());
+        assertEquals(1, mSink.mBatches.size());
+    }
+
+    @Test
+    @Feature({"Metrics"})
+    public void testOutOfRangeSamplesAreClamped() {
+        record(HISTOGRAM, -1);
+        record(HISTOGRAM, BOUNDARY);
+        record(HISTOGRAM, BOUNDARY + 10);
+
+        mAccumulator.flushSamples();
+        assertArrayEquals(new int[] {1, 0, 0, 0, 2}, mSink.mBatches.get(0).getCounts(HISTOGRAM));
+    }
+
+    @Test
+    @Feature({"Metrics"})
+    public void testSamplesAreKeptUntilSinkIsReady() {
+        mSink.mReady = false;
+        record(HISTOGRAM, 2);
+        assertFalse(mAccumulator.flushSamples());
+        assertEquals(0, mSink.mBatches.size());
+
+        mSink.mReady = true;
+        record(HISTOGRAM, 2);
+        assertTrue(mAccumulator.flushSamples());
+        assertArrayEquals(new int[] {0, 0, 2, 0, 0}, mSink.mBatches.get(0).getCounts(HISTOGRAM));
+    }
+
+    @Test
+    @Feature({"Metrics"})
+    public void testManySamplesAreReportedInOneCall() {
+        for (int i = 0; i < SAMPLE_COUNT; i++) record(HISTOGRAM, i % BOUNDARY);
+        assertTrue(mAccumulator.flushSamples());
+
+        assertEquals(1, mSink.mBatches.size());
+        assertEquals(SAMPLE_COUNT, mSink.mTotalSamples);
+        assertArrayEquals(new int[] {SAMPLE_COUNT / BOUNDARY, SAMPLE_COUNT / BOUNDARY,
+                SAMPLE_COUNT / BOUNDARY, SAMPLE_COUNT / BOUNDARY, 0},
+                mSink.mBatches.get(0).getCounts(HISTOGRAM));
+    }
+
+    @Test
+    @Feature({"Metrics"})
+    public void testFlushWithoutSamplesDoesNotReport() {
+        assertTrue(mAccumulator.flushSamples());
+        assertEquals(0, mSink.mBatches.size());
+    }
+
+    private void record(String name, int sample) {
+        mAccumulator.record(name, HistogramAccumulator.TYPE_ENUMERATED, sample, BOUNDARY);
+    }
+}
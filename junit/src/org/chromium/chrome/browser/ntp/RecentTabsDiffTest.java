@@ -0,0 +1,173 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.ntp;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.chrome.browser.ntp.ForeignSessionHelper.ForeignSession;
+import org.chromium.chrome.browser.ntp.ForeignSessionHelper.ForeignSessionWindow;
+import org.chromium.chrome.browser.ntp.RecentlyClosedBridge.RecentlyClosedTab;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests (run on host) for {@link RecentTabsDiff}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RecentTabsDiffTest {
+    private static final List<RecentlyClosedTab> NO_CLOSED_TABS =
+            new ArrayList<RecentlyClosedTab>();
+
+    /**
+     * Adds a session with a single window holding one tab per URL. Tab ids are derived from the
+     * URL so that equal URLs give equal tabs.
+     */
+    private static ForeignSession addSession(
+            List<ForeignSession> sessions, String tag, long modifiedTime, String... urls) {
+        ForeignSession session = ForeignSessionHelper.pushSession(
+                sessions, tag, "Device " + tag, ForeignSession.DEVICE_TYPE_LINUX, modifiedTime);
+        ForeignSessionWindow window = ForeignSessionHelper.pushWindow(session, modifiedTime, 1);
+        for (String url : urls) {
+            ForeignSessionHelper.pushTab(window, url, "Title " + url, modifiedTime, url.hashCode());
+        }
+        return session;
+    }
+
+    private static List<RecentlyClosedTab> closedTabs(String... urls) {
+        List<RecentlyClosedTab> tabs = new ArrayList<RecentlyClosedTab>();
+        for (String url : urls) {
+            RecentlyClosedBridge.pushTab(tabs, url.hashCode(), "Title " + url, url);
+        }
+        return tabs;
+    }
+
+    private static RecentTabsDiff computeSessions(
+            List<ForeignSession> oldSessions, List<ForeignSession> newSessions) {
+        return RecentTabsDiff.compute(oldSessions, newSessions, NO_CLOSED_TABS, NO_CLOSED_TABS);
+    }
+
+    @Test
+    @Feature({"NewTabPage"})
+    public void testIdenticalSnapshotsAreEmpty() {
+        List<ForeignSession> oldSessions = new ArrayList<ForeignSession>();
+        addSession(oldSessions, "a", 10, "http://a.com/1", "http://a.com/2");
+        addSession(oldSessions, "b", 20, "http://b.com/1");
+        List<ForeignSession> newSessions = new ArrayList<ForeignSession>();
+        addSession(newSessions, "a", 10, "http://a.com/1", "http://a.com/2");
+        addSession(newSessions, "b", 20, "http://b.com/1");
+
+        RecentTabsDiff diff = RecentTabsDiff.compute(oldSessions, newSessions,
+                closedTabs("http://c.com/"), closedTabs("http://c.com/"));
+        assertTrue(diff.isEmpty());
+        assertFalse(diff.isStructureChanged());
+        assertFalse(diff.isRecentlyClosedChanged());
+        assertFalse(diff.isSessionChanged("a"));
+        assertFalse(diff.isSessionChanged("b"));
+    }
+
+    @Test
+    @Feature({"NewTabPage"})
+    public void testMissingSnapshotIsStructural() {
+        List<ForeignSession> sessions = new ArrayList<ForeignSession>();
+        assertTrue(RecentTabsDiff.compute(null, sessions, NO_CLOSED_TABS, NO_CLOSED_TABS)
+                .isStructureChanged());
+        assertTrue(RecentTabsDiff.compute(sessions, sessions, NO_CLOSED_TABS, null)
+                .isStructureChanged());
+    }
+
+    @Test
+    @Feature({"NewTabPage"})
+    public void testSessionAddedOrRemovedIsStructural() {
+        List<ForeignSession> oneSession = new ArrayList<ForeignSession>();
+        addSession(oneSession, "a", 10, "http://a.com/");
+        List<ForeignSession> twoSessions = new ArrayList<ForeignSession>();
+        addSession(twoSessions, "a", 10, "http://a.com/");
+        addSession(twoSessions, "b", 20, "http://b.com/");
+
+        RecentTabsDiff added = computeSessions(oneSession, twoSessions);
+        assertTrue(added.isStructureChanged());
+        assertTrue(added.isSessionChanged("a"));
+        assertTrue(added.isSessionChanged("b"));
+        assertTrue(computeSessions(twoSessions, oneSession).isStructureChanged());
+    }
+
+    @Test
+    @Feature({"NewTabPage"})
+    public void testSessionsReorderedIsStructural() {
+        List<ForeignSession> oldSessions = new ArrayList<ForeignSession>();
+        addSession(oldSessions, "a", 10, "http://a.com/");
+        addSession(oldSessions, "b", 20, "http://b.com/");
+        List<ForeignSession> newSessions = new ArrayList<ForeignSession>();
+        addSession(newSessions, "b", 20, "http://b.com/");
+        addSession(newSessions, "a", 10, "http://a.com/");
+
+        assertTrue(computeSessions(oldSessions, newSessions).isStructureChanged());
+    }
+
+    @Test
+    @Feature({"NewTabPage"})
+    public void testTabAddedToSessionIsStructural() {
+        List<ForeignSession> oldSessions = new ArrayList<ForeignSession>();
+        addSession(oldSessions, "a", 10, "http://a.com/1");
+        List<ForeignSession> newSessions = new ArrayList<ForeignSession>();
+        addSession(newSessions, "a", 10, "http://a.com/1", "http://a.com/2");
+
+        assertTrue(computeSessions(oldSessions, newSessions).isStructureChanged());
+    }
+
+    @Test
+    @Feature({"NewTabPage"})
+    public void testContentChangesOnlyMarkTheChangedSession() {
+        List<ForeignSession> oldSessions = new ArrayList<ForeignSession>();
+        addSession(oldSessions, "a", 10, "http://a.com/1", "http://a.com/2");
+        addSession(oldSessions, "b", 20, "http://b.com/");
+        List<ForeignSession> newSessions = new ArrayList<ForeignSession>();
+        addSession(newSessions, "a", 10, "http://a.com/1", "http://a.com/3");
+        addSession(newSessions, "b", 20, "http://b.com/");
+
+        RecentTabsDiff diff = computeSessions(oldSessions, newSessions);
+        assertFalse(diff.isStructureChanged());
+        assertFalse(diff.isEmpty());
+        assertTrue(diff.isSessionChanged("a"));
+        assertFalse(diff.isSessionChanged("b"));
+        assertFalse(diff.isRecentlyClosedChanged());
+
+        // A newer modification time alone is enough to rebind the session's header.
+        newSessions = new ArrayList<ForeignSession>();
+        addSession(newSessions, "a", 10, "http://a.com/1", "http://a.com/2");
+        addSession(newSessions, "b", 30, "http://b.com/");
+        diff = computeSessions(oldSessions, newSessions);
+        assertFalse(diff.isStructureChanged());
+        assertFalse(diff.isSessionChanged("a"));
+        assertTrue(diff.isSessionChanged("b"));
+    }
+
+    @Test
+    @Feature({"NewTabPage"})
+    public void testClosedTabChanges() {
+        List<ForeignSession> sessions = new ArrayList<ForeignSession>();
+        addSession(sessions, "a", 10, "http://a.com/");
+
+        RecentTabsDiff replaced = RecentTabsDiff.compute(sessions, sessions,
+                closedTabs("http://c.com/1", "http://c.com/2"),
+                closedTabs("http://c.com/3", "http://c.com/1"));
+        assertFalse(replaced.isStructureChanged());
+        assertTrue(replaced.isRecentlyClosedChanged());
+        assertFalse(replaced.isSessionChanged("a"));
+
+        RecentTabsDiff added = RecentTabsDiff.compute(sessions, sessions,
+                closedTabs("http://c.com/1"), closedTabs("http://c.com/2", "http://c.com/1"));
+        assertTrue(added.isStructureChanged());
+        assertTrue(added.isRecentlyClosedChanged());
+    }
+}
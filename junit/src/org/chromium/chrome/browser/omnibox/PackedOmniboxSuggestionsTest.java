@@ -0,0 +1,196 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.omnibox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link PackedOmniboxSuggestions}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PackedOmniboxSuggestionsTest {
+    private static final String TYPED_TEXT = "chromium omnibox suggestions";
+    private static final int NATIVE_RESULT_COUNT = 10;
+    private static final int DISPLAYED_RESULT_COUNT = 5;
+    private static final String ANSWER_CONTENTS = "{\"l\":["
+            + "{\"il\":{\"t\":[{\"t\":\"weather\",\"tt\":8}]}},"
+            + "{\"il\":{\"t\":[{\"t\":\"sunny\",\"tt\":5}]}}]}";
+
+    @Test
+    @Feature({"Omnibox"})
+    public void testPackUnpackRoundTrip() {
+        List<OmniboxSuggestion> suggestions = new ArrayList<OmniboxSuggestion>();
+        suggestions.add(new OmniboxSuggestion(OmniboxSuggestion.Type.HISTORY_URL.nativeType(),
+                1200, 1, "example", "Example", null, null, "example.com",
+                "http://example.com/", "example.com", true, false));
+        suggestions.add(new OmniboxSuggestion(
+                OmniboxSuggestion.Type.SEARCH_SUGGEST.nativeType(), 900, 5, "example", null,
+                null, null, null, "http://www.google.com/search?q=example", null, false, true));
+
+        PackedOmniboxSuggestions packed = PackedOmniboxSuggestions.pack(suggestions);
+        assertEquals(2, packed.size());
+        for (int i = 0; i < suggestions.size(); i++) {
+            OmniboxSuggestion expected = suggestions.get(i);
+            OmniboxSuggestion actual = packed.get(i);
+            assertEquals(expected, actual);
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getRelevance(), actual.getRelevance());
+            assertEquals(expected.getTransition(), actual.getTransition());
+            assertEquals(expected.getDescription(), actual.getDescription());
+            assertEquals(expected.getUrl(), actual.getUrl());
+            assertEquals(expected.getFormattedUrl(), actual.getFormattedUrl());
+            assertEquals(expected.isStarred(), actual.isStarred());
+            assertEquals(expected.isDeletable(), actual.isDeletable());
+        }
+        assertNull(packed.get(1).getDescription());
+        assertEquals("example", packed.get(1).getFillIntoEdit());
+    }
+
+    @Test
+    @Feature({"Omnibox"})
+    public void testSuggestionsAreUnpackedLazily() {
+        PackedOmniboxSuggestions packed = new PackedOmniboxSuggestions(
+                packedFields(0), packedStrings(0), DISPLAYED_RESULT_COUNT);
+        assertEquals(DISPLAYED_RESULT_COUNT, packed.size());
+        for (int i = 0; i < packed.size(); i++) assertFalse(packed.isUnpacked(i));
+
+        OmniboxSuggestion suggestion = packed.get(2);
+        assertTrue(packed.isUnpacked(2));
+        assertFalse(packed.isUnpacked(1));
+        assertSame(suggestion, packed.get(2));
+    }
+
+    @Test
+    @Feature({"Omnibox"})
+    public void testStringsAreShared() {
+        List<OmniboxSuggestion> suggestions = new ArrayList<OmniboxSuggestion>();
+        for (int i = 0; i < 3; i++) {
+            suggestions.add(new OmniboxSuggestion(
+                    OmniboxSuggestion.Type.SEARCH_SUGGEST.nativeType(), i, 5, "query", null,
+                    null, null, "query", "http://www.google.com/search?q=query", null, false,
+                    false));
+        }
+        PackedOmniboxSuggestions packed = PackedOmniboxSuggestions.pack(suggestions);
+        assertSame(packed.get(0).getDisplayText(), packed.get(2).getDisplayText());
+        assertSame(packed.get(0).getUrl(), packed.get(1).getUrl());
+    }
+
+    /**
+     * Simulates typing {@link #TYPED_TEXT} one character at a time with a result set per
+     * keystroke, and checks that the packed result sets show the same suggestions as building
+     * every suggestion eagerly, as the one JNI call per field path does.
+     */
+    @Test
+    @Feature({"Omnibox"})
+    public void testTypingMatchesEagerSuggestions() {
+        List<OmniboxSuggestion> previousEager = new ArrayList<OmniboxSuggestion>();
+        List<OmniboxSuggestion> previousPacked = new ArrayList<OmniboxSuggestion>();
+        for (int i = 0; i < TYPED_TEXT.length(); i++) {
+            List<OmniboxSuggestion> all = new PackedOmniboxSuggestions(
+                    packedFields(i), packedStrings(i), NATIVE_RESULT_COUNT);
+            List<OmniboxSuggestion> eager = new ArrayList<OmniboxSuggestion>(all);
+            eager.subList(DISPLAYED_RESULT_COUNT, eager.size()).clear();
+            PackedOmniboxSuggestions packed = new PackedOmniboxSuggestions(
+                    packedFields(i), packedStrings(i), DISPLAYED_RESULT_COUNT);
+
+            assertEquals(eager, packed);
+            assertEquals(countChanges(previousEager, eager),
+                    countChanges(previousPacked, packed));
+            assertTrue(packed.get(0).hasAnswer());
+            previousEager = eager;
+            previousPacked = packed;
+        }
+    }
+
+    @Test
+    @Feature({"Omnibox"})
+    public void testOnlyChangedSuggestionsDiffer() {
+        List<OmniboxSuggestion> previous = new PackedOmniboxSuggestions(
+                packedFields(0), packedStrings(0), NATIVE_RESULT_COUNT);
+        List<OmniboxSuggestion> current = new PackedOmniboxSuggestions(
+                packedFields(1), packedStrings(1), NATIVE_RESULT_COUNT);
+
+        // Only the suggestions that depend on the typed text changed.
+        assertEquals(NATIVE_RESULT_COUNT / 2, countChanges(previous, current));
+        for (int i = NATIVE_RESULT_COUNT / 2; i < NATIVE_RESULT_COUNT; i++) {
+            assertEquals(previous.get(i), current.get(i));
+        }
+    }
+
+    private static int countChanges(
+            List<OmniboxSuggestion> previous, List<OmniboxSuggestion> suggestions) {
+        if (previous.size() != suggestions.size()) return suggestions.size();
+        int changes = 0;
+        for (int i = 0; i < suggestions.size(); i++) {
+            if (!previous.get(i).equals(suggestions.get(i))) changes++;
+        }
+        return changes;
+    }
+
+    /**
+     * @return The string table of the result set for the first |keystroke| + 1 typed characters:
+     *         the typed text, followed by a query, url and title per suggestion.
+     */
+    private static String[] packedStrings(int keystroke) {
+        String typed = TYPED_TEXT.substring(0, keystroke + 1);
+        String[] strings = new String[1 + NATIVE_RESULT_COUNT * 3 + 1];
+        strings[0] = typed;
+        for (int i = 0; i < NATIVE_RESULT_COUNT; i++) {
+            // The lower suggestions don't depend on the typed text, like history results that
+            // keep matching while typing.
+            String query = i < NATIVE_RESULT_COUNT / 2 ? typed + " suggestion " + i
+                    : "history suggestion " + i;
+            strings[1 + i * 3] = query;
+            strings[2 + i * 3] = "http://www.example.com/search?q=" + query.replace(' ', '+');
+            strings[3 + i * 3] = "Title of " + query;
+        }
+        strings[strings.length - 1] = ANSWER_CONTENTS;
+        return strings;
+    }
+
+    private static int[] packedFields(int keystroke) {
+        int[] fields =
+                new int[NATIVE_RESULT_COUNT * PackedOmniboxSuggestions.FIELDS_PER_SUGGESTION];
+        int answerIndex = 1 + NATIVE_RESULT_COUNT * 3;
+        for (int i = 0; i < NATIVE_RESULT_COUNT; i++) {
+            int offset = i * PackedOmniboxSuggestions.FIELDS_PER_SUGGESTION;
+            boolean isSearch = i % 2 == 0;
+            fields[offset + PackedOmniboxSuggestions.FIELD_TYPE] = isSearch
+                    ? OmniboxSuggestion.Type.SEARCH_SUGGEST.nativeType()
+                    : OmniboxSuggestion.Type.HISTORY_URL.nativeType();
+            fields[offset + PackedOmniboxSuggestions.FIELD_RELEVANCE] = 1500 - i * 100;
+            fields[offset + PackedOmniboxSuggestions.FIELD_TRANSITION] = isSearch ? 5 : 1;
+            fields[offset + PackedOmniboxSuggestions.FIELD_FLAGS] =
+                    isSearch ? PackedOmniboxSuggestions.FLAG_DELETABLE : 0;
+            fields[offset + PackedOmniboxSuggestions.FIELD_TEXT] = 1 + i * 3;
+            fields[offset + PackedOmniboxSuggestions.FIELD_DESCRIPTION] =
+                    isSearch ? PackedOmniboxSuggestions.NO_STRING : 3 + i * 3;
+            fields[offset + PackedOmniboxSuggestions.FIELD_ANSWER_CONTENTS] =
+                    i == 0 ? answerIndex : PackedOmniboxSuggestions.NO_STRING;
+            fields[offset + PackedOmniboxSuggestions.FIELD_ANSWER_TYPE] =
+                    PackedOmniboxSuggestions.NO_STRING;
+            fields[offset + PackedOmniboxSuggestions.FIELD_FILL_INTO_EDIT] = 1 + i * 3;
+            fields[offset + PackedOmniboxSuggestions.FIELD_URL] = 2 + i * 3;
+            fields[offset + PackedOmniboxSuggestions.FIELD_FORMATTED_URL] = 2 + i * 3;
+        }
+        return fields;
+    }
+}
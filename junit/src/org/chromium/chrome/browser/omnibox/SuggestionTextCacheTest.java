@@ -0,0 +1,120 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.omnibox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.text.TextPaint;
+import android.text.style.StyleSpan;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.chrome.browser.omnibox.OmniboxResultsAdapter.OmniboxResultItem;
+import org.chromium.chrome.browser.omnibox.SuggestionTextCache.SuggestionText;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+/**
+ * Unit tests (run on host) for {@link SuggestionTextCache}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SuggestionTextCacheTest {
+    private SuggestionTextCache mCache;
+
+    @Before
+    public void setUp() {
+        mCache = new SuggestionTextCache();
+    }
+
+    private static OmniboxResultItem searchItem(String query, String matchedQuery) {
+        return new OmniboxResultItem(new OmniboxSuggestion(
+                OmniboxSuggestion.Type.SEARCH_SUGGEST.nativeType(), 900, 5, query, null, null,
+                null, query, "http://www.google.com/search?q=" + query, null, false, false),
+                matchedQuery);
+    }
+
+    private static OmniboxResultItem urlItem(String url, String title, String matchedQuery) {
+        return new OmniboxResultItem(new OmniboxSuggestion(
+                OmniboxSuggestion.Type.HISTORY_URL.nativeType(), 1200, 1, url, title, null,
+                null, url, "http://" + url + "/", url, false, false), matchedQuery);
+    }
+
+    @Test
+    @Feature({"Omnibox"})
+    public void testEqualItemsHitTheCache() {
+        SuggestionText text = mCache.get(searchItem("chromium", "chr"), null);
+        assertSame(text, mCache.get(searchItem("chromium", "chr"), null));
+        assertEquals(1, mCache.size());
+
+        // The query the suggestion matched is part of the key.
+        assertNotSame(text, mCache.get(searchItem("chromium", "chro"), null));
+        assertEquals(2, mCache.size());
+    }
+
+    @Test
+    @Feature({"Omnibox"})
+    public void testTextsMatchUncachedTexts() {
+        OmniboxResultItem item = urlItem("example.com", "Example", "exam");
+        SuggestionText cached = mCache.get(item, null);
+        SuggestionText built = SuggestionTextCache.build(item, null);
+        assertEquals(built.mLine1.toString(), cached.mLine1.toString());
+        assertEquals("Example", cached.mLine1.toString());
+        assertEquals("example.com", cached.mUrlLine.toString());
+        assertEquals(1, cached.mUrlLine.getSpans(0, 4, StyleSpan.class).length);
+        assertFalse(cached.mMeasured);
+    }
+
+    @Test
+    @Feature({"Omnibox"})
+    public void testLeastRecentlyUsedEntriesAreEvicted() {
+        SuggestionText first = mCache.get(searchItem("query 0", "q"), null);
+        SuggestionText second = mCache.get(searchItem("query 1", "q"), null);
+        for (int i = 2; i <= SuggestionTextCache.MAX_ENTRIES; i++) {
+            // Keep the second entry in use.
+            assertSame(second, mCache.get(searchItem("query 1", "q"), null));
+            mCache.get(searchItem("query " + i, "q"), null);
+        }
+        assertEquals(SuggestionTextCache.MAX_ENTRIES, mCache.size());
+        assertSame(second, mCache.get(searchItem("query 1", "q"), null));
+        assertNotSame(first, mCache.get(searchItem("query 0", "q"), null));
+    }
+
+    @Test
+    @Feature({"Omnibox"})
+    public void testTextSizeChangeInvalidatesMeasuredTexts() {
+        TextPaint paint = new TextPaint();
+        paint.setTextSize(20);
+        OmniboxResultItem item = searchItem("chromium", "chr");
+        SuggestionText text = mCache.get(item, paint);
+        assertSame(text, mCache.get(item, paint));
+
+        paint.setTextSize(30);
+        assertNotSame(text, mCache.get(item, paint));
+        assertNotSame(text, mCache.get(item, null));
+    }
+
+    /**
+     * Switching between dark and light colors doesn't invalidate the cache: rows apply their
+     * colors to the cached texts, which only carry style spans.
+     */
+    @Test
+    @Feature({"Omnibox"})
+    public void testTextsDoNotDependOnColors() {
+        SuggestionText text = mCache.get(searchItem("chromium", "chr"), null);
+        Object[] spans = text.mLine1.getSpans(0, text.mLine1.length(), Object.class);
+        assertEquals(1, spans.length);
+        assertTrue(spans[0] instanceof StyleSpan);
+        assertNull(text.mUrlLine);
+        assertSame(text, mCache.get(searchItem("chromium", "chr"), null));
+    }
+}
@@ -0,0 +1,152 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.preferences;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Unit tests (run on host) for {@link PreferenceStore}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PreferenceStoreTest {
+    private static final String PREFS_NAME = "preference_store_test";
+
+    private SharedPreferences mSharedPreferences;
+    private PreferenceStore mStore;
+    // The store outlives a test if the same preferences are reused, so counts are relative.
+    private int mInitialFileWriteCount;
+    private int mInitialWritesAvoidedCount;
+
+    @Before
+    public void setUp() {
+        mSharedPreferences =
+                Robolectric.application.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mStore = PreferenceStore.get(mSharedPreferences);
+        mStore.flush();
+        mSharedPreferences.edit().clear().commit();
+        mInitialFileWriteCount = mStore.getFileWriteCount();
+        mInitialWritesAvoidedCount = mStore.getWritesAvoidedCount();
+    }
+
+    private int getFileWriteCount() {
+        return mStore.getFileWriteCount() - mInitialFileWriteCount;
+    }
+
+    private int getWritesAvoidedCount() {
+        return mStore.getWritesAvoidedCount() - mInitialWritesAvoidedCount;
+    }
+
+    @Test
+    @Feature({"Preferences"})
+    public void testStoreIsSharedPerFile() {
+        assertTrue(mStore == PreferenceStore.get(mSharedPreferences));
+        assertTrue(mStore == PreferenceStore.forDomain(Robolectric.application, PREFS_NAME));
+    }
+
+    @Test
+    @Feature({"Preferences"})
+    public void testPendingChangesAreReadBack() {
+        mStore.putInt("int", 1);
+        mStore.putString("string", "value");
+
+        // The store sees the changes before they are written to the file.
+        assertEquals(1, mStore.getInt("int", 0));
+        assertEquals("value", mStore.getString("string", null));
+        assertTrue(mStore.contains("int"));
+        assertFalse(mSharedPreferences.contains("int"));
+        assertEquals(0, getFileWriteCount());
+    }
+
+    @Test
+    @Feature({"Preferences"})
+    public void testChangesAreWrittenTogether() {
+        mStore.putBoolean("boolean", true);
+        mStore.putLong("long", 2L);
+        mStore.putStringSet("set", new HashSet<String>(Arrays.asList("a", "b")));
+
+        Robolectric.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(1, getFileWriteCount());
+        assertEquals(2, getWritesAvoidedCount());
+        assertTrue(mSharedPreferences.getBoolean("boolean", false));
+        assertEquals(2L, mSharedPreferences.getLong("long", 0));
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b")),
+                mSharedPreferences.getStringSet("set", null));
+    }
+
+    @Test
+    @Feature({"Preferences"})
+    public void testFlushWritesImmediately() {
+        mStore.putInt("int", 1);
+        mStore.flush();
+        assertEquals(1, mSharedPreferences.getInt("int", 0));
+        assertEquals(1, getFileWriteCount());
+
+        // The write that was scheduled was cancelled, and there is nothing left to write.
+        Robolectric.runUiThreadTasksIncludingDelayedTasks();
+        mStore.flush();
+        assertEquals(1, getFileWriteCount());
+    }
+
+    @Test
+    @Feature({"Preferences"})
+    public void testRemovals() {
+        mSharedPreferences.edit().putString("string", "old").putInt("int", 1).commit();
+
+        mStore.remove("int");
+        mStore.putString("string", null);
+        assertFalse(mStore.contains("int"));
+        assertEquals(0, mStore.getInt("int", 0));
+        assertNull(mStore.getString("string", null));
+        assertTrue(mSharedPreferences.contains("int"));
+
+        mStore.flush();
+        assertFalse(mSharedPreferences.contains("int"));
+        assertFalse(mSharedPreferences.contains("string"));
+    }
+
+    @Test
+    @Feature({"Preferences"})
+    public void testEditorAppliesOnlyOnApply() {
+        PreferenceStore.Editor editor = mStore.edit().putInt("int", 1).putString("string", "a");
+        assertFalse(mStore.contains("int"));
+
+        editor.apply();
+        assertEquals(1, mStore.getInt("int", 0));
+        assertEquals("a", mStore.getString("string", null));
+
+        // The editor's batch counts as a single requested write.
+        mStore.flush();
+        assertEquals(1, getFileWriteCount());
+        assertEquals(0, getWritesAvoidedCount());
+    }
+
+    @Test
+    @Feature({"Preferences"})
+    public void testStringSetIsCopied() {
+        Set<String> values = new HashSet<String>(Arrays.asList("a"));
+        mStore.putStringSet("set", values);
+        values.add("b");
+        assertEquals(new HashSet<String>(Arrays.asList("a")), mStore.getStringSet("set", null));
+    }
+}
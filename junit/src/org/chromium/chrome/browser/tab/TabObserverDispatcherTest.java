@@ -0,0 +1,197 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.tab;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.view.Choreographer;
+
+import org.chromium.base.ObserverList;
+import org.chromium.base.test.util.Feature;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests (run on host) for {@link TabObserverDispatcher}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class TabObserverDispatcherTest {
+    /**
+     * Runs frame callbacks when the test asks for a frame instead of using the Choreographer.
+     */
+    private static class TestDispatcher extends TabObserverDispatcher {
+        Choreographer.FrameCallback mFrameCallback;
+        int mPostCount;
+
+        TestDispatcher(ObserverList<TabObserver> observers) {
+            super(null, observers);
+        }
+
+        @Override
+        protected void postFrameCallback(Choreographer.FrameCallback callback) {
+            assertNull(mFrameCallback);
+            mFrameCallback = callback;
+            mPostCount++;
+        }
+
+        @Override
+        protected void removeFrameCallback(Choreographer.FrameCallback callback) {
+            assertTrue(mFrameCallback == callback);
+            mFrameCallback = null;
+        }
+
+        void drawFrame() {
+            Choreographer.FrameCallback callback = mFrameCallback;
+            mFrameCallback = null;
+            if (callback != null) callback.doFrame(0);
+        }
+    }
+
+    /**
+     * Records the events it receives, prefixed with its name, in a list shared by all observers.
+     */
+    private static class RecordingObserver extends EmptyTabObserver {
+        private final String mName;
+        private final List<String> mEvents;
+
+        RecordingObserver(String name, List<String> events) {
+            mName = name;
+            mEvents = events;
+        }
+
+        @Override
+        public void onLoadProgressChanged(Tab tab, int progress) {
+            mEvents.add(mName + ":progress" + progress);
+        }
+
+        @Override
+        public void onTitleUpdated(Tab tab) {
+            mEvents.add(mName + ":title");
+        }
+
+        @Override
+        public void onFaviconUpdated(Tab tab) {
+            mEvents.add(mName + ":favicon");
+        }
+
+        @Override
+        public void onUrlUpdated(Tab tab) {
+            mEvents.add(mName + ":url");
+        }
+
+        @Override
+        public void onLoadStopped(Tab tab) {
+            mEvents.add(mName + ":stopped");
+        }
+
+        @Override
+        public void onCrash(Tab tab, boolean sadTabShown) {
+            mEvents.add(mName + ":crash");
+        }
+    }
+
+    private final List<String> mEvents = new ArrayList<String>();
+    private final ObserverList<TabObserver> mObservers = new ObserverList<TabObserver>();
+    private TestDispatcher mDispatcher;
+
+    @Before
+    public void setUp() {
+        mDispatcher = new TestDispatcher(mObservers);
+    }
+
+    private RecordingObserver addObserver(String name, int eventMask) {
+        RecordingObserver observer = new RecordingObserver(name, mEvents);
+        mObservers.addObserver(observer);
+        mDispatcher.setEventMask(observer, eventMask);
+        return observer;
+    }
+
+    @Test
+    @Feature({"Tab"})
+    public void testEventsAreCoalescedUntilNextFrame() {
+        RecordingObserver observer = addObserver("a", TabObserver.EVENT_ALL);
+        mDispatcher.onLoadProgressChanged(10);
+        mDispatcher.onTitleUpdated();
+        mDispatcher.onLoadProgressChanged(30);
+        mDispatcher.onTitleUpdated();
+        mDispatcher.onFaviconUpdated();
+        assertTrue(mEvents.isEmpty());
+        assertEquals(1, mDispatcher.mPostCount);
+
+        mDispatcher.drawFrame();
+        assertEquals(Arrays.asList("a:progress30", "a:title", "a:favicon"), mEvents);
+        assertEquals(3, mDispatcher.getDispatchCount(observer));
+
+        // Nothing is pending anymore.
+        mDispatcher.flushPendingEvents();
+        assertEquals(3, mEvents.size());
+    }
+
+    @Test
+    @Feature({"Tab"})
+    public void testPendingEventsPrecedeDispatchedEvents() {
+        addObserver("a", TabObserver.EVENT_ALL);
+        mDispatcher.onLoadProgressChanged(100);
+        mDispatcher.onTitleUpdated();
+        mDispatcher.onLoadStopped();
+        assertEquals(Arrays.asList("a:progress100", "a:title", "a:stopped"), mEvents);
+
+        // The frame callback was cancelled when the events were flushed.
+        assertNull(mDispatcher.mFrameCallback);
+    }
+
+    @Test
+    @Feature({"Tab"})
+    public void testPendingEventsPrecedeDirectEvents() {
+        addObserver("a", TabObserver.EVENT_ALL);
+        mDispatcher.onFaviconUpdated();
+
+        // What Tab does before notifying observers directly, e.g. of a crash.
+        mDispatcher.flushPendingEvents();
+        for (TabObserver observer : mObservers) observer.onCrash(null, true);
+        mDispatcher.drawFrame();
+        assertEquals(Arrays.asList("a:favicon", "a:crash"), mEvents);
+    }
+
+    @Test
+    @Feature({"Tab"})
+    public void testMaskedEventsAreNotDispatched() {
+        RecordingObserver all = addObserver("all", TabObserver.EVENT_ALL);
+        RecordingObserver title = addObserver("title", TabObserver.EVENT_TITLE);
+        RecordingObserver none = addObserver("none", TabObserver.EVENT_NONE);
+
+        mDispatcher.onLoadProgressChanged(50);
+        mDispatcher.onTitleUpdated();
+        mDispatcher.onUrlUpdated();
+        assertEquals(Arrays.asList("all:progress50", "all:title", "title:title", "all:url"),
+                mEvents);
+        assertEquals(3, mDispatcher.getDispatchCount(all));
+        assertEquals(1, mDispatcher.getDispatchCount(title));
+        assertEquals(0, mDispatcher.getDispatchCount(none));
+    }
+
+    @Test
+    @Feature({"Tab"})
+    public void testDestroyDropsPendingEvents() {
+        RecordingObserver observer = addObserver("a", TabObserver.EVENT_ALL);
+        mDispatcher.onLoadProgressChanged(10);
+        mDispatcher.destroy();
+        assertNull(mDispatcher.mFrameCallback);
+
+        mDispatcher.flushPendingEvents();
+        assertTrue(mEvents.isEmpty());
+        assertEquals(0, mDispatcher.getDispatchCount(observer));
+    }
+}
@@ -0,0 +1,131 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.tabmodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.chrome.browser.tab.Tab;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link TabIdIndex}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class TabIdIndexTest {
+    private static final int TAB_COUNT = 1000;
+
+    private final List<Integer> mIds = new ArrayList<Integer>();
+    private final TabIdIndex.IdSource mSource = new TabIdIndex.IdSource() {
+        @Override
+        public int getCount() {
+            return mIds.size();
+        }
+
+        @Override
+        public int getIdAt(int index) {
+            return mIds.get(index);
+        }
+    };
+    private TabIdIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new TabIdIndex(mSource);
+    }
+
+    @Test
+    @Feature({"TabModel"})
+    public void testLookupFollowsChanges() {
+        assertEquals(TabList.INVALID_TAB_INDEX, mIndex.indexOf(5));
+
+        mIds.add(5);
+        mIds.add(7);
+        mIds.add(9);
+        mIndex.invalidate();
+        assertEquals(0, mIndex.indexOf(5));
+        assertEquals(1, mIndex.indexOf(7));
+        assertEquals(2, mIndex.indexOf(9));
+        assertEquals(TabList.INVALID_TAB_INDEX, mIndex.indexOf(6));
+
+        // Move the first tab to the end.
+        mIds.add(mIds.remove(0));
+        mIndex.invalidate();
+        assertEquals(0, mIndex.indexOf(7));
+        assertEquals(1, mIndex.indexOf(9));
+        assertEquals(2, mIndex.indexOf(5));
+
+        mIds.remove(Integer.valueOf(9));
+        mIndex.invalidate();
+        assertEquals(TabList.INVALID_TAB_INDEX, mIndex.indexOf(9));
+        assertEquals(1, mIndex.indexOf(5));
+        assertTrue(mIndex.isConsistent());
+    }
+
+    @Test
+    @Feature({"TabModel"})
+    public void testDuplicateIdsResolveToFirstOccurrence() {
+        mIds.add(3);
+        mIds.add(4);
+        mIds.add(3);
+        mIndex.invalidate();
+        assertEquals(0, mIndex.indexOf(3));
+        assertTrue(mIndex.isConsistent());
+    }
+
+    @Test
+    @Feature({"TabModel"})
+    public void testInvalidTabIdIsNeverFound() {
+        mIds.add(1);
+        mIndex.invalidate();
+        assertEquals(TabList.INVALID_TAB_INDEX, mIndex.indexOf(Tab.INVALID_TAB_ID));
+    }
+
+    @Test
+    @Feature({"TabModel"})
+    public void testGrowsWithManyTabs() {
+        for (int i = 0; i < TAB_COUNT; i++) mIds.add(i * 31);
+        mIndex.invalidate();
+        for (int i = 0; i < TAB_COUNT; i++) assertEquals(i, mIndex.indexOf(i * 31));
+        assertTrue(mIndex.isConsistent());
+    }
+
+    /**
+     * Checks that the index agrees with scanning the list, which is what
+     * {@link TabModelUtils#getTabIndexById} used to do, as tabs are closed and moved.
+     */
+    @Test
+    @Feature({"TabModel"})
+    public void testLookupMatchesScan() {
+        for (int i = 0; i < TAB_COUNT; i++) mIds.add(TAB_COUNT - i);
+        mIndex.invalidate();
+
+        for (int round = 0; round < 10; round++) {
+            mIds.remove(round * 7);
+            mIds.add(mIds.remove(round * 13));
+            mIndex.invalidate();
+            for (int id = 0; id <= TAB_COUNT + 1; id++) assertEquals(scan(id), mIndex.indexOf(id));
+            assertTrue(mIndex.isConsistent());
+        }
+    }
+
+    private int scan(int tabId) {
+        for (int i = 0; i < mIds.size(); i++) {
+            if (mIds.get(i) == tabId) return i;
+        }
+        return TabList.INVALID_TAB_INDEX;
+    }
+}
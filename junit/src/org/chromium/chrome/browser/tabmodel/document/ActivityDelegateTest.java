@@ -0,0 +1,187 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.tabmodel.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Activity;
+
+import org.chromium.base.ActivityState;
+import org.chromium.base.test.util.Feature;
+import org.chromium.chrome.browser.tab.Tab;
+import org.chromium.chrome.browser.tabmodel.document.DocumentTabModel.Entry;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the task snapshot of {@link ActivityDelegate}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ActivityDelegateTest {
+    /**
+     * ActivityDelegate whose Recents are a list, acting on tasks the way ActivityDelegateImpl
+     * does.
+     */
+    private static class FakeActivityDelegate extends ActivityDelegate {
+        final List<RecentsTask> mRecents = new ArrayList<RecentsTask>();
+
+        FakeActivityDelegate() {
+            super(Activity.class, Activity.class);
+        }
+
+        void addTask(int tabId, boolean isIncognito) {
+            mRecents.add(new RecentsTask(tabId, isIncognito, "http://" + tabId, null));
+        }
+
+        @Override
+        public List<Entry> getTasksFromRecents(boolean isIncognito) {
+            return getEntriesFromTaskSnapshot(isIncognito);
+        }
+
+        @Override
+        public void moveTaskToFront(boolean isIncognito, int tabId) {
+            RecentsTask task = getTaskFromTaskSnapshot(isIncognito, tabId);
+            if (task == null) return;
+            mRecents.remove(task);
+            mRecents.add(0, task);
+            invalidateTaskSnapshots();
+        }
+
+        @Override
+        public void finishAndRemoveTask(boolean isIncognito, int tabId) {
+            RecentsTask task = getTaskFromTaskSnapshot(isIncognito, tabId);
+            if (task == null) return;
+            mRecents.remove(task);
+            invalidateTaskSnapshots();
+        }
+
+        @Override
+        public boolean isIncognitoDocumentAccessibleToUser() {
+            return hasIncognitoTaskInTaskSnapshot();
+        }
+
+        @Override
+        protected boolean isActivityDestroyed(Activity activity) {
+            return false;
+        }
+
+        @Override
+        protected List<RecentsTask> queryTasksFromRecents() {
+            return new ArrayList<RecentsTask>(mRecents);
+        }
+    }
+
+    private FakeActivityDelegate mDelegate;
+
+    @Before
+    public void setUp() {
+        mDelegate = new FakeActivityDelegate();
+        mDelegate.addTask(3, false);
+        mDelegate.addTask(5, true);
+        mDelegate.addTask(Tab.INVALID_TAB_ID, false);
+        mDelegate.addTask(7, false);
+    }
+
+    @Test
+    @Feature({"TabModel"})
+    public void testSnapshotIsIndexedByTabId() {
+        List<Entry> regular = mDelegate.getTasksFromRecents(false);
+        assertEquals(2, regular.size());
+        assertEquals(3, regular.get(0).tabId);
+        assertEquals("http://3", regular.get(0).initialUrl);
+        assertEquals(7, regular.get(1).tabId);
+
+        List<Entry> incognito = mDelegate.getTasksFromRecents(true);
+        assertEquals(1, incognito.size());
+        assertEquals(5, incognito.get(0).tabId);
+        assertTrue(mDelegate.isIncognitoDocumentAccessibleToUser());
+
+        assertEquals(mDelegate.mRecents.get(3), mDelegate.getTaskFromTaskSnapshot(false, 7));
+        assertNull(mDelegate.getTaskFromTaskSnapshot(true, 7));
+        assertNull(mDelegate.getTaskFromTaskSnapshot(false, 5));
+        assertNull(mDelegate.getTaskFromTaskSnapshot(false, Tab.INVALID_TAB_ID));
+
+        // Entries are handed out to be modified, so they are never shared.
+        assertFalse(regular.get(0) == mDelegate.getTasksFromRecents(false).get(0));
+    }
+
+    @Test
+    @Feature({"TabModel"})
+    public void testSnapshotAvoidsQueries() {
+        int queries = mDelegate.getTaskQueryCount();
+        int avoided = mDelegate.getTaskQueriesAvoidedCount();
+        for (int i = 0; i < 10; i++) {
+            mDelegate.getTasksFromRecents(false);
+            mDelegate.getTasksFromRecents(true);
+            mDelegate.isIncognitoDocumentAccessibleToUser();
+        }
+        assertEquals(queries + 1, mDelegate.getTaskQueryCount());
+        assertEquals(avoided + 29, mDelegate.getTaskQueriesAvoidedCount());
+
+        // Answers from the snapshot match a fresh query.
+        List<Entry> cached = mDelegate.getTasksFromRecents(false);
+        ActivityDelegate.invalidateTaskSnapshots();
+        List<Entry> queried = mDelegate.getTasksFromRecents(false);
+        assertEquals(queries + 2, mDelegate.getTaskQueryCount());
+        assertEquals(queried.size(), cached.size());
+        for (int i = 0; i < queried.size(); i++) {
+            assertEquals(queried.get(i).tabId, cached.get(i).tabId);
+            assertEquals(queried.get(i).initialUrl, cached.get(i).initialUrl);
+        }
+    }
+
+    @Test
+    @Feature({"TabModel"})
+    public void testActivityStateChangeInvalidatesSnapshot() {
+        assertEquals(2, mDelegate.getTasksFromRecents(false).size());
+
+        // The snapshot doesn't see tasks added behind its back...
+        mDelegate.addTask(9, false);
+        assertEquals(2, mDelegate.getTasksFromRecents(false).size());
+
+        // ... until one of our Activities changes state.
+        int queries = mDelegate.getTaskQueryCount();
+        ActivityDelegate.getTaskSnapshotInvalidatorForTesting().onActivityStateChange(
+                null, ActivityState.RESUMED);
+        List<Entry> regular = mDelegate.getTasksFromRecents(false);
+        assertEquals(3, regular.size());
+        assertEquals(9, regular.get(2).tabId);
+        assertEquals(queries + 1, mDelegate.getTaskQueryCount());
+    }
+
+    @Test
+    @Feature({"TabModel"})
+    public void testOwnChangesInvalidateSnapshot() {
+        mDelegate.finishAndRemoveTask(true, 5);
+        assertEquals(0, mDelegate.getTasksFromRecents(true).size());
+        assertFalse(mDelegate.isIncognitoDocumentAccessibleToUser());
+
+        mDelegate.moveTaskToFront(false, 7);
+        List<Entry> regular = mDelegate.getTasksFromRecents(false);
+        assertEquals(7, regular.get(0).tabId);
+        assertEquals(3, regular.get(1).tabId);
+
+        // Launches elsewhere in Chrome invalidate the snapshots of every delegate.
+        FakeActivityDelegate other = new FakeActivityDelegate();
+        assertEquals(0, other.getTasksFromRecents(false).size());
+        other.addTask(11, false);
+        ActivityDelegate.invalidateTaskSnapshots();
+        assertEquals(1, other.getTasksFromRecents(false).size());
+        mDelegate.addTask(11, false);
+        assertEquals(3, mDelegate.getTasksFromRecents(false).size());
+    }
+}
@@ -0,0 +1,139 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.tabmodel.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.util.SparseBooleanArray;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Unit tests (run on host) for {@link DocumentEntryLog}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class DocumentEntryLogTest {
+    private static final int[] NO_REMOVALS = new int[0];
+
+    private static SparseBooleanArray entries(Object... tabIdsAndCanGoBack) {
+        SparseBooleanArray entries = new SparseBooleanArray();
+        for (int i = 0; i < tabIdsAndCanGoBack.length; i += 2) {
+            entries.put((Integer) tabIdsAndCanGoBack[i], (Boolean) tabIdsAndCanGoBack[i + 1]);
+        }
+        return entries;
+    }
+
+    private static byte[] concat(byte[]... parts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (byte[] part : parts) bytes.write(part);
+        return bytes.toByteArray();
+    }
+
+    private static SparseBooleanArray read(byte[] log) throws IOException {
+        return DocumentEntryLog.read(new ByteArrayInputStream(log));
+    }
+
+    private static void assertEntriesEqual(SparseBooleanArray expected,
+            SparseBooleanArray actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.keyAt(i), actual.keyAt(i));
+            assertEquals(expected.valueAt(i), actual.valueAt(i));
+        }
+    }
+
+    @Test
+    @Feature({"TabModel"})
+    public void testAppendedRecordsAreReplayed() throws IOException {
+        byte[] log = DocumentEntryLog.encode(entries(1, false, 2, true), NO_REMOVALS, true);
+        assertEquals(4 + 2 * DocumentEntryLog.RECORD_SIZE, log.length);
+        assertEntriesEqual(entries(1, false, 2, true), read(log));
+
+        // Later records override and remove earlier ones.
+        byte[] changes = DocumentEntryLog.encode(entries(1, true, 3, false), new int[] {2}, false);
+        assertEquals(3 * DocumentEntryLog.RECORD_SIZE, changes.length);
+        log = concat(log, changes);
+        assertEntriesEqual(entries(1, true, 3, false), read(log));
+
+        // Removing a tab that was never logged is harmless.
+        log = concat(log, DocumentEntryLog.encode(entries(), new int[] {42, 3}, false));
+        assertEntriesEqual(entries(1, true), read(log));
+    }
+
+    @Test
+    @Feature({"TabModel"})
+    public void testTruncatedRecordIsIgnored() throws IOException {
+        byte[] log = concat(
+                DocumentEntryLog.encode(entries(1, false), NO_REMOVALS, true),
+                DocumentEntryLog.encode(entries(2, true), NO_REMOVALS, false));
+
+        // Every way the last record can be cut short by a crash while appending.
+        for (int cut = 1; cut < DocumentEntryLog.RECORD_SIZE; cut++) {
+            assertEntriesEqual(entries(1, false),
+                    read(Arrays.copyOf(log, log.length - cut)));
+        }
+        assertEntriesEqual(entries(1, false, 2, true), read(log));
+    }
+
+    @Test
+    @Feature({"TabModel"})
+    public void testCorruptRecordEndsReplay() throws IOException {
+        byte[] head = DocumentEntryLog.encode(entries(1, false), NO_REMOVALS, true);
+        byte[] corrupt = DocumentEntryLog.encode(entries(2, true), NO_REMOVALS, false);
+        corrupt[0] = 0x7f;
+        byte[] tail = DocumentEntryLog.encode(entries(3, true), NO_REMOVALS, false);
+
+        // Records following one of an unknown type aren't trusted either.
+        assertEntriesEqual(entries(1, false), read(concat(head, corrupt, tail)));
+    }
+
+    @Test
+    @Feature({"TabModel"})
+    public void testUnknownOrMissingHeader() throws IOException {
+        byte[] log = DocumentEntryLog.encode(entries(1, false), NO_REMOVALS, true);
+        log[3]++;
+        assertNull(read(log));
+
+        // A log that is empty, or whose header was cut short, has no entries.
+        assertEquals(0, read(new byte[0]).size());
+        assertEquals(0, read(new byte[] {0, 0}).size());
+    }
+
+    @Test
+    @Feature({"TabModel"})
+    public void testCompactedLogMatchesReplayedLog() throws IOException {
+        byte[] log = DocumentEntryLog.encode(entries(), NO_REMOVALS, true);
+        for (int i = 0; i < 50; i++) {
+            byte[] changes = DocumentEntryLog.encode(
+                    entries(i, i % 2 == 0, i % 7, i % 3 == 0), new int[] {i - 5}, false);
+            log = concat(log, changes);
+        }
+        SparseBooleanArray replayed = read(log);
+
+        // Rewriting the log with one record per entry, as the model does once it holds too many
+        // stale records, keeps the entries.
+        byte[] compacted = DocumentEntryLog.encode(replayed, NO_REMOVALS, true);
+        assertEquals(4 + replayed.size() * DocumentEntryLog.RECORD_SIZE, compacted.length);
+        assertEntriesEqual(replayed, read(compacted));
+
+        // Records appended after compaction apply on top of it.
+        compacted = concat(compacted, DocumentEntryLog.encode(entries(), new int[] {49}, false));
+        replayed.delete(49);
+        assertEntriesEqual(replayed, read(compacted));
+    }
+}
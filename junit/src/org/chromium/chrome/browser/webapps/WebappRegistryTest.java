@@ -0,0 +1,174 @@
+// Copyright 2015 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.chrome.browser.webapps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.chrome.browser.ShortcutHelper;
+import org.chromium.chrome.browser.ShortcutSource;
+import org.chromium.content_public.common.ScreenOrientationValues;
+import org.chromium.testing.local.LocalRobolectricTestRunner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Unit tests (run on host) for {@link WebappRegistry}.
+ */
+@RunWith(LocalRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class WebappRegistryTest {
+    private static final long NOW_MS = WebappRegistry.MAX_UNUSED_AGE_MS * 10;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = mTemporaryFolder.newFolder("registry");
+    }
+
+    private void addEntry(String id, long lastUsedMs) throws IOException {
+        WebappRegistry.writeMeta(getMetaFile(id), id, 0, lastUsedMs);
+        writeFile(getIconFile(id), new byte[] {0, 0, 0, 1, 0, 0, 0, 1, 1, 2, 3, 4});
+    }
+
+    private File getMetaFile(String id) {
+        return new File(mDirectory, id + WebappRegistry.META_FILE_SUFFIX);
+    }
+
+    private File getIconFile(String id) {
+        return new File(mDirectory, id + WebappRegistry.ICON_FILE_SUFFIX);
+    }
+
+    private boolean hasEntry(String id) {
+        return getMetaFile(id).exists() && getIconFile(id).exists();
+    }
+
+    private static void writeFile(File file, byte[] contents) throws IOException {
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(contents);
+        } finally {
+            stream.close();
+        }
+    }
+
+    private void trim(String... liveWebapps) {
+        Set<String> live = new HashSet<String>(Arrays.asList(liveWebapps));
+        WebappRegistry.trimEntries(mDirectory, live, NOW_MS);
+    }
+
+    @Test
+    @Feature({"Webapps"})
+    public void testTrimKeepsMostRecentlyUsedEntries() throws IOException {
+        // Written out of order, so that the file order doesn't match the launch order.
+        for (int i = WebappRegistry.MAX_ENTRIES + 1; i >= 0; i--) {
+            addEntry("webapp" + i, NOW_MS - i);
+        }
+
+        trim();
+        for (int i = 0; i < WebappRegistry.MAX_ENTRIES; i++) {
+            assertTrue("webapp" + i, hasEntry("webapp" + i));
+        }
+        assertFalse(getMetaFile("webapp" + WebappRegistry.MAX_ENTRIES).exists());
+        assertFalse(getIconFile("webapp" + WebappRegistry.MAX_ENTRIES).exists());
+        assertFalse(getMetaFile("webapp" + (WebappRegistry.MAX_ENTRIES + 1)).exists());
+        assertEquals(WebappRegistry.MAX_ENTRIES * 2, mDirectory.listFiles().length);
+    }
+
+    @Test
+    @Feature({"Webapps"})
+    public void testTrimRemovesUnusedEntries() throws IOException {
+        addEntry("recent", NOW_MS - WebappRegistry.MAX_UNUSED_AGE_MS + 1);
+        addEntry("unused", NOW_MS - WebappRegistry.MAX_UNUSED_AGE_MS);
+
+        trim();
+        assertTrue(hasEntry("recent"));
+        assertFalse(getMetaFile("unused").exists());
+        assertFalse(getIconFile("unused").exists());
+    }
+
+    @Test
+    @Feature({"Webapps"})
+    public void testTrimKeepsLiveEntries() throws IOException {
+        for (int i = 0; i < WebappRegistry.MAX_ENTRIES; i++) addEntry("webapp" + i, NOW_MS - i);
+        addEntry("liveOverLimit", NOW_MS - WebappRegistry.MAX_ENTRIES);
+        addEntry("liveUnused", 0);
+        addEntry("unused", 0);
+
+        trim("liveOverLimit", "liveUnused");
+        assertTrue(hasEntry("liveOverLimit"));
+        assertTrue(hasEntry("liveUnused"));
+        assertFalse(getMetaFile("unused").exists());
+        for (int i = 0; i < WebappRegistry.MAX_ENTRIES; i++) {
+            assertTrue("webapp" + i, hasEntry("webapp" + i));
+        }
+    }
+
+    @Test
+    @Feature({"Webapps"})
+    public void testTrimRemovesIconsWithoutMetaFile() throws IOException {
+        addEntry("webapp", NOW_MS);
+        writeFile(getIconFile("orphan"), new byte[] {1, 2, 3});
+
+        trim();
+        assertTrue(hasEntry("webapp"));
+        assertFalse(getIconFile("orphan").exists());
+    }
+
+    @Test
+    @Feature({"Webapps"})
+    public void testTrimRemovesUnreadableEntries() throws IOException {
+        addEntry("webapp", NOW_MS);
+        addEntry("truncated", NOW_MS);
+        writeFile(getMetaFile("truncated"), new byte[] {0, 0});
+        addEntry("corrupt", NOW_MS);
+        writeFile(getMetaFile("corrupt"), new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13,
+                14, 15, 16});
+
+        trim();
+        assertTrue(hasEntry("webapp"));
+        assertFalse(getMetaFile("truncated").exists());
+        assertFalse(getIconFile("truncated").exists());
+        assertFalse(getMetaFile("corrupt").exists());
+        assertFalse(getIconFile("corrupt").exists());
+    }
+
+    @Test
+    @Feature({"Webapps"})
+    public void testTruncatedMetaFileIsRecreatedOnLaunch() throws IOException {
+        writeFile(getMetaFile("webapp"), new byte[] {0, 0, 0});
+        WebappInfo info = WebappInfo.create("webapp", "https://example.com/", null, "Example",
+                "Example", ScreenOrientationValues.DEFAULT, ShortcutSource.UNKNOWN,
+                ShortcutHelper.MANIFEST_COLOR_INVALID_OR_MISSING,
+                ShortcutHelper.MANIFEST_COLOR_INVALID_OR_MISSING);
+
+        WebappRegistry.Entry entry = WebappRegistry.loadOrCreateEntry(mDirectory, info, NOW_MS);
+        assertEquals("webapp", entry.id);
+        assertEquals(NOW_MS, entry.lastUsedMs);
+        assertNull(entry.icon);
+
+        // The entry was rewritten with its launch time, so it isn't trimmed.
+        trim();
+        assertTrue(getMetaFile("webapp").exists());
+    }
+}